@@ -38,22 +38,30 @@ import edu.umd.cs.findbugs.ExitCodes;
  * <ul>
  * <li>adjustExperimental (boolean default false)
  * <li>adjustPriority (passed to -adjustPriority)
+ * <li>analysisCacheSize (megabytes of recomputable class analyses to cache)
  * <li>applySuppression (exclude any warnings that match a suppression filter
  * supplied in a project file)
  * <li>auxAnalyzepath (class, jar, zip files or directories containing classes
  * to analyze)
  * <li>auxClasspath (classpath or classpathRef)
  * <li>baselineBugs (xml file containing baseline bugs)
+ * <li>checkpoint (directory to periodically write checkpoints of the analysis
+ * to)
  * <li>class (class, jar, zip or directory containing classes to analyze)
  * <li>classpath (classpath for running FindBugs)
  * <li>cloud (cloud id)
  * <li>conserveSpace (boolean - default false)</li>
+ * <li>daemon (local port of an analysis daemon to run the analysis in)
+ * <li>deadline (seconds after which to stop analysis and report partial results)
  * <li>debug (boolean default false)
  * <li>effort (enum min|default|max)</li>
  * <li>excludeFilter (filter filename)
  * <li>failOnError (boolean - default false)
  * <li>home (findbugs install dir)
  * <li>includeFilter (filter filename)
+ * <li>incremental (state file of an incremental analysis)
+ * <li>librarySummaries (summaries of aux classpath jars, written by the
+ * summarize command)
  * <li>maxRank (maximum rank issue to be reported)
  * <li>jvm (Set the command used to start the VM)
  * <li>jvmargs (any additional jvm arguments)
@@ -70,10 +78,13 @@ import edu.umd.cs.findbugs.ExitCodes;
  * <li>quietErrors (boolean - default false)
  * <li>relaxed (boolean - default false)
  * <li>reportLevel (enum experimental|low|medium|high)
+ * <li>resume (boolean default false - continue from the checkpoint)
+ * <li>shards (number of worker processes for xml output - default 1)
  * <li>sort (boolean default true)
  * <li>stylesheet (name of stylesheet to generate HTML: default is
  * "default.xsl")
  * <li>systemProperty (a system property to set)
+ * <li>threads (number of analysis threads - default 1)
  * <li>timestampNow (boolean - default false)
  * <li>visitors (collection - comma seperated)
  * <li>chooseVisitors (selectively enable/disable visitors)
@@ -162,6 +173,24 @@ public class FindBugsTask extends AbstractFindBugsTask {
 
     private boolean noClassOk;
 
+    private int threads = 1;
+
+    private int deadline;
+
+    private int daemon;
+
+    private File incremental;
+
+    private File checkpoint;
+
+    private boolean resume;
+
+    private int shards = 1;
+
+    private int analysisCacheSize;
+
+    private Path librarySummaries;
+
     private final List<FileSet> filesets = new ArrayList<FileSet>();
 
     public FindBugsTask() {
@@ -208,6 +237,102 @@ public class FindBugsTask extends AbstractFindBugsTask {
         this.noClassOk = noClassOk;
     }
 
+    /**
+     * Set the number of analysis threads.
+     *
+     * @param threads
+     *            number of threads used to apply detectors
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Set the analysis deadline.
+     *
+     * @param deadline
+     *            number of seconds after which analysis stops and partial
+     *            results are reported
+     */
+    public void setDeadline(int deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Set the port of the analysis daemon to use. The analysis is run in this
+     * JVM if no daemon is listening on the port.
+     *
+     * @param daemon
+     *            local port of the daemon started by "fb daemon"
+     */
+    public void setDaemon(int daemon) {
+        this.daemon = daemon;
+    }
+
+    /**
+     * Set the state file of an incremental analysis.
+     *
+     * @param incremental
+     *            file keeping the class hashes and dependencies; the
+     *            previous warnings are kept in the same file with ".xml"
+     *            appended
+     */
+    public void setIncremental(File incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Set the directory to periodically write checkpoints of the analysis to.
+     *
+     * @param checkpoint
+     *            the checkpoint directory
+     */
+    public void setCheckpoint(File checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Set the resume flag.
+     *
+     * @param resume
+     *            true to continue from the checkpoint in the checkpoint
+     *            directory, if there is one
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Set the number of worker processes the analysis is split between.
+     *
+     * @param shards
+     *            number of worker processes; only used for xml output
+     */
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    /**
+     * Set the memory budget of the cached class analyses which can be
+     * recomputed.
+     *
+     * @param analysisCacheSize
+     *            estimated size of the cached analyses, in megabytes
+     */
+    public void setAnalysisCacheSize(int analysisCacheSize) {
+        this.analysisCacheSize = analysisCacheSize;
+    }
+
+    /**
+     * Set the library summaries to use for matching aux classpath jars.
+     *
+     * @param librarySummaries
+     *            summary files written by the summarize command
+     */
+    public void setLibrarySummaries(Path librarySummaries) {
+        this.librarySummaries = librarySummaries;
+    }
+
     /**
      * Set the relaxed flag.
      *
@@ -741,6 +866,41 @@ public class FindBugsTask extends AbstractFindBugsTask {
         if (noClassOk) {
             addArg("-noClassOk");
         }
+        if (threads > 1) {
+            addArg("-threads");
+            addArg(Integer.toString(threads));
+        }
+        if (deadline > 0) {
+            addArg("-deadline");
+            addArg(Integer.toString(deadline));
+        }
+        if (daemon > 0) {
+            addArg("-daemon");
+            addArg(Integer.toString(daemon));
+        }
+        if (incremental != null) {
+            addArg("-incremental");
+            addArg(incremental.getPath());
+        }
+        if (checkpoint != null) {
+            addArg("-checkpoint");
+            addArg(checkpoint.getPath());
+            if (resume) {
+                addArg("-resume");
+            }
+        }
+        if (shards > 1) {
+            addArg("-shards");
+            addArg(Integer.toString(shards));
+        }
+        if (analysisCacheSize > 0) {
+            addArg("-analysisCacheSize");
+            addArg(Integer.toString(analysisCacheSize));
+        }
+        if (librarySummaries != null) {
+            addArg("-librarySummaries");
+            addArg(librarySummaries.toString());
+        }
         if (onlyAnalyze != null) {
             addArg("-onlyAnalyze");
             addArg(onlyAnalyze);
@@ -35,6 +35,7 @@ import javax.annotation.WillClose;
 
 import org.dom4j.DocumentException;
 
+import edu.umd.cs.findbugs.ba.AnalysisBudgetExceededException;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.ClassNotFoundExceptionParser;
 import edu.umd.cs.findbugs.ba.MethodUnprofitableException;
@@ -152,6 +153,14 @@ public abstract class AbstractBugReporter implements BugReporter {
     public void setRankThreshold(int threshold) {
         this.rankThreshold = threshold;
     }
+
+    public int getPriorityThreshold() {
+        return priorityThreshold;
+    }
+
+    public int getRankThreshold() {
+        return rankThreshold;
+    }
     
     public void setIsRelaxed(boolean relaxed) {
         this.relaxed = relaxed;
@@ -343,6 +352,10 @@ public abstract class AbstractBugReporter implements BugReporter {
             // TODO: log this
             return;
         }
+        if (e instanceof AnalysisBudgetExceededException) {
+            // Already logged, with its cost, when the budget ran out
+            return;
+        }
         if (e instanceof edu.umd.cs.findbugs.classfile.MissingClassException) {
             edu.umd.cs.findbugs.classfile.MissingClassException e2 = (edu.umd.cs.findbugs.classfile.MissingClassException) e;
             reportMissingClass(e2.getClassDescriptor());
@@ -0,0 +1,344 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+
+import org.dom4j.DocumentException;
+
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.util.Util;
+
+/**
+ * Checkpoints of a long running analysis (see
+ * {@link IFindBugsEngine#setCheckpointDirectory(String)}).
+ * <p>
+ * Checkpoints are taken during the last pass, which applies the reporting
+ * detectors and takes most of the time. A checkpoint is a state file, with
+ * the index of the pass and the application classes completed in it, and a
+ * bug collection file with the warnings reported so far. They are written
+ * every <code>findbugs.checkpoint.interval</code> seconds (default 300), and
+ * deleted when the analysis completes.
+ * <p>
+ * The earlier passes build the databases used by the last pass, much of
+ * which lives in memory only (e.g., the XFactory and the field summary), so
+ * an analysis resuming from a checkpoint does them again. In the last pass,
+ * the completed classes are only visited by the detectors which need to see
+ * every class: those which aren't known to report per class (see
+ * {@link ReportsPerClass}), and those which don't report, as they may
+ * collect information for the others. Their warnings about completed classes
+ * are also in the checkpoint; warnings are only added to the results if they
+ * aren't there already.
+ * <p>
+ * A checkpoint is only used if it was written by an analysis with the same
+ * configuration, of the same classes.
+ */
+class AnalysisCheckpoint {
+    private static final String STATE_VERSION = "FindBugs analysis checkpoint 1";
+
+    private static final String STATE_FILE_NAME = "checkpoint.state";
+
+    private static final String BUGS_FILE_NAME = "checkpoint.xml";
+
+    private static final long INTERVAL = SystemProperties.getInt("findbugs.checkpoint.interval", 300) * 1000L;
+
+    private final File directory;
+
+    private final File stateFile;
+
+    private final File bugsFile;
+
+    private final String configuration;
+
+    private final SortedBugCollection bugCollection;
+
+    private final boolean resume;
+
+    private String fingerprint;
+
+    private int pass = -1;
+
+    /** For each detector of the pass, whether it visits completed classes */
+    private boolean[] revisit;
+
+    /** Classes completed by the analysis resumed from */
+    private final Set<String> previousClasses = new HashSet<String>();
+
+    private @CheckForNull
+    SortedBugCollection previousBugs;
+
+    /** Classes completed, including those of the analysis resumed from */
+    private final Set<String> completedClasses = new HashSet<String>();
+
+    private long lastCheckpoint;
+
+    private boolean writeFailed;
+
+    /**
+     * @param directory
+     *            the checkpoint directory
+     * @param configuration
+     *            description of the analysis configuration; a checkpoint is
+     *            only resumed from if it was written with the same
+     *            configuration
+     * @param bugCollection
+     *            the bug collection of this analysis
+     * @param resume
+     *            true to resume from the checkpoint in the directory
+     */
+    AnalysisCheckpoint(File directory, String configuration, SortedBugCollection bugCollection, boolean resume) {
+        this.directory = directory;
+        this.stateFile = new File(directory, STATE_FILE_NAME);
+        this.bugsFile = new File(directory, BUGS_FILE_NAME);
+        this.configuration = configuration;
+        this.bugCollection = bugCollection;
+        this.resume = resume;
+    }
+
+    /**
+     * Called before the classes of the last pass are analyzed. Reads the
+     * checkpoint to resume from, if any.
+     *
+     * @param passIndex
+     *            index of the pass
+     * @param classes
+     *            the classes of the pass
+     * @param factories
+     *            factories of the detectors of the pass
+     */
+    void startPass(int passIndex, Collection<ClassDescriptor> classes, DetectorFactory[] factories)
+            throws InterruptedException {
+        this.pass = passIndex;
+        MessageDigest digest = Util.getMD5Digest();
+        digest.update(UTF8.getBytes(configuration));
+        for (ClassDescriptor desc : classes) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            digest.update(UTF8.getBytes(" " + desc.getClassName() + " "));
+            try {
+                digest.update(Global.getAnalysisCache().getClassAnalysis(ClassData.class, desc).getData());
+            } catch (CheckedAnalysisException e) {
+                // The class can't be analyzed, which is reported again
+                assert true;
+            }
+        }
+        fingerprint = new BigInteger(1, digest.digest()).toString(16);
+
+        revisit = new boolean[factories.length];
+        for (int i = 0; i < factories.length; i++) {
+            revisit[i] = !reportsPerClass(factories[i]);
+        }
+        if (resume && readCheckpoint()) {
+            completedClasses.addAll(previousClasses);
+        }
+        lastCheckpoint = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true if the class was completed by the analysis resumed from
+     */
+    boolean isCompleted(ClassDescriptor classDescriptor) {
+        return previousClasses.contains(classDescriptor.getClassName());
+    }
+
+    /**
+     * @param detector
+     *            index of a detector of the pass
+     * @return true if the detector should be applied to completed classes
+     */
+    boolean shouldRevisit(int detector) {
+        return revisit[detector];
+    }
+
+    /**
+     * Called when all detectors have been applied to a class of the last
+     * pass. Writes a checkpoint if the last one is old enough.
+     */
+    void classCompleted(ClassDescriptor classDescriptor) {
+        completedClasses.add(classDescriptor.getClassName());
+        if (!writeFailed && System.currentTimeMillis() - lastCheckpoint >= INTERVAL) {
+            try {
+                writeCheckpoint();
+            } catch (IOException e) {
+                writeFailed = true;
+                AnalysisContext.logError("Could not write analysis checkpoint to " + directory, e);
+            }
+            lastCheckpoint = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Called at the end of the analysis. Adds the warnings of the analysis
+     * resumed from to the results, and deletes the checkpoint if the
+     * analysis is complete.
+     *
+     * @param complete
+     *            true if all classes were analyzed by all detectors
+     */
+    void finish(boolean complete) {
+        if (previousBugs != null) {
+            addResults(previousBugs, bugCollection, false);
+        }
+        if (complete) {
+            stateFile.delete();
+            bugsFile.delete();
+        }
+    }
+
+    /**
+     * Add the warnings, missing classes and errors of a bug collection which
+     * aren't in another one.
+     */
+    private static void addResults(SortedBugCollection source, SortedBugCollection target, boolean copy) {
+        for (BugInstance bug : source.getCollection()) {
+            if (!target.contains(bug)) {
+                target.add(copy ? (BugInstance) bug.clone() : bug, false);
+            }
+        }
+        for (Iterator<String> i = source.missingClassIterator(); i.hasNext();) {
+            target.addMissingClass(i.next());
+        }
+        Set<String> errors = new HashSet<String>();
+        for (AnalysisError error : target.getErrors()) {
+            errors.add(error.getMessage() + "\n" + error.getExceptionMessage());
+        }
+        for (AnalysisError error : source.getErrors()) {
+            if (errors.add(error.getMessage() + "\n" + error.getExceptionMessage())) {
+                target.addError(error);
+            }
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        // Writing the bug collection marks it as populated, so write a copy
+        // (not a duplicate(), which shares the project statistics). The
+        // warnings are written first: if only they are, the state is of an
+        // older checkpoint, whose warnings are all included
+        SortedBugCollection bugs = new SortedBugCollection(new ProjectStats(), bugCollection.getProject());
+        bugs.setWithMessages(false);
+        addResults(bugCollection, bugs, true);
+        if (previousBugs != null) {
+            addResults(previousBugs, bugs, true);
+        }
+        File temp = new File(directory, BUGS_FILE_NAME + ".tmp");
+        bugs.writeXML(temp);
+        rename(temp, bugsFile);
+
+        temp = new File(directory, STATE_FILE_NAME + ".tmp");
+        PrintWriter out = UTF8.printWriter(temp.getPath());
+        try {
+            out.println(STATE_VERSION);
+            out.println(fingerprint);
+            out.println(pass);
+            for (String className : completedClasses) {
+                out.println(className);
+            }
+            if (out.checkError()) {
+                throw new IOException("Error writing " + temp);
+            }
+        } finally {
+            out.close();
+        }
+        rename(temp, stateFile);
+    }
+
+    private static void rename(File temp, File file) throws IOException {
+        if (!temp.renameTo(file)) {
+            // Windows won't rename over an existing file
+            file.delete();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Can't rename " + temp + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Read the checkpoint to resume from.
+     *
+     * @return true if it could be read and was written by an analysis of the
+     *         same classes with the same configuration
+     */
+    private boolean readCheckpoint() {
+        if (!stateFile.isFile() || !bugsFile.isFile()) {
+            return false;
+        }
+        try {
+            BufferedReader in = UTF8.bufferedReader(new FileInputStream(stateFile));
+            try {
+                if (!STATE_VERSION.equals(in.readLine()) || !fingerprint.equals(in.readLine())
+                        || !Integer.toString(pass).equals(in.readLine())) {
+                    return false;
+                }
+                String line;
+                while ((line = in.readLine()) != null) {
+                    previousClasses.add(line);
+                }
+            } finally {
+                in.close();
+            }
+            SortedBugCollection bugs = new SortedBugCollection(new Project());
+            bugs.readXML(bugsFile);
+            previousBugs = bugs;
+            return true;
+        } catch (IOException e) {
+            AnalysisContext.logError("Could not read analysis checkpoint; analyzing all classes", e);
+        } catch (DocumentException e) {
+            AnalysisContext.logError("Could not read analysis checkpoint warnings; analyzing all classes", e);
+        }
+        previousClasses.clear();
+        return false;
+    }
+
+    /**
+     * Whether a detector only reports warnings about the class it visits,
+     * while visiting it: it is a {@link StatelessDetector}, or is marked
+     * {@link ReportsPerClass}. Other detectors need to see every class of the
+     * pass.
+     */
+    static boolean reportsPerClass(DetectorFactory factory) {
+        if (!factory.isReportingDetector() || factory.isDetectorClassSubtypeOf(NonReportingDetector.class)) {
+            return false;
+        }
+        return factory.isDetectorClassSubtypeOf(StatelessDetector.class)
+                || factory.getDetectorClass().isAnnotationPresent(ReportsPerClass.class);
+    }
+}
@@ -0,0 +1,659 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import javax.annotation.CheckForNull;
+
+import edu.umd.cs.findbugs.ba.URLClassPath;
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.impl.AnalysisCache;
+import edu.umd.cs.findbugs.classfile.impl.PersistentClassAnalysisCache;
+import edu.umd.cs.findbugs.config.CommandLine;
+import edu.umd.cs.findbugs.config.CommandLine.HelpRequestedException;
+import edu.umd.cs.findbugs.io.IO;
+
+/**
+ * Long-lived process running analyses for clients on the same host, and the
+ * client side used by <code>-daemon &lt;port&gt;</code>.
+ * <p>
+ * The daemon saves what every run in a new JVM pays for again: JVM startup
+ * and JIT warm-up, loading the plugins into the DetectorFactoryCollection,
+ * and the XClass and ClassNameAndSuperclassInfo analyses of the classes, in
+ * particular those of the aux classpath. These are kept by a shared
+ * {@link PersistentClassAnalysisCache}, keyed by the content of each class, so
+ * only classes which changed since an earlier analysis are parsed again.
+ * Analyses are run one at a time; the output of each goes back to its client.
+ * Incremental analyses (-incremental) are the way to submit only the classes
+ * which changed.
+ * <p>
+ * A client sends its command line with all file names made absolute, as the
+ * daemon has another working directory. Options which change the plugins or
+ * the bug patterns of the whole JVM (-pluginList, -choosePlugins,
+ * -adjustPriority, -home, -showPlugins) are not run in the daemon; nor is any
+ * analysis if the daemon is not running or runs another version of FindBugs.
+ * These are analyzed by the client itself.
+ * <p>
+ * Only clients which can read the daemon's token file may use it: when it
+ * starts, the daemon writes a random token to a file readable by its owner
+ * only, <code>.findbugs/daemon-&lt;port&gt;.token</code> in the user's home
+ * directory (or in the directory named by the
+ * <code>findbugs.daemon.dir</code> system property), and a request which
+ * doesn't start with that token is dropped. Requests are also limited in
+ * size, and a request which fails doesn't stop the daemon.
+ */
+public class AnalysisDaemon {
+
+    private static final String REQUEST = "FindBugs analysis request";
+
+    private static final int ACCEPTED = 1;
+
+    private static final int REJECTED = 2;
+
+    private static final int STDOUT = 1;
+
+    private static final int STDERR = 2;
+
+    private static final int EXIT = 3;
+
+    private static final int TOKEN_LENGTH = 32;
+
+    /**
+     * Maximum total size of the strings of a request, in bytes
+     */
+    private static final int MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Time allowed to send a request, in milliseconds
+     */
+    private static final int REQUEST_TIMEOUT = 60 * 1000;
+
+    /**
+     * Options not run in the daemon, because they affect the daemon's later
+     * analyses, or exit the JVM
+     */
+    private static final Set<String> LOCAL_OPTIONS = new HashSet<String>(Arrays.asList("-pluginList", "-choosePlugins",
+            "-adjustPriority", "-home", "-showPlugins"));
+
+    /**
+     * Options taking a file name
+     */
+    private static final Set<String> FILE_OPTIONS = new HashSet<String>(Arrays.asList("-project", "-userPrefs",
+            "-redoAnalysis", "-sourceInfo", "-reanalyze", "-outputFile", "-output", "-excludeBugs", "-exclude", "-include",
+            "-incremental", "-checkpoint"));
+
+    /**
+     * Options taking a list of file names
+     */
+    private static final Set<String> PATH_OPTIONS = new HashSet<String>(Arrays.asList("-auxclasspath", "-sourcepath",
+            "-librarySummaries"));
+
+    private final ServerSocket serverSocket;
+
+    private final byte[] token;
+
+    private final File tokenFile;
+
+    private AnalysisDaemon(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        token = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(token);
+        tokenFile = getTokenFile(serverSocket.getLocalPort());
+        try {
+            writeTokenFile(tokenFile, token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        PersistentClassAnalysisCache.shareBetweenAnalyses();
+        AnalysisCache.shrinkOnHeapPressure();
+    }
+
+    /**
+     * Get the file holding the token of the daemon listening on a port.
+     *
+     * @param port
+     *            the port
+     * @return the token file, which may not exist
+     */
+    static File getTokenFile(int port) {
+        String dir = SystemProperties.getProperty("findbugs.daemon.dir");
+        File directory = dir != null ? new File(dir) : new File(SystemProperties.getProperty("user.home"), ".findbugs");
+        return new File(directory, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Write a token to a new file which only the current user can read.
+     */
+    static void writeTokenFile(File file, byte[] token) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        // Left behind by a daemon which was killed
+        file.delete();
+        Path path = file.toPath();
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(EnumSet.of(PosixFilePermission.OWNER_READ,
+                    PosixFilePermission.OWNER_WRITE)));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(path);
+            if (!file.setReadable(false, false) || !file.setWritable(false, false) || !file.setReadable(true, true)
+                    || !file.setWritable(true, true)) {
+                file.delete();
+                throw new IOException("Can't make " + file + " private");
+            }
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Token file " + file + " was created by another process");
+        }
+        file.deleteOnExit();
+        OutputStream out = Files.newOutputStream(path);
+        try {
+            out.write(token);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the token in a token file
+     */
+    static byte[] readTokenFile(File file) throws IOException {
+        DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()));
+        try {
+            byte[] token = new byte[TOKEN_LENGTH];
+            in.readFully(token);
+            return token;
+        } finally {
+            IO.close(in);
+        }
+    }
+
+    /**
+     * Serve analysis requests until the process is killed.
+     */
+    private void serve() throws IOException {
+        while (true) {
+            Socket socket = serverSocket.accept();
+            try {
+                handle(socket);
+            } catch (IOException e) {
+                System.err.println("Analysis request failed: " + e);
+            } catch (RuntimeException e) {
+                System.err.println("Analysis request failed: " + e);
+            } catch (Error e) {
+                System.err.println("Analysis request failed: " + e);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        socket.setSoTimeout(REQUEST_TIMEOUT);
+        if (!REQUEST.equals(in.readUTF())) {
+            return;
+        }
+        byte[] clientToken = new byte[TOKEN_LENGTH];
+        in.readFully(clientToken);
+        if (!MessageDigest.isEqual(token, clientToken)) {
+            System.err.println("Dropped analysis request with a wrong token");
+            return;
+        }
+        String version = in.readUTF();
+        String[] args = readRequest(in);
+        socket.setSoTimeout(0);
+        if (!Version.COMPUTED_RELEASE.equals(version)) {
+            out.writeByte(REJECTED);
+            writeString(out, "the daemon runs FindBugs " + Version.COMPUTED_RELEASE);
+            out.flush();
+            return;
+        }
+        out.writeByte(ACCEPTED);
+
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        Properties properties = (Properties) System.getProperties().clone();
+        PrintStream clientOut = UTF8.printStream(new FrameOutputStream(out, STDOUT));
+        PrintStream clientErr = UTF8.printStream(new FrameOutputStream(out, STDERR));
+        int exitCode;
+        System.setOut(clientOut);
+        System.setErr(clientErr);
+        try {
+            exitCode = analyze(args);
+        } catch (Throwable e) {
+            e.printStackTrace();
+            exitCode = ExitCodes.ERROR_FLAG;
+        } finally {
+            clientOut.flush();
+            clientErr.flush();
+            System.setOut(stdout);
+            System.setErr(stderr);
+            // Analyses set some system properties, e.g. for training
+            System.setProperties(properties);
+        }
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    /**
+     * Run an analysis as FindBugs2.main() and FindBugs.runMain() do, but
+     * without exiting the JVM.
+     *
+     * @return the exit code of the analysis
+     */
+    private static int analyze(String[] args) throws Exception {
+        FindBugs2 findBugs = new FindBugs2();
+        TextUICommandLine commandLine = new TextUICommandLine();
+        int argCount;
+        try {
+            argCount = commandLine.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            FindBugs.showCommandLineOptions(commandLine);
+            return ExitCodes.ERROR_FLAG;
+        } catch (HelpRequestedException e) {
+            FindBugs.showCommandLineOptions(commandLine);
+            return ExitCodes.ERROR_FLAG;
+        }
+        Project project = commandLine.getProject();
+        for (int i = argCount; i < args.length; ++i) {
+            project.addFile(args[i]);
+        }
+        commandLine.configureEngine(findBugs);
+
+        boolean justPrintConfiguration = commandLine.justPrintConfiguration();
+        if (justPrintConfiguration || commandLine.justPrintVersion()) {
+            Version.printVersion(justPrintConfiguration);
+            return 0;
+        }
+        if (project.getFileCount() == 0) {
+            System.out.println("No files to be analyzed");
+            FindBugs.showCommandLineOptions(commandLine);
+            return ExitCodes.ERROR_FLAG;
+        }
+
+        findBugs.execute();
+
+        if (!commandLine.quiet() || commandLine.setExitCode()) {
+            if (findBugs.getBugCount() > 0) {
+                System.err.println("Warnings generated: " + findBugs.getBugCount());
+            }
+            if (findBugs.getMissingClassCount() > 0) {
+                System.err.println("Missing classes: " + findBugs.getMissingClassCount());
+            }
+            if (findBugs.getErrorCount() > 0) {
+                System.err.println("Analysis errors: " + findBugs.getErrorCount());
+            }
+        }
+        return commandLine.setExitCode() ? FindBugs.computeExitCode(findBugs) : 0;
+    }
+
+    /**
+     * Output stream sending what is written to the client, as frames tagged
+     * with the stream they were written to.
+     */
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        private final int tag;
+
+        FrameOutputStream(DataOutputStream out, int tag) {
+            this.out = out;
+            this.tag = tag;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(tag);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Run an analysis in the daemon, if the command line asks for it with
+     * <code>-daemon &lt;port&gt;</code>. The output of the analysis is written
+     * to System.out and System.err.
+     *
+     * @param args
+     *            the command line
+     * @return the exit code of the analysis, or null if it has to be run in
+     *         this JVM
+     */
+    public static @CheckForNull
+    Integer runInDaemon(String[] args) {
+        TextUICommandLine commandLine = new TextUICommandLine();
+        List<String> request;
+        int port;
+        try {
+            String[] argv = commandLine.expandOptionFiles(args, true, true);
+            port = getPort(commandLine, argv);
+            if (port < 0) {
+                return null;
+            }
+            request = makeRequest(commandLine, argv);
+        } catch (IOException e) {
+            return null;
+        } catch (HelpRequestedException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            // Reported by the local analysis
+            return null;
+        }
+        if (request == null) {
+            System.err.println("Options not supported by the analysis daemon, analyzing locally");
+            return null;
+        }
+
+        byte[] token;
+        Socket socket;
+        try {
+            token = readTokenFile(getTokenFile(port));
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        } catch (IOException e) {
+            System.err.println("No analysis daemon on port " + port + ", analyzing locally");
+            return null;
+        }
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(REQUEST);
+            out.write(token);
+            out.writeUTF(Version.COMPUTED_RELEASE);
+            out.writeInt(request.size());
+            for (String arg : request) {
+                writeString(out, arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readByte() != ACCEPTED) {
+                System.err.println("Analysis daemon refused the analysis (" + readString(in) + "), analyzing locally");
+                return null;
+            }
+            byte[] buf = new byte[8192];
+            while (true) {
+                int tag = in.readByte();
+                if (tag == EXIT) {
+                    System.out.flush();
+                    return in.readInt();
+                }
+                PrintStream stream = tag == STDERR ? System.err : System.out;
+                int len = in.readInt();
+                while (len > 0) {
+                    int n = in.read(buf, 0, Math.min(len, buf.length));
+                    if (n < 0) {
+                        throw new EOFException();
+                    }
+                    stream.write(buf, 0, n);
+                    len -= n;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Lost connection to the analysis daemon: " + e);
+            return ExitCodes.ERROR_FLAG;
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                assert true;
+            }
+        }
+    }
+
+    /**
+     * @return the port given by -daemon, or -1 if none
+     */
+    private static int getPort(CommandLine commandLine, String[] argv) {
+        for (int i = 0; i < argv.length && argv[i].startsWith("-"); i++) {
+            if (argv[i].equals("-daemon") && i + 1 < argv.length) {
+                try {
+                    return Integer.parseInt(argv[i + 1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad daemon port: " + argv[i + 1]);
+                }
+            }
+            if (commandLine.requiresArgument(argv[i])) {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Make the command line to send to the daemon: file names are made
+     * absolute, and what the command line says to read from the standard
+     * input is read here.
+     *
+     * @return the command line, or null if the analysis has to be run in this
+     *         JVM
+     */
+    private static @CheckForNull
+    List<String> makeRequest(CommandLine commandLine, String[] argv) throws IOException {
+        List<String> request = new ArrayList<String>();
+        List<String> files = new ArrayList<String>();
+        int i = 0;
+        for (; i < argv.length && argv[i].startsWith("-"); i++) {
+            String arg = argv[i];
+            int colon = arg.indexOf(':');
+            String option = colon >= 0 ? arg.substring(0, colon) : arg;
+            String optionExtraPart = colon >= 0 ? arg.substring(colon + 1) : "";
+            if (LOCAL_OPTIONS.contains(option)) {
+                return null;
+            }
+            if (option.equals("-daemon")) {
+                i++;
+            } else if (commandLine.requiresArgument(option)) {
+                if (i + 1 >= argv.length) {
+                    throw new IllegalArgumentException("Option " + option + " requires an argument");
+                }
+                String argument = argv[++i];
+                if (FILE_OPTIONS.contains(option)) {
+                    argument = makeAbsolute(argument);
+                } else if (PATH_OPTIONS.contains(option)) {
+                    argument = makeAbsolutePath(argument);
+                }
+                request.add(arg);
+                request.add(argument);
+            } else if (option.equals("-train") || option.equals("-useTraining")) {
+                request.add(option + ":" + makeAbsolute(optionExtraPart.equals("") ? "." : optionExtraPart));
+            } else if (option.equals("-auxclasspathFromInput")) {
+                StringBuilder auxClasspath = new StringBuilder();
+                for (String s : readStandardInput()) {
+                    if (auxClasspath.length() > 0) {
+                        auxClasspath.append(File.pathSeparatorChar);
+                    }
+                    auxClasspath.append(makeAbsolutePath(s));
+                }
+                request.add("-auxclasspath");
+                request.add(auxClasspath.toString());
+            } else if (option.equals("-xargs")) {
+                files.addAll(readStandardInput());
+            } else {
+                request.add(arg);
+            }
+        }
+        for (; i < argv.length; i++) {
+            files.add(argv[i]);
+        }
+        for (String file : files) {
+            request.add(makeAbsolute(file));
+        }
+        return request;
+    }
+
+    private static List<String> readStandardInput() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = UTF8.bufferedReader(System.in);
+        String s;
+        while ((s = in.readLine()) != null) {
+            lines.add(s);
+        }
+        return lines;
+    }
+
+    private static String makeAbsolute(String fileName) {
+        if (URLClassPath.getURLProtocol(fileName) != null) {
+            return fileName;
+        }
+        return new File(fileName).getAbsolutePath();
+    }
+
+    private static String makeAbsolutePath(String path) {
+        StringBuilder result = new StringBuilder();
+        StringTokenizer tok = new StringTokenizer(path, File.pathSeparator);
+        while (tok.hasMoreTokens()) {
+            if (result.length() > 0) {
+                result.append(File.pathSeparatorChar);
+            }
+            result.append(makeAbsolute(tok.nextToken()));
+        }
+        return result.toString();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF8.charset);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_REQUEST_SIZE) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8.charset);
+    }
+
+    /**
+     * Read the command line of a request, which must not be larger than
+     * MAX_REQUEST_SIZE.
+     */
+    private static String[] readRequest(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        // Each string takes at least its length
+        if (count < 0 || count > MAX_REQUEST_SIZE / 4) {
+            throw new IOException("Bad argument count " + count);
+        }
+        String[] args = new String[count];
+        int remaining = MAX_REQUEST_SIZE - 4 * count;
+        for (int i = 0; i < count; i++) {
+            int length = in.readInt();
+            if (length < 0 || length > remaining) {
+                throw new IOException("Request is too large");
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            args[i] = new String(bytes, UTF8.charset);
+            remaining -= length;
+        }
+        return args;
+    }
+
+    static class DaemonCommandLine extends CommandLine {
+        int port;
+
+        DaemonCommandLine() {
+            addOption("-port", "port", "local port to listen on (default: any free port)");
+        }
+
+        @Override
+        protected void handleOption(String option, String optionExtraPart) {
+            throw new IllegalArgumentException("Unknown option : " + option);
+        }
+
+        @Override
+        protected void handleOptionWithArgument(String option, String argument) {
+            if (option.equals("-port")) {
+                port = Integer.parseInt(argument);
+            } else {
+                throw new IllegalArgumentException("Unknown option : " + option);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!CheckBcel.check()) {
+            System.exit(1);
+        }
+        DaemonCommandLine commandLine = new DaemonCommandLine();
+        commandLine.parse(args, 0, 0, "Usage: " + AnalysisDaemon.class.getName() + " [options]");
+
+        // Load the plugins now, not for the first analysis
+        DetectorFactoryCollection.instance();
+
+        AnalysisDaemon daemon = new AnalysisDaemon(commandLine.port);
+        System.out.println("FindBugs analysis daemon listening on port " + daemon.serverSocket.getLocalPort()
+                + ", token in " + daemon.tokenFile);
+        daemon.serve();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.CheckForNull;
+
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.log.Profiler;
+
+/**
+ * Wall clock deadline for an analysis (see
+ * {@link IFindBugsEngine#setDeadline(long)}).
+ * <p>
+ * While the classes of a pass are analyzed, the time per class so far is used
+ * to estimate when the pass will be done. If that is after the deadline, the
+ * most expensive reporting detector is dropped for the rest of the analysis:
+ * slow detectors (see {@link DetectorFactory#getSpeed()}) go before moderate
+ * and fast ones, and among detectors of the same speed the one the profiler
+ * has measured the most time for goes first. Detectors which only build
+ * databases for others are never dropped. Once the deadline has passed, the
+ * remaining classes are not analyzed at all, so that the results found so far
+ * can still be written.
+ * <p>
+ * Many detectors collect information across classes and report at the end of
+ * the pass. Their reports would be wrong if they missed some classes, so
+ * {@link #shouldFinishPass(Detector2, DetectorFactory[])} tells to skip the
+ * end of the pass for reporting detectors which were dropped, or if any class
+ * of the pass was skipped. The dropped detectors and the classes which were
+ * not analyzed are logged as analysis errors, so the partial results say what
+ * is missing.
+ */
+class AnalysisDeadline {
+    /**
+     * Number of classes to analyze before estimating the time left, and again
+     * after dropping a detector.
+     */
+    private static final int CLASSES_PER_ESTIMATE = 8;
+
+    private final long deadline;
+
+    private final Profiler profiler;
+
+    private final Map<DetectorFactory, AtomicInteger> dropped = new ConcurrentHashMap<DetectorFactory, AtomicInteger>();
+
+    private final List<DetectorFactory> dropOrder = new ArrayList<DetectorFactory>();
+
+    private final Set<String> skippedClasses = new LinkedHashSet<String>();
+
+    private int classesSkippedInPass;
+
+    private long intervalStart;
+
+    private int intervalClasses;
+
+    /**
+     * @param deadline
+     *            the deadline, in milliseconds since the epoch
+     * @param profiler
+     *            profiler with the detector timings
+     */
+    AnalysisDeadline(long deadline, Profiler profiler) {
+        this.deadline = deadline;
+        this.profiler = profiler;
+    }
+
+    /**
+     * @return true if the deadline has passed
+     */
+    boolean isPassed() {
+        return System.currentTimeMillis() >= deadline;
+    }
+
+    /**
+     * @return true if no detector was dropped and no class skipped
+     */
+    boolean isComplete() {
+        return dropOrder.isEmpty() && skippedClasses.isEmpty();
+    }
+
+    /**
+     * Called before the classes of a pass are analyzed.
+     */
+    void startPass() {
+        intervalStart = System.currentTimeMillis();
+        intervalClasses = 0;
+        classesSkippedInPass = 0;
+    }
+
+    /**
+     * Called before a class is analyzed.
+     *
+     * @param classDescriptor
+     *            the class
+     * @return true if the class should be analyzed, false if the deadline has
+     *         passed
+     */
+    boolean startClass(ClassDescriptor classDescriptor) {
+        if (isPassed()) {
+            skippedClasses.add(classDescriptor.toDottedClassName());
+            classesSkippedInPass++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a detector has been dropped. May be called from several
+     * analysis threads.
+     *
+     * @param factory
+     *            factory of the detector about to be applied to a class
+     * @return true if the detector should not be applied
+     */
+    boolean isDropped(DetectorFactory factory) {
+        AtomicInteger skipped = dropped.get(factory);
+        if (skipped == null) {
+            return false;
+        }
+        skipped.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Called after classes of the current pass have been analyzed. Drops a
+     * detector if the remaining classes aren't likely to be done in time.
+     *
+     * @param analyzed
+     *            number of classes just analyzed
+     * @param remaining
+     *            number of classes left in the pass
+     * @param factories
+     *            factories of the detectors of the pass
+     */
+    void classesAnalyzed(int analyzed, int remaining, DetectorFactory[] factories) {
+        intervalClasses += analyzed;
+        if (intervalClasses < CLASSES_PER_ESTIMATE || remaining == 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        double timePerClass = (now - intervalStart) / (double) intervalClasses;
+        if (now + timePerClass * remaining <= deadline) {
+            return;
+        }
+        DetectorFactory factory = chooseDetectorToDrop(factories);
+        if (factory != null) {
+            dropped.put(factory, new AtomicInteger());
+            dropOrder.add(factory);
+            // Estimate again without it
+            intervalStart = now;
+            intervalClasses = 0;
+        }
+    }
+
+    /**
+     * Check whether finishPass() should be called on a detector at the end of
+     * the pass.
+     *
+     * @param detector
+     *            the detector
+     * @param factories
+     *            factories of the detectors of the pass
+     * @return false if the detector reports and didn't see all classes of the
+     *         pass
+     */
+    boolean shouldFinishPass(Detector2 detector, DetectorFactory[] factories) {
+        for (DetectorFactory factory : factories) {
+            if (factory.getDetectorClass().getName().equals(detector.getDetectorClassName())) {
+                if (!isDroppable(factory)) {
+                    return true;
+                }
+                return classesSkippedInPass == 0 && !dropped.containsKey(factory);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDroppable(DetectorFactory factory) {
+        return factory.isReportingDetector() && !factory.isDetectorClassSubtypeOf(NonReportingDetector.class);
+    }
+
+    private @CheckForNull DetectorFactory chooseDetectorToDrop(DetectorFactory[] factories) {
+        DetectorFactory result = null;
+        int resultSpeed = 0;
+        long resultTime = 0;
+        for (DetectorFactory factory : factories) {
+            if (!isDroppable(factory) || dropped.containsKey(factory)) {
+                continue;
+            }
+            int speed = speedRank(factory);
+            long time = profiler.getTotalTime(factory.getDetectorClass());
+            if (result == null || speed > resultSpeed || speed == resultSpeed && time > resultTime) {
+                result = factory;
+                resultSpeed = speed;
+                resultTime = time;
+            }
+        }
+        return result;
+    }
+
+    /*
+     * The speed declared in findbugs.xml is deprecated, since it isn't kept up
+     * to date, but it is the only estimate of the cost of a detector before
+     * the profiler has measured it.
+     */
+    @SuppressWarnings("deprecation")
+    private static int speedRank(DetectorFactory factory) {
+        String speed = factory.getSpeed();
+        if ("slow".equals(speed)) {
+            return 2;
+        } else if ("moderate".equals(speed)) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Log the dropped detectors and the classes which weren't analyzed as
+     * analysis errors.
+     *
+     * @param bugReporter
+     *            the bug reporter
+     */
+    void reportSkipped(BugReporter bugReporter) {
+        for (DetectorFactory factory : dropOrder) {
+            bugReporter.logError("Analysis deadline: detector " + factory.getShortName() + " skipped for "
+                    + dropped.get(factory).get() + " classes");
+        }
+        if (!skippedClasses.isEmpty()) {
+            StringBuilder buf = new StringBuilder("Analysis deadline: ").append(skippedClasses.size())
+                    .append(" classes not analyzed:");
+            for (Iterator<String> i = skippedClasses.iterator(); i.hasNext();) {
+                buf.append(' ').append(i.next());
+            }
+            bugReporter.logError(buf.toString());
+        }
+    }
+}
@@ -19,6 +19,9 @@
 
 package edu.umd.cs.findbugs;
 
+import java.util.Collections;
+import java.util.List;
+
 import edu.umd.cs.findbugs.config.AnalysisFeatureSetting;
 import edu.umd.cs.findbugs.config.UserPreferences;
 
@@ -76,6 +79,49 @@ public class AnalysisOptions {
      */
     public boolean noClassOk;
 
+    /**
+     * Number of threads used to apply detectors to classes
+     */
+    public int threads = 1;
+
+    /**
+     * Wall clock deadline for the analysis, in milliseconds since the epoch;
+     * 0 means none
+     */
+    public long deadline;
+
+    /**
+     * Memory budget of the cached class analyses which can be recomputed, in
+     * bytes; 0 means none
+     */
+    public long analysisCacheSize;
+
+    /**
+     * State file of an incremental analysis, or null
+     */
+    public String incrementalStateFile;
+
+    /**
+     * Directory the checkpoints of the analysis are written to, or null
+     */
+    public String checkpointDirectory;
+
+    /**
+     * Whether to continue from the checkpoint in the checkpoint directory
+     */
+    public boolean resumeFromCheckpoint;
+
+    /**
+     * Library summary files to use for matching aux classpath entries
+     */
+    public List<String> librarySummaries = Collections.emptyList();
+
+    /**
+     * Shard of the application classes analyzed by this worker of a sharded
+     * analysis, or null to analyze all application classes
+     */
+    AnalysisShard shard;
+
     String releaseName;
 
     String projectName;
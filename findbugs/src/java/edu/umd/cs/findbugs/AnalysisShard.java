@@ -0,0 +1,199 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.FirstPassSummary;
+import edu.umd.cs.findbugs.ba.interproc.PropertyDatabase;
+import edu.umd.cs.findbugs.ba.interproc.PropertyDatabaseFormatException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.detect.BuildNonnullReturnDatabase;
+import edu.umd.cs.findbugs.detect.BuildUnconditionalParamDerefDatabase;
+
+/**
+ * The part of the application classes analyzed by one worker of a sharded
+ * analysis (see {@link ShardedAnalysis}).
+ * <p>
+ * Classes are assigned to shards by the name of their outermost class, so
+ * inner classes are in the shard of their outer class. A worker applies the
+ * first pass to the referenced classes of its own shard, and only records
+ * the XClass of the others. The workers then exchange the first pass facts
+ * through the exchange directory (see {@link FirstPassSummary}). Before the
+ * pass computing the nullness facts of methods, each worker computes those of
+ * its own shard, and the workers exchange them in the format of the training
+ * databases.
+ * <p>
+ * In the later passes, a worker applies to the classes of other shards the
+ * detectors which need to see every class (see
+ * {@link AnalysisCheckpoint#reportsPerClass(DetectorFactory)}). Warnings
+ * about the classes of other shards are reported by their own workers, and
+ * dropped.
+ */
+final class AnalysisShard {
+    /**
+     * Waits until all workers of a sharded analysis have written their
+     * summaries.
+     */
+    interface Barrier {
+        /**
+         * @throws IOException
+         *             if the analysis has to be stopped
+         */
+        void await() throws IOException;
+    }
+
+    static final String FIRST_PASS_SUMMARY_FILENAME = "firstPass.summary";
+
+    private final int index;
+
+    private final int count;
+
+    private final File exchangeDir;
+
+    private final Barrier barrier;
+
+    /**
+     * @param index
+     *            index of the shard, from 0
+     * @param count
+     *            number of shards
+     * @param exchangeDir
+     *            directory shared by the workers
+     * @param barrier
+     *            barrier shared by the workers
+     */
+    AnalysisShard(int index, int count, File exchangeDir, Barrier barrier) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Bad shard " + index + " of " + count);
+        }
+        this.index = index;
+        this.count = count;
+        this.exchangeDir = exchangeDir;
+        this.barrier = barrier;
+    }
+
+    /**
+     * @return the directory in which a worker writes its summaries
+     */
+    static File getSummaryDirectory(File exchangeDir, int shard) {
+        return new File(exchangeDir, "summary-" + shard);
+    }
+
+    /**
+     * @return true if the class is in this shard
+     */
+    boolean contains(ClassDescriptor classDescriptor) {
+        return contains(classDescriptor.getClassName());
+    }
+
+    /**
+     * @param className
+     *            a class name, slashed or dotted
+     * @return true if the class is in this shard
+     */
+    boolean contains(String className) {
+        int dollar = className.indexOf('$');
+        String outerClassName = (dollar > 0 ? className.substring(0, dollar) : className).replace('.', '/');
+        return (outerClassName.hashCode() & Integer.MAX_VALUE) % count == index;
+    }
+
+    /**
+     * @param factories
+     *            the detectors of a pass after the first one
+     * @return for each detector, whether it is applied to classes of other
+     *         shards
+     */
+    static boolean[] getDetectorsForOtherShards(DetectorFactory[] factories) {
+        boolean[] result = new boolean[factories.length];
+        for (int i = 0; i < factories.length; i++) {
+            DetectorFactory factory = factories[i];
+            result[i] = !AnalysisCheckpoint.reportsPerClass(factory) && !computesNullnessFacts(factory);
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the detector computes the nullness facts of methods,
+     *         which are exchanged between the workers
+     */
+    static boolean computesNullnessFacts(DetectorFactory factory) {
+        return factory.isDetectorClassSubtypeOf(BuildUnconditionalParamDerefDatabase.class)
+                || factory.isDetectorClassSubtypeOf(BuildNonnullReturnDatabase.class);
+    }
+
+    /**
+     * Write the first pass facts of this shard, wait for the other workers,
+     * and add the facts of their shards.
+     */
+    void exchangeFirstPass(AnalysisContext analysisContext) throws IOException {
+        FirstPassSummary.write(new FileOutputStream(new File(getOwnSummaryDirectory(), FIRST_PASS_SUMMARY_FILENAME)),
+                analysisContext);
+        barrier.await();
+        for (int i = 0; i < count; i++) {
+            if (i != index) {
+                FirstPassSummary.read(new FileInputStream(new File(getSummaryDirectory(exchangeDir, i),
+                        FIRST_PASS_SUMMARY_FILENAME)), analysisContext);
+            }
+        }
+    }
+
+    /**
+     * Write the nullness facts of the methods of this shard, wait for the
+     * other workers, and add the facts of their shards.
+     */
+    void exchangeNullnessFacts(AnalysisContext analysisContext) throws IOException {
+        File summaryDir = getOwnSummaryDirectory();
+        analysisContext.getUnconditionalDerefParamDatabase().writeToFile(
+                new File(summaryDir, AnalysisContext.UNCONDITIONAL_DEREF_DB_FILENAME).getPath());
+        analysisContext.getReturnValueNullnessPropertyDatabase().writeToFile(
+                new File(summaryDir, AnalysisContext.NONNULL_RETURN_DB_FILENAME).getPath());
+        barrier.await();
+        for (int i = 0; i < count; i++) {
+            if (i != index) {
+                File dir = getSummaryDirectory(exchangeDir, i);
+                readNullnessFacts(analysisContext.getUnconditionalDerefParamDatabase(), new File(dir,
+                        AnalysisContext.UNCONDITIONAL_DEREF_DB_FILENAME));
+                readNullnessFacts(analysisContext.getReturnValueNullnessPropertyDatabase(), new File(dir,
+                        AnalysisContext.NONNULL_RETURN_DB_FILENAME));
+            }
+        }
+    }
+
+    private static void readNullnessFacts(PropertyDatabase<?, ?> database, File file) throws IOException {
+        try {
+            database.readFromFile(file.getPath());
+        } catch (PropertyDatabaseFormatException e) {
+            throw new IOException("Bad nullness facts in " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private File getOwnSummaryDirectory() throws IOException {
+        File summaryDir = getSummaryDirectory(exchangeDir, index);
+        if (!summaryDir.isDirectory() && !summaryDir.mkdirs()) {
+            throw new IOException("Could not create directory " + summaryDir);
+        }
+        return summaryDir;
+    }
+}
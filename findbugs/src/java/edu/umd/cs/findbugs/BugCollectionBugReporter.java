@@ -24,6 +24,7 @@ import java.io.PrintWriter;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 
+import edu.umd.cs.findbugs.ba.AnalysisBudgetExceededException;
 import edu.umd.cs.findbugs.ba.Debug;
 import edu.umd.cs.findbugs.ba.MethodUnprofitableException;
 import edu.umd.cs.findbugs.ba.MissingClassException;
@@ -77,6 +78,10 @@ public class BugCollectionBugReporter extends TextUIBugReporter implements Debug
             // TODO: log this
             return;
         }
+        if (e instanceof AnalysisBudgetExceededException) {
+            // Already logged, with its cost, when the budget ran out
+            return;
+        }
         bugCollection.addError(message, e);
         super.logError(message, e);
     }
@@ -27,6 +27,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.CheckForNull;
 
@@ -240,11 +242,11 @@ public class BugRanker {
     }
 
 
-    private static AnalysisLocal<HashMap<BugPattern, Integer>> rankForBugPattern
-    = new AnalysisLocal<HashMap<BugPattern, Integer>>() {
+    private static AnalysisLocal<Map<BugPattern, Integer>> rankForBugPattern
+    = new AnalysisLocal<Map<BugPattern, Integer>>() {
         @Override
-        protected HashMap<BugPattern, Integer> initialValue() {
-            return new HashMap<BugPattern, Integer>();
+        protected Map<BugPattern, Integer> initialValue() {
+            return new ConcurrentHashMap<BugPattern, Integer>();
         }
     };
 
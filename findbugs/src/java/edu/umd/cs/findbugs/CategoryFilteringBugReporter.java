@@ -36,6 +36,13 @@ public class CategoryFilteringBugReporter extends DelegatingBugReporter {
         this.categorySet = categorySet;
     }
 
+    /**
+     * @return the categories of the warnings which are reported
+     */
+    public Set<String> getCategorySet() {
+        return categorySet;
+    }
+
     @Override
     public void reportBug(@Nonnull BugInstance bugInstance) {
         BugPattern bugPattern = bugInstance.getBugPattern();
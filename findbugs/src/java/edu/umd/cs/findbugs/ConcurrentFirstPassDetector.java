@@ -0,0 +1,41 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+/**
+ * A non-reporting first pass detector which may be applied to several classes
+ * at the same time.
+ * <p>
+ * When FindBugs runs with more than one analysis thread, each thread gets its
+ * own instance of the detector. Such a detector must not keep state from one
+ * class to the next, and may only record what it learns in the databases
+ * sharded by
+ * {@link edu.umd.cs.findbugs.ba.AnalysisContext#openDatabaseShards()}. Its
+ * updates go into a shard for the class being analyzed; the shards are merged
+ * in class order once the classes analyzed at the same time are done. In
+ * passes sorted by call graph, classes are only analyzed together with
+ * classes they don't call, so the detector still sees the summaries of the
+ * callees.
+ *
+ * @see StatelessDetector
+ */
+public interface ConcurrentFirstPassDetector extends NonReportingDetector {
+
+}
@@ -111,7 +111,11 @@ public class DetectorFactory {
 
     private final @Nonnull Plugin plugin;
 
-    private final ReflectionDetectorCreator detectorCreator;
+    private final Class<?> detectorClass;
+
+    private ReflectionDetectorCreator detectorCreator;
+
+    private PluginException loadFailure;
 
     private final @Nonnull @DottedClassName String className;
 
@@ -139,9 +143,10 @@ public class DetectorFactory {
      * @param plugin
      *            the Plugin the Detector is part of
      * @param className
-     *            TODO
+     *            the name of the Detector class
      * @param detectorClass
-     *            the Class object of the Detector
+     *            the Class object of the Detector, or null to load it from
+     *            the plugin's class loader when first needed
      * @param enabled
      *            true if the Detector is enabled by default, false if disabled
      * @param speed
@@ -160,7 +165,7 @@ public class DetectorFactory {
             String reports, String requireJRE) {
         this.plugin = plugin;
         this.className = className;
-        this.detectorCreator = FindBugs.isNoAnalysis() ? null : new ReflectionDetectorCreator(detectorClass);
+        this.detectorClass = detectorClass;
         this.defEnabled = enabled;
         this.speed = speed;
         this.reports = reports;
@@ -204,6 +209,74 @@ public class DetectorFactory {
         return plugin;
     }
 
+    /**
+     * Get the detector class. Detectors are profiled under this class.
+     *
+     * @return the detector class
+     */
+    public Class<?> getDetectorClass() {
+        return getDetectorCreator().getDetectorClass();
+    }
+
+    /**
+     * Load the detector class, if it was not loaded yet, and check that it
+     * is a Detector or Detector2. Most of the detectors of a plugin are never
+     * used in a given analysis, so their classes are not loaded along with
+     * the plugin. The ExecutionPlan loads those of the detectors it runs.
+     *
+     * @throws PluginException
+     *             if the class can't be loaded or linked, or is not a
+     *             detector; logged the first time
+     */
+    public synchronized void loadDetectorClass() throws PluginException {
+        if (FindBugs.isNoAnalysis())
+            throw new IllegalStateException("No analysis specified");
+        if (detectorCreator != null) {
+            return;
+        }
+        if (loadFailure != null) {
+            throw loadFailure;
+        }
+        Class<?> cls = detectorClass;
+        try {
+            if (cls == null) {
+                cls = plugin.getClassLoader().loadClass(className);
+            }
+            if (!Detector.class.isAssignableFrom(cls) && !Detector2.class.isAssignableFrom(cls)) {
+                throw loadFailed(new PluginException("Class " + className + " does not implement Detector or Detector2"));
+            }
+            detectorCreator = new ReflectionDetectorCreator(cls);
+        } catch (ClassNotFoundException e) {
+            throw loadFailed(new PluginException("Could not load detector class " + className, e));
+        } catch (LinkageError e) {
+            throw loadFailed(new PluginException("Could not load detector class " + className, e));
+        }
+    }
+
+    /**
+     * Remember and log why the detector class can't be loaded. Callers which
+     * only ask about the type of the detector treat it as being of no type,
+     * so this is the one place the failure is reported.
+     */
+    private PluginException loadFailed(PluginException e) {
+        loadFailure = e;
+        AnalysisContext.logError("Unable to load detector " + getFullName() + " in plugin " + plugin.getPluginId(), e);
+        return e;
+    }
+
+    /**
+     * Get the creator of detector instances, loading the detector class if
+     * it was not loaded yet.
+     */
+    private synchronized ReflectionDetectorCreator getDetectorCreator() {
+        try {
+            loadDetectorClass();
+        } catch (PluginException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return detectorCreator;
+    }
+
     /**
      * Determine whether the detector class is a subtype of the given class (or
      * interface).
@@ -211,12 +284,16 @@ public class DetectorFactory {
      * @param otherClass
      *            a class or interface
      * @return true if the detector class is a subtype of the given class or
-     *         interface
+     *         interface, false if not or if the detector class can't be
+     *         loaded (which is logged when first tried)
      */
     public boolean isDetectorClassSubtypeOf(Class<?> otherClass) {
-        if (FindBugs.isNoAnalysis())
-            throw new IllegalStateException("No analysis specified");
-        return otherClass.isAssignableFrom(detectorCreator.getDetectorClass());
+        try {
+            loadDetectorClass();
+        } catch (PluginException e) {
+            return false;
+        }
+        return otherClass.isAssignableFrom(getDetectorClass());
     }
 
     /**
@@ -370,9 +447,7 @@ public class DetectorFactory {
      */
     @Deprecated
     public Detector create(BugReporter bugReporter) {
-        if (FindBugs.isNoAnalysis())
-            throw new IllegalStateException("No analysis specified");
-        return detectorCreator.createDetector(bugReporter);
+        return getDetectorCreator().createDetector(bugReporter);
     }
 
     /**
@@ -383,9 +458,7 @@ public class DetectorFactory {
      * @return the Detector2
      */
     public Detector2 createDetector2(BugReporter bugReporter) {
-        if (FindBugs.isNoAnalysis())
-            throw new IllegalStateException("No analysis specified");
-        return detectorCreator.createDetector2(bugReporter);
+        return getDetectorCreator().createDetector2(bugReporter);
     }
 
     /**
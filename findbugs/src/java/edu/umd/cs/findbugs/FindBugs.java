@@ -429,24 +429,45 @@ public abstract class FindBugs {
         }
 
         if (commandLine.setExitCode()) {
-            int exitCode = 0;
-            System.err.println("Calculating exit code...");
-            if (errorCount > 0) {
-                exitCode |= ExitCodes.ERROR_FLAG;
-                System.err.println("Setting 'errors encountered' flag (" + ExitCodes.ERROR_FLAG + ")");
-            }
-            if (missingClassCount > 0) {
-                exitCode |= ExitCodes.MISSING_CLASS_FLAG;
-                System.err.println("Setting 'missing class' flag (" + ExitCodes.MISSING_CLASS_FLAG + ")");
-            }
-            if (bugCount > 0) {
-                exitCode |= ExitCodes.BUGS_FOUND_FLAG;
-                System.err.println("Setting 'bugs found' flag (" + ExitCodes.BUGS_FOUND_FLAG + ")");
-            }
-            System.err.println("Exit code set to: " + exitCode);
+            System.exit(computeExitCode(findBugs));
+        }
+    }
+
+    /**
+     * Compute the process exit code of a finished analysis from its bug,
+     * missing class and error counts, as requested by -exitcode.
+     *
+     * @param findBugs
+     *            the engine which ran the analysis
+     * @return the exit code
+     */
+    static int computeExitCode(IFindBugsEngine findBugs) {
+        return computeExitCode(findBugs.getErrorCount(), findBugs.getMissingClassCount(), findBugs.getBugCount());
+    }
 
-            System.exit(exitCode);
+    /**
+     * Compute the process exit code of an analysis from its bug, missing
+     * class and error counts, as requested by -exitcode.
+     *
+     * @return the exit code
+     */
+    static int computeExitCode(int errorCount, int missingClassCount, int bugCount) {
+        int exitCode = 0;
+        System.err.println("Calculating exit code...");
+        if (errorCount > 0) {
+            exitCode |= ExitCodes.ERROR_FLAG;
+            System.err.println("Setting 'errors encountered' flag (" + ExitCodes.ERROR_FLAG + ")");
+        }
+        if (missingClassCount > 0) {
+            exitCode |= ExitCodes.MISSING_CLASS_FLAG;
+            System.err.println("Setting 'missing class' flag (" + ExitCodes.MISSING_CLASS_FLAG + ")");
+        }
+        if (bugCount > 0) {
+            exitCode |= ExitCodes.BUGS_FOUND_FLAG;
+            System.err.println("Setting 'bugs found' flag (" + ExitCodes.BUGS_FOUND_FLAG + ")");
         }
+        System.err.println("Exit code set to: " + exitCode);
+        return exitCode;
     }
 
     /**
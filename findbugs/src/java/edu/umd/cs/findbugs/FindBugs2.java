@@ -19,19 +19,34 @@
 
 package edu.umd.cs.findbugs;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -40,8 +55,10 @@ import org.apache.bcel.classfile.ClassFormatException;
 import org.dom4j.DocumentException;
 
 import edu.umd.cs.findbugs.asm.FBClassReader;
+import edu.umd.cs.findbugs.ba.AnalysisBudget;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.AnalysisFeatures;
+import edu.umd.cs.findbugs.ba.CFG;
 import edu.umd.cs.findbugs.ba.ObjectTypeFactory;
 import edu.umd.cs.findbugs.ba.SourceInfoMap;
 import edu.umd.cs.findbugs.ba.XClass;
@@ -50,7 +67,9 @@ import edu.umd.cs.findbugs.ba.XField;
 import edu.umd.cs.findbugs.ba.jsr305.TypeQualifierAnnotation;
 import edu.umd.cs.findbugs.ba.jsr305.TypeQualifierApplications;
 import edu.umd.cs.findbugs.ba.jsr305.TypeQualifierValue;
+import edu.umd.cs.findbugs.ba.type.TypeDataflow;
 import edu.umd.cs.findbugs.bugReporter.BugReporterDecorator;
+import edu.umd.cs.findbugs.charsets.UTF8;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
@@ -63,19 +82,28 @@ import edu.umd.cs.findbugs.classfile.IClassPath;
 import edu.umd.cs.findbugs.classfile.IClassPathBuilder;
 import edu.umd.cs.findbugs.classfile.ICodeBase;
 import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ICodeBaseLocator;
 import edu.umd.cs.findbugs.classfile.MissingClassException;
+import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
+import edu.umd.cs.findbugs.classfile.impl.AnalysisCache;
 import edu.umd.cs.findbugs.classfile.impl.ClassFactory;
+import edu.umd.cs.findbugs.classfile.impl.ClassPathImpl;
+import edu.umd.cs.findbugs.classfile.impl.ClassPrefetcher;
+import edu.umd.cs.findbugs.classfile.impl.LibrarySummary;
+import edu.umd.cs.findbugs.classfile.impl.MethodAnalysisSpeculator;
 import edu.umd.cs.findbugs.config.AnalysisFeatureSetting;
 import edu.umd.cs.findbugs.config.UserPreferences;
 import edu.umd.cs.findbugs.detect.NoteSuppressedWarnings;
 import edu.umd.cs.findbugs.filter.FilterException;
+import edu.umd.cs.findbugs.io.IO;
 import edu.umd.cs.findbugs.log.Profiler;
 import edu.umd.cs.findbugs.log.YourKitController;
 import edu.umd.cs.findbugs.plan.AnalysisPass;
 import edu.umd.cs.findbugs.plan.ExecutionPlan;
 import edu.umd.cs.findbugs.plan.OrderingConstraintException;
-import edu.umd.cs.findbugs.util.ClassName;
+import edu.umd.cs.findbugs.util.TopologicalSort;
 import edu.umd.cs.findbugs.util.TopologicalSort.OutEdges;
+import edu.umd.cs.findbugs.util.Util;
 
 /**
  * FindBugs driver class. Orchestrates the analysis of a project, collection of
@@ -94,11 +122,47 @@ public class FindBugs2 implements IFindBugsEngine {
 
     private static final boolean SCREEN_FIRST_PASS_CLASSES = SystemProperties.getBoolean("findbugs.screenFirstPass");
 
+    /** Print the hits, misses and evictions of the class analysis caches */
+    private static final boolean CACHE_STATISTICS = SystemProperties.getBoolean("findbugs.analysisCache.statistics");
+
+    /**
+     * When analyzing with several threads, classes are handed out in windows
+     * of this many classes. Database updates made on worker threads become
+     * visible at the end of a window, so the window size doesn't depend on the
+     * number of threads.
+     */
+    private static final int CLASSES_IN_WINDOW = SystemProperties.getInt("findbugs.threads.window", 32);
+
+    /**
+     * Number of classes to read and parse ahead of the analysis on a helper
+     * thread; 0 disables prefetching.
+     */
+    private static final int PREFETCH_CLASSES = SystemProperties.getInt("findbugs.prefetch", 0);
+
+    /**
+     * Number of classes for which to compute method analyses ahead of the
+     * detectors on a helper thread; 0 disables speculation. Only done after
+     * the first pass, when the analyses no longer depend on databases the
+     * current pass is still building.
+     */
+    private static final int SPECULATE_CLASSES = SystemProperties.getInt("findbugs.speculate", 0);
+
+    /**
+     * Method analyses which may be computed ahead of the detectors. The
+     * dataflow analyses which consult the nullness and unread field databases
+     * are not included, since those databases are updated during the pass.
+     */
+    private static final List<Class<?>> SPECULATED_ANALYSES = Collections.unmodifiableList(Arrays.<Class<?>> asList(
+            CFG.class, TypeDataflow.class));
+
     public static final String PROP_FINDBUGS_HOST_APP = "findbugs.hostApp";
     public static final String PROP_FINDBUGS_HOST_APP_VERSION = "findbugs.hostAppVersion";
 
     private int rankThreshold;
 
+    /** Contents of the filters added, for the configuration of the analysis */
+    private final StringBuilder filterConfiguration = new StringBuilder();
+
     private List<IClassObserver> classObserverList;
 
     private BugReporter bugReporter;
@@ -115,6 +179,9 @@ public class FindBugs2 implements IFindBugsEngine {
 
     private Collection<ClassDescriptor> referencedClassSet;
 
+    /** Aux codebases for which a library summary is used */
+    private final Set<ICodeBase> summarizedCodeBases = new HashSet<ICodeBase>();
+
     private DetectorFactoryCollection detectorFactoryCollection;
 
     private ExecutionPlan executionPlan;
@@ -129,6 +196,9 @@ public class FindBugs2 implements IFindBugsEngine {
 
     private final AnalysisOptions analysisOptions = new AnalysisOptions(true);
 
+    /** Codebases which are not part of the project, and whether they are application codebases */
+    private final Map<ICodeBaseLocator, Boolean> extraCodeBaseMap = new LinkedHashMap<ICodeBaseLocator, Boolean>();
+
     /**
      * Constructor.
      */
@@ -208,11 +278,20 @@ public class FindBugs2 implements IFindBugsEngine {
             // The class path object
             createClassPath();
 
-            progress.reportNumberOfArchives(project.getFileCount() + project.getNumAuxClasspathEntries());
+            progress.reportNumberOfArchives(project.getFileCount() + project.getNumAuxClasspathEntries() + extraCodeBaseMap.size());
             profiler.start(this.getClass());
 
             // The analysis cache object
             createAnalysisCache();
+            if (analysisOptions.analysisCacheSize > 0 && Global.getAnalysisCache() instanceof AnalysisCache) {
+                ((AnalysisCache) Global.getAnalysisCache()).setMaxCacheSize(analysisOptions.analysisCacheSize);
+            }
+            if (Global.getAnalysisCache() instanceof AnalysisCache) {
+                // Keep the ClassContexts of all classes in a window, and of
+                // those analyzed speculatively, cached
+                int classesInFlight = analysisOptions.threads > 1 ? CLASSES_IN_WINDOW + analysisOptions.threads : 1;
+                ((AnalysisCache) Global.getAnalysisCache()).setClassesInFlight(classesInFlight + SPECULATE_CLASSES);
+            }
 
             // Create BCEL compatibility layer
             createAnalysisContext(project, appClassList, analysisOptions.sourceInfoFileName);
@@ -221,6 +300,8 @@ public class FindBugs2 implements IFindBugsEngine {
             // enumerate all classes (application and non-application)
             buildClassPath();
 
+            // Use precomputed summaries of aux classpath libraries
+            applyLibrarySummaries();
 
             // Build set of classes referenced by application classes
             buildReferencedClassSet();
@@ -266,11 +347,35 @@ public class FindBugs2 implements IFindBugsEngine {
                 };
             }
 
+            if (analysisOptions.shard != null) {
+                final AnalysisShard shard = analysisOptions.shard;
+                bugReporter = new DelegatingBugReporter(bugReporter) {
+
+                    @Override
+                    public void reportBug(@Nonnull BugInstance bugInstance) {
+                        ClassAnnotation primaryClass = bugInstance.getPrimaryClass();
+                        if (primaryClass == null || shard.contains(primaryClass.getClassName())) {
+                            this.getDelegate().reportBug(bugInstance);
+                        }
+                    }
+                };
+            }
+
             if (executionPlan.isActive(NoteSuppressedWarnings.class)) {
                 SuppressionMatcher m = AnalysisContext.currentAnalysisContext().getSuppressionMatcher();
                 bugReporter = new FilterBugReporter(bugReporter, m, false);
             }
 
+            if (analysisOptions.threads > 1 || SPECULATE_CLASSES > 0) {
+                // Bugs may be reported, and errors logged, from several
+                // analysis threads at once, and neither the bug reporter nor
+                // its decorators and filters are thread safe
+                bugReporter = new SynchronizedBugReporter(bugReporter);
+                if (Global.getAnalysisCache() instanceof AnalysisCache) {
+                    ((AnalysisCache) Global.getAnalysisCache()).setErrorLogger(bugReporter);
+                }
+            }
+
             if (appClassList.size() == 0) {
                 Map<String, ICodeBaseEntry> codebase = classPath.getApplicationCodebaseEntries();
                 if (analysisOptions.noClassOk) {
@@ -284,6 +389,14 @@ public class FindBugs2 implements IFindBugsEngine {
 
             // Analyze the application
             analyzeApplication();
+
+            if (Global.getAnalysisCache() instanceof AnalysisCache) {
+                // Keep the class analyses of this run for the next one
+                ((AnalysisCache) Global.getAnalysisCache()).flushPersistentCache();
+                if (CACHE_STATISTICS) {
+                    ((AnalysisCache) Global.getAnalysisCache()).reportStatistics(System.err);
+                }
+            }
         } catch (CheckedAnalysisException e) {
             IOException ioe = new IOException("IOException while scanning codebases");
             ioe.initCause(e);
@@ -394,6 +507,7 @@ public class FindBugs2 implements IFindBugsEngine {
     @Override
     public void addFilter(String filterFileName, boolean include) throws IOException, FilterException {
         bugReporter = FindBugs.configureFilter(bugReporter, filterFileName, include);
+        addFilterConfiguration(include ? "include" : "exclude", filterFileName);
     }
 
     /*
@@ -405,6 +519,17 @@ public class FindBugs2 implements IFindBugsEngine {
     @Override
     public void excludeBaselineBugs(String baselineBugs) throws IOException, DocumentException {
         bugReporter = FindBugs.configureBaselineFilter(bugReporter, baselineBugs);
+        addFilterConfiguration("baseline", baselineBugs);
+    }
+
+    /**
+     * Record a filter file in the configuration of the analysis, by its
+     * contents.
+     */
+    private void addFilterConfiguration(String kind, String fileName) throws IOException {
+        MessageDigest digest = Util.getMD5Digest();
+        digest.update(IO.readAll(new FileInputStream(fileName)));
+        filterConfiguration.append(' ').append(kind).append(' ').append(new BigInteger(1, digest.digest()).toString(16));
     }
 
     /*
@@ -707,6 +832,21 @@ public class FindBugs2 implements IFindBugsEngine {
         return analysisOptions.trainingInputDir != null;
     }
 
+    /**
+     * Add a codebase which is not part of the project to the classpath, such
+     * as one whose classes are held in memory (see
+     * {@link IClassFactory#createInMemoryCodeBaseLocator(String, Map, Map)}).
+     *
+     * @param locator
+     *            locator of the codebase
+     * @param isApplication
+     *            true if the classes of the codebase are analyzed, false if
+     *            it is an aux classpath entry
+     */
+    public void addCodeBase(ICodeBaseLocator locator, boolean isApplication) {
+        extraCodeBaseMap.put(locator, isApplication);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -727,6 +867,87 @@ public class FindBugs2 implements IFindBugsEngine {
         this.analysisOptions.noClassOk = noClassOk;
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.IFindBugsEngine#setThreads(int)
+     */
+    @Override
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.analysisOptions.threads = threads;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.IFindBugsEngine#setDeadline(long)
+     */
+    @Override
+    public void setDeadline(long deadline) {
+        this.analysisOptions.deadline = deadline;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.IFindBugsEngine#setAnalysisCacheSize(long)
+     */
+    @Override
+    public void setAnalysisCacheSize(long analysisCacheSize) {
+        this.analysisOptions.analysisCacheSize = analysisCacheSize;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.IFindBugsEngine#setIncrementalStateFile(java.lang.String)
+     */
+    @Override
+    public void setIncrementalStateFile(@CheckForNull String stateFile) {
+        this.analysisOptions.incrementalStateFile = stateFile;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.IFindBugsEngine#setCheckpointDirectory(java.lang.String)
+     */
+    @Override
+    public void setCheckpointDirectory(@CheckForNull String directory) {
+        this.analysisOptions.checkpointDirectory = directory;
+    }
+
+    /**
+     * Analyze one shard of the application classes, as a worker of a sharded
+     * analysis (see {@link ShardedAnalysis}).
+     */
+    void setShard(AnalysisShard shard) {
+        this.analysisOptions.shard = shard;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.IFindBugsEngine#setResumeFromCheckpoint(boolean)
+     */
+    @Override
+    public void setResumeFromCheckpoint(boolean resume) {
+        this.analysisOptions.resumeFromCheckpoint = resume;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.IFindBugsEngine#setLibrarySummaries(java.util.List)
+     */
+    @Override
+    public void setLibrarySummaries(List<String> summaryFiles) {
+        this.analysisOptions.librarySummaries = summaryFiles;
+    }
+
     /**
      * Create the analysis cache object and register it for current execution thread.
      * <p>
@@ -823,6 +1044,9 @@ public class FindBugs2 implements IFindBugsEngine {
             builder.addCodeBase(classFactory.createFilesystemCodeBaseLocator(path), false);
         }
         }
+        for (Map.Entry<ICodeBaseLocator, Boolean> e : extraCodeBaseMap.entrySet()) {
+            builder.addCodeBase(e.getKey(), e.getValue());
+        }
 
         builder.scanNestedArchives(analysisOptions.scanNestedArchives);
 
@@ -832,6 +1056,9 @@ public class FindBugs2 implements IFindBugsEngine {
 
         if (PROGRESS) {
             System.out.println(appClassList.size() + " classes scanned");
+            if (classPath instanceof ClassPathImpl) {
+                ((ClassPathImpl) classPath).reportIndexStatistics(System.out);
+            }
         }
 
         // If any of the application codebases contain source code,
@@ -853,6 +1080,167 @@ public class FindBugs2 implements IFindBugsEngine {
 
     }
 
+    /**
+     * Add the contents of the library summaries matching aux codebases to the
+     * analysis cache and the interprocedural databases. A summary which
+     * can't be read is reported and ignored.
+     */
+    private void applyLibrarySummaries() {
+        if (analysisOptions.librarySummaries.isEmpty() || !(Global.getAnalysisCache() instanceof AnalysisCache)) {
+            return;
+        }
+        Map<String, LibrarySummary> summaryMap = new HashMap<String, LibrarySummary>();
+        for (String summaryFile : analysisOptions.librarySummaries) {
+            try {
+                LibrarySummary summary = LibrarySummary.open(new File(summaryFile));
+                summaryMap.put(summary.getFingerprint(), summary);
+            } catch (IOException e) {
+                bugReporter.logError("Could not read library summary " + summaryFile, e);
+            }
+        }
+        AnalysisCache analysisCache = (AnalysisCache) Global.getAnalysisCache();
+        for (Iterator<? extends ICodeBase> i = classPath.auxCodeBaseIterator(); i.hasNext();) {
+            ICodeBase auxCodeBase = i.next();
+            String fingerprint = LibrarySummary.fingerprint(auxCodeBase);
+            LibrarySummary summary = fingerprint != null ? summaryMap.get(fingerprint) : null;
+            if (summary == null) {
+                continue;
+            }
+            try {
+                summary.apply(auxCodeBase, analysisCache, AnalysisContext.currentAnalysisContext());
+                summarizedCodeBases.add(auxCodeBase);
+                if (PROGRESS) {
+                    System.out.println("Using summary of " + summary.getLibrary() + " for " + auxCodeBase);
+                }
+            } catch (IOException e) {
+                bugReporter.logError("Could not use library summary of " + summary.getLibrary(), e);
+            }
+        }
+    }
+
+    /**
+     * Leave the classes of summarized aux codebases out of the first pass,
+     * which would parse them: the summary has their class information and
+     * the facts the first pass records about their methods. The same goes for
+     * the classes of the other shards of a sharded analysis, whose facts are
+     * exchanged with the other workers after the first pass. Only detectors
+     * working from the class information are applied to them, by
+     * {@link #applyToSummarizedClasses}.
+     *
+     * @param classes
+     *            the referenced classes
+     * @param summarizedClasses
+     *            list to add the summarized classes to
+     * @return the classes to which the first pass is applied
+     */
+    private Collection<ClassDescriptor> excludeSummarizedClasses(Collection<ClassDescriptor> classes,
+            List<ClassDescriptor> summarizedClasses) {
+        AnalysisShard shard = analysisOptions.shard;
+        if (summarizedCodeBases.isEmpty() && shard == null) {
+            return classes;
+        }
+        Set<ClassDescriptor> appClassSet = new HashSet<ClassDescriptor>(appClassList);
+        List<ClassDescriptor> result = new ArrayList<ClassDescriptor>(classes.size());
+        for (ClassDescriptor desc : classes) {
+            if (shard != null && !shard.contains(desc)) {
+                summarizedClasses.add(desc);
+                continue;
+            }
+            if (!summarizedCodeBases.isEmpty() && !appClassSet.contains(desc)) {
+                try {
+                    ICodeBaseEntry entry = classPath.lookupResource(desc.toResourceName());
+                    if (summarizedCodeBases.contains(entry.getCodeBase())) {
+                        summarizedClasses.add(desc);
+                        continue;
+                    }
+                } catch (ResourceNotFoundException e) {
+                    // Reported by the first pass
+                    assert true;
+                }
+            }
+            result.add(desc);
+        }
+        if (PROGRESS) {
+            System.out.println("First pass skips " + summarizedClasses.size() + " summarized classes");
+        }
+        return result;
+    }
+
+    /**
+     * Apply the detectors computing the nullness facts of methods to the
+     * classes of the shard of a sharded analysis, and exchange the facts with
+     * the other workers.
+     */
+    private void computeNullnessFacts(List<Detector2> detectors, Collection<ClassDescriptor> classCollection,
+            boolean isNonReportingFirstPass, Profiler profiler) throws InterruptedException, IOException {
+        AnalysisContext currentAnalysisContext = AnalysisContext.currentAnalysisContext();
+        for (ClassDescriptor classDescriptor : classCollection) {
+            if (!analysisOptions.shard.contains(classDescriptor)
+                    || (SCREEN_FIRST_PASS_CLASSES || !isNonReportingFirstPass)
+                    && !classScreener.matches(classDescriptor.toResourceName())) {
+                continue;
+            }
+            if (!AnalysisBudget.ENABLED && currentAnalysisContext.isTooBig(classDescriptor)) {
+                continue;
+            }
+            currentClassName = classDescriptor.toDottedClassName();
+            profiler.startContext(currentClassName);
+            currentAnalysisContext.setClassBeingAnalyzed(classDescriptor);
+            AnalysisBudget.startClass(classDescriptor);
+            try {
+                for (Detector2 detector : detectors) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    applyDetector(detector, classDescriptor, profiler);
+                }
+            } finally {
+                profiler.endContext(currentClassName);
+                currentAnalysisContext.clearClassBeingAnalyzed();
+                if (AnalysisBudget.endClass()) {
+                    reportOverBudget(classDescriptor);
+                }
+            }
+        }
+        for (Detector2 detector : detectors) {
+            detector.finishPass();
+        }
+        analysisOptions.shard.exchangeNullnessFacts(currentAnalysisContext);
+    }
+
+    /**
+     * Apply the detectors of the first pass which don't need the bytecode of
+     * a class, i.e., which aren't {@link Detector}s, to the classes of
+     * summarized codebases and of other shards.
+     */
+    private void applyToSummarizedClasses(Detector2[] detectorList, DetectorFactory[] factoryList,
+            List<ClassDescriptor> summarizedClasses, @CheckForNull AnalysisDeadline deadline, Profiler profiler)
+            throws InterruptedException {
+        AnalysisContext currentAnalysisContext = AnalysisContext.currentAnalysisContext();
+        for (ClassDescriptor classDescriptor : summarizedClasses) {
+            currentClassName = classDescriptor.toDottedClassName();
+            profiler.startContext(currentClassName);
+            currentAnalysisContext.setClassBeingAnalyzed(classDescriptor);
+            try {
+                for (int i = 0; i < detectorList.length; i++) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (detectorList[i] instanceof DetectorToDetector2Adapter) {
+                        continue;
+                    }
+                    if (deadline != null && deadline.isDropped(factoryList[i])) {
+                        continue;
+                    }
+                    applyDetector(detectorList[i], classDescriptor, profiler);
+                }
+            } finally {
+                profiler.endContext(currentClassName);
+                currentAnalysisContext.clearClassBeingAnalyzed();
+            }
+        }
+    }
+
     private void buildReferencedClassSet() throws CheckedAnalysisException, InterruptedException {
         // XXX: should drive progress dialog (scanning phase)?
 
@@ -1091,35 +1479,54 @@ public class FindBugs2 implements IFindBugsEngine {
         }
 
         // Build the execution plan
-        executionPlan.build();
+        Profiler profiler = bugReporter.getProjectStats().getProfiler();
+        profiler.start(ExecutionPlan.class);
+        try {
+            executionPlan.build();
+        } finally {
+            profiler.end(ExecutionPlan.class);
+        }
 
         // Stash the ExecutionPlan in the AnalysisCache.
         Global.getAnalysisCache().eagerlyPutDatabase(ExecutionPlan.class, executionPlan);
 
         if (PROGRESS) {
-            System.out.println(executionPlan.getNumPasses() + " passes in execution plan");
+            System.out.println(executionPlan.getNumPasses() + " passes in execution plan, "
+                    + (executionPlan.isFromCache() ? "cached" : "built in " + executionPlan.getBuildTime() / 1000000 + " ms"));
         }
     }
 
     /**
      * Analyze the classes in the application codebase.
+     *
+     * @throws IOException
+     *             if the summaries of a sharded analysis can't be exchanged
      */
-    private void analyzeApplication() throws InterruptedException {
+    private void analyzeApplication() throws InterruptedException, IOException {
         int passCount = 0;
         Profiler profiler = bugReporter.getProjectStats().getProfiler();
         profiler.start(this.getClass());
         AnalysisContext.currentXFactory().canonicalizeAll();
+        ExecutorService executor = null;
+        if (analysisOptions.threads > 1) {
+            executor = createAnalysisExecutor(analysisOptions.threads);
+        }
         try {
             boolean multiplePasses = executionPlan.getNumPasses() > 1;
             if (executionPlan.getNumPasses() == 0) {
                 throw new AssertionError("no analysis passes");
             }
-            int[] classesPerPass = new int[executionPlan.getNumPasses()];
-            classesPerPass[0] = referencedClassSet.size();
-            for (int i = 0; i < classesPerPass.length; i++) {
-                classesPerPass[i] = i == 0 ? referencedClassSet.size() : appClassList.size();
+            List<ClassDescriptor> analyzedClassList = appClassList;
+            IncrementalAnalysis incrementalAnalysis = createIncrementalAnalysis();
+            AnalysisCheckpoint checkpoint = createCheckpoint();
+            if (incrementalAnalysis != null) {
+                analyzedClassList = incrementalAnalysis.selectClasses(appClassList);
+                referencedClassSet = incrementalAnalysis.selectReferencedClasses(referencedClassSet, analyzedClassList);
+                if (PROGRESS) {
+                    System.out.println("Incremental analysis of " + analyzedClassList.size() + " of "
+                            + appClassList.size() + " classes");
+                }
             }
-            progress.predictPassCount(classesPerPass);
             XFactory factory = AnalysisContext.currentXFactory();
             Collection<ClassDescriptor> badClasses = new LinkedList<ClassDescriptor>();
             for (ClassDescriptor desc : referencedClassSet) {
@@ -1138,9 +1545,20 @@ public class FindBugs2 implements IFindBugsEngine {
                 referencedClassSet = new LinkedHashSet<ClassDescriptor>(referencedClassSet);
                 referencedClassSet.removeAll(badClasses);
             }
+            List<ClassDescriptor> summarizedClasses = new ArrayList<ClassDescriptor>();
+            Collection<ClassDescriptor> firstPassClassSet = excludeSummarizedClasses(referencedClassSet, summarizedClasses);
+            int[] classesPerPass = new int[executionPlan.getNumPasses()];
+            for (int i = 0; i < classesPerPass.length; i++) {
+                classesPerPass[i] = i == 0 ? firstPassClassSet.size() : analyzedClassList.size();
+            }
+            progress.predictPassCount(classesPerPass);
 
             long startTime = System.currentTimeMillis();
             bugReporter.getProjectStats().setReferencedClasses(referencedClassSet.size());
+            AnalysisDeadline deadline = null;
+            if (analysisOptions.deadline > 0) {
+                deadline = new AnalysisDeadline(analysisOptions.deadline, profiler);
+            }
             for (Iterator<AnalysisPass> passIterator = executionPlan.passIterator(); passIterator.hasNext();) {
                 AnalysisPass pass = passIterator.next();
                 yourkitController.advanceGeneration("Pass " + passCount);
@@ -1150,21 +1568,27 @@ public class FindBugs2 implements IFindBugsEngine {
 
                 // Instantiate the detectors
                 Detector2[] detectorList = pass.instantiateDetector2sInPass(bugReporter);
+                DetectorFactory[] factoryList = new DetectorFactory[detectorList.length];
+                int factoryCount = 0;
+                for (Iterator<DetectorFactory> j = pass.iterator(); j.hasNext();) {
+                    factoryList[factoryCount++] = j.next();
+                }
 
                 // If there are multiple passes, then on the first pass,
                 // we apply detectors to all classes referenced by the
                 // application classes.
                 // On subsequent passes, we apply detector only to application
                 // classes.
-                Collection<ClassDescriptor> classCollection = (isNonReportingFirstPass) ? referencedClassSet : appClassList;
+                Collection<ClassDescriptor> classCollection = (isNonReportingFirstPass) ? firstPassClassSet : analyzedClassList;
                 AnalysisContext.currentXFactory().canonicalizeAll();
                 if (PROGRESS || LIST_ORDER) {
                     System.out.printf("%6d : Pass %d: %d classes%n", (System.currentTimeMillis() - startTime)/1000, passCount,  classCollection.size());
                     if (DEBUG)
                         XFactory.profile();
                 }
+                OutEdges<ClassDescriptor> outEdges = null;
                 if (!isNonReportingFirstPass) {
-                    OutEdges<ClassDescriptor> outEdges = new OutEdges<ClassDescriptor>() {
+                    outEdges = new OutEdges<ClassDescriptor>() {
 
                         @Override
                         public Collection<ClassDescriptor> getOutEdges(ClassDescriptor e) {
@@ -1190,96 +1614,99 @@ public class FindBugs2 implements IFindBugsEngine {
                 AnalysisContext currentAnalysisContext = AnalysisContext.currentAnalysisContext();
                 currentAnalysisContext.updateDatabases(passCount);
 
+                // Checkpoints are only taken in the last pass; the earlier
+                // ones are done again when resuming
+                AnalysisCheckpoint passCheckpoint = null;
+                if (checkpoint != null && !passIterator.hasNext()) {
+                    checkpoint.startPass(passCount, classCollection, factoryList);
+                    passCheckpoint = checkpoint;
+                }
+                boolean[] shardDetectors = null;
+                if (analysisOptions.shard != null && !isNonReportingFirstPass) {
+                    // The nullness facts of methods are computed for the
+                    // whole shard before the pass, and exchanged
+                    List<Detector2> nullnessDetectors = new ArrayList<Detector2>();
+                    List<Detector2> passDetectors = new ArrayList<Detector2>();
+                    List<DetectorFactory> passFactories = new ArrayList<DetectorFactory>();
+                    for (int i = 0; i < detectorList.length; i++) {
+                        if (AnalysisShard.computesNullnessFacts(factoryList[i])) {
+                            nullnessDetectors.add(detectorList[i]);
+                        } else {
+                            passDetectors.add(detectorList[i]);
+                            passFactories.add(factoryList[i]);
+                        }
+                    }
+                    if (!nullnessDetectors.isEmpty()) {
+                        computeNullnessFacts(nullnessDetectors, classCollection, isNonReportingFirstPass, profiler);
+                        detectorList = passDetectors.toArray(new Detector2[passDetectors.size()]);
+                        factoryList = passFactories.toArray(new DetectorFactory[passFactories.size()]);
+                    }
+                    shardDetectors = AnalysisShard.getDetectorsForOtherShards(factoryList);
+                }
+
                 progress.startAnalysis(classCollection.size());
-                int count = 0;
                 Global.getAnalysisCache().purgeAllMethodAnalysis();
                 Global.getAnalysisCache().purgeClassAnalysis(FBClassReader.class);
-                for (ClassDescriptor classDescriptor : classCollection) {
-                    long classStartNanoTime = 0;
-                    if (PROGRESS) {
-                        classStartNanoTime = System.nanoTime();
-                        System.out.printf("%6d %d/%d  %d/%d %s%n", (System.currentTimeMillis() - startTime)/1000,
-                                passCount, executionPlan.getNumPasses(), count,
-                                classCollection.size(), classDescriptor);
-                    }
-                   count++;
-                   if (!isNonReportingFirstPass && count % 1000 == 0)
-                       yourkitController.advanceGeneration(String.format("Pass %d.%02d", passCount, count/1000));
-                       
-
-                    // Check to see if class is excluded by the class screener.
-                    // In general, we do not want to screen classes from the
-                    // first pass, even if they would otherwise be excluded.
-                    if ((SCREEN_FIRST_PASS_CLASSES || !isNonReportingFirstPass)
-                            && !classScreener.matches(classDescriptor.toResourceName())) {
-                        if (DEBUG) {
-                            System.out.println("*** Excluded by class screener");
+                if (isNonReportingFirstPass && !summarizedClasses.isEmpty()) {
+                    applyToSummarizedClasses(detectorList, factoryList, summarizedClasses, deadline, profiler);
+                }
+                ClassPrefetcher prefetcher = null;
+                MethodAnalysisSpeculator speculator = null;
+                List<Detector2> workerDetectors = Collections.emptyList();
+                if (deadline != null) {
+                    deadline.startPass();
+                }
+                try {
+                    List<ClassDescriptor> screened = screenClasses(classCollection, isNonReportingFirstPass);
+                    // With worker threads, the same schedule at any number of
+                    // them, so that the results don't depend on it
+                    List<List<ClassDescriptor>> windows = null;
+                    List<ClassDescriptor> analysisOrder = screened;
+                    if (executor != null) {
+                        windows = outEdges == null ? splitIntoWindows(screened) : scheduleByCallGraph(screened, outEdges);
+                        analysisOrder = new ArrayList<ClassDescriptor>(screened.size());
+                        for (List<ClassDescriptor> window : windows) {
+                            analysisOrder.addAll(window);
                         }
-                        continue;
                     }
-                    boolean isHuge = currentAnalysisContext.isTooBig(classDescriptor);
-                    if (isHuge && currentAnalysisContext.isApplicationClass(classDescriptor)) {
-                        bugReporter.reportBug(new BugInstance("SKIPPED_CLASS_TOO_BIG", Priorities.NORMAL_PRIORITY)
-                                .addClass(classDescriptor));
+                    if (PREFETCH_CLASSES > 0) {
+                        prefetcher = new ClassPrefetcher(analysisOrder, PREFETCH_CLASSES);
                     }
-                    currentClassName = ClassName.toDottedClassName(classDescriptor.getClassName());
-                    notifyClassObservers(classDescriptor);
-                    profiler.startContext(currentClassName);
-                    currentAnalysisContext.setClassBeingAnalyzed(classDescriptor);
-
-                    try {
-                    for (Detector2 detector : detectorList) {
-                        if (Thread.interrupted()) {
-                            throw new InterruptedException();
-                        }
-                        if (isHuge && !FirstPassDetector.class.isAssignableFrom(detector.getClass())) {
-                            continue;
-                        }
-                        if (DEBUG) {
-                            System.out.println("Applying " + detector.getDetectorClassName() + " to " + classDescriptor);
-                            // System.out.println("foo: " +
-                            // NonReportingDetector.class.isAssignableFrom(detector.getClass())
-                            // + ", bar: " + detector.getClass().getName());
-                        }
-                        try {
-                            profiler.start(detector.getClass());
-                            detector.visitClass(classDescriptor);
-                        } catch (ClassFormatException e) {
-                            logRecoverableException(classDescriptor, detector, e);
-                        } catch (MissingClassException e) {
-                            Global.getAnalysisCache().getErrorLogger().reportMissingClass(e.getClassDescriptor());
-                        } catch (CheckedAnalysisException e) {
-                            logRecoverableException(classDescriptor, detector, e);
-                        } catch (RuntimeException e) {
-                            logRecoverableException(classDescriptor, detector, e);
-                        } finally {
-                            profiler.end(detector.getClass());
-                        }
+                    if (SPECULATE_CLASSES > 0 && passCount > 0) {
+                        speculator = new MethodAnalysisSpeculator(analysisOrder, SPECULATE_CLASSES, SPECULATED_ANALYSES);
                     }
-                    } finally {
-
-                        progress.finishClass();
-                        profiler.endContext(currentClassName);
-                        currentAnalysisContext.clearClassBeingAnalyzed();
-                        if (PROGRESS) {
-                            long usecs = (System.nanoTime() - classStartNanoTime)/1000;
-                            if (usecs > 15000) {
-                                int classSize = currentAnalysisContext.getClassSize(classDescriptor);
-                                long speed = usecs /classSize;
-                                if (speed > 15)
-                                System.out.printf("  %6d usecs/byte  %6d msec  %6d bytes  %d pass %s%n", speed, usecs/1000, classSize, passCount,
-                                        classDescriptor);
-                            }
-
-                        }
+                    if (windows != null) {
+                        workerDetectors = analyzeClassesConcurrently(factoryList, detectorList, windows,
+                                prefetcher, speculator, deadline, passCheckpoint, shardDetectors, executor);
+                    } else {
+                        analyzeClassesSequentially(factoryList, detectorList, screened,
+                                prefetcher, speculator, deadline, passCheckpoint, shardDetectors);
                     }
+                } finally {
+                    if (prefetcher != null) {
+                        prefetcher.shutdown();
+                    }
+                    if (speculator != null) {
+                        speculator.shutdown();
+                    }
+                }
+
+                if (isNonReportingFirstPass && analysisOptions.shard != null) {
+                    analysisOptions.shard.exchangeFirstPass(currentAnalysisContext);
                 }
 
                 if (!passIterator.hasNext())
                     yourkitController.captureMemorySnapshot();
                 // Call finishPass on each detector
+                for (Detector2 detector : workerDetectors) {
+                    if (deadline == null || deadline.shouldFinishPass(detector, factoryList)) {
+                        detector.finishPass();
+                    }
+                }
                 for (Detector2 detector : detectorList) {
-                    detector.finishPass();
+                    if (deadline == null || deadline.shouldFinishPass(detector, factoryList)) {
+                        detector.finishPass();
+                    }
                 }
 
                 progress.finishPerClassAnalysis();
@@ -1287,8 +1714,28 @@ public class FindBugs2 implements IFindBugsEngine {
                 passCount++;
             }
 
+            if (deadline != null) {
+                deadline.reportSkipped(bugReporter);
+            }
+            if (checkpoint != null) {
+                checkpoint.finish(deadline == null || deadline.isComplete());
+            }
+            if (incrementalAnalysis != null) {
+                SortedBugCollection bugCollection = (SortedBugCollection) bugReporter.getBugCollection();
+                incrementalAnalysis.mergeResults(bugCollection, bugReporter);
+                if (deadline == null || deadline.isComplete()) {
+                    try {
+                        incrementalAnalysis.save(bugCollection);
+                    } catch (IOException e) {
+                        bugReporter.logError("Could not save incremental analysis state", e);
+                    }
+                }
+            }
 
         } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
 
             bugReporter.finish();
             bugReporter.reportQueuedErrors();
@@ -1299,6 +1746,562 @@ public class FindBugs2 implements IFindBugsEngine {
 
     }
 
+    /**
+     * Create the state of an incremental analysis, if one was requested and
+     * the bug reporter keeps the bug collection the previous results can be
+     * merged into.
+     */
+    private @CheckForNull
+    IncrementalAnalysis createIncrementalAnalysis() {
+        if (analysisOptions.incrementalStateFile == null) {
+            return null;
+        }
+        if (!(bugReporter.getBugCollection() instanceof SortedBugCollection)) {
+            bugReporter.logError("Incremental analysis needs a bug reporter with a bug collection; analyzing all classes");
+            return null;
+        }
+        return new IncrementalAnalysis(new File(analysisOptions.incrementalStateFile), getAnalysisConfiguration());
+    }
+
+    /**
+     * Create the checkpoints of the analysis, if they were requested and the
+     * bug reporter keeps the bug collection to write.
+     */
+    private @CheckForNull
+    AnalysisCheckpoint createCheckpoint() {
+        if (analysisOptions.checkpointDirectory == null) {
+            return null;
+        }
+        if (!(bugReporter.getBugCollection() instanceof SortedBugCollection)) {
+            bugReporter.logError("Checkpoints need a bug reporter with a bug collection; not writing checkpoints");
+            return null;
+        }
+        return new AnalysisCheckpoint(new File(analysisOptions.checkpointDirectory), getAnalysisConfiguration(),
+                (SortedBugCollection) bugReporter.getBugCollection(), analysisOptions.resumeFromCheckpoint);
+    }
+
+    /**
+     * Describe the configuration of the analysis: results from another
+     * version or with other detectors or features can't be reused.
+     */
+    private String getAnalysisConfiguration() {
+        StringBuilder configuration = new StringBuilder(Version.COMPUTED_RELEASE);
+        for (Iterator<AnalysisPass> i = executionPlan.passIterator(); i.hasNext();) {
+            for (Iterator<DetectorFactory> j = i.next().iterator(); j.hasNext();) {
+                configuration.append(' ').append(j.next().getFullName());
+            }
+        }
+        configuration.append(' ').append(AnalysisContext.currentAnalysisContext().getBoolProperties());
+        configuration.append(' ').append(analysisOptions.relaxedReportingMode);
+
+        // Warnings are filtered before they are kept
+        configuration.append(' ').append(analysisOptions.applySuppression);
+        BugReporter r = bugReporter;
+        for (; r instanceof DelegatingBugReporter; r = ((DelegatingBugReporter) r).getDelegate()) {
+            if (r instanceof CategoryFilteringBugReporter) {
+                configuration.append(" categories ").append(
+                        new TreeSet<String>(((CategoryFilteringBugReporter) r).getCategorySet()));
+            } else if (r instanceof BugReporterDecorator) {
+                configuration.append(" decorator ").append(r.getClass().getName());
+            }
+        }
+        if (r instanceof AbstractBugReporter) {
+            configuration.append(' ').append(((AbstractBugReporter) r).getPriorityThreshold());
+            configuration.append(' ').append(((AbstractBugReporter) r).getRankThreshold());
+        }
+        configuration.append(filterConfiguration);
+
+        // Facts about aux classes are used in the analysis of the application
+        for (Iterator<? extends ICodeBase> i = classPath.auxCodeBaseIterator(); i.hasNext();) {
+            configuration.append(" aux ").append(fingerprintAuxCodeBase(i.next()));
+        }
+        return configuration.toString();
+    }
+
+    /**
+     * Fingerprint an aux codebase: archives by the names, CRCs and sizes of
+     * their classes (see {@link LibrarySummary#fingerprint(ICodeBase)}),
+     * directories by the names, sizes and modification times of their files.
+     */
+    private static String fingerprintAuxCodeBase(ICodeBase codeBase) {
+        String fingerprint = LibrarySummary.fingerprint(codeBase);
+        if (fingerprint != null) {
+            return fingerprint;
+        }
+        String pathName = codeBase.getPathName();
+        if (pathName == null) {
+            return codeBase.getCodeBaseLocator().toString();
+        }
+        File file = new File(pathName);
+        MessageDigest digest = Util.getMD5Digest();
+        digest.update(UTF8.getBytes(pathName));
+        addFileFingerprint(digest, file, "");
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    private static void addFileFingerprint(MessageDigest digest, File file, String name) {
+        File[] files = file.listFiles();
+        if (files == null) {
+            digest.update(UTF8.getBytes(" " + name + " " + file.length() + " " + file.lastModified()));
+            return;
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            addFileFingerprint(digest, f, name + "/" + f.getName());
+        }
+    }
+
+    /**
+     * Apply a detector to a class, logging any recoverable exception.
+     */
+    private void applyDetector(Detector2 detector, ClassDescriptor classDescriptor, Profiler profiler) {
+        try {
+            profiler.start(detector.getClass());
+            detector.visitClass(classDescriptor);
+        } catch (ClassFormatException e) {
+            logRecoverableException(classDescriptor, detector, e);
+        } catch (MissingClassException e) {
+            Global.getAnalysisCache().getErrorLogger().reportMissingClass(e.getClassDescriptor());
+        } catch (CheckedAnalysisException e) {
+            logRecoverableException(classDescriptor, detector, e);
+        } catch (RuntimeException e) {
+            logRecoverableException(classDescriptor, detector, e);
+        } finally {
+            profiler.end(detector.getClass());
+        }
+    }
+
+    /**
+     * Report a class which used up its analysis budget the way a class too
+     * big to analyze is reported, since its analysis is incomplete.
+     */
+    private void reportOverBudget(ClassDescriptor classDescriptor) {
+        if (AnalysisContext.currentAnalysisContext().isApplicationClass(classDescriptor)) {
+            bugReporter.reportBug(new BugInstance("SKIPPED_CLASS_TOO_BIG", Priorities.NORMAL_PRIORITY)
+                    .addClass(classDescriptor));
+        }
+    }
+
+    /**
+     * Create the thread pool used to apply stateless detectors. Worker threads
+     * are started from the analysis thread, so they inherit its
+     * AnalysisContext, AnalysisCache and DescriptorFactory.
+     */
+    private static ExecutorService createAnalysisExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "FindBugs analysis worker " + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Get the classes of a pass which are not excluded by the class screener.
+     */
+    private List<ClassDescriptor> screenClasses(Collection<ClassDescriptor> classCollection, boolean isNonReportingFirstPass) {
+        List<ClassDescriptor> result = new ArrayList<ClassDescriptor>(classCollection.size());
+        for (ClassDescriptor classDescriptor : classCollection) {
+            if ((SCREEN_FIRST_PASS_CLASSES || !isNonReportingFirstPass)
+                    && !classScreener.matches(classDescriptor.toResourceName())) {
+                continue;
+            }
+            result.add(classDescriptor);
+        }
+        return result;
+    }
+
+    /**
+     * Split a list of classes into windows for
+     * {@link #analyzeClassesConcurrently}.
+     */
+    private static List<List<ClassDescriptor>> splitIntoWindows(List<ClassDescriptor> classList) {
+        List<List<ClassDescriptor>> result = new ArrayList<List<ClassDescriptor>>();
+        for (int start = 0; start < classList.size(); start += CLASSES_IN_WINDOW) {
+            result.add(classList.subList(start, Math.min(start + CLASSES_IN_WINDOW, classList.size())));
+        }
+        return result;
+    }
+
+    /**
+     * Split the classes of an application pass into windows for
+     * {@link #analyzeClassesConcurrently}, such that every class comes in a
+     * later window than the classes it calls. Classes calling each other are
+     * grouped into strongly connected components, whose classes are put in
+     * successive windows in call graph order, and no window contains classes
+     * from different levels of the component graph. So, like in the call graph
+     * order, the summaries of the callees are complete before a class is
+     * analyzed, except for those of callees later in the same component, but
+     * all classes of a window can be analyzed at the same time.
+     * <p>
+     * Within a level, larger classes come first, so that they are started
+     * early and don't delay the end of their window.
+     *
+     * @param classList
+     *            the classes, sorted by {@link #sortByCallGraph}
+     */
+    private static List<List<ClassDescriptor>> scheduleByCallGraph(List<ClassDescriptor> classList,
+            OutEdges<ClassDescriptor> outEdges) {
+        AnalysisContext analysisContext = AnalysisContext.currentAnalysisContext();
+        final Map<ClassDescriptor, Integer> classSize = new HashMap<ClassDescriptor, Integer>();
+        for (ClassDescriptor classDescriptor : classList) {
+            classSize.put(classDescriptor, analysisContext.getClassSize(classDescriptor));
+        }
+        Comparator<ClassDescriptor> largestFirst = new Comparator<ClassDescriptor>() {
+            @Override
+            public int compare(ClassDescriptor c1, ClassDescriptor c2) {
+                return classSize.get(c2).compareTo(classSize.get(c1));
+            }
+        };
+
+        List<List<ClassDescriptor>> result = new ArrayList<List<ClassDescriptor>>();
+        for (List<ClassDescriptor> level : TopologicalSort.sortByDependencyLevel(classList, outEdges)) {
+            // stable, so equally sized classes stay in call graph order
+            Collections.sort(level, largestFirst);
+            result.addAll(splitIntoWindows(level));
+        }
+        return result;
+    }
+
+    /**
+     * Apply the detectors of a pass to a list of classes using several threads.
+     * The classes see the same database updates at any number of threads.
+     * <p>
+     * Detectors implementing {@link StatelessDetector} don't keep state from
+     * one class to the next, so every worker thread gets its own instances and
+     * applies them to different classes at the same time. This is also done
+     * for detectors implementing {@link ConcurrentFirstPassDetector}. All other
+     * detectors are applied on the analysis thread, in window order.
+     * <p>
+     * The detector list is split into runs of concurrent and other detectors,
+     * and each run is applied to the whole window before the next one starts.
+     * Every class therefore still sees the detectors in execution plan order.
+     * <p>
+     * Worker threads record their database updates in shards (see
+     * {@link AnalysisContext#openDatabaseShards()}), which are merged in class
+     * order at the end of each run. A class therefore sees the updates made for
+     * classes in earlier windows, but not those made on other threads for
+     * classes in its own window, no matter how the classes were scheduled.
+     *
+     * @param windows
+     *            the classes to analyze, in windows of at most
+     *            {@link #CLASSES_IN_WINDOW} classes
+     * @param prefetcher
+     *            prefetcher for the classes in the windows, or null
+     * @param speculator
+     *            speculator for the classes in the windows, or null
+     * @param deadline
+     *            deadline of the analysis, or null
+     * @param checkpoint
+     *            checkpoints of the pass, or null
+     * @param shardDetectors
+     *            for each detector, whether it is applied to classes of other
+     *            shards; null if the analysis is not sharded
+     * @param executor
+     *            the worker threads
+     *
+     * @return the detector instances created for the worker threads; the
+     *         caller must call finishPass() on them
+     */
+    private List<Detector2> analyzeClassesConcurrently(final DetectorFactory[] factories, Detector2[] detectorList,
+            List<List<ClassDescriptor>> windows, @CheckForNull ClassPrefetcher prefetcher,
+            @CheckForNull MethodAnalysisSpeculator speculator, @CheckForNull final AnalysisDeadline deadline,
+            @CheckForNull final AnalysisCheckpoint checkpoint, @CheckForNull final boolean[] shardDetectors,
+            ExecutorService executor) throws InterruptedException {
+        final Profiler profiler = bugReporter.getProjectStats().getProfiler();
+        final AnalysisContext currentAnalysisContext = AnalysisContext.currentAnalysisContext();
+
+        final boolean[] stateless = new boolean[detectorList.length];
+        for (int i = 0; i < factories.length; i++) {
+            stateless[i] = factories[i].isDetectorClassSubtypeOf(StatelessDetector.class)
+                    || factories[i].isDetectorClassSubtypeOf(ConcurrentFirstPassDetector.class);
+        }
+        int numClasses = 0;
+        for (List<ClassDescriptor> window : windows) {
+            numClasses += window.size();
+        }
+
+        final List<Detector2> allWorkerDetectors = Collections.synchronizedList(new ArrayList<Detector2>());
+        final ThreadLocal<Detector2[]> workerDetectors = new ThreadLocal<Detector2[]>() {
+            @Override
+            protected Detector2[] initialValue() {
+                Detector2[] result = new Detector2[factories.length];
+                for (int k = 0; k < factories.length; k++) {
+                    if (stateless[k]) {
+                        result[k] = factories[k].createDetector2(bugReporter);
+                        allWorkerDetectors.add(result[k]);
+                    }
+                }
+                return result;
+            }
+        };
+
+        int start = 0;
+        for (List<ClassDescriptor> window : windows) {
+            if (PROGRESS) {
+                System.out.printf("  %d/%d  window of %d classes%n", start, numClasses, window.size());
+            }
+            if (prefetcher != null) {
+                prefetcher.advance(start + window.size() - 1);
+            }
+            if (speculator != null) {
+                speculator.advance(start + window.size() - 1);
+            }
+            if (deadline != null && deadline.isPassed()) {
+                for (ClassDescriptor classDescriptor : window) {
+                    deadline.startClass(classDescriptor);
+                    progress.finishClass();
+                }
+                start += window.size();
+                continue;
+            }
+            final boolean[] isHuge = new boolean[window.size()];
+            final boolean[] completed = new boolean[window.size()];
+            final boolean[] otherShard = new boolean[window.size()];
+            for (int c = 0; c < window.size(); c++) {
+                ClassDescriptor classDescriptor = window.get(c);
+                isHuge[c] = !AnalysisBudget.ENABLED && currentAnalysisContext.isTooBig(classDescriptor);
+                completed[c] = checkpoint != null && checkpoint.isCompleted(classDescriptor);
+                otherShard[c] = shardDetectors != null && !analysisOptions.shard.contains(classDescriptor);
+                if (isHuge[c] && currentAnalysisContext.isApplicationClass(classDescriptor)) {
+                    bugReporter.reportBug(new BugInstance("SKIPPED_CLASS_TOO_BIG", Priorities.NORMAL_PRIORITY)
+                            .addClass(classDescriptor));
+                }
+                notifyClassObservers(classDescriptor);
+            }
+
+            int first = 0;
+            while (first < detectorList.length) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                int end = first;
+                while (end < detectorList.length && stateless[end] == stateless[first]) {
+                    end++;
+                }
+                if (stateless[first]) {
+                    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(window.size());
+                    for (int c = 0; c < window.size(); c++) {
+                        final ClassDescriptor classDescriptor = window.get(c);
+                        final boolean huge = isHuge[c];
+                        final boolean done = completed[c];
+                        final boolean inOtherShard = otherShard[c];
+                        final int from = first;
+                        final int to = end;
+                        final int shardSequence = (start + c) * detectorList.length + first;
+                        tasks.add(new Callable<Void>() {
+                            @Override
+                            public Void call() throws InterruptedException {
+                                Detector2[] detectors = workerDetectors.get();
+                                String className = classDescriptor.toDottedClassName();
+                                profiler.startContext(className);
+                                currentAnalysisContext.setClassBeingAnalyzed(classDescriptor);
+                                currentAnalysisContext.openDatabaseShards();
+                                AnalysisBudget.startClass(classDescriptor);
+                                try {
+                                    for (int k = from; k < to; k++) {
+                                        if (Thread.interrupted()) {
+                                            throw new InterruptedException();
+                                        }
+                                        if (huge && !FirstPassDetector.class.isAssignableFrom(detectors[k].getClass())) {
+                                            continue;
+                                        }
+                                        if (done && !checkpoint.shouldRevisit(k)) {
+                                            continue;
+                                        }
+                                        if (inOtherShard && !shardDetectors[k]) {
+                                            continue;
+                                        }
+                                        if (deadline != null && deadline.isDropped(factories[k])) {
+                                            continue;
+                                        }
+                                        applyDetector(detectors[k], classDescriptor, profiler);
+                                    }
+                                } finally {
+                                    if (AnalysisBudget.endClass()) {
+                                        reportOverBudget(classDescriptor);
+                                    }
+                                    currentAnalysisContext.closeDatabaseShards(shardSequence);
+                                    currentAnalysisContext.clearClassBeingAnalyzed();
+                                    profiler.endContext(className);
+                                }
+                                return null;
+                            }
+                        });
+                    }
+                    waitFor(executor.invokeAll(tasks));
+                    currentAnalysisContext.mergeDatabaseShards();
+                } else {
+                    for (int c = 0; c < window.size(); c++) {
+                        ClassDescriptor classDescriptor = window.get(c);
+                        currentClassName = classDescriptor.toDottedClassName();
+                        profiler.startContext(currentClassName);
+                        currentAnalysisContext.setClassBeingAnalyzed(classDescriptor);
+                        AnalysisBudget.startClass(classDescriptor);
+                        try {
+                            for (int k = first; k < end; k++) {
+                                if (Thread.interrupted()) {
+                                    throw new InterruptedException();
+                                }
+                                if (isHuge[c] && !FirstPassDetector.class.isAssignableFrom(detectorList[k].getClass())) {
+                                    continue;
+                                }
+                                if (completed[c] && !checkpoint.shouldRevisit(k)) {
+                                    continue;
+                                }
+                                if (otherShard[c] && !shardDetectors[k]) {
+                                    continue;
+                                }
+                                if (deadline != null && deadline.isDropped(factories[k])) {
+                                    continue;
+                                }
+                                applyDetector(detectorList[k], classDescriptor, profiler);
+                            }
+                        } finally {
+                            if (AnalysisBudget.endClass()) {
+                                reportOverBudget(classDescriptor);
+                            }
+                            profiler.endContext(currentClassName);
+                            currentAnalysisContext.clearClassBeingAnalyzed();
+                        }
+                    }
+                }
+                first = end;
+            }
+
+            for (int c = 0; c < window.size(); c++) {
+                progress.finishClass();
+            }
+            if (checkpoint != null && (deadline == null || deadline.isComplete())) {
+                for (ClassDescriptor classDescriptor : window) {
+                    checkpoint.classCompleted(classDescriptor);
+                }
+            }
+            start += window.size();
+            if (deadline != null) {
+                deadline.classesAnalyzed(window.size(), numClasses - start, factories);
+            }
+        }
+        return allWorkerDetectors;
+    }
+
+    /**
+     * Apply the detectors of a pass to a list of classes on the analysis
+     * thread, one class after another. Every class sees all detectors, and the
+     * database updates made for the classes before it.
+     *
+     * @param classList
+     *            the classes to analyze, in analysis order
+     * @param prefetcher
+     *            prefetcher for the classes, or null
+     * @param speculator
+     *            speculator for the classes, or null
+     * @param deadline
+     *            deadline of the analysis, or null
+     * @param checkpoint
+     *            checkpoints of the pass, or null
+     * @param shardDetectors
+     *            for each detector, whether it is applied to classes of other
+     *            shards; null if the analysis is not sharded
+     */
+    private void analyzeClassesSequentially(DetectorFactory[] factories, Detector2[] detectorList,
+            List<ClassDescriptor> classList, @CheckForNull ClassPrefetcher prefetcher,
+            @CheckForNull MethodAnalysisSpeculator speculator, @CheckForNull AnalysisDeadline deadline,
+            @CheckForNull AnalysisCheckpoint checkpoint, @CheckForNull boolean[] shardDetectors)
+            throws InterruptedException {
+        Profiler profiler = bugReporter.getProjectStats().getProfiler();
+        AnalysisContext currentAnalysisContext = AnalysisContext.currentAnalysisContext();
+
+        for (int c = 0; c < classList.size(); c++) {
+            ClassDescriptor classDescriptor = classList.get(c);
+            if (PROGRESS) {
+                System.out.printf("  %d/%d  %s%n", c, classList.size(), classDescriptor);
+            }
+            if (prefetcher != null) {
+                prefetcher.advance(c);
+            }
+            if (speculator != null) {
+                speculator.advance(c);
+            }
+            if (deadline != null && !deadline.startClass(classDescriptor)) {
+                progress.finishClass();
+                continue;
+            }
+            boolean isHuge = !AnalysisBudget.ENABLED && currentAnalysisContext.isTooBig(classDescriptor);
+            boolean completed = checkpoint != null && checkpoint.isCompleted(classDescriptor);
+            boolean otherShard = shardDetectors != null && !analysisOptions.shard.contains(classDescriptor);
+            if (isHuge && currentAnalysisContext.isApplicationClass(classDescriptor)) {
+                bugReporter.reportBug(new BugInstance("SKIPPED_CLASS_TOO_BIG", Priorities.NORMAL_PRIORITY)
+                        .addClass(classDescriptor));
+            }
+            currentClassName = classDescriptor.toDottedClassName();
+            notifyClassObservers(classDescriptor);
+            profiler.startContext(currentClassName);
+            currentAnalysisContext.setClassBeingAnalyzed(classDescriptor);
+            AnalysisBudget.startClass(classDescriptor);
+            try {
+                for (int k = 0; k < detectorList.length; k++) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (isHuge && !FirstPassDetector.class.isAssignableFrom(detectorList[k].getClass())) {
+                        continue;
+                    }
+                    if (completed && !checkpoint.shouldRevisit(k)) {
+                        continue;
+                    }
+                    if (otherShard && !shardDetectors[k]) {
+                        continue;
+                    }
+                    if (deadline != null && deadline.isDropped(factories[k])) {
+                        continue;
+                    }
+                    applyDetector(detectorList[k], classDescriptor, profiler);
+                }
+            } finally {
+                if (AnalysisBudget.endClass()) {
+                    reportOverBudget(classDescriptor);
+                }
+                profiler.endContext(currentClassName);
+                currentAnalysisContext.clearClassBeingAnalyzed();
+            }
+
+            progress.finishClass();
+            if (checkpoint != null && (deadline == null || deadline.isComplete())) {
+                checkpoint.classCompleted(classDescriptor);
+            }
+            if (deadline != null) {
+                deadline.classesAnalyzed(1, classList.size() - c - 1, factories);
+            }
+        }
+    }
+
+    /**
+     * Wait for the given tasks to complete, rethrowing any failure on the
+     * analysis thread.
+     */
+    private static void waitFor(List<Future<Void>> futures) throws InterruptedException {
+        for (Future<Void> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException("Unexpected exception in analysis thread", cause);
+            }
+        }
+    }
+
     /**
      * Notify all IClassObservers that we are visiting given class.
      *
@@ -1334,6 +2337,27 @@ public class FindBugs2 implements IFindBugsEngine {
             System.exit(1);
         }
 
+        // Let the analysis daemon run the analysis, if requested
+        Integer exitCode = AnalysisDaemon.runInDaemon(args);
+        if (exitCode != null) {
+            if (exitCode.intValue() != 0) {
+                System.exit(exitCode.intValue());
+            }
+            return;
+        }
+
+        // Split the analysis between worker processes, if requested
+        exitCode = ShardedAnalysis.runSharded(args);
+        if (exitCode != null) {
+            if (exitCode.intValue() != 0) {
+                System.exit(exitCode.intValue());
+            }
+            return;
+        }
+
+        // This JVM only runs the analysis
+        AnalysisCache.shrinkOnHeapPressure();
+
         // Create FindBugs2 engine
         FindBugs2 findBugs = new FindBugs2();
 
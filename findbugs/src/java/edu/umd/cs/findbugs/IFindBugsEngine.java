@@ -20,8 +20,11 @@
 package edu.umd.cs.findbugs;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
+import javax.annotation.CheckForNull;
+
 import org.dom4j.DocumentException;
 
 import edu.umd.cs.findbugs.classfile.IClassObserver;
@@ -298,4 +301,86 @@ public interface IFindBugsEngine {
 
     void setBugReporterDecorators(Set<String> explicitlyEnabled, Set<String> explicitlyDisabled);
 
+    /**
+     * Set the number of threads used to apply detectors to classes. Only
+     * detectors implementing {@link StatelessDetector} are applied
+     * concurrently; the results do not depend on the number of threads.
+     *
+     * @param threads
+     *            number of analysis threads; 1 means single threaded analysis
+     */
+    void setThreads(int threads);
+
+    /**
+     * Set a wall clock deadline for the analysis. As the deadline approaches,
+     * expensive detectors are dropped; once it has passed, the remaining
+     * classes are skipped. Either way the results found so far are reported,
+     * along with analysis errors saying which detectors and classes were
+     * skipped.
+     *
+     * @param deadline
+     *            the deadline, in milliseconds since the epoch; 0 means no
+     *            deadline
+     */
+    void setDeadline(long deadline);
+
+    /**
+     * Set the memory budget of the cached class analysis results which can be
+     * recomputed, such as parsed classes. Least recently used results are
+     * discarded to stay within it. Independently of the budget, cached
+     * results are discarded when the heap is nearly full.
+     *
+     * @param analysisCacheSize
+     *            estimated size of the cached results, in bytes; 0 means no
+     *            budget
+     */
+    void setAnalysisCacheSize(long analysisCacheSize);
+
+    /**
+     * Make the analysis incremental. The hash and dependencies of each
+     * application class are kept in the given state file, and the warnings
+     * beside it; the next analysis with the same state file only analyzes the
+     * classes which changed since, and those depending on them, and takes the
+     * warnings of the other classes from the previous results. Requires a
+     * bug reporter which keeps a bug collection (e.g., XML output).
+     *
+     * @param stateFile
+     *            the state file, or null for a full analysis
+     */
+    void setIncrementalStateFile(@CheckForNull String stateFile);
+
+    /**
+     * Periodically write a checkpoint of the analysis to the given directory:
+     * the application classes completed by the last pass, and the warnings
+     * reported so far. The checkpoint is deleted when the analysis completes.
+     * Requires a bug reporter which keeps a bug collection (e.g., XML
+     * output).
+     *
+     * @param directory
+     *            the checkpoint directory, or null for no checkpoints
+     */
+    void setCheckpointDirectory(@CheckForNull String directory);
+
+    /**
+     * Continue from the checkpoint in the checkpoint directory, if there is
+     * one written by an analysis of the same classes with the same
+     * configuration: the classes it completed are not analyzed again, and its
+     * warnings are part of the results.
+     *
+     * @param resume
+     *            true to resume from the checkpoint
+     */
+    void setResumeFromCheckpoint(boolean resume);
+
+    /**
+     * Set the library summaries to use. A summary, written by the
+     * <code>summarize</code> command, holds precomputed class information
+     * and nullness facts for a library jar; it is used instead of parsing
+     * an aux classpath jar with exactly the same classes.
+     *
+     * @param summaryFiles
+     *            the summary files
+     */
+    void setLibrarySummaries(List<String> summaryFiles);
+
 }
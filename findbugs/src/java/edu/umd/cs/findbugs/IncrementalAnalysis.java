@@ -0,0 +1,524 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.CheckForNull;
+
+import org.dom4j.DocumentException;
+
+import edu.umd.cs.findbugs.PackageStats.ClassStats;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.util.ClassName;
+import edu.umd.cs.findbugs.util.Util;
+import edu.umd.cs.findbugs.workflow.Update;
+
+/**
+ * State of an incremental analysis (see
+ * {@link IFindBugsEngine#setIncrementalStateFile(String)}).
+ * <p>
+ * The state file records, for each application class, the MD5 hash of its
+ * class file, its supertypes and the other application classes it refers to
+ * (see {@link XClass#getCalledClassDescriptors()}). The warnings of the
+ * previous analysis are kept beside it, in a bug collection file with the
+ * same name and ".xml" appended.
+ * <p>
+ * Only the classes which changed since the previous analysis are analyzed
+ * again, together with
+ * <ul>
+ * <li>the classes referring to a changed, added or deleted class, and all
+ * subtypes of a changed class,</li>
+ * <li>the application classes a changed class refers to, since warnings
+ * about a class may depend on how it is used, and</li>
+ * <li>the other classes nested in the same top level class.</li>
+ * </ul>
+ * The first pass, which builds the databases used by the later ones, is
+ * limited to those classes and the classes they refer to. New warnings are
+ * only taken for the analyzed classes all of whose referrers were analyzed
+ * as well; in particular for every changed class. The warnings of the other
+ * classes are taken from the previous results, and the two are merged with
+ * {@link Update}, so warnings keep their history across incremental runs.
+ * <p>
+ * A warning about an unchanged class can still depend on a changed class it
+ * doesn't refer to, e.g. through the databases of the first pass, so an
+ * incremental result can differ from that of a full analysis; a full
+ * analysis is done whenever the state is missing, unreadable, or was written
+ * by another version of FindBugs or with other detectors or analysis
+ * features.
+ */
+class IncrementalAnalysis {
+    private static final String STATE_VERSION = "FindBugs incremental analysis state 1";
+
+    private static final String NONE = "-";
+
+    private final File stateFile;
+
+    private final File bugsFile;
+
+    private final String configuration;
+
+    /** Hash of each application class, by slashed class name */
+    private final Map<String, String> hashes = new HashMap<String, String>();
+
+    /** Supertypes of each application class */
+    private final Map<String, Set<String>> supertypes = new HashMap<String, Set<String>>();
+
+    /** Application classes each application class refers to */
+    private final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+
+    private final Map<String, String> previousHashes = new HashMap<String, String>();
+
+    private final Map<String, Set<String>> previousSupertypes = new HashMap<String, Set<String>>();
+
+    private final Map<String, Set<String>> previousDependencies = new HashMap<String, Set<String>>();
+
+    private @CheckForNull
+    SortedBugCollection previousBugs;
+
+    /** Application classes analyzed in this analysis */
+    private final Set<String> analyzedClasses = new HashSet<String>();
+
+    /**
+     * Analyzed classes all of whose referrers were analyzed too; the warnings
+     * of the other classes are taken from the previous results
+     */
+    private final Set<String> reportedClasses = new HashSet<String>();
+
+    /**
+     * @param stateFile
+     *            the state file
+     * @param configuration
+     *            description of the analysis configuration; the previous
+     *            state is only used if it was written with the same
+     *            configuration
+     */
+    IncrementalAnalysis(File stateFile, String configuration) {
+        this.stateFile = stateFile;
+        this.bugsFile = new File(stateFile.getPath() + ".xml");
+        this.configuration = hash(UTF8.getBytes(configuration));
+    }
+
+    /**
+     * Select the application classes to analyze.
+     *
+     * @param appClassList
+     *            all application classes
+     * @return the application classes to analyze, in the order of
+     *         appClassList
+     */
+    List<ClassDescriptor> selectClasses(List<ClassDescriptor> appClassList) throws InterruptedException {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        Set<String> appClasses = new HashSet<String>();
+        for (ClassDescriptor desc : appClassList) {
+            appClasses.add(desc.getClassName());
+        }
+        for (ClassDescriptor desc : appClassList) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            String className = desc.getClassName();
+            try {
+                ClassData classData = analysisCache.getClassAnalysis(ClassData.class, desc);
+                XClass xclass = analysisCache.getClassAnalysis(XClass.class, desc);
+                Set<String> supers = new HashSet<String>();
+                ClassDescriptor superclass = xclass.getSuperclassDescriptor();
+                if (superclass != null && appClasses.contains(superclass.getClassName())) {
+                    supers.add(superclass.getClassName());
+                }
+                for (ClassDescriptor iface : xclass.getInterfaceDescriptorList()) {
+                    if (appClasses.contains(iface.getClassName())) {
+                        supers.add(iface.getClassName());
+                    }
+                }
+                Set<String> deps = new HashSet<String>();
+                for (ClassDescriptor called : xclass.getCalledClassDescriptors()) {
+                    if (appClasses.contains(called.getClassName()) && !called.equals(desc)) {
+                        deps.add(called.getClassName());
+                    }
+                }
+                hashes.put(className, hash(classData.getData()));
+                supertypes.put(className, supers);
+                dependencies.put(className, deps);
+            } catch (CheckedAnalysisException e) {
+                // Not recorded, so the class is analyzed (and the error
+                // reported) every time
+                assert true;
+            }
+        }
+
+        if (!readState()) {
+            for (ClassDescriptor desc : appClassList) {
+                analyzedClasses.add(desc.getClassName());
+            }
+            reportedClasses.addAll(analyzedClasses);
+            return appClassList;
+        }
+
+        Set<String> changed = new HashSet<String>();
+        for (String className : appClasses) {
+            String hash = hashes.get(className);
+            if (hash == null || !hash.equals(previousHashes.get(className))) {
+                changed.add(className);
+            }
+        }
+        for (String className : previousHashes.keySet()) {
+            if (!appClasses.contains(className)) {
+                changed.add(className);
+            }
+        }
+
+        Map<String, Set<String>> referrers = new HashMap<String, Set<String>>();
+        Map<String, Set<String>> subtypes = new HashMap<String, Set<String>>();
+        invert(dependencies, referrers);
+        invert(previousDependencies, referrers);
+        invert(supertypes, referrers);
+        invert(previousSupertypes, referrers);
+        invert(supertypes, subtypes);
+        invert(previousSupertypes, subtypes);
+
+        Set<String> selected = new HashSet<String>(changed);
+        for (String className : changed) {
+            addAll(selected, referrers.get(className));
+            addAll(selected, dependencies.get(className));
+            addAll(selected, previousDependencies.get(className));
+        }
+        Set<String> seen = new HashSet<String>(changed);
+        LinkedList<String> workList = new LinkedList<String>(changed);
+        while (!workList.isEmpty()) {
+            Set<String> subs = subtypes.get(workList.removeFirst());
+            if (subs != null) {
+                for (String sub : subs) {
+                    if (seen.add(sub)) {
+                        selected.add(sub);
+                        workList.add(sub);
+                    }
+                }
+            }
+        }
+        Set<String> selectedOuterClasses = new HashSet<String>();
+        for (String className : selected) {
+            selectedOuterClasses.add(getOuterClassName(className));
+        }
+
+        List<ClassDescriptor> result = new ArrayList<ClassDescriptor>();
+        for (ClassDescriptor desc : appClassList) {
+            if (selectedOuterClasses.contains(getOuterClassName(desc.getClassName()))) {
+                result.add(desc);
+                analyzedClasses.add(desc.getClassName());
+            }
+        }
+        for (String className : analyzedClasses) {
+            Set<String> classReferrers = referrers.get(className);
+            if (classReferrers != null) {
+                classReferrers.retainAll(appClasses);
+                if (!analyzedClasses.containsAll(classReferrers)) {
+                    continue;
+                }
+            }
+            reportedClasses.add(className);
+        }
+        return result;
+    }
+
+    /**
+     * Select the classes for the first pass: the classes analyzed, the
+     * classes they refer to, and the supertypes and enclosing classes of
+     * those.
+     *
+     * @param referencedClassSet
+     *            all classes referenced by the application
+     * @param analyzedClassList
+     *            the application classes to analyze
+     * @return the classes of referencedClassSet to use in the first pass
+     */
+    Collection<ClassDescriptor> selectReferencedClasses(Collection<ClassDescriptor> referencedClassSet,
+            List<ClassDescriptor> analyzedClassList) {
+        Set<ClassDescriptor> needed = new HashSet<ClassDescriptor>(analyzedClassList);
+        LinkedList<ClassDescriptor> workList = new LinkedList<ClassDescriptor>(analyzedClassList);
+        for (ClassDescriptor desc : analyzedClassList) {
+            XClass xclass = getXClass(desc);
+            if (xclass != null) {
+                for (ClassDescriptor called : xclass.getCalledClassDescriptors()) {
+                    if (needed.add(called)) {
+                        workList.add(called);
+                    }
+                }
+            }
+        }
+        while (!workList.isEmpty()) {
+            XClass xclass = getXClass(workList.removeFirst());
+            if (xclass == null) {
+                continue;
+            }
+            ClassDescriptor superclass = xclass.getSuperclassDescriptor();
+            if (superclass != null && needed.add(superclass)) {
+                workList.add(superclass);
+            }
+            for (ClassDescriptor iface : xclass.getInterfaceDescriptorList()) {
+                if (needed.add(iface)) {
+                    workList.add(iface);
+                }
+            }
+            ClassDescriptor enclosingClass = xclass.getImmediateEnclosingClass();
+            if (enclosingClass != null && needed.add(enclosingClass)) {
+                workList.add(enclosingClass);
+            }
+        }
+        List<ClassDescriptor> result = new ArrayList<ClassDescriptor>();
+        for (ClassDescriptor desc : referencedClassSet) {
+            if (needed.contains(desc)) {
+                result.add(desc);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the warnings and class statistics of the classes which weren't
+     * analyzed again to the results of this analysis, and merge them with the
+     * previous results. Warnings about a class which was analyzed, but some of
+     * whose referrers weren't, are also taken from the previous results, as
+     * detectors like UnreadFields would miss the uses of the class in those
+     * referrers. The warnings taken from the previous results are reported
+     * again, so they go through the filters and counters of the bug reporter.
+     *
+     * @param bugCollection
+     *            the bug collection of this analysis; replaced by the merged
+     *            results
+     * @param bugReporter
+     *            the bug reporter of this analysis, which adds the warnings
+     *            it reports to bugCollection
+     */
+    void mergeResults(SortedBugCollection bugCollection, BugReporter bugReporter) {
+        SortedBugCollection previous = previousBugs;
+        if (previous == null) {
+            return;
+        }
+        for (BugInstance bug : new ArrayList<BugInstance>(bugCollection.getCollection())) {
+            String className = ClassName.toSlashedClassName(bug.getPrimaryClass().getClassName());
+            if (hashes.containsKey(className) && !reportedClasses.contains(className)) {
+                bugCollection.remove(bug);
+            }
+        }
+        // The first pass also records the statistics of the application
+        // classes it looks at
+        ProjectStats stats = bugCollection.getProjectStats();
+        Set<String> counted = new HashSet<String>();
+        for (PackageStats packageStats : stats.getPackageStats()) {
+            for (ClassStats classStats : packageStats.getClassStats()) {
+                if (classStats.size() > 0) {
+                    counted.add(classStats.getName());
+                }
+            }
+        }
+        for (PackageStats packageStats : previous.getProjectStats().getPackageStats()) {
+            for (ClassStats classStats : packageStats.getClassStats()) {
+                String className = ClassName.toSlashedClassName(classStats.getName());
+                if (hashes.containsKey(className) && !counted.contains(classStats.getName())) {
+                    stats.addClass(classStats.getName(), classStats.getSourceFile(), classStats.isInterface(),
+                            classStats.size());
+                }
+            }
+        }
+        for (BugInstance bug : previous.getCollection()) {
+            String className = ClassName.toSlashedClassName(bug.getPrimaryClass().getClassName());
+            if (!bug.isDead() && hashes.containsKey(className) && !reportedClasses.contains(className)) {
+                bugReporter.reportBug((BugInstance) bug.clone());
+            }
+        }
+        // Missing classes aren't recorded per class, so keep all of them
+        for (Iterator<String> i = previous.missingClassIterator(); i.hasNext();) {
+            bugCollection.addMissingClass(i.next());
+        }
+
+        BugCollection merged = new Update().mergeCollections(previous, bugCollection, false, false);
+        bugCollection.clearBugInstances();
+        stats.clearBugCounts();
+        bugCollection.clearAppVersions();
+        for (Iterator<AppVersion> i = merged.appVersionIterator(); i.hasNext();) {
+            bugCollection.addAppVersion(i.next());
+        }
+        bugCollection.setSequenceNumber(merged.getSequenceNumber());
+        for (BugInstance bug : merged) {
+            bugCollection.add(bug, false);
+        }
+    }
+
+    /**
+     * Write the state file and the results for the next incremental analysis.
+     *
+     * @param bugCollection
+     *            the (merged) results of this analysis
+     */
+    void save(SortedBugCollection bugCollection) throws IOException {
+        bugCollection.writeXML(bugsFile);
+        PrintWriter out = UTF8.printWriter(stateFile.getPath());
+        try {
+            out.println(STATE_VERSION);
+            out.println(configuration);
+            for (Map.Entry<String, String> e : new TreeMap<String, String>(hashes).entrySet()) {
+                String className = e.getKey();
+                out.print(className);
+                out.print(' ');
+                out.print(e.getValue());
+                out.print(' ');
+                out.print(join(supertypes.get(className)));
+                out.print(' ');
+                out.println(join(dependencies.get(className)));
+            }
+            if (out.checkError()) {
+                throw new IOException("Error writing " + stateFile);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read the previous state and results.
+     *
+     * @return true if they could be read and were written with the same
+     *         configuration
+     */
+    private boolean readState() {
+        if (!stateFile.isFile() || !bugsFile.isFile()) {
+            return false;
+        }
+        try {
+            BufferedReader in = UTF8.bufferedReader(new FileInputStream(stateFile));
+            try {
+                if (!STATE_VERSION.equals(in.readLine()) || !configuration.equals(in.readLine())) {
+                    return false;
+                }
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] fields = line.split(" ");
+                    if (fields.length != 4) {
+                        throw new IOException("Malformed line in " + stateFile + ": " + line);
+                    }
+                    previousHashes.put(fields[0], fields[1]);
+                    previousSupertypes.put(fields[0], split(fields[2]));
+                    previousDependencies.put(fields[0], split(fields[3]));
+                }
+            } finally {
+                in.close();
+            }
+            SortedBugCollection bugs = new SortedBugCollection(new Project());
+            bugs.readXML(bugsFile);
+            previousBugs = bugs;
+            return true;
+        } catch (IOException e) {
+            AnalysisContext.logError("Could not read incremental analysis state; analyzing all classes", e);
+        } catch (DocumentException e) {
+            AnalysisContext.logError("Could not read incremental analysis results; analyzing all classes", e);
+        }
+        previousHashes.clear();
+        previousSupertypes.clear();
+        previousDependencies.clear();
+        return false;
+    }
+
+    private static @CheckForNull
+    XClass getXClass(ClassDescriptor desc) {
+        try {
+            return Global.getAnalysisCache().getClassAnalysis(XClass.class, desc);
+        } catch (CheckedAnalysisException e) {
+            return null;
+        }
+    }
+
+    private static String getOuterClassName(String className) {
+        int dollar = className.indexOf('$', className.lastIndexOf('/') + 1);
+        return dollar < 0 ? className : className.substring(0, dollar);
+    }
+
+    private static void invert(Map<String, Set<String>> edges, Map<String, Set<String>> inverse) {
+        for (Map.Entry<String, Set<String>> e : edges.entrySet()) {
+            for (String target : e.getValue()) {
+                Set<String> sources = inverse.get(target);
+                if (sources == null) {
+                    sources = new HashSet<String>();
+                    inverse.put(target, sources);
+                }
+                sources.add(e.getKey());
+            }
+        }
+    }
+
+    private static void addAll(Set<String> set, @CheckForNull Set<String> elements) {
+        if (elements != null) {
+            set.addAll(elements);
+        }
+    }
+
+    private static String join(@CheckForNull Set<String> classNames) {
+        if (classNames == null || classNames.isEmpty()) {
+            return NONE;
+        }
+        List<String> sorted = new ArrayList<String>(classNames);
+        Collections.sort(sorted);
+        StringBuilder buf = new StringBuilder();
+        for (String className : sorted) {
+            if (buf.length() > 0) {
+                buf.append(',');
+            }
+            buf.append(className);
+        }
+        return buf.toString();
+    }
+
+    private static Set<String> split(String classNames) {
+        Set<String> result = new HashSet<String>();
+        if (!NONE.equals(classNames)) {
+            Collections.addAll(result, classNames.split(","));
+        }
+        return result;
+    }
+
+    private static String hash(byte[] data) {
+        MessageDigest digest = Util.getMD5Digest();
+        return new BigInteger(1, digest.digest(data)).toString(16);
+    }
+}
@@ -20,17 +20,23 @@
 
 package edu.umd.cs.findbugs;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.lang.annotation.Documented;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -56,10 +62,13 @@ import org.apache.bcel.generic.Type;
 
 import edu.umd.cs.findbugs.OpcodeStack.Item.SpecialKind;
 import edu.umd.cs.findbugs.StackMapAnalyzer.JumpInfoFromStackMap;
+import edu.umd.cs.findbugs.ba.AnalysisBudget;
+import edu.umd.cs.findbugs.ba.AnalysisBudgetExceededException;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.AnalysisFeatures;
 import edu.umd.cs.findbugs.ba.ClassMember;
 import edu.umd.cs.findbugs.ba.FieldSummary;
+import edu.umd.cs.findbugs.ba.FirstPassSummary;
 import edu.umd.cs.findbugs.ba.XFactory;
 import edu.umd.cs.findbugs.ba.XField;
 import edu.umd.cs.findbugs.ba.XMethod;
@@ -69,6 +78,7 @@ import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 import edu.umd.cs.findbugs.classfile.Global;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ISizedAnalysisResult;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 import edu.umd.cs.findbugs.classfile.analysis.MethodInfo;
 import edu.umd.cs.findbugs.internalAnnotations.SlashedClassName;
@@ -672,6 +682,51 @@ public class OpcodeStack implements Constants2 {
             setNull(true);
         }
 
+        /**
+         * Write this item, as kept in a field summary, for
+         * {@link #readSummary(DataInput)} in another analysis. A user value
+         * which can't be written (see
+         * {@link FirstPassSummary#isSummarizable(Object)}) is written as null.
+         */
+        public void writeSummary(DataOutput out) throws IOException {
+            out.writeInt(specialKind);
+            FirstPassSummary.writeString(out, signature);
+            FirstPassSummary.writeValue(out, constValue);
+            FirstPassSummary.writeValue(out, source);
+            out.writeInt(pc);
+            out.writeInt(flags);
+            out.writeInt(registerNumber);
+            FirstPassSummary.writeValue(out, userValue);
+            out.writeBoolean(injection != null);
+            if (injection != null) {
+                FirstPassSummary.writeString(out, injection.parameterName);
+                out.writeInt(injection.pc);
+            }
+            out.writeInt(fieldLoadedFromRegister);
+        }
+
+        public static Item readSummary(DataInput in) throws IOException {
+            Item item = new Item();
+            item.specialKind = asSpecialKind(in.readInt());
+            item.signature = FirstPassSummary.readString(in);
+            item.constValue = FirstPassSummary.readValue(in);
+            Object source = FirstPassSummary.readValue(in);
+            if (source != null && !(source instanceof ClassMember)) {
+                throw new IOException("Bad source of item: " + source);
+            }
+            item.source = (ClassMember) source;
+            item.pc = in.readInt();
+            item.flags = in.readInt();
+            item.registerNumber = in.readInt();
+            item.userValue = FirstPassSummary.readValue(in);
+            if (in.readBoolean()) {
+                String parameterName = FirstPassSummary.readString(in);
+                item.injection = new HttpParameterInjection(parameterName, in.readInt());
+            }
+            item.fieldLoadedFromRegister = in.readInt();
+            return item;
+        }
+
         public static Item nullItem(String signature) {
             Item item = new Item(signature);
             item.constValue = null;
@@ -995,7 +1050,7 @@ public class OpcodeStack implements Constants2 {
     }
 
     public boolean hasIncomingBranches(int pc) {
-        return jumpEntryLocations.get(pc) && jumpEntries.get(pc) != null;
+        return jumpEntryLocations.get(pc) && getJumpEntry(pc) != null;
 
     }
 
@@ -1045,13 +1100,14 @@ public class OpcodeStack implements Constants2 {
             stackUpdated = true;
         }
 
+        seedLoopHead(dbc.getPC());
         List<Item> jumpEntry = null;
         if (jumpEntryLocations.get(dbc.getPC()))
-            jumpEntry = jumpEntries.get(Integer.valueOf(dbc.getPC()));
+            jumpEntry = getJumpEntry(dbc.getPC());
         boolean wasReachOnlyByBranch = isReachOnlyByBranch();
         if (jumpEntry != null) {
             setReachOnlyByBranch(false);
-            List<Item> jumpStackEntry = jumpStackEntries.get(Integer.valueOf(dbc.getPC()));
+            List<Item> jumpStackEntry = getJumpStackEntry(dbc.getPC());
 
             if (DEBUG2) {
                 if (wasReachOnlyByBranch) {
@@ -2605,16 +2661,105 @@ public class OpcodeStack implements Constants2 {
 
     private boolean jumpInfoChangedByBackwardsBranch = false;
     
-    private Map<Integer, List<Item>> jumpEntries = new HashMap<Integer, List<Item>>();
+    /**
+     * Jump entries learned from a shared JumpInfo. Entries are copied into
+     * jumpEntries and jumpStackEntries before they are modified.
+     */
+    private @CheckForNull JumpInfo learnedJumpInfo;
+
+    /** Locations whose entries are held in jumpEntries and jumpStackEntries */
+    private final BitSet ownJumpEntries = new BitSet();
+
+    private final Map<Integer, List<Item>> jumpEntries = new HashMap<Integer, List<Item>>();
 
-    private Map<Integer, List<Item>> jumpStackEntries = new HashMap<Integer, List<Item>>();
+    private final Map<Integer, List<Item>> jumpStackEntries = new HashMap<Integer, List<Item>>();
 
     private BitSet jumpEntryLocations = new BitSet();
 
+    private @CheckForNull List<Item> getJumpEntry(int pc) {
+        if (learnedJumpInfo == null || ownJumpEntries.get(pc))
+            return jumpEntries.get(Integer.valueOf(pc));
+        return learnedJumpInfo.getJumpEntry(pc);
+    }
+
+    private @CheckForNull List<Item> getJumpStackEntry(int pc) {
+        if (learnedJumpInfo == null || ownJumpEntries.get(pc))
+            return jumpStackEntries.get(Integer.valueOf(pc));
+        return learnedJumpInfo.getJumpStackEntry(pc);
+    }
+
+    private void ownJumpEntry(int pc) {
+        if (learnedJumpInfo == null || ownJumpEntries.get(pc))
+            return;
+        ownJumpEntries.set(pc);
+        List<Item> locals = learnedJumpInfo.getJumpEntry(pc);
+        if (locals != null)
+            jumpEntries.put(Integer.valueOf(pc), new ArrayList<Item>(locals));
+        List<Item> stackEntry = learnedJumpInfo.getJumpStackEntry(pc);
+        if (stackEntry != null)
+            jumpStackEntries.put(Integer.valueOf(pc), new ArrayList<Item>(stackEntry));
+    }
+
+    /**
+     * StackMapTable entries and loops of the method, if loop heads should be
+     * seeded while computing its jump info
+     */
+    private @CheckForNull JumpInfo loopHeadTypes;
+
+    private @CheckForNull JumpInfoFactory.LoopScanner loops;
+
+    /**
+     * When a loop head is first reached by falling into it, make its jump
+     * entry the current values of the registers not stored within the loop,
+     * and values of the StackMapTable type for the others. The backward
+     * branches then usually merge into it without change, so the jump info
+     * converges without another pass over the method. Loops that are entered
+     * by a jump, or with values on the stack, are left to the iteration.
+     */
+    private void seedLoopHead(int pc) {
+        if (loopHeadTypes == null || loops == null || !loops.isLoopHead(pc) || jumpEntryLocations.get(pc)
+                || isTop() || isReachOnlyByBranch() || !stack.isEmpty())
+            return;
+        List<Item> types = loopHeadTypes.getJumpEntry(pc);
+        if (types == null || loopHeadTypes.getJumpStackEntry(pc) != null)
+            return;
+        // registers not in the frame are dead at the loop head
+        List<Item> entry = new ArrayList<Item>(lvValues.subList(0, Math.min(lvValues.size(), types.size())));
+        BitSet stored = loops.getRegistersStoredInLoopsContaining(pc);
+        for (int r = stored.nextSetBit(0); r >= 0 && r < types.size(); r = stored.nextSetBit(r + 1)) {
+            while (entry.size() <= r)
+                entry.add(null);
+            Item type = types.get(r);
+            if (type != null) {
+                Item any = new Item(type.getSignature());
+                any.constValue = null;
+                any.setCouldBeZero(true);
+                entry.set(r, any);
+            }
+        }
+        jumpEntries.put(Integer.valueOf(pc), entry);
+        ownJumpEntries.set(pc);
+        jumpEntryLocations.set(pc);
+    }
+
+    private JumpInfo createJumpInfo() {
+        Map<Integer, List<Item>> locals = new HashMap<Integer, List<Item>>();
+        Map<Integer, List<Item>> stacks = new HashMap<Integer, List<Item>>();
+        for (int i = jumpEntryLocations.nextSetBit(0); i >= 0; i = jumpEntryLocations.nextSetBit(i + 1)) {
+            List<Item> entry = getJumpEntry(i);
+            if (entry != null)
+                locals.put(Integer.valueOf(i), entry);
+            entry = getJumpStackEntry(i);
+            if (entry != null)
+                stacks.put(Integer.valueOf(i), entry);
+        }
+        return new JumpInfo(locals, stacks, jumpEntryLocations);
+    }
+
     public void printJumpEntries() {
         for(int i=jumpEntryLocations.nextSetBit(0); i>=0; i=jumpEntryLocations.nextSetBit(i+1)) {
-            List<Item> stack = jumpStackEntries.get(i);
-            List<Item> locals = jumpEntries.get(i);
+            List<Item> stack = getJumpStackEntry(i);
+            List<Item> locals = getJumpEntry(i);
             if (stack != null)
             System.out.printf("%4d: %s::%s%n", i, stack, locals);
             else
@@ -2622,27 +2767,128 @@ public class OpcodeStack implements Constants2 {
         }
     }
 
-    public static class JumpInfo {
-        final Map<Integer, List<Item>> jumpEntries;
+    /**
+     * The local variables, and the stack if it is not empty, on entry to each
+     * jump target of a method. Instances are immutable, and are shared by all
+     * OpcodeStacks analyzing the method.
+     */
+    public static class JumpInfo implements ISizedAnalysisResult {
+        private final BitSet jumpEntryLocations;
 
-        final Map<Integer, List<Item>> jumpStackEntries;
+        /** sorted locations having a local variable or stack entry */
+        private final int[] entryPCs;
 
-        final BitSet jumpEntryLocations;
+        private final Item[][] jumpEntries;
+
+        private final Item[][] jumpStackEntries;
 
         JumpInfo(Map<Integer, List<Item>> jumpEntries, Map<Integer, List<Item>> jumpStackEntries, BitSet jumpEntryLocations) {
-            this.jumpEntries = jumpEntries;
-            this.jumpStackEntries = jumpStackEntries;
-            this.jumpEntryLocations = jumpEntryLocations;
+            this.jumpEntryLocations = (BitSet) jumpEntryLocations.clone();
+            BitSet pcs = new BitSet();
+            for (Integer pc : jumpEntries.keySet())
+                pcs.set(pc.intValue());
+            for (Integer pc : jumpStackEntries.keySet())
+                pcs.set(pc.intValue());
+            entryPCs = new int[pcs.cardinality()];
+            this.jumpEntries = new Item[entryPCs.length][];
+            this.jumpStackEntries = new Item[entryPCs.length][];
+            int n = 0;
+            for (int pc = pcs.nextSetBit(0); pc >= 0; pc = pcs.nextSetBit(pc + 1)) {
+                entryPCs[n] = pc;
+                this.jumpEntries[n] = toArray(jumpEntries.get(Integer.valueOf(pc)));
+                this.jumpStackEntries[n] = toArray(jumpStackEntries.get(Integer.valueOf(pc)));
+                n++;
+            }
+        }
+
+        private static @CheckForNull Item[] toArray(@CheckForNull List<Item> items) {
+            if (items == null)
+                return null;
+            return items.toArray(new Item[items.size()]);
+        }
+
+        private static @CheckForNull List<Item> asList(@CheckForNull Item[] items) {
+            if (items == null)
+                return null;
+            return Collections.unmodifiableList(Arrays.asList(items));
         }
 
         public int getNextJump(int pc) {
             return jumpEntryLocations.nextSetBit(pc);
         }
+
+        /**
+         * @return the local variables on entry to the given jump target, or
+         *         null if there are none
+         */
+        public @CheckForNull List<Item> getJumpEntry(int pc) {
+            int i = Arrays.binarySearch(entryPCs, pc);
+            return i < 0 ? null : asList(jumpEntries[i]);
+        }
+
+        /**
+         * @return the stack on entry to the given jump target, or null if it
+         *         is empty
+         */
+        public @CheckForNull List<Item> getJumpStackEntry(int pc) {
+            int i = Arrays.binarySearch(entryPCs, pc);
+            return i < 0 ? null : asList(jumpStackEntries[i]);
+        }
+
+        /**
+         * @return a rough estimate of the memory retained by this object, in
+         *         bytes; items are counted once per slot referring to them
+         */
+        @Override
+        public long getEstimatedSize() {
+            long size = 64 + jumpEntryLocations.size() / 8 + 4L * entryPCs.length;
+            for (int i = 0; i < entryPCs.length; i++) {
+                if (jumpEntries[i] != null)
+                    size += 16 + ITEM_SIZE * jumpEntries[i].length;
+                if (jumpStackEntries[i] != null)
+                    size += 16 + ITEM_SIZE * jumpStackEntries[i].length;
+            }
+            return size;
+        }
+
+        private static final int ITEM_SIZE = 4 + 48;
     }
 
 
     public static class JumpInfoFactory extends edu.umd.cs.findbugs.classfile.engine.bcel.AnalysisFactory<JumpInfo> {
 
+        /**
+         * If set, the entries at the targets of backward branches are seeded
+         * from the StackMapTable, so that most loops converge in a single
+         * iteration. This loses what the iterative analysis would have
+         * learned about values flowing into loop heads.
+         */
+        public static final String SEED_FROM_STACK_MAP_PROPERTY = "findbugs.jumpinfo.seedFromStackMap";
+
+        private static final AtomicLong methodsComputed = new AtomicLong();
+
+        private static final AtomicLong iterationsComputed = new AtomicLong();
+
+        /**
+         * @return the number of methods for which jump info has been computed
+         */
+        public static long getMethodsComputed() {
+            return methodsComputed.get();
+        }
+
+        /**
+         * @return the total number of passes over the bytecode made while
+         *         computing jump info
+         */
+        public static long getIterationsComputed() {
+            return iterationsComputed.get();
+        }
+
+        public static void resetStatistics() {
+            methodsComputed.set(0);
+            iterationsComputed.set(0);
+        }
+
         public JumpInfoFactory() {
             super("Jump info for opcode stack", JumpInfo.class);
         }
@@ -2658,7 +2904,7 @@ public class OpcodeStack implements Constants2 {
            
             JumpStackComputation branchAnalysis = new JumpStackComputation(descriptor);
             
-            return computeJumpInfo(jclass, method, branchAnalysis);
+            return computeJumpInfo(jclass, method, branchAnalysis, SystemProperties.getBoolean(SEED_FROM_STACK_MAP_PROPERTY));
         }
 
        static class JumpStackComputation extends BytecodeScanningDetector {
@@ -2698,8 +2944,88 @@ public class OpcodeStack implements Constants2 {
            }
        }
 
+        /**
+         * Find the loops of a method, and the registers stored in them.
+         */
+        static class LoopScanner extends BytecodeScanningDetector {
+            private final BitSet loopHeads = new BitSet();
+
+            /** target and source of each backward branch */
+            private final List<int[]> loops = new ArrayList<int[]>();
+
+            /** pc and first and last register of each store */
+            private final List<int[]> stores = new ArrayList<int[]>();
+
+            @Override
+            public void sawOpcode(int seen) {
+                if (isRegisterStore()) {
+                    int register = getRegisterOperand();
+                    boolean twoSlots = seen == LSTORE || seen == DSTORE || seen >= LSTORE_0 && seen <= LSTORE_3
+                            || seen >= DSTORE_0 && seen <= DSTORE_3;
+                    stores.add(new int[] { getPC(), register, twoSlots ? register + 1 : register });
+                }
+            }
+
+            @Override
+            public void sawBranchTo(int target) {
+                if (target <= getPC()) {
+                    loopHeads.set(target);
+                    loops.add(new int[] { target, getPC() });
+                }
+            }
+
+            boolean isLoopHead(int pc) {
+                return loopHeads.get(pc);
+            }
+
+            /**
+             * Get the registers stored between the head and the backward
+             * branch of any loop containing the given pc. Code that can be
+             * executed on the way around a loop lies within such a range,
+             * since leaving it requires another backward branch.
+             */
+            BitSet getRegistersStoredInLoopsContaining(int pc) {
+                BitSet result = new BitSet();
+                for (int[] loop : loops) {
+                    if (loop[0] > pc || loop[1] < pc)
+                        continue;
+                    for (int[] store : stores)
+                        if (store[0] >= loop[0] && store[0] <= loop[1])
+                            result.set(store[1], store[2] + 1);
+                }
+                return result;
+            }
+        }
+
+        /**
+         * Prepare the stack computing the jump info to seed loop heads from
+         * the StackMapTable.
+         */
+        private static void seedLoopHeadsFromStackMap(OpcodeStack myStack, JavaClass jclass, Method method,
+                MethodDescriptor descriptor) {
+            JumpInfo stackMap;
+            try {
+                stackMap = Global.getAnalysisCache().getMethodAnalysis(JumpInfoFromStackMap.class, descriptor);
+            } catch (CheckedAnalysisException e) {
+                AnalysisContext.logError("Error getting jump information from StackMap", e);
+                return;
+            }
+            if (stackMap == null)
+                return;
+            LoopScanner loops = new LoopScanner();
+            loops.setupVisitorForClass(jclass);
+            loops.doVisitMethod(method);
+            myStack.loopHeadTypes = stackMap;
+            myStack.loops = loops;
+        }
+
         public static @CheckForNull JumpInfo computeJumpInfo(JavaClass jclass, Method method,
                 JumpStackComputation branchAnalysis) {
+            return computeJumpInfo(jclass, method, branchAnalysis, false);
+        }
+
+        public static @CheckForNull JumpInfo computeJumpInfo(JavaClass jclass, Method method,
+                JumpStackComputation branchAnalysis, boolean seedFromStackMap) {
             branchAnalysis.setupVisitorForClass(jclass);
             XMethod createXMethod = XFactory.createXMethod(jclass, method);
             if (!(createXMethod instanceof MethodInfo))
@@ -2708,8 +3034,8 @@ public class OpcodeStack implements Constants2 {
             
             int iteration = 1;
             OpcodeStack myStack = branchAnalysis.stack;
-            if (false)
-                myStack.learnFrom(myStack.getJumpInfoFromStackMap());
+            if (seedFromStackMap)
+                seedLoopHeadsFromStackMap(myStack, jclass, method, branchAnalysis.descriptor);
             do {
                 if (DEBUG && iteration > 1 ) {
                     System.out.println("Iterative jump info for " + xMethod +", iteration " + iteration);
@@ -2717,6 +3043,12 @@ public class OpcodeStack implements Constants2 {
                     System.out.println();
                 }
                 // myStack.resetForMethodEntry0(ClassName.toSlashedClassName(jclass.getClassName()), method);
+                try {
+                    AnalysisBudget.check();
+                } catch (AnalysisBudgetExceededException e) {
+                    // Already reported; go on without jump info
+                    return null;
+                }
                 branchAnalysis.doVisitMethod(method);
                 if (xMethod.hasBackBranch() != myStack.backwardsBranch && !myStack.encountedTop) {
                     AnalysisContext.logError(
@@ -2729,11 +3061,13 @@ public class OpcodeStack implements Constants2 {
                     break;
                 }
             } while (myStack.isJumpInfoChangedByBackwardsBranch() && myStack.backwardsBranch);
+            methodsComputed.incrementAndGet();
+            iterationsComputed.addAndGet(iteration - 1);
             if (iteration > 20&& iteration <= 40) {
                 AnalysisContext.logError("Iterative jump info converged after " + iteration + " iterations in " + xMethod + ", size " + method.getCode().getLength());
 
             }
-            return new JumpInfo(myStack.jumpEntries, myStack.jumpStackEntries, myStack.jumpEntryLocations);
+            return myStack.createJumpInfo();
         }
     }
 
@@ -2747,6 +3081,7 @@ public class OpcodeStack implements Constants2 {
 
         if (from >= target)
             backwardsBranch = true;
+        ownJumpEntry(target);
         List<Item> atTarget = jumpEntries.get(Integer.valueOf(target));
         if (atTarget == null) {
             setJumpInfoChangedByBackwardBranch("new target", from, target);
@@ -2774,13 +3109,17 @@ public class OpcodeStack implements Constants2 {
     public void learnFrom(JumpInfo info) {
         if (info == null)
             return;
-        jumpEntries = new HashMap<Integer, List<Item>>(info.jumpEntries);
-        jumpStackEntries = new HashMap<Integer, List<Item>>(info.jumpStackEntries);
+        learnedJumpInfo = info;
+        ownJumpEntries.clear();
+        jumpEntries.clear();
+        jumpStackEntries.clear();
         jumpEntryLocations = (BitSet) info.jumpEntryLocations.clone();
     }
 
     public void initialize() {
         setTop(false);
+        learnedJumpInfo = null;
+        ownJumpEntries.clear();
         jumpEntries.clear();
         jumpStackEntries.clear();
         jumpEntryLocations.clear();
@@ -129,6 +129,10 @@ public class PackageStats extends BugCounts implements XMLWriteable {
             this.isInterface = isInterface;
         }
 
+        public boolean isInterface() {
+            return isInterface;
+        }
+
         public void setSize(int size) {
             this.size = size;
         }
@@ -37,6 +37,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -648,6 +649,7 @@ public class PluginLoader {
             throws PluginException {
         Document pluginDescriptor = getPluginDescriptor();
         List<Document> messageCollectionList = getMessageDocuments();
+        MessageIndex messages = new MessageIndex(messageCollectionList);
         List<Node> cloudNodeList = XMLUtil.selectNodes(pluginDescriptor, "/FindbugsPlugin/Cloud");
         for (Node cloudNode : cloudNodeList) {
 
@@ -664,7 +666,7 @@ public class PluginLoader {
             Class<? extends Cloud> cloudClass = getClass(classLoader, cloudClassname, Cloud.class);
 
             Class<? extends NameLookup> usernameClass = getClass(classLoader, usernameClassname, NameLookup.class);
-            Node cloudMessageNode = findMessageNode(messageCollectionList, "/MessageCollection/Cloud[@id='" + cloudId + "']",
+            Node cloudMessageNode = messages.find("Cloud", cloudId,
                     "Missing Cloud description for cloud " + cloudId);
             String description = getChildText(cloudMessageNode, "Description").trim();
             String details = getChildText(cloudMessageNode, "Details").trim();
@@ -710,8 +712,7 @@ public class PluginLoader {
                     String propertiesLocation = componentNode.valueOf("@properties");
                     boolean disabled = Boolean.valueOf(componentNode.valueOf("@disabled"));
 
-                    Node filterMessageNode = findMessageNode(messageCollectionList,
-                            "/MessageCollection/PluginComponent[@id='" + componentId + "']",
+                    Node filterMessageNode = messages.find("PluginComponent", componentId,
                             "Missing Cloud description for PluginComponent " + componentId);
                     String description = getChildText(filterMessageNode, "Description").trim();
                     String details = getChildText(filterMessageNode, "Details").trim();
@@ -758,12 +759,8 @@ public class PluginLoader {
                     }
                     String kind = main.valueOf("@kind");
                     boolean analysis = Boolean.valueOf(main.valueOf("@analysis"));
-                    Element mainMessageNode = (Element) findMessageNode(messageCollectionList,
-                            "/MessageCollection/FindBugsMain[@cmd='" + cmd
-                            // + " and @class='" + className
-                            +"']/Description",
-                            "Missing FindBugsMain description for cmd " + cmd);
-                    String description = mainMessageNode.getTextTrim();
+                    String description = getChildText(messages.find("FindBugsMain", cmd,
+                            "Missing FindBugsMain description for cmd " + cmd), "Description").trim();
                     try {
                         Class<?> mainClass =  classLoader.loadClass(className);
                         plugin.addFindBugsMain(mainClass, cmd, description, kind, analysis);
@@ -791,16 +788,12 @@ public class PluginLoader {
                 }
                 // System.out.println("Found detector: class="+className+", disabled="+disabled);
 
-                // Create DetectorFactory for the detector
-                Class<?> detectorClass = null;
-                if (!FindBugs.isNoAnalysis()) {
-                    detectorClass = classLoader.loadClass(className);
-
-                    if (!Detector.class.isAssignableFrom(detectorClass) && !Detector2.class.isAssignableFrom(detectorClass)) {
-                        throw new PluginException("Class " + className + " does not implement Detector or Detector2");
-                    }
+                // Create DetectorFactory for the detector. The class itself
+                // is loaded when the factory is first used.
+                if (!FindBugs.isNoAnalysis() && classLoader.getResource(className.replace('.', '/') + ".class") == null) {
+                    throw new ClassNotFoundException(className);
                 }
-                DetectorFactory factory = new DetectorFactory(plugin, className, detectorClass, !disabled.equals("true"), speed,
+                DetectorFactory factory = new DetectorFactory(plugin, className, null, !disabled.equals("true"), speed,
                         reports, requireJRE);
                 if (Boolean.valueOf(hidden).booleanValue()) {
                     factory.setHidden(true);
@@ -810,11 +803,8 @@ public class PluginLoader {
 
                 // Find Detector node in one of the messages files,
                 // to get the detail HTML.
-                Node node = findMessageNode(messageCollectionList, "/MessageCollection/Detector[@class='" + className
-                        + "']/Details", "Missing Detector description for detector " + className);
-
-                Element details = (Element) node;
-                String detailHTML = details.getText();
+                String detailHTML = getChildText(messages.find("Detector", className,
+                        "Missing Detector description for detector " + className), "Details");
                 StringBuilder buf = new StringBuilder();
                 buf.append("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01 Transitional//EN\">\n");
                 buf.append("<HTML><HEAD><TITLE>Detector Description</TITLE></HEAD><BODY>\n");
@@ -920,9 +910,7 @@ public class PluginLoader {
             String experimental = bugPatternNode.valueOf("@experimental");
 
             // Find the matching element in messages.xml (or translations)
-            String query = "/MessageCollection/BugPattern[@type='" + type + "']";
-            Node messageNode = findMessageNode(messageCollectionList, query, "messages.xml missing BugPattern element for type "
-                    + type);
+            Node messageNode = messages.find("BugPattern", type, "messages.xml missing BugPattern element for type " + type);
 
             String shortDesc = getChildText(messageNode, "ShortDescription");
             String longDesc = getChildText(messageNode, "LongDescription");
@@ -955,6 +943,14 @@ public class PluginLoader {
 
         // Create BugCodes
         Set<String> definedBugCodes = new HashSet<String>();
+        Map<String, Node> bugCodeNodes = new HashMap<String, Node>();
+        List<Node> fbNodeList = XMLUtil.selectNodes(pluginDescriptor, "/FindbugsPlugin/BugCode");
+        for (Node fbNode : fbNodeList) {
+            String abbrev = fbNode.valueOf("@abbrev");
+            if (!bugCodeNodes.containsKey(abbrev)) {
+                bugCodeNodes.put(abbrev, fbNode);
+            }
+        }
         for (Document messageCollection : messageCollectionList) {
             List<Node> bugCodeNodeList = XMLUtil.selectNodes(messageCollection, "/MessageCollection/BugCode");
             for (Node bugCodeNode : bugCodeNodeList) {
@@ -967,8 +963,7 @@ public class PluginLoader {
                 }
                 String description = bugCodeNode.getText();
 
-                String query = "/FindbugsPlugin/BugCode[@abbrev='" + abbrev + "']";
-                Node fbNode = pluginDescriptor.selectSingleNode(query);
+                Node fbNode = bugCodeNodes.get(abbrev);
                 int cweid = 0;
                 if (fbNode != null)
                     try {
@@ -1282,6 +1277,62 @@ public class PluginLoader {
         }
     }
 
+    /**
+     * The top level elements of the message collections of a plugin, indexed
+     * by element name and identifying attribute. Looking an element up with
+     * an XPath predicate scans the whole collection each time, which made
+     * loading the core plugin quadratic in its number of bug patterns.
+     */
+    private static class MessageIndex {
+        private final Map<String, Element> elements = new HashMap<String, Element>();
+
+        /**
+         * @param messageCollectionList
+         *            the message collections, in order of precedence
+         */
+        MessageIndex(List<Document> messageCollectionList) {
+            for (Document document : messageCollectionList) {
+                for (Iterator<?> i = document.getRootElement().elementIterator(); i.hasNext();) {
+                    Element element = (Element) i.next();
+                    String attribute = getKeyAttribute(element.getName());
+                    if (attribute == null) {
+                        continue;
+                    }
+                    String key = element.getName() + ':' + element.attributeValue(attribute, "");
+                    if (!elements.containsKey(key)) {
+                        elements.put(key, element);
+                    }
+                }
+            }
+        }
+
+        private static @CheckForNull String getKeyAttribute(String elementName) {
+            if ("BugPattern".equals(elementName)) {
+                return "type";
+            } else if ("Detector".equals(elementName)) {
+                return "class";
+            } else if ("FindBugsMain".equals(elementName)) {
+                return "cmd";
+            } else if ("Cloud".equals(elementName) || "PluginComponent".equals(elementName)) {
+                return "id";
+            }
+            return null;
+        }
+
+        /**
+         * @return the element with the given name and identifying attribute
+         *         value from the message collection with the highest
+         *         precedence which has one
+         */
+        Element find(String elementName, String key, String missingMsg) throws PluginException {
+            Element element = elements.get(elementName + ':' + key);
+            if (element == null) {
+                throw new PluginException(missingMsg);
+            }
+            return element;
+        }
+    }
+
     private static Node findMessageNode(List<Document> messageCollectionList, String xpath, String missingMsg)
             throws PluginException {
         for (Document document : messageCollectionList) {
@@ -1304,7 +1355,7 @@ public class PluginLoader {
     }
 
     private static String getChildText(Node node, String childName) throws PluginException {
-        Node child = node.selectSingleNode(childName);
+        Node child = node instanceof Element ? ((Element) node).element(childName) : node.selectSingleNode(childName);
         if (child == null) {
             throw new PluginException("Could not find child \"" + childName + "\" for node");
         }
@@ -0,0 +1,44 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a reporting detector which only reports warnings about the class it
+ * visits, while visiting it: its report() or finishPass() method does
+ * nothing, and it keeps no information from one class to the next that
+ * changes what it reports.
+ * <p>
+ * Such a detector doesn't need to visit every class of a pass. An analysis
+ * resuming from a checkpoint doesn't apply it to the classes completed
+ * before, and a worker of a sharded analysis doesn't apply it to the classes
+ * of other shards. {@link StatelessDetector}s are treated the same way. The
+ * annotation isn't inherited: a subclass must be marked on its own.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReportsPerClass {
+}
@@ -0,0 +1,438 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.CheckForNull;
+
+import org.dom4j.DocumentException;
+
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.impl.PersistentClassAnalysisCache;
+import edu.umd.cs.findbugs.config.CommandLine;
+import edu.umd.cs.findbugs.config.CommandLine.HelpRequestedException;
+import edu.umd.cs.findbugs.workflow.UnionResults;
+
+/**
+ * An analysis split between worker processes, requested by
+ * <code>-shards &lt;count&gt;</code>.
+ * <p>
+ * The application classes are split into shards (see {@link AnalysisShard}),
+ * and each shard is analyzed by a worker JVM started by the process which was
+ * given the command line, the coordinator. A worker applies the first pass
+ * only to the classes of its shard, and computes the nullness facts of the
+ * methods of its shard before the pass which uses them. Both are written to
+ * the exchange directory, and each worker then adds the facts written by the
+ * others to its own. The worker writes its warnings to the exchange
+ * directory.
+ * <p>
+ * The coordinator talks to a worker through its standard input and output: a
+ * worker writes {@value #SUMMARIZED} when it has written a summary, and reads
+ * the summaries of the others when the coordinator writes {@value #EXCHANGE},
+ * once all workers have written theirs. The coordinator then merges the
+ * warnings and class statistics of the workers with {@link UnionResults} and
+ * writes them as XML, which is the only supported output format. The XClass
+ * and ClassNameAndSuperclassInfo results
+ * are exchanged through the on-disk tier of the analysis cache (see
+ * {@link PersistentClassAnalysisCache}), in the directory given by the
+ * <code>findbugs.analysisCache.dir</code> property if set, or else in the
+ * exchange directory.
+ * <p>
+ * Workers are started with the java command, JVM options and classpath of the
+ * coordinator. The <code>findbugs.shards.launcher</code> property is a command
+ * prefix to start them with instead, in which <code>%d</code> is replaced by
+ * the index of the shard: for instance "ssh host%d" runs the workers on other
+ * hosts, which must have the same installation, and the same working
+ * directory and exchange directory on a shared file system. The
+ * <code>findbugs.shards.dir</code> property is the directory in which the
+ * exchange directory is created (by default the temporary directory).
+ * <p>
+ * Since a worker computes the nullness facts of its own shard without those
+ * of the other shards, the facts of methods calling methods of other shards
+ * may be weaker than in an analysis by one process, which can change a few
+ * warnings.
+ */
+public class ShardedAnalysis {
+    private static final boolean DEBUG = SystemProperties.getBoolean("findbugs.shards.debug");
+
+    private static final String LAUNCHER_PROPERTY = "findbugs.shards.launcher";
+
+    private static final String DIRECTORY_PROPERTY = "findbugs.shards.dir";
+
+    static final String SUMMARIZED = "SUMMARIZED";
+
+    static final String EXCHANGE = "EXCHANGE";
+
+    /**
+     * Options which can't be used in a sharded analysis
+     */
+    private static final Set<String> LOCAL_OPTIONS = new HashSet<String>(Arrays.asList("-sortByClass", "-xdocs",
+            "-html", "-emacs", "-train", "-xargs", "-auxclasspathFromInput", "-incremental", "-checkpoint", "-resume",
+            "-printConfiguration", "-version"));
+
+    /**
+     * Run a sharded analysis, if the command line asks for it with
+     * <code>-shards &lt;count&gt;</code>.
+     *
+     * @param args
+     *            the command line
+     * @return the exit code of the analysis, or null if it has to be run in
+     *         this JVM
+     */
+    public static @CheckForNull
+    Integer runSharded(String[] args) {
+        TextUICommandLine commandLine = new TextUICommandLine();
+        String[] argv;
+        int shards;
+        try {
+            argv = commandLine.expandOptionFiles(args, true, true);
+            shards = getShardCount(commandLine, argv);
+        } catch (IOException e) {
+            return null;
+        } catch (HelpRequestedException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            // Reported by the local analysis
+            return null;
+        }
+        if (shards < 2) {
+            return null;
+        }
+
+        List<String> workerArgs = new ArrayList<String>();
+        String outputFile = null;
+        boolean xml = false;
+        boolean withMessages = false;
+        boolean quiet = false;
+        boolean setExitCode = false;
+        int i = 0;
+        for (; i < argv.length && argv[i].startsWith("-"); i++) {
+            String arg = argv[i];
+            int colon = arg.indexOf(':');
+            String option = colon >= 0 ? arg.substring(0, colon) : arg;
+            String optionExtraPart = colon >= 0 ? arg.substring(colon + 1) : "";
+            if (LOCAL_OPTIONS.contains(option)) {
+                System.err.println("Option " + option + " not supported by sharded analyses, analyzing in one process");
+                return null;
+            }
+            if (commandLine.requiresArgument(option)) {
+                if (i + 1 >= argv.length) {
+                    return null;
+                }
+                String argument = argv[++i];
+                if (option.equals("-output") || option.equals("-outputFile")) {
+                    outputFile = argument;
+                } else if (!option.equals("-shards")) {
+                    workerArgs.add(arg);
+                    workerArgs.add(argument);
+                }
+            } else if (option.equals("-xml")) {
+                if (!optionExtraPart.equals("") && !optionExtraPart.equals("withMessages")) {
+                    System.err.println("Option " + arg + " not supported by sharded analyses, analyzing in one process");
+                    return null;
+                }
+                xml = true;
+                withMessages = optionExtraPart.equals("withMessages");
+            } else {
+                if (option.equals("-quiet")) {
+                    quiet = true;
+                } else if (option.equals("-exitcode")) {
+                    setExitCode = true;
+                }
+                workerArgs.add(arg);
+            }
+        }
+        if (!xml) {
+            System.err.println("Sharded analyses only write XML output (-xml), analyzing in one process");
+            return null;
+        }
+        for (; i < argv.length; i++) {
+            workerArgs.add(argv[i]);
+        }
+
+        File exchangeDir;
+        try {
+            String parent = SystemProperties.getProperty(DIRECTORY_PROPERTY);
+            exchangeDir = File.createTempFile("findbugs", ".shards", parent != null ? new File(parent) : null);
+            if (!exchangeDir.delete() || !exchangeDir.mkdir()) {
+                throw new IOException("Could not create directory " + exchangeDir);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not create the exchange directory of the sharded analysis: " + e.getMessage());
+            return ExitCodes.ERROR_FLAG;
+        }
+        try {
+            if (!runWorkers(shards, exchangeDir, workerArgs)) {
+                return ExitCodes.ERROR_FLAG;
+            }
+
+            // Each worker computes the class statistics of its shard. The
+            // results are read without a base directory, to keep relative
+            // file names relative to the working directory.
+            SortedBugCollection results = null;
+            HashSet<String> hashes = new HashSet<String>();
+            for (int shard = 0; shard < shards; shard++) {
+                SortedBugCollection more = new SortedBugCollection();
+                more.readXML(new FileInputStream(getWarningsFile(exchangeDir, shard)));
+                if (results == null) {
+                    results = more.createEmptyCollectionWithMetadata();
+                }
+                UnionResults.merge(hashes, results, more, true);
+            }
+            assert results != null;
+            results.getProjectStats().recomputeFromComponents();
+            results.setWithMessages(withMessages);
+            if (outputFile == null) {
+                results.writeXML(System.out);
+            } else {
+                results.writeXML(outputFile);
+            }
+
+            int bugCount = results.getCollection().size();
+            int missingClassCount = 0;
+            for (Iterator<String> j = results.missingClassIterator(); j.hasNext(); j.next()) {
+                missingClassCount++;
+            }
+            int errorCount = results.getErrors().size();
+            if (!quiet || setExitCode) {
+                if (bugCount > 0) {
+                    System.err.println("Warnings generated: " + bugCount);
+                }
+                if (missingClassCount > 0) {
+                    System.err.println("Missing classes: " + missingClassCount);
+                }
+                if (errorCount > 0) {
+                    System.err.println("Analysis errors: " + errorCount);
+                }
+            }
+            return setExitCode ? FindBugs.computeExitCode(errorCount, missingClassCount, bugCount) : 0;
+        } catch (IOException e) {
+            System.err.println("Could not merge the results of the sharded analysis: " + e.getMessage());
+            return ExitCodes.ERROR_FLAG;
+        } catch (DocumentException e) {
+            System.err.println("Could not merge the results of the sharded analysis: " + e.getMessage());
+            return ExitCodes.ERROR_FLAG;
+        } finally {
+            if (!DEBUG) {
+                delete(exchangeDir);
+            }
+        }
+    }
+
+    /**
+     * @return the number of shards given by -shards, or 0 if none
+     */
+    private static int getShardCount(CommandLine commandLine, String[] argv) {
+        for (int i = 0; i < argv.length && argv[i].startsWith("-"); i++) {
+            if (argv[i].equals("-shards") && i + 1 < argv.length) {
+                try {
+                    return Integer.parseInt(argv[i + 1]);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad shard count: " + argv[i + 1]);
+                }
+            }
+            if (commandLine.requiresArgument(argv[i])) {
+                i++;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Run the workers of a sharded analysis, and let them exchange their
+     * summaries whenever all of them have written one.
+     *
+     * @return true if all workers completed
+     */
+    private static boolean runWorkers(int shards, File exchangeDir, List<String> workerArgs) {
+        Process[] workers = new Process[shards];
+        BufferedReader[] outputs = new BufferedReader[shards];
+        PrintStream[] inputs = new PrintStream[shards];
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                workers[shard] = startWorker(shard, shards, exchangeDir, workerArgs);
+                outputs[shard] = UTF8.bufferedReader(workers[shard].getInputStream());
+                inputs[shard] = UTF8.printStream(workers[shard].getOutputStream());
+            }
+            while (true) {
+                boolean[] summarized = new boolean[shards];
+                int summarizedCount = 0;
+                for (int shard = 0; shard < shards; shard++) {
+                    String line;
+                    while ((line = outputs[shard].readLine()) != null && !line.equals(SUMMARIZED)) {
+                        // Not written by the worker protocol
+                        System.out.println(line);
+                    }
+                    if (line != null) {
+                        summarized[shard] = true;
+                        summarizedCount++;
+                    }
+                }
+                if (summarizedCount == 0) {
+                    // All workers are done
+                    break;
+                }
+                if (summarizedCount < shards) {
+                    for (int shard = 0; shard < shards; shard++) {
+                        if (!summarized[shard]) {
+                            System.err.println("Worker " + shard + " of the sharded analysis failed before writing its summary");
+                        }
+                    }
+                    return false;
+                }
+                for (PrintStream in : inputs) {
+                    in.println(EXCHANGE);
+                    in.flush();
+                }
+            }
+            boolean completed = true;
+            for (int shard = 0; shard < shards; shard++) {
+                if (workers[shard].waitFor() != 0) {
+                    System.err.println("Worker " + shard + " of the sharded analysis failed");
+                    completed = false;
+                }
+                workers[shard] = null;
+            }
+            return completed;
+        } catch (IOException e) {
+            System.err.println("Could not run the workers of the sharded analysis: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            for (PrintStream in : inputs) {
+                if (in != null) {
+                    in.close();
+                }
+            }
+            for (Process worker : workers) {
+                if (worker != null) {
+                    worker.destroy();
+                }
+            }
+        }
+    }
+
+    private static Process startWorker(int shard, int shards, File exchangeDir, List<String> workerArgs)
+            throws IOException {
+        List<String> command = new ArrayList<String>();
+        String launcher = SystemProperties.getProperty(LAUNCHER_PROPERTY);
+        if (launcher != null) {
+            for (String s : launcher.trim().split("\\s+")) {
+                if (s.length() > 0) {
+                    command.add(s.replace("%d", Integer.toString(shard)));
+                }
+            }
+        }
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        if (SystemProperties.getProperty(PersistentClassAnalysisCache.DIRECTORY_PROPERTY) == null) {
+            command.add("-D" + PersistentClassAnalysisCache.DIRECTORY_PROPERTY + "="
+                    + new File(exchangeDir, "classes").getAbsolutePath());
+        }
+        command.add("-classpath");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ShardedAnalysis.class.getName());
+        command.add(Integer.toString(shard));
+        command.add(Integer.toString(shards));
+        command.add(exchangeDir.getAbsolutePath());
+        command.addAll(workerArgs);
+        if (DEBUG) {
+            System.err.println("Starting worker " + shard + ": " + command);
+        }
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    private static String getWarningsFile(File exchangeDir, int shard) {
+        return new File(exchangeDir, "shard-" + shard + ".xml").getPath();
+    }
+
+    /**
+     * Run a worker of a sharded analysis.
+     *
+     * @param args
+     *            the index of the shard, the number of shards, the exchange
+     *            directory, and the command line of the analysis, without
+     *            output options
+     */
+    public static void main(String[] args) throws Exception {
+        if (!CheckBcel.check()) {
+            System.exit(1);
+        }
+        if (args.length < 3) {
+            System.err.println("Usage: " + ShardedAnalysis.class.getName()
+                    + " <shard> <shard count> <exchange directory> [options] <files>");
+            System.exit(1);
+        }
+        int shard = Integer.parseInt(args[0]);
+        int shards = Integer.parseInt(args[1]);
+        File exchangeDir = new File(args[2]);
+        List<String> analysisArgs = Arrays.asList(args).subList(3, args.length);
+
+        // The standard input and output are the channel to the coordinator
+        final BufferedReader commands = UTF8.bufferedReader(System.in);
+        final PrintStream coordinator = System.out;
+        System.setOut(System.err);
+        AnalysisShard.Barrier barrier = new AnalysisShard.Barrier() {
+            @Override
+            public void await() throws IOException {
+                coordinator.println(SUMMARIZED);
+                coordinator.flush();
+                if (!EXCHANGE.equals(commands.readLine())) {
+                    throw new IOException("Sharded analysis stopped by its coordinator");
+                }
+            }
+        };
+
+        List<String> argv = new ArrayList<String>(Arrays.asList("-xml", "-output", getWarningsFile(exchangeDir, shard)));
+        argv.addAll(analysisArgs);
+        FindBugs2 findBugs = new FindBugs2();
+        FindBugs.processCommandLine(new TextUICommandLine(), argv.toArray(new String[argv.size()]), findBugs);
+        findBugs.setShard(new AnalysisShard(shard, shards, exchangeDir, barrier));
+        findBugs.execute();
+    }
+
+    private static void delete(File file) {
+        File[] contents = file.listFiles();
+        if (contents != null) {
+            for (File f : contents) {
+                delete(f);
+            }
+        }
+        if (!file.delete()) {
+            System.err.println("Could not delete " + file);
+        }
+    }
+}
@@ -31,6 +31,12 @@ package edu.umd.cs.findbugs;
  * stateless detectors to just not keep around state they don't need, rather
  * than depending on cloning and garbage collection.
  * 
+ * When FindBugs runs with more than one analysis thread, each thread gets its
+ * own instance of a stateless detector, and those instances are applied to
+ * different classes concurrently. A stateless detector must therefore not
+ * accumulate information across classes, nor report anything in report() or
+ * finishPass() that depends on more than one class.
+ * 
  */
 
 public interface StatelessDetector extends Cloneable {
@@ -0,0 +1,104 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+
+/**
+ * A BugReporter which serializes all calls to another BugReporter. Used when
+ * several threads apply detectors concurrently, since most BugReporter
+ * implementations are not thread safe.
+ */
+public class SynchronizedBugReporter extends DelegatingBugReporter {
+
+    public SynchronizedBugReporter(BugReporter delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public synchronized void setErrorVerbosity(int level) {
+        super.setErrorVerbosity(level);
+    }
+
+    @Override
+    public synchronized void setPriorityThreshold(int threshold) {
+        super.setPriorityThreshold(threshold);
+    }
+
+    @Override
+    public synchronized void observeClass(ClassDescriptor classDescriptor) {
+        super.observeClass(classDescriptor);
+    }
+
+    @Override
+    public synchronized void reportBug(@Nonnull BugInstance bugInstance) {
+        super.reportBug(bugInstance);
+    }
+
+    @Override
+    public synchronized void logError(String message) {
+        super.logError(message);
+    }
+
+    @Override
+    public synchronized void logError(String message, Throwable e) {
+        super.logError(message, e);
+    }
+
+    @Override
+    public synchronized void reportMissingClass(ClassNotFoundException ex) {
+        super.reportMissingClass(ex);
+    }
+
+    @Override
+    public synchronized void reportMissingClass(ClassDescriptor classDescriptor) {
+        super.reportMissingClass(classDescriptor);
+    }
+
+    @Override
+    public synchronized void reportSkippedAnalysis(MethodDescriptor method) {
+        super.reportSkippedAnalysis(method);
+    }
+
+    @Override
+    public synchronized void finish() {
+        super.finish();
+    }
+
+    @Override
+    public synchronized void reportQueuedErrors() {
+        super.reportQueuedErrors();
+    }
+
+    @Override
+    public synchronized void addObserver(BugReporterObserver observer) {
+        super.addObserver(observer);
+    }
+
+    @Override
+    public synchronized @CheckForNull
+    BugCollection getBugCollection() {
+        return super.getBugCollection();
+    }
+}
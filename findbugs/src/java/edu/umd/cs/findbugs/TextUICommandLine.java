@@ -27,9 +27,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -110,6 +112,20 @@ public class TextUICommandLine extends FindBugsCommandLine {
 
     private boolean noClassOk = false;
 
+    private int threads = 1;
+
+    private long deadline;
+
+    private long analysisCacheSize;
+
+    private String incrementalStateFile;
+
+    private String checkpointDirectory;
+
+    private boolean resumeFromCheckpoint;
+
+    private final List<String> librarySummaries = new ArrayList<String>();
+
     private int priorityThreshold = Detector.NORMAL_PRIORITY;
 
     private int rankThreshold = SystemProperties.getInt("findbugs.maxRank", BugRanker.VISIBLE_RANK_MAX);
@@ -209,6 +225,15 @@ public class TextUICommandLine extends FindBugsCommandLine {
         addSwitch("-exitcode", "set exit code of process");
         addSwitch("-noClassOk", "output empty warning file if no classes are specified");
         addSwitch("-xargs", "get list of classfiles/jarfiles from standard input rather than command line");
+        addOption("-threads", "count", "number of threads used to apply detectors (default=1)");
+        addOption("-deadline", "seconds", "stop analysis after this many seconds and report partial results");
+        addOption("-analysisCacheSize", "megabytes", "limit the estimated size of cached class analyses which can be recomputed");
+        addOption("-librarySummaries", "path", "use summaries written by the summarize command for matching aux classpath jars");
+        addOption("-incremental", "state file", "only analyze classes changed since the analysis which wrote the state file");
+        addOption("-checkpoint", "directory", "periodically write a checkpoint of the analysis to the directory");
+        addSwitch("-resume", "continue from the checkpoint in the -checkpoint directory");
+        addOption("-daemon", "port", "run the analysis in the analysis daemon listening on this local port, if it is running");
+        addOption("-shards", "count", "split the analysis between this many worker processes (XML output only)");
         addOption("-cloud", "id", "set cloud id");
         addOption("-cloudProperty", "key=value", "set cloud property");
         addOption("-bugReporters", "name,name2,-name3", "bug reporter decorators to explicitly enable/disable");
@@ -353,6 +378,8 @@ public class TextUICommandLine extends FindBugsCommandLine {
             }
         } else if (option.equals("-noClassOk")) {
             noClassOk = true;
+        } else if (option.equals("-resume")) {
+            resumeFromCheckpoint = true;
         } else if (option.equals("-xargs")) {
             xargs = true;
         } else if (option.equals("-justListOptions")) {
@@ -419,6 +446,38 @@ public class TextUICommandLine extends FindBugsCommandLine {
 
         } else if (option.equals("-maxRank")) {
             this.rankThreshold = Integer.parseInt(argument);
+        } else if (option.equals("-threads")) {
+            this.threads = Integer.parseInt(argument);
+            if (threads < 1) {
+                throw new IllegalArgumentException("Number of threads must be positive: " + argument);
+            }
+        } else if (option.equals("-deadline")) {
+            long seconds = Long.parseLong(argument);
+            if (seconds < 1) {
+                throw new IllegalArgumentException("Deadline must be positive: " + argument);
+            }
+            this.deadline = System.currentTimeMillis() + seconds * 1000;
+        } else if (option.equals("-analysisCacheSize")) {
+            long megabytes = Long.parseLong(argument);
+            if (megabytes < 1) {
+                throw new IllegalArgumentException("Analysis cache size must be positive: " + argument);
+            }
+            this.analysisCacheSize = megabytes * 1024 * 1024;
+        } else if (option.equals("-incremental")) {
+            this.incrementalStateFile = argument;
+        } else if (option.equals("-checkpoint")) {
+            this.checkpointDirectory = argument;
+        } else if (option.equals("-daemon")) {
+            // Handled by AnalysisDaemon.runInDaemon() before parsing
+            assert true;
+        } else if (option.equals("-shards")) {
+            // Handled by ShardedAnalysis.runSharded() before parsing
+            assert true;
+        } else if (option.equals("-librarySummaries")) {
+            StringTokenizer tok = new StringTokenizer(argument, File.pathSeparator);
+            while (tok.hasMoreTokens()) {
+                librarySummaries.add(tok.nextToken());
+            }
         } else if (option.equals("-projectName")) {
             this.projectName = argument;
         } else if (option.equals("-release")) {
@@ -678,6 +737,16 @@ public class TextUICommandLine extends FindBugsCommandLine {
 
         findBugs.setScanNestedArchives(scanNestedArchives);
         findBugs.setNoClassOk(noClassOk);
+        findBugs.setThreads(threads);
+        findBugs.setDeadline(deadline);
+        findBugs.setAnalysisCacheSize(analysisCacheSize);
+        findBugs.setIncrementalStateFile(incrementalStateFile);
+        if (resumeFromCheckpoint && checkpointDirectory == null) {
+            throw new IllegalArgumentException("-resume requires -checkpoint");
+        }
+        findBugs.setCheckpointDirectory(checkpointDirectory);
+        findBugs.setResumeFromCheckpoint(resumeFromCheckpoint);
+        findBugs.setLibrarySummaries(librarySummaries);
 
         findBugs.setBugReporterDecorators(enabledBugReporterDecorators, disabledBugReporterDecorators);
         if (applySuppression) {
@@ -0,0 +1,262 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.umd.cs.findbugs.SystemProperties;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+
+/**
+ * CPU time budgets for the analysis of a single method and of a single class.
+ * <p>
+ * The budgets are enforced cooperatively: long running loops, such as the
+ * {@link Dataflow} iteration and the jump info computation of the
+ * OpcodeStack, call {@link #check()}, which throws an
+ * {@link AnalysisBudgetExceededException} once the method being analyzed has
+ * used up its budget. Only the analyses of that method are abandoned; the
+ * method is reported as skipped, together with the time spent on it, and
+ * detectors go on with the rest of the class. Once the class has used up its
+ * budget, all further analyses of its methods are abandoned, and the class is
+ * reported as not fully analyzed rather than the method which happened to be
+ * analyzed at the time.
+ * <p>
+ * Time is charged to the method whose analysis was requested from the
+ * analysis cache, per thread. Budgets are given in milliseconds by the
+ * <code>findbugs.budget.method</code> and <code>findbugs.budget.class</code>
+ * properties; 0, the default, means no limit. When a budget is set, classes
+ * which are {@link AnalysisContext#isTooBig(edu.umd.cs.findbugs.classfile.ClassDescriptor) too big}
+ * are analyzed like any other class rather than skipped. Since budgets depend
+ * on timing, results may vary between runs when one is set.
+ */
+public class AnalysisBudget {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final long METHOD_BUDGET_NANOS = SystemProperties.getInt("findbugs.budget.method", 0) * NANOS_PER_MILLI;
+
+    private static final long CLASS_BUDGET_NANOS = SystemProperties.getInt("findbugs.budget.class", 0) * NANOS_PER_MILLI;
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Whether any budget is in effect.
+     */
+    public static final boolean ENABLED = (METHOD_BUDGET_NANOS > 0 || CLASS_BUDGET_NANOS > 0)
+            && THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+
+    private static final ThreadLocal<AnalysisBudget> budget = new ThreadLocal<AnalysisBudget>() {
+        @Override
+        protected AnalysisBudget initialValue() {
+            return new AnalysisBudget(METHOD_BUDGET_NANOS, CLASS_BUDGET_NANOS);
+        }
+    };
+
+    private final long methodBudgetNanos;
+
+    private final long classBudgetNanos;
+
+    private ClassDescriptor currentClass;
+
+    private long classStartNanos = -1;
+
+    private boolean classExceeded;
+
+    private final ArrayList<MethodDescriptor> methodStack = new ArrayList<MethodDescriptor>();
+
+    private final ArrayList<Long> methodStartNanos = new ArrayList<Long>();
+
+    private final Map<MethodDescriptor, Long> methodCostNanos = new HashMap<MethodDescriptor, Long>();
+
+    private final Set<MethodDescriptor> exceeded = new HashSet<MethodDescriptor>();
+
+    /**
+     * @param methodBudgetNanos
+     *            budget of a method, in nanoseconds, or 0 for no limit
+     * @param classBudgetNanos
+     *            budget of a class, in nanoseconds, or 0 for no limit
+     */
+    AnalysisBudget(long methodBudgetNanos, long classBudgetNanos) {
+        this.methodBudgetNanos = methodBudgetNanos;
+        this.classBudgetNanos = classBudgetNanos;
+    }
+
+    /**
+     * Called when the detectors start on a class.
+     *
+     * @param classDescriptor
+     *            the class
+     */
+    public static void startClass(ClassDescriptor classDescriptor) {
+        if (!ENABLED) {
+            return;
+        }
+        budget.get().startClassAnalysis(classDescriptor);
+    }
+
+    /**
+     * Called when the detectors are done with a class.
+     *
+     * @return true if the class used up its budget, so that it should be
+     *         reported as not fully analyzed
+     */
+    public static boolean endClass() {
+        if (!ENABLED) {
+            return false;
+        }
+        return budget.get().endClassAnalysis();
+    }
+
+    void startClassAnalysis(ClassDescriptor classDescriptor) {
+        currentClass = classDescriptor;
+        classStartNanos = cpuTime();
+        classExceeded = false;
+        methodCostNanos.clear();
+        exceeded.clear();
+    }
+
+    boolean endClassAnalysis() {
+        boolean result = classExceeded;
+        currentClass = null;
+        classStartNanos = -1;
+        classExceeded = false;
+        methodCostNanos.clear();
+        exceeded.clear();
+        return result;
+    }
+
+    /**
+     * Called when an analysis of given method starts.
+     *
+     * @param method
+     *            the method
+     */
+    public static void startMethod(MethodDescriptor method) {
+        if (!ENABLED) {
+            return;
+        }
+        budget.get().startMethodAnalysis(method);
+    }
+
+    /**
+     * Called when an analysis of given method ends, normally or not.
+     *
+     * @param method
+     *            the method
+     */
+    public static void endMethod(MethodDescriptor method) {
+        if (!ENABLED) {
+            return;
+        }
+        budget.get().endMethodAnalysis(method);
+    }
+
+    void startMethodAnalysis(MethodDescriptor method) {
+        methodStack.add(method);
+        methodStartNanos.add(cpuTime());
+    }
+
+    void endMethodAnalysis(MethodDescriptor method) {
+        int top = methodStack.size() - 1;
+        assert methodStack.get(top).equals(method);
+        methodStack.remove(top);
+        long start = methodStartNanos.remove(top);
+        if (!methodStack.contains(method)) {
+            // Outermost analysis of the method: charge it
+            methodCostNanos.put(method, getCost(method) + cpuTime() - start);
+        }
+        if (methodStack.isEmpty() && classStartNanos < 0) {
+            // Not within a class, e.g. on a helper thread: nothing to accumulate
+            methodCostNanos.clear();
+            exceeded.clear();
+        }
+    }
+
+    /**
+     * Check that the method being analyzed, and its class, are within their
+     * budgets.
+     *
+     * @throws AnalysisBudgetExceededException
+     *             if a budget has been used up
+     */
+    public static void check() throws AnalysisBudgetExceededException {
+        if (!ENABLED) {
+            return;
+        }
+        budget.get().checkBudget();
+    }
+
+    void checkBudget() throws AnalysisBudgetExceededException {
+        MethodDescriptor method = methodStack.isEmpty() ? null : methodStack.get(methodStack.size() - 1);
+        if (method == null && classStartNanos < 0) {
+            return;
+        }
+        long now = cpuTime();
+        if (classStartNanos >= 0) {
+            long classCost = now - classStartNanos;
+            if (classExceeded) {
+                throw new AnalysisBudgetExceededException("Analysis budget exceeded for " + currentClass.toDottedClassName(),
+                        classCost);
+            }
+            if (classBudgetNanos > 0 && classCost > classBudgetNanos) {
+                // The class is reported by whoever applies the detectors,
+                // once they are done with it
+                classExceeded = true;
+                String msg = String.format("Skipped rest of analysis of %s after %d ms of CPU time: class budget exceeded",
+                        currentClass.toDottedClassName(), classCost / NANOS_PER_MILLI);
+                AnalysisContext.logError(msg);
+                throw new AnalysisBudgetExceededException(msg, classCost);
+            }
+        }
+        if (method != null) {
+            long cost = getCost(method) + now - methodStartNanos.get(methodStack.indexOf(method));
+            if (exceeded.contains(method)) {
+                throw new AnalysisBudgetExceededException("Analysis budget exceeded for " + method, cost);
+            }
+            if (methodBudgetNanos > 0 && cost > methodBudgetNanos) {
+                exceeded.add(method);
+                String msg = String.format("Skipped analysis of %s after %d ms of CPU time: method budget exceeded",
+                        method, cost / NANOS_PER_MILLI);
+                AnalysisContext.currentAnalysisContext().getLookupFailureCallback().reportSkippedAnalysis(method);
+                AnalysisContext.logError(msg);
+                throw new AnalysisBudgetExceededException(msg, cost);
+            }
+        }
+    }
+
+    private long getCost(MethodDescriptor method) {
+        Long cost = methodCostNanos.get(method);
+        return cost == null ? 0 : cost.longValue();
+    }
+
+    /**
+     * @return CPU time of the current thread, in nanoseconds
+     */
+    long cpuTime() {
+        return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+/**
+ * Signals that the analysis of a method was abandoned because it used up its
+ * CPU time budget, or the budget of its class.
+ *
+ * @see AnalysisBudget
+ */
+public class AnalysisBudgetExceededException extends DataflowAnalysisException {
+    private static final long serialVersionUID = 1L;
+
+    private final long costNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param msg
+     *            message describing which budget was exceeded
+     * @param costNanos
+     *            CPU time spent on the method so far, in nanoseconds
+     */
+    public AnalysisBudgetExceededException(String msg, long costNanos) {
+        super(msg);
+        this.costNanos = costNanos;
+    }
+
+    /**
+     * @return CPU time spent on the method before it was abandoned, in
+     *         nanoseconds
+     */
+    public long getCostNanos() {
+        return costNanos;
+    }
+}
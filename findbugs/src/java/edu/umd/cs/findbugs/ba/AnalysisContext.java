@@ -171,17 +171,20 @@ public class AnalysisContext {
 
     ClassSummary classSummary;
 
-    ClassDescriptor classBeingAnalyzed;
+    /**
+     * Per thread, since detectors may be applied to several classes at once
+     */
+    private final ThreadLocal<ClassDescriptor> classBeingAnalyzed = new ThreadLocal<ClassDescriptor>();
 
     public ClassDescriptor getClassBeingAnalyzed() {
-        return classBeingAnalyzed;
+        return classBeingAnalyzed.get();
     }
 
     public void setClassBeingAnalyzed(@Nonnull ClassDescriptor classBeingAnalyzed) {
-        this.classBeingAnalyzed = classBeingAnalyzed;
+        this.classBeingAnalyzed.set(classBeingAnalyzed);
     }
     public void clearClassBeingAnalyzed() {
-        this.classBeingAnalyzed = null;
+        this.classBeingAnalyzed.remove();
     }
     public ClassSummary getClassSummary() {
         if (classSummary == null)
@@ -218,6 +221,18 @@ public class AnalysisContext {
         this.fieldSummary = fieldSummary;
     }
 
+    /**
+     * Get the field summary, creating it if it has not been set yet. Used by
+     * detectors which build the summary, since several instances of them may
+     * exist when the first pass runs on more than one thread.
+     */
+    public synchronized FieldSummary findOrCreateFieldSummary() {
+        if (fieldSummary == null) {
+            fieldSummary = new FieldSummary();
+        }
+        return fieldSummary;
+    }
+
     final UnreadFieldsData unreadFieldsData = new UnreadFieldsData();
     UnreadFields unreadFields;
 
@@ -432,7 +447,11 @@ public class AnalysisContext {
         IAnalysisCache analysisCache = Global.getAnalysisCache();
 
         try {
-            ClassContext classContext = analysisCache.getClassAnalysis(ClassContext.class, desc);
+            // Don't read the class if the codebase knows its size
+            int size = analysisCache.getClassPath().lookupResource(desc.toResourceName()).getNumBytes();
+            if (size >= 0) {
+                return size;
+            }
             ClassData classData = analysisCache.getClassAnalysis(ClassData.class, desc);
             return classData.getData().length;
 
@@ -587,6 +606,14 @@ public class AnalysisContext {
         return boolPropertySet.get(prop);
     }
 
+    /**
+     * @return the boolean properties set to true, including those of clients
+     *         of the framework
+     */
+    public final BitSet getBoolProperties() {
+        return (BitSet) boolPropertySet.clone();
+    }
+
     /**
      * Set the interprocedural database input directory.
      *
@@ -977,6 +1004,54 @@ public class AnalysisContext {
 
     }
 
+    /**
+     * Get the databases which concurrently running first pass detectors may
+     * update.
+     */
+    private List<ShardedDatabase> getShardedDatabases() {
+        List<ShardedDatabase> result = new ArrayList<ShardedDatabase>();
+        result.add(findOrCreateFieldSummary());
+        result.add(getCheckReturnAnnotationDatabase());
+        result.add(getReturnValueNullnessPropertyDatabase());
+        result.add(getUnconditionalDerefParamDatabase());
+        return result;
+    }
+
+    /**
+     * Record the database updates made by the current thread in shards,
+     * until {@link #closeDatabaseShards(int)} is called.
+     *
+     * @see edu.umd.cs.findbugs.ConcurrentFirstPassDetector
+     */
+    public void openDatabaseShards() {
+        for (ShardedDatabase database : getShardedDatabases()) {
+            database.openShard();
+        }
+    }
+
+    /**
+     * Close the shards opened by {@link #openDatabaseShards()}.
+     *
+     * @param sequence
+     *            position of the shards in the merge order, usually the
+     *            index of the class analyzed while they were open
+     */
+    public void closeDatabaseShards(int sequence) {
+        for (ShardedDatabase database : getShardedDatabases()) {
+            database.closeShard(sequence);
+        }
+    }
+
+    /**
+     * Merge the closed database shards into the databases. Must only be called
+     * while no other threads are analyzing classes.
+     */
+    public void mergeDatabaseShards() {
+        for (ShardedDatabase database : getShardedDatabases()) {
+            database.mergeShards();
+        }
+    }
+
     /**
      * Get the property database recording which methods always return nonnull
      * values
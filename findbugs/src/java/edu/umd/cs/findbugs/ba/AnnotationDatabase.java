@@ -19,9 +19,14 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -46,7 +51,7 @@ import edu.umd.cs.findbugs.util.MapCache;
  *
  * @author William Pugh
  */
-public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<AnnotationEnum>> {
+public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<AnnotationEnum>> implements ShardedDatabase {
     static final boolean DEBUG = SystemProperties.getBoolean("annotations.debug");
 
     public static final boolean IGNORE_BUILTIN_ANNOTATIONS = SystemProperties.getBoolean("findbugs.ignoreBuiltinAnnotations");
@@ -80,7 +85,14 @@ public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<Ann
 
     private final Set<AnnotationEnum> seen = new HashSet<AnnotationEnum>();
 
+    private final DatabaseShards<AnnotationDatabase<AnnotationEnum>> shards = new DatabaseShards<AnnotationDatabase<AnnotationEnum>>();
+
     public void addDirectAnnotation(Object o, AnnotationEnum n) {
+        AnnotationDatabase<AnnotationEnum> shard = shards.get();
+        if (shard != null) {
+            shard.addDirectAnnotation(o, n);
+            return;
+        }
         directAnnotations.put(o, n);
         seen.add(n);
     }
@@ -88,6 +100,11 @@ public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<Ann
     public void addDefaultAnnotation(Target target, String c, AnnotationEnum n) {
         if (!defaultAnnotation.containsKey(target))
             return;
+        AnnotationDatabase<AnnotationEnum> shard = shards.get();
+        if (shard != null) {
+            shard.addDefaultAnnotation(target, c, n);
+            return;
+        }
         if (DEBUG)
             System.out.println("Default annotation " + target + " " + c + " " + n);
         defaultAnnotation.get(target).put(c, n);
@@ -95,7 +112,114 @@ public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<Ann
     }
 
     public boolean anyAnnotations(AnnotationEnum n) {
-        return seen.contains(n);
+        AnnotationDatabase<AnnotationEnum> shard = shards.get();
+        return seen.contains(n) || shard != null && shard.seen.contains(n);
+    }
+
+    @Override
+    public void openShard() {
+        shards.open(new AnnotationDatabase<AnnotationEnum>());
+    }
+
+    @Override
+    public void closeShard(int sequence) {
+        shards.close(sequence);
+    }
+
+    @Override
+    public void mergeShards() {
+        for (AnnotationDatabase<AnnotationEnum> shard : shards.drain()) {
+            directAnnotations.putAll(shard.directAnnotations);
+            for (Map.Entry<Target, Map<String, AnnotationEnum>> e : shard.defaultAnnotation.entrySet()) {
+                defaultAnnotation.get(e.getKey()).putAll(e.getValue());
+            }
+            seen.addAll(shard.seen);
+        }
+        // Annotations resolved before the merge may have changed
+        synchronized (cachedMinimal) {
+            cachedMinimal.clear();
+        }
+        synchronized (cachedMaximal) {
+            cachedMaximal.clear();
+        }
+    }
+
+    /**
+     * Write the direct annotations of fields, methods and parameters, and the
+     * default annotations, for {@link #readSummary(DataInput, AnnotationEnumeration[])}
+     * in another analysis.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        List<Map.Entry<Object, AnnotationEnum>> entries = new ArrayList<Map.Entry<Object, AnnotationEnum>>();
+        for (Map.Entry<Object, AnnotationEnum> e : directAnnotations.entrySet()) {
+            Object o = e.getKey();
+            if (o instanceof XField || o instanceof XMethod || o instanceof XMethodParameter) {
+                entries.add(e);
+            }
+        }
+        out.writeInt(entries.size());
+        for (Map.Entry<Object, AnnotationEnum> e : entries) {
+            Object o = e.getKey();
+            if (o instanceof XMethodParameter) {
+                XMethodParameter p = (XMethodParameter) o;
+                FirstPassSummary.writeValue(out, p.getMethod());
+                out.writeInt(p.getParameterNumber());
+            } else {
+                FirstPassSummary.writeValue(out, o);
+                out.writeInt(-1);
+            }
+            out.writeInt(e.getValue().getIndex());
+        }
+        for (Map<String, AnnotationEnum> map : defaultAnnotation.values()) {
+            out.writeInt(map.size());
+            for (Map.Entry<String, AnnotationEnum> e : map.entrySet()) {
+                FirstPassSummary.writeString(out, e.getKey());
+                out.writeInt(e.getValue().getIndex());
+            }
+        }
+    }
+
+    /**
+     * Add the annotations written by {@link #writeSummary(DataOutput)} in
+     * another analysis.
+     *
+     * @param in
+     *            the summary
+     * @param values
+     *            the annotation values, by index
+     */
+    public void readSummary(DataInput in, AnnotationEnum[] values) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            Object o = FirstPassSummary.readValue(in);
+            int parameter = in.readInt();
+            if (parameter >= 0) {
+                if (!(o instanceof XMethod)) {
+                    throw new IOException("Bad annotated parameter of " + o);
+                }
+                o = new XMethodParameter((XMethod) o, parameter);
+            }
+            addDirectAnnotation(o, readAnnotation(in, values));
+        }
+        for (Target target : defaultAnnotation.keySet()) {
+            for (int i = in.readInt(); i > 0; i--) {
+                String c = FirstPassSummary.readString(in);
+                addDefaultAnnotation(target, c, readAnnotation(in, values));
+            }
+        }
+        synchronized (cachedMinimal) {
+            cachedMinimal.clear();
+        }
+        synchronized (cachedMaximal) {
+            cachedMaximal.clear();
+        }
+    }
+
+    private AnnotationEnum readAnnotation(DataInput in, AnnotationEnum[] values) throws IOException {
+        int index = in.readInt();
+        if (index < 0 || index >= values.length) {
+            throw new IOException("Bad annotation index " + index);
+        }
+        return values[index];
     }
 
     // TODO: Parameterize these values?
@@ -121,19 +245,28 @@ public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<Ann
 
             }
         }
+        if (shards.get() != null) {
+            // Resolved from annotations only this thread can see yet
+            return getUncachedResolvedAnnotation(o, getMinimal);
+        }
         Map<Object, AnnotationEnum> cache;
         if (getMinimal)
             cache = cachedMinimal;
         else
             cache = cachedMaximal;
 
-        if (cache.containsKey(o)) {
-            return cache.get(o);
+        // Shared by the analysis threads, and reordered by get()
+        synchronized (cache) {
+            if (cache.containsKey(o)) {
+                return cache.get(o);
+            }
         }
         AnnotationEnum n = getUncachedResolvedAnnotation(o, getMinimal);
         if (DEBUG)
             System.out.println("TTT: " + o + " " + n);
-        cache.put(o, n);
+        synchronized (cache) {
+            cache.put(o, n);
+        }
         return n;
     }
 
@@ -245,13 +378,13 @@ public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<Ann
             }
 
             // look for default annotation
-            n = defaultAnnotation.get(kind).get(className);
+            n = getDefaultAnnotation(kind, className);
             if (DEBUG)
                 System.out.println("Default annotation for " + kind + " is " + n);
             if (n != null)
                 return n;
 
-            n = defaultAnnotation.get(Target.ANY).get(className);
+            n = getDefaultAnnotation(Target.ANY, className);
             if (DEBUG)
                 System.out.println("Default annotation for any is " + n);
             if (n != null)
@@ -259,13 +392,13 @@ public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<Ann
 
             int p = className.lastIndexOf('.');
             className = className.substring(0, p + 1) + "package-info";
-            n = defaultAnnotation.get(kind).get(className);
+            n = getDefaultAnnotation(kind, className);
             if (DEBUG)
                 System.out.println("Default annotation for " + kind + " is " + n);
             if (n != null)
                 return n;
 
-            n = defaultAnnotation.get(Target.ANY).get(className);
+            n = getDefaultAnnotation(Target.ANY, className);
             if (DEBUG)
                 System.out.println("Default annotation for any is " + n);
             if (n != null)
@@ -280,9 +413,27 @@ public class AnnotationDatabase<AnnotationEnum extends AnnotationEnumeration<Ann
     }
 
     public AnnotationEnum getDirectAnnotation(final Object o) {
+        AnnotationDatabase<AnnotationEnum> shard = shards.get();
+        if (shard != null) {
+            AnnotationEnum n = shard.directAnnotations.get(o);
+            if (n != null) {
+                return n;
+            }
+        }
         return directAnnotations.get(o);
     }
 
+    private AnnotationEnum getDefaultAnnotation(Target target, String className) {
+        AnnotationDatabase<AnnotationEnum> shard = shards.get();
+        if (shard != null) {
+            AnnotationEnum n = shard.defaultAnnotation.get(target).get(className);
+            if (n != null) {
+                return n;
+            }
+        }
+        return defaultAnnotation.get(target).get(className);
+    }
+
     private boolean classDefinesMethod(JavaClass c, XMethod m) {
         for (Method definedMethod : c.getMethods())
             if (definedMethod.getName().equals(m.getName()) && definedMethod.getSignature().equals(m.getSignature())
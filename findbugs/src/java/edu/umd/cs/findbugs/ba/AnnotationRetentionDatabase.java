@@ -19,7 +19,11 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 
 public class AnnotationRetentionDatabase {
     private HashMap<String, Boolean> annotationRetention = new HashMap<String, Boolean>();
@@ -43,4 +47,23 @@ public class AnnotationRetentionDatabase {
         annotationRetention.put(dottedClassName, Boolean.valueOf(value));
     }
 
+    /**
+     * Write the known retentions, for {@link #readSummary(DataInput)} in
+     * another analysis.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        out.writeInt(annotationRetention.size());
+        for (Map.Entry<String, Boolean> e : annotationRetention.entrySet()) {
+            FirstPassSummary.writeString(out, e.getKey());
+            out.writeBoolean(e.getValue());
+        }
+    }
+
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            String dottedClassName = FirstPassSummary.readString(in);
+            setRuntimeRetention(dottedClassName, in.readBoolean());
+        }
+    }
+
 }
@@ -19,6 +19,7 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
@@ -64,6 +65,7 @@ import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 import edu.umd.cs.findbugs.classfile.Global;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ISizedAnalysisResult;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 import edu.umd.cs.findbugs.classfile.analysis.ClassInfo;
 import edu.umd.cs.findbugs.classfile.engine.bcel.NonExceptionPostdominatorsAnalysis;
@@ -79,20 +81,23 @@ import edu.umd.cs.findbugs.util.MapCache;
  *
  * @author David Hovemeyer
  */
-public class ClassContext {
+public class ClassContext implements ISizedAnalysisResult {
     public static final boolean DEBUG = SystemProperties.getBoolean("classContext.debug");
 
     public static final boolean TIME_ANALYSES = SystemProperties.getBoolean("classContext.timeAnalyses");
 
     public static final boolean DUMP_DATAFLOW_ANALYSIS = SystemProperties.getBoolean("dataflow.dump");
 
+    /** Maximum estimated size of the method analyses kept per class, in kilobytes */
+    static final int METHOD_ANALYSIS_CACHE_KB = SystemProperties.getInt("findbugs.methodAnalysis.cacheKB", 64 * 1024);
+
     private final JavaClass jclass;
 
     private final ClassInfo classInfo;
 
     private final AnalysisContext analysisContext;
 
-    private final Map<Class<?>, Map<MethodDescriptor, Object>> methodAnalysisObjectMap;
+    private final MethodAnalysisCache methodAnalysisCache;
 
     /*
      * ----------------------------------------------------------------------
@@ -114,7 +119,7 @@ public class ClassContext {
     public ClassContext(JavaClass jclass, AnalysisContext analysisContext) {
         this.jclass = jclass;
         this.analysisContext = analysisContext;
-        this.methodAnalysisObjectMap = new HashMap<Class<?>, Map<MethodDescriptor, Object>>();
+        this.methodAnalysisCache = new MethodAnalysisCache(jclass, METHOD_ANALYSIS_CACHE_KB * 1024L);
         try {
             classInfo = (ClassInfo) Global.getAnalysisCache().getClassAnalysis(XClass.class,
                     DescriptorFactory.createClassDescriptor(jclass));
@@ -123,18 +128,50 @@ public class ClassContext {
         }
     }
 
-    public Map<MethodDescriptor, Object> getObjectMap(Class<?> analysisClass) {
-        Map<MethodDescriptor, Object> objectMap = methodAnalysisObjectMap.get(analysisClass);
-        if (objectMap == null) {
-            if (analysisClass == ValueNumberDataflow.class)
-                objectMap = new MapCache<MethodDescriptor, Object>(300);
-            else if (Dataflow.class.isAssignableFrom(analysisClass))
-                objectMap = new MapCache<MethodDescriptor, Object>(500);
-            else
-                objectMap = new HashMap<MethodDescriptor, Object>();
-            methodAnalysisObjectMap.put(analysisClass, objectMap);
-        }
-        return objectMap;
+    /**
+     * @return the estimated size of the method analyses cached for the
+     *         class, which grows as more methods are analyzed
+     */
+    @Override
+    public synchronized long getEstimatedSize() {
+        return 256 + methodAnalysisCache.getSize();
+    }
+
+    /**
+     * Get the cached results of a method analysis, by method. Lookups and
+     * stores go to the method analysis cache; the entries are a snapshot.
+     *
+     * @deprecated the results are no longer kept in one map per analysis; use
+     *             {@link #getMethodAnalysis(Class, MethodDescriptor)} and
+     *             {@link #putMethodAnalysis(Class, MethodDescriptor, Object)}
+     */
+    @Deprecated
+    public Map<MethodDescriptor, Object> getObjectMap(final Class<?> analysisClass) {
+        return new AbstractMap<MethodDescriptor, Object>() {
+            @Override
+            public Object get(Object key) {
+                return key instanceof MethodDescriptor ? getMethodAnalysis(analysisClass, (MethodDescriptor) key) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public Object put(MethodDescriptor key, Object value) {
+                Object old = get(key);
+                putMethodAnalysis(analysisClass, key, value);
+                return old;
+            }
+
+            @Override
+            public Set<Map.Entry<MethodDescriptor, Object>> entrySet() {
+                synchronized (ClassContext.this) {
+                    return Collections.unmodifiableMap(methodAnalysisCache.getResults(analysisClass)).entrySet();
+                }
+            }
+        };
     }
 
     /**
@@ -146,14 +183,44 @@ public class ClassContext {
      * @param methodDescriptor
      *            method descriptor identifying the analyzed method
      * @param object
+     *            the analysis object to cache, replacing any already stored
+     */
+    public synchronized void putMethodAnalysis(Class<?> analysisClass, MethodDescriptor methodDescriptor, Object object) {
+        if (object == null) {
+            throw new IllegalArgumentException();
+        }
+        methodAnalysisCache.put(analysisClass, methodDescriptor, object, 0);
+    }
+
+    /**
+     * Store a method analysis object, along with the time it took to compute,
+     * unless another thread stored one first. The analyses of the class are
+     * kept within a memory budget; those that were expensive to compute for
+     * their size are the last to go.
+     *
+     * @param analysisClass
+     *            class the method analysis object belongs to
+     * @param methodDescriptor
+     *            method descriptor identifying the analyzed method
+     * @param object
      *            the analysis object to cache
+     * @param cost
+     *            nanoseconds spent computing the object, not counting other
+     *            analyses it requested
+     * @return the cached analysis object: the given one, or the one already
+     *         stored
      */
-    public void putMethodAnalysis(Class<?> analysisClass, MethodDescriptor methodDescriptor, Object object) {
+    public synchronized Object putMethodAnalysis(Class<?> analysisClass, MethodDescriptor methodDescriptor, Object object,
+            long cost) {
         if (object == null) {
             throw new IllegalArgumentException();
         }
-        Map<MethodDescriptor, Object> objectMap = getObjectMap(analysisClass);
-        objectMap.put(methodDescriptor, object);
+        Object existing = methodAnalysisCache.get(analysisClass, methodDescriptor);
+        if (existing != null) {
+            return existing;
+        }
+        methodAnalysisCache.put(analysisClass, methodDescriptor, object, cost);
+        return object;
     }
 
     /**
@@ -165,13 +232,12 @@ public class ClassContext {
      *            method descriptor identifying the analyzed method
      * @return the analysis object
      */
-    public Object getMethodAnalysis(Class<?> analysisClass, MethodDescriptor methodDescriptor) {
-        Map<MethodDescriptor, Object> objectMap = getObjectMap(analysisClass);
-        return objectMap.get(methodDescriptor);
+    public synchronized Object getMethodAnalysis(Class<?> analysisClass, MethodDescriptor methodDescriptor) {
+        return methodAnalysisCache.get(analysisClass, methodDescriptor);
     }
 
-    public void purgeAllMethodAnalyses() {
-        methodAnalysisObjectMap.clear();
+    public synchronized void purgeAllMethodAnalyses() {
+        methodAnalysisCache.clear();
     }
 
     /**
@@ -180,24 +246,12 @@ public class ClassContext {
      * @param methodDescriptor
      *            method descriptor identifying method to purge
      */
-    public void purgeMethodAnalyses(MethodDescriptor methodDescriptor) {
-        Set<Map.Entry<Class<?>, Map<MethodDescriptor, Object>>> entrySet = methodAnalysisObjectMap.entrySet();
-        for (Iterator<Map.Entry<Class<?>, Map<MethodDescriptor, Object>>> i = entrySet.iterator(); i.hasNext();) {
-            Map.Entry<Class<?>, Map<MethodDescriptor, Object>> entry = i.next();
-
-            Class<?> cls = entry.getKey();
-
-            // FIXME: hack
-            if (!DataflowAnalysis.class.isAssignableFrom(cls) && !Dataflow.class.isAssignableFrom(cls)) {
-                // There is really no need to purge analysis results
-                // that aren't CFG-based.
-                // Currently, only dataflow analyses need
-                // to be purged.
-                continue;
-            }
-
-            entry.getValue().remove(methodDescriptor);
-        }
+    public synchronized void purgeMethodAnalyses(MethodDescriptor methodDescriptor) {
+        // There is really no need to purge analysis results
+        // that aren't CFG-based.
+        // Currently, only dataflow analyses need
+        // to be purged.
+        methodAnalysisCache.removeDataflows(methodDescriptor);
     }
 
     /**
@@ -427,8 +481,12 @@ public class ClassContext {
     static public BitSet getBytecodeSet(JavaClass clazz, Method method) {
 
         XMethod xmethod = XFactory.createXMethod(clazz, method);
-        if (cachedBitsets().containsKey(xmethod)) {
-            return cachedBitsets().get(xmethod);
+        MapCache<XMethod, BitSet> cache = cachedBitsets();
+        // Shared by the analysis threads, and reordered by get()
+        synchronized (cache) {
+            if (cache.containsKey(xmethod)) {
+                return cache.get(xmethod);
+            }
         }
         Code code = method.getCode();
         if (code == null)
@@ -447,7 +505,9 @@ public class ClassContext {
         BitSet result = null;
         if (unpackedCode != null)
             result = unpackedCode.getBytecodeSet();
-        cachedBitsets().put(xmethod, result);
+        synchronized (cache) {
+            cache.put(xmethod, result);
+        }
         return result;
     }
 
@@ -459,14 +519,17 @@ public class ClassContext {
     static public Set<Integer> getLoopExitBranches(Method method, MethodGen methodGen) {
 
         XMethod xmethod = XFactory.createXMethod(methodGen);
-        if (cachedLoopExits().containsKey(xmethod)) {
-            Set<Integer> result = cachedLoopExits().get(xmethod);
-            if (result == null) {
-                AnalysisContext.logError("Null cachedLoopExits for " + xmethod, new NullPointerException());
-                assert false;
-                return Collections.<Integer> emptySet();
+        MapCache<XMethod, Set<Integer>> cache = cachedLoopExits();
+        synchronized (cache) {
+            if (cache.containsKey(xmethod)) {
+                Set<Integer> result = cache.get(xmethod);
+                if (result == null) {
+                    AnalysisContext.logError("Null cachedLoopExits for " + xmethod, new NullPointerException());
+                    assert false;
+                    return Collections.<Integer> emptySet();
+                }
+                return result;
             }
-           return result;
         }
         Code code = method.getCode();
         if (code == null) {
@@ -483,7 +546,9 @@ public class ClassContext {
         if (result.size() == 0)
             result = Collections.<Integer> emptySet();
 
-        cachedLoopExits().put(xmethod, result);
+        synchronized (cache) {
+            cache.put(xmethod, result);
+        }
         return result;
     }
 
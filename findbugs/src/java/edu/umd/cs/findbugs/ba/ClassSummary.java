@@ -19,6 +19,9 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -45,4 +48,30 @@ public class ClassSummary {
             map.put(checker, checkee);
     }
 
+    /**
+     * Write the classes checked for equality, for
+     * {@link #readSummary(DataInput)} in another analysis.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<ClassDescriptor, ClassDescriptor> e : map.entrySet()) {
+            FirstPassSummary.writeClass(out, e.getKey());
+            FirstPassSummary.writeClass(out, e.getValue());
+        }
+        out.writeInt(veryFunky.size());
+        for (ClassDescriptor c : veryFunky) {
+            FirstPassSummary.writeClass(out, c);
+        }
+    }
+
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            ClassDescriptor checker = FirstPassSummary.readClass(in);
+            checksForEqualTo(checker, FirstPassSummary.readClass(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            veryFunky.add(FirstPassSummary.readClass(in));
+        }
+    }
+
 }
@@ -0,0 +1,82 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Bookkeeping for the shards of a {@link ShardedDatabase}.
+ *
+ * @param <Shard>
+ *            the type recording the updates made while a shard is open
+ */
+public class DatabaseShards<Shard> {
+    private final ThreadLocal<Shard> openShard = new ThreadLocal<Shard>();
+
+    private final SortedMap<Integer, Shard> closedShards = new TreeMap<Integer, Shard>();
+
+    /**
+     * Get the shard open on the current thread.
+     *
+     * @return the shard, or null if updates should go to the database itself
+     */
+    public @CheckForNull
+    Shard get() {
+        return openShard.get();
+    }
+
+    public void open(Shard shard) {
+        if (openShard.get() != null) {
+            throw new IllegalStateException("Shard already open");
+        }
+        openShard.set(shard);
+    }
+
+    public void close(int sequence) {
+        Shard shard = openShard.get();
+        if (shard == null) {
+            throw new IllegalStateException("No shard open");
+        }
+        openShard.remove();
+        synchronized (closedShards) {
+            if (closedShards.put(sequence, shard) != null) {
+                throw new IllegalStateException("Duplicate shard sequence number " + sequence);
+            }
+        }
+    }
+
+    /**
+     * Remove the closed shards.
+     *
+     * @return the closed shards, in sequence order
+     */
+    public List<Shard> drain() {
+        synchronized (closedShards) {
+            List<Shard> result = new ArrayList<Shard>(closedShards.values());
+            closedShards.clear();
+            return result;
+        }
+    }
+}
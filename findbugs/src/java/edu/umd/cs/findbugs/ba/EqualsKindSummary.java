@@ -19,6 +19,9 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,4 +45,28 @@ public class EqualsKindSummary {
     public void put(ClassAnnotation c, EqualsKindSummary.KindOfEquals k) {
         kindMap.put(c, k);
     }
+
+    /**
+     * Write the kinds of equals methods, for {@link #readSummary(DataInput)}
+     * in another analysis.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        out.writeInt(kindMap.size());
+        for (Map.Entry<ClassAnnotation, EqualsKindSummary.KindOfEquals> e : kindMap.entrySet()) {
+            FirstPassSummary.writeString(out, e.getKey().getClassName());
+            FirstPassSummary.writeString(out, e.getValue().name());
+        }
+    }
+
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            ClassAnnotation c = new ClassAnnotation(FirstPassSummary.readString(in));
+            String kind = FirstPassSummary.readString(in);
+            try {
+                kindMap.put(c, EqualsKindSummary.KindOfEquals.valueOf(kind));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Bad kind of equals " + kind);
+            }
+        }
+    }
 }
@@ -19,11 +19,16 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,7 +52,7 @@ import edu.umd.cs.findbugs.util.Util;
  *
  * @author pugh
  */
-public class FieldSummary {
+public class FieldSummary implements ShardedDatabase {
     private final Set<XField> writtenOutsideOfConstructor = new HashSet<XField>();
 
     private final Map<XField, OpcodeStack.Item> summary = new HashMap<XField, OpcodeStack.Item>();
@@ -62,11 +67,18 @@ public class FieldSummary {
 
     private boolean complete = false;
 
+    private final DatabaseShards<FieldSummary> shards = new DatabaseShards<FieldSummary>();
+
     public OpcodeStack.Item getSummary(XField field) {
         if (field == null)
             return new OpcodeStack.Item();
 
-        OpcodeStack.Item result = summary.get(field);
+        FieldSummary shard = shards.get();
+        OpcodeStack.Item result = null;
+        if (shard != null)
+            result = shard.summary.get(field);
+        if (result == null)
+            result = summary.get(field);
         if (result == null || field.isVolatile()) {
             String signature = field.getSignature();
             return new OpcodeStack.Item(signature);
@@ -95,6 +107,11 @@ public class FieldSummary {
     }
 
     public void setCalledFromSuperConstructor(ProgramPoint from, XMethod calledFromConstructor) {
+        FieldSummary shard = shards.get();
+        if (shard != null) {
+            shard.setCalledFromSuperConstructor(from, calledFromConstructor);
+            return;
+        }
         Set<ProgramPoint> set = selfMethodsCalledFromConstructor.get(calledFromConstructor);
         if (set == null) {
             set = new HashSet<ProgramPoint>();
@@ -129,6 +146,11 @@ public class FieldSummary {
     public void setFieldsWritten(XMethod method, Collection<XField> fields) {
         if (fields.isEmpty())
             return;
+        FieldSummary shard = shards.get();
+        if (shard != null) {
+            shard.setFieldsWritten(method, fields);
+            return;
+        }
         if (fields.size() == 1) {
             fieldsWritten.put(method, Collections.singleton(Util.first(fields)));
             return;
@@ -138,7 +160,12 @@ public class FieldSummary {
     }
 
     public Set<XField> getFieldsWritten(XMethod method) {
-        Set<XField> result = fieldsWritten.get(method);
+        FieldSummary shard = shards.get();
+        Set<XField> result = null;
+        if (shard != null)
+            result = shard.fieldsWritten.get(method);
+        if (result == null)
+            result = fieldsWritten.get(method);
         if (result == null)
             return Collections.<XField> emptySet();
         return result;
@@ -149,6 +176,9 @@ public class FieldSummary {
             return false;
         if (writtenOutsideOfConstructor.contains(field))
             return true;
+        FieldSummary shard = shards.get();
+        if (shard != null && shard.writtenOutsideOfConstructor.contains(field))
+            return true;
         if (!AnalysisContext.currentAnalysisContext().unreadFieldsAvailable())
             return true;
         UnreadFieldsData unreadFields = AnalysisContext.currentAnalysisContext().getUnreadFieldsData();
@@ -158,10 +188,18 @@ public class FieldSummary {
     }
 
     public boolean addWrittenOutsideOfConstructor(XField field) {
+        FieldSummary shard = shards.get();
+        if (shard != null)
+            return shard.addWrittenOutsideOfConstructor(field);
         return writtenOutsideOfConstructor.add(field);
     }
 
     public void mergeSummary(XField fieldOperand, OpcodeStack.Item mergeValue) {
+        FieldSummary shard = shards.get();
+        if (shard != null) {
+            shard.mergeSummary(fieldOperand, mergeValue);
+            return;
+        }
         if (SystemProperties.ASSERTIONS_ENABLED) {
             String mSignature = mergeValue.getSignature();
 
@@ -233,6 +271,11 @@ public class FieldSummary {
             return;
         if (constructorInSuperClass.getSignature().equals("()V"))
             return;
+        FieldSummary shard = shards.get();
+        if (shard != null) {
+            shard.sawSuperCall(from, constructorInSuperClass);
+            return;
+        }
         nonVoidSuperConstructorsCalled.put(from, constructorInSuperClass);
 
     }
@@ -243,4 +286,103 @@ public class FieldSummary {
 
     }
 
+    /**
+     * Write the facts of this summary, for
+     * {@link #readSummary(DataInput)} in another analysis.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        out.writeInt(writtenOutsideOfConstructor.size());
+        for (XField f : writtenOutsideOfConstructor) {
+            FirstPassSummary.writeMember(out, f);
+        }
+        out.writeInt(summary.size());
+        for (Map.Entry<XField, OpcodeStack.Item> e : summary.entrySet()) {
+            FirstPassSummary.writeMember(out, e.getKey());
+            e.getValue().writeSummary(out);
+        }
+        out.writeInt(fieldsWritten.size());
+        for (Map.Entry<XMethod, Set<XField>> e : fieldsWritten.entrySet()) {
+            FirstPassSummary.writeMember(out, e.getKey());
+            out.writeInt(e.getValue().size());
+            for (XField f : e.getValue()) {
+                FirstPassSummary.writeMember(out, f);
+            }
+        }
+        out.writeInt(nonVoidSuperConstructorsCalled.size());
+        for (Map.Entry<XMethod, XMethod> e : nonVoidSuperConstructorsCalled.entrySet()) {
+            FirstPassSummary.writeMember(out, e.getKey());
+            FirstPassSummary.writeMember(out, e.getValue());
+        }
+        out.writeInt(selfMethodsCalledFromConstructor.size());
+        for (Map.Entry<XMethod, Set<ProgramPoint>> e : selfMethodsCalledFromConstructor.entrySet()) {
+            FirstPassSummary.writeMember(out, e.getKey());
+            out.writeInt(e.getValue().size());
+            for (ProgramPoint from : e.getValue()) {
+                FirstPassSummary.writeMember(out, from.method);
+                out.writeInt(from.pc);
+            }
+        }
+    }
+
+    /**
+     * Add the facts written by {@link #writeSummary(DataOutput)} in another
+     * analysis to this summary, as if the classes they come from had been
+     * analyzed.
+     */
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            addWrittenOutsideOfConstructor(FirstPassSummary.readField(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            XField field = FirstPassSummary.readField(in);
+            mergeSummary(field, OpcodeStack.Item.readSummary(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            XMethod method = FirstPassSummary.readMethod(in);
+            List<XField> fields = new ArrayList<XField>();
+            for (int j = in.readInt(); j > 0; j--) {
+                fields.add(FirstPassSummary.readField(in));
+            }
+            setFieldsWritten(method, fields);
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            XMethod from = FirstPassSummary.readMethod(in);
+            sawSuperCall(from, FirstPassSummary.readMethod(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            XMethod calledFromConstructor = FirstPassSummary.readMethod(in);
+            for (int j = in.readInt(); j > 0; j--) {
+                XMethod method = FirstPassSummary.readMethod(in);
+                setCalledFromSuperConstructor(new ProgramPoint(method, in.readInt()), calledFromConstructor);
+            }
+        }
+    }
+
+    @Override
+    public void openShard() {
+        shards.open(new FieldSummary());
+    }
+
+    @Override
+    public void closeShard(int sequence) {
+        shards.close(sequence);
+    }
+
+    @Override
+    public void mergeShards() {
+        for (FieldSummary shard : shards.drain()) {
+            writtenOutsideOfConstructor.addAll(shard.writtenOutsideOfConstructor);
+            for (Map.Entry<XField, OpcodeStack.Item> e : shard.summary.entrySet()) {
+                mergeSummary(e.getKey(), e.getValue());
+            }
+            fieldsWritten.putAll(shard.fieldsWritten);
+            nonVoidSuperConstructorsCalled.putAll(shard.nonVoidSuperConstructorsCalled);
+            for (Map.Entry<XMethod, Set<ProgramPoint>> e : shard.selfMethodsCalledFromConstructor.entrySet()) {
+                for (ProgramPoint from : e.getValue()) {
+                    setCalledFromSuperConstructor(from, e.getKey());
+                }
+            }
+        }
+    }
+
 }
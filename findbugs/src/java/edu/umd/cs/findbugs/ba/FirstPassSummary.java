@@ -0,0 +1,323 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.WillClose;
+
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.FieldOrMethodDescriptor;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import edu.umd.cs.findbugs.classfile.analysis.EnumValue;
+import edu.umd.cs.findbugs.io.IO;
+
+/**
+ * The facts recorded by the first pass about the classes it was applied to,
+ * in a form which can be added to those of another analysis of the same
+ * classpath. Each worker of a sharded analysis applies the first pass to its
+ * own part of the referenced classes, and reads the summaries written by the
+ * other workers (see edu.umd.cs.findbugs.ShardedAnalysis).
+ * <p>
+ * A summary holds the field summary, the called, reflective and empty array
+ * members noted by the XFactory, the kinds of equals methods, the class
+ * summary, the retention of annotation classes, the JCIP, CheckReturnValue
+ * and directly relevant type qualifier annotations, and the classes with
+ * evidence of serialization. Values which aren't constants, descriptors or
+ * members, such as the user values of some stack items, are written as
+ * unknown.
+ */
+public final class FirstPassSummary {
+    private static final int FORMAT = 1;
+
+    private static final int VALUE_NULL = 0;
+
+    private static final int VALUE_STRING = 1;
+
+    private static final int VALUE_INTEGER = 2;
+
+    private static final int VALUE_LONG = 3;
+
+    private static final int VALUE_FLOAT = 4;
+
+    private static final int VALUE_DOUBLE = 5;
+
+    private static final int VALUE_BOOLEAN = 6;
+
+    private static final int VALUE_CHARACTER = 7;
+
+    private static final int VALUE_SHORT = 8;
+
+    private static final int VALUE_BYTE = 9;
+
+    private static final int VALUE_CLASS = 10;
+
+    private static final int VALUE_ENUM = 11;
+
+    private static final int VALUE_FIELD = 12;
+
+    private static final int VALUE_METHOD = 13;
+
+    private FirstPassSummary() {
+    }
+
+    /**
+     * Write the first pass facts of an analysis.
+     *
+     * @param out
+     *            the stream to write to
+     * @param analysisContext
+     *            the analysis context, after the first pass
+     * @throws IOException
+     */
+    public static void write(@WillClose OutputStream out, AnalysisContext analysisContext) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        try {
+            data.writeInt(FORMAT);
+            FieldSummary fieldSummary = analysisContext.fieldSummary;
+            data.writeBoolean(fieldSummary != null);
+            if (fieldSummary != null) {
+                fieldSummary.writeSummary(data);
+            }
+            AnalysisContext.currentXFactory().writeSummary(data);
+            analysisContext.getEqualsKindSummary().writeSummary(data);
+            ClassSummary classSummary = analysisContext.classSummary;
+            data.writeBoolean(classSummary != null);
+            if (classSummary != null) {
+                classSummary.writeSummary(data);
+            }
+            analysisContext.getAnnotationRetentionDatabase().writeSummary(data);
+            analysisContext.getJCIPAnnotationDatabase().writeSummary(data);
+            analysisContext.getCheckReturnAnnotationDatabase().writeSummary(data);
+            analysisContext.getDirectlyRelevantTypeQualifiersDatabase().writeSummary(data);
+            analysisContext.getUnreadFieldsData().writeSummary(data);
+        } finally {
+            data.close();
+        }
+    }
+
+    /**
+     * Add the first pass facts written by another analysis to those of an
+     * analysis.
+     *
+     * @param in
+     *            the stream to read from
+     * @param analysisContext
+     *            the analysis context, after the first pass
+     * @throws IOException
+     *             if the summary can't be read
+     */
+    public static void read(@WillClose InputStream in, AnalysisContext analysisContext) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        try {
+            if (data.readInt() != FORMAT) {
+                throw new IOException("Unknown first pass summary format");
+            }
+            if (data.readBoolean()) {
+                FieldSummary fieldSummary = analysisContext.fieldSummary;
+                (fieldSummary != null ? fieldSummary : new FieldSummary()).readSummary(data);
+            }
+            AnalysisContext.currentXFactory().readSummary(data);
+            analysisContext.getEqualsKindSummary().readSummary(data);
+            if (data.readBoolean()) {
+                ClassSummary classSummary = analysisContext.classSummary;
+                (classSummary != null ? classSummary : new ClassSummary()).readSummary(data);
+            }
+            analysisContext.getAnnotationRetentionDatabase().readSummary(data);
+            analysisContext.getJCIPAnnotationDatabase().readSummary(data);
+            analysisContext.getCheckReturnAnnotationDatabase().readSummary(data, CheckReturnValueAnnotation.values());
+            analysisContext.getDirectlyRelevantTypeQualifiersDatabase().readSummary(data);
+            analysisContext.getUnreadFieldsData().readSummary(data);
+        } finally {
+            IO.close(data);
+        }
+    }
+
+    /**
+     * Write a string of any length.
+     */
+    public static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF8.charset);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8.charset);
+    }
+
+    public static void writeClass(DataOutput out, ClassDescriptor classDescriptor) throws IOException {
+        writeString(out, classDescriptor.getClassName());
+    }
+
+    public static ClassDescriptor readClass(DataInput in) throws IOException {
+        return DescriptorFactory.createClassDescriptor(readString(in));
+    }
+
+    /**
+     * Write a field or method, without saying which it is.
+     */
+    public static void writeMember(DataOutput out, FieldOrMethodDescriptor member) throws IOException {
+        writeString(out, member.getClassDescriptor().getClassName());
+        writeString(out, member.getName());
+        writeString(out, member.getSignature());
+        out.writeBoolean(member.isStatic());
+    }
+
+    public static void writeMember(DataOutput out, ClassMember member) throws IOException {
+        writeString(out, member.getClassDescriptor().getClassName());
+        writeString(out, member.getName());
+        writeString(out, member.getSignature());
+        out.writeBoolean(member.isStatic());
+    }
+
+    public static MethodDescriptor readMethodDescriptor(DataInput in) throws IOException {
+        return DescriptorFactory.instance().getMethodDescriptor(readString(in), readString(in), readString(in),
+                in.readBoolean());
+    }
+
+    public static XMethod readMethod(DataInput in) throws IOException {
+        return XFactory.createXMethodUsingSlashedClassName(readString(in), readString(in), readString(in),
+                in.readBoolean());
+    }
+
+    public static XField readField(DataInput in) throws IOException {
+        return XFactory.createXFieldUsingSlashedClassName(readString(in), readString(in), readString(in),
+                in.readBoolean());
+    }
+
+    /**
+     * @return true if the value is written by
+     *         {@link #writeValue(DataOutput, Object)} as itself, false if it
+     *         is written as null
+     */
+    public static boolean isSummarizable(@CheckForNull Object value) {
+        return value == null || value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Float || value instanceof Double || value instanceof Boolean
+                || value instanceof Character || value instanceof Short || value instanceof Byte
+                || value instanceof ClassDescriptor || value instanceof EnumValue || value instanceof XField
+                || value instanceof XMethod;
+    }
+
+    /**
+     * Write a constant, a class, an enum value or a member, or null for any
+     * other value.
+     */
+    public static void writeValue(DataOutput out, @CheckForNull Object value) throws IOException {
+        if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(VALUE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte(VALUE_CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value instanceof Short) {
+            out.writeByte(VALUE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(VALUE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof ClassDescriptor) {
+            out.writeByte(VALUE_CLASS);
+            writeClass(out, (ClassDescriptor) value);
+        } else if (value instanceof EnumValue) {
+            out.writeByte(VALUE_ENUM);
+            EnumValue enumValue = (EnumValue) value;
+            writeString(out, enumValue.desc.getSignature());
+            writeString(out, enumValue.value);
+        } else if (value instanceof XField) {
+            out.writeByte(VALUE_FIELD);
+            writeMember(out, (XField) value);
+        } else if (value instanceof XMethod) {
+            out.writeByte(VALUE_METHOD);
+            writeMember(out, (XMethod) value);
+        } else {
+            out.writeByte(VALUE_NULL);
+        }
+    }
+
+    public static @CheckForNull
+    Object readValue(DataInput in) throws IOException {
+        int kind = in.readByte();
+        switch (kind) {
+        case VALUE_NULL:
+            return null;
+        case VALUE_STRING:
+            return readString(in);
+        case VALUE_INTEGER:
+            return in.readInt();
+        case VALUE_LONG:
+            return in.readLong();
+        case VALUE_FLOAT:
+            return in.readFloat();
+        case VALUE_DOUBLE:
+            return in.readDouble();
+        case VALUE_BOOLEAN:
+            return in.readBoolean();
+        case VALUE_CHARACTER:
+            return in.readChar();
+        case VALUE_SHORT:
+            return in.readShort();
+        case VALUE_BYTE:
+            return in.readByte();
+        case VALUE_CLASS:
+            return readClass(in);
+        case VALUE_ENUM:
+            return new EnumValue(readString(in), readString(in));
+        case VALUE_FIELD:
+            return readField(in);
+        case VALUE_METHOD:
+            return readMethod(in);
+        default:
+            throw new IOException("Bad value kind " + kind);
+        }
+    }
+}
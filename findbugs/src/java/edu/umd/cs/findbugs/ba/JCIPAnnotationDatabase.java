@@ -19,6 +19,10 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -82,6 +86,82 @@ public class JCIPAnnotationDatabase {
         map.put(annotationClass, value);
     }
 
+    /**
+     * Write the annotations, for {@link #readSummary(DataInput)} in another
+     * analysis. Only the string form of the annotation values is written.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        out.writeInt(memberAnnotations.size());
+        for (Map.Entry<ClassMember, Map<String, ElementValue>> e : memberAnnotations.entrySet()) {
+            FirstPassSummary.writeValue(out, e.getKey());
+            writeAnnotations(out, e.getValue());
+        }
+        out.writeInt(classAnnotations.size());
+        for (Map.Entry<String, Map<String, ElementValue>> e : classAnnotations.entrySet()) {
+            FirstPassSummary.writeString(out, e.getKey());
+            writeAnnotations(out, e.getValue());
+        }
+    }
+
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            Object member = FirstPassSummary.readValue(in);
+            if (!(member instanceof ClassMember)) {
+                throw new IOException("Bad annotated member " + member);
+            }
+            for (int j = in.readInt(); j > 0; j--) {
+                String annotationClass = FirstPassSummary.readString(in);
+                addEntryForClassMember((ClassMember) member, annotationClass, readValue(in));
+            }
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            String dottedClassName = FirstPassSummary.readString(in);
+            for (int j = in.readInt(); j > 0; j--) {
+                String annotationClass = FirstPassSummary.readString(in);
+                addEntryForClass(dottedClassName, annotationClass, readValue(in));
+            }
+        }
+    }
+
+    private static void writeAnnotations(DataOutput out, Map<String, ElementValue> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, ElementValue> e : map.entrySet()) {
+            FirstPassSummary.writeString(out, e.getKey());
+            ElementValue value = e.getValue();
+            out.writeBoolean(value != null);
+            if (value != null) {
+                FirstPassSummary.writeString(out, value.stringifyValue());
+            }
+        }
+    }
+
+    private static @CheckForNull
+    ElementValue readValue(DataInput in) throws IOException {
+        return in.readBoolean() ? new SummarizedValue(FirstPassSummary.readString(in)) : null;
+    }
+
+    /**
+     * An annotation value read from a summary, which only has its string form
+     */
+    private static class SummarizedValue extends ElementValue {
+        private final String value;
+
+        SummarizedValue(String value) {
+            super(STRING, null);
+            this.value = value;
+        }
+
+        @Override
+        public String stringifyValue() {
+            return value;
+        }
+
+        @Override
+        public void dump(DataOutputStream dos) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     @CheckForNull
     private Map<String, ElementValue> getEntryForClass(@DottedClassName String dottedClassName) {
         assert dottedClassName.indexOf('/') == -1;
@@ -0,0 +1,273 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+
+import edu.umd.cs.findbugs.classfile.ISizedAnalysisResult;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+
+/**
+ * The method analysis results of a {@link ClassContext}, kept within a memory
+ * budget using the GreedyDual-Size policy.
+ * <p>
+ * The results of a method are evicted together, since they refer to each
+ * other: a dataflow refers to the CFG it was computed on, which refers to the
+ * MethodGen, and value numbers are only comparable within one
+ * ValueNumberDataflow. Each method is given a priority of L + cost / size,
+ * where cost is the time spent computing its results, and size their
+ * estimated size. When over budget, the method with the lowest priority is
+ * evicted, and L is raised to its priority, so that methods not used for a
+ * while eventually go too. The results of a large method which took seconds
+ * to compute are thus kept across detectors, while those of a getter are
+ * recomputed if needed.
+ * <p>
+ * The methods are kept in a priority queue. Raising the priority of a method
+ * queues it again rather than moving it, and the entries left behind are
+ * skipped when polled, and dropped when they outnumber the methods.
+ * <p>
+ * Not thread safe: the ClassContext synchronizes all accesses.
+ */
+final class MethodAnalysisCache {
+    /**
+     * Estimated size of a result which can't estimate its own, per byte of
+     * code of the method
+     */
+    private static final long BYTES_PER_CODE_BYTE = 32;
+
+    private static final class MethodAnalyses {
+        final Map<Class<?>, Object> results = new HashMap<Class<?>, Object>(4);
+
+        final MethodDescriptor methodDescriptor;
+
+        final int codeLength;
+
+        /** nanoseconds spent computing the results */
+        long cost;
+
+        long size;
+
+        double priority;
+
+        /** the entry of the queue with the current priority */
+        QueueEntry queued;
+
+        MethodAnalyses(MethodDescriptor methodDescriptor, int codeLength) {
+            this.methodDescriptor = methodDescriptor;
+            this.codeLength = codeLength;
+        }
+
+        double benefit() {
+            return size > 0 ? cost / (double) size : cost;
+        }
+    }
+
+    private static final class QueueEntry implements Comparable<QueueEntry> {
+        final MethodAnalyses analyses;
+
+        final double priority;
+
+        QueueEntry(MethodAnalyses analyses) {
+            this.analyses = analyses;
+            this.priority = analyses.priority;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            return Double.compare(priority, other.priority);
+        }
+    }
+
+    private final JavaClass jclass;
+
+    private final long maxSize;
+
+    private final Map<MethodDescriptor, MethodAnalyses> methodMap = new HashMap<MethodDescriptor, MethodAnalyses>();
+
+    private final PriorityQueue<QueueEntry> queue = new PriorityQueue<QueueEntry>();
+
+    /** the L of GreedyDual-Size */
+    private double inflation;
+
+    private long size;
+
+    /**
+     * @param jclass
+     *            the class whose method analyses are cached
+     * @param maxSize
+     *            maximum estimated size of the cached results, in bytes
+     */
+    MethodAnalysisCache(JavaClass jclass, long maxSize) {
+        this.jclass = jclass;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the total estimated size of the cached results, in bytes
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the cached result, or null
+     */
+    Object get(Class<?> analysisClass, MethodDescriptor methodDescriptor) {
+        MethodAnalyses analyses = methodMap.get(methodDescriptor);
+        if (analyses == null) {
+            return null;
+        }
+        Object result = analyses.results.get(analysisClass);
+        if (result != null) {
+            updatePriority(analyses);
+        }
+        return result;
+    }
+
+    /**
+     * Cache a result, evicting the results of other methods if over budget.
+     *
+     * @param cost
+     *            nanoseconds spent computing the result, or 0 if unknown
+     */
+    void put(Class<?> analysisClass, MethodDescriptor methodDescriptor, Object result, long cost) {
+        MethodAnalyses analyses = methodMap.get(methodDescriptor);
+        if (analyses == null) {
+            analyses = new MethodAnalyses(methodDescriptor, getCodeLength(methodDescriptor));
+            methodMap.put(methodDescriptor, analyses);
+        }
+        Object old = analyses.results.put(analysisClass, result);
+        long delta = sizeOf(result, analyses.codeLength) - (old != null ? sizeOf(old, analyses.codeLength) : 0);
+        analyses.size += delta;
+        size += delta;
+        analyses.cost += cost;
+        updatePriority(analyses);
+
+        QueueEntry kept = null;
+        while (size > maxSize) {
+            QueueEntry victim = queue.poll();
+            if (victim == null) {
+                break;
+            }
+            MethodAnalyses victimAnalyses = victim.analyses;
+            if (victimAnalyses.queued != victim) {
+                continue;
+            }
+            if (victimAnalyses == analyses) {
+                // always keep the results of the method being analyzed
+                kept = victim;
+                continue;
+            }
+            inflation = victim.priority;
+            victimAnalyses.queued = null;
+            methodMap.remove(victimAnalyses.methodDescriptor);
+            size -= victimAnalyses.size;
+        }
+        if (kept != null) {
+            queue.add(kept);
+        }
+    }
+
+    private void updatePriority(MethodAnalyses analyses) {
+        analyses.priority = inflation + analyses.benefit();
+        analyses.queued = new QueueEntry(analyses);
+        queue.add(analyses.queued);
+        if (queue.size() > 2 * methodMap.size() + 16) {
+            List<QueueEntry> current = new ArrayList<QueueEntry>(methodMap.size());
+            for (QueueEntry e : queue) {
+                if (e.analyses.queued == e) {
+                    current.add(e);
+                }
+            }
+            queue.clear();
+            queue.addAll(current);
+        }
+    }
+
+    /**
+     * @return the cached results of the given analysis, by method
+     */
+    Map<MethodDescriptor, Object> getResults(Class<?> analysisClass) {
+        Map<MethodDescriptor, Object> results = new HashMap<MethodDescriptor, Object>();
+        for (MethodAnalyses analyses : methodMap.values()) {
+            Object result = analyses.results.get(analysisClass);
+            if (result != null) {
+                results.put(analyses.methodDescriptor, result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Remove the results of the dataflow analyses of a method.
+     */
+    void removeDataflows(MethodDescriptor methodDescriptor) {
+        MethodAnalyses analyses = methodMap.get(methodDescriptor);
+        if (analyses == null) {
+            return;
+        }
+        for (Iterator<Map.Entry<Class<?>, Object>> i = analyses.results.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Class<?>, Object> e = i.next();
+            Class<?> cls = e.getKey();
+            if (!DataflowAnalysis.class.isAssignableFrom(cls) && !Dataflow.class.isAssignableFrom(cls)) {
+                continue;
+            }
+            long resultSize = sizeOf(e.getValue(), analyses.codeLength);
+            analyses.size -= resultSize;
+            size -= resultSize;
+            i.remove();
+        }
+    }
+
+    void clear() {
+        methodMap.clear();
+        queue.clear();
+        size = 0;
+        inflation = 0;
+    }
+
+    private int getCodeLength(MethodDescriptor methodDescriptor) {
+        for (Method method : jclass.getMethods()) {
+            if (method.getName().equals(methodDescriptor.getName())
+                    && method.getSignature().equals(methodDescriptor.getSignature())
+                    && method.isStatic() == methodDescriptor.isStatic()) {
+                Code code = method.getCode();
+                return code != null ? code.getLength() : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static long sizeOf(Object result, int codeLength) {
+        if (result instanceof ISizedAnalysisResult) {
+            return ((ISizedAnalysisResult) result).getEstimatedSize();
+        }
+        return 64 + BYTES_PER_CODE_BYTE * codeLength;
+    }
+}
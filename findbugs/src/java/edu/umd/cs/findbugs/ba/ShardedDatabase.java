@@ -0,0 +1,53 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+/**
+ * A database that concurrently running first pass detectors can update.
+ * <p>
+ * While a thread has a shard open, its updates are recorded in that shard
+ * instead of in the database, and lookups on that thread see the shard first.
+ * Other threads don't see the updates until the shards are merged.
+ *
+ * @see DatabaseShards
+ * @see edu.umd.cs.findbugs.ConcurrentFirstPassDetector
+ */
+public interface ShardedDatabase {
+
+    /**
+     * Record updates made by the current thread in a new shard.
+     */
+    public void openShard();
+
+    /**
+     * Stop recording updates of the current thread in its shard, and keep the
+     * shard until the next merge.
+     *
+     * @param sequence
+     *            position of the shard in the merge order
+     */
+    public void closeShard(int sequence);
+
+    /**
+     * Merge all closed shards into the database, in sequence order. Must not
+     * be called while other threads are updating the database.
+     */
+    public void mergeShards();
+}
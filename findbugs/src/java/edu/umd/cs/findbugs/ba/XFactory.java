@@ -19,12 +19,16 @@
 
 package edu.umd.cs.findbugs.ba;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -71,19 +75,21 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 public class XFactory {
     public static final boolean DEBUG_UNRESOLVED = SystemProperties.getBoolean("findbugs.xfactory.debugunresolved");
 
-    private Set<ClassDescriptor> reflectiveClasses = new HashSet<ClassDescriptor>();
+    // All of these may be updated by concurrently running analysis threads
 
-    private Map<MethodDescriptor, XMethod> methods = new HashMap<MethodDescriptor, XMethod>();
+    private Set<ClassDescriptor> reflectiveClasses = Collections.synchronizedSet(new HashSet<ClassDescriptor>());
 
-    private Map<FieldDescriptor, XField> fields = new HashMap<FieldDescriptor, XField>();
+    private Map<MethodDescriptor, XMethod> methods = new ConcurrentHashMap<MethodDescriptor, XMethod>();
 
-    private Set<XMethod> calledMethods = new HashSet<XMethod>();
+    private Map<FieldDescriptor, XField> fields = new ConcurrentHashMap<FieldDescriptor, XField>();
 
-    private Set<XField> emptyArrays = new HashSet<XField>();
+    private Set<XMethod> calledMethods = Collections.synchronizedSet(new HashSet<XMethod>());
 
-    private Set<String> calledMethodSignatures = new HashSet<String>();
-    
-    private Set<MethodDescriptor> functionsThatMightBeMistakenForProcedures = new HashSet<MethodDescriptor>();
+    private Set<XField> emptyArrays = Collections.synchronizedSet(new HashSet<XField>());
+
+    private Set<String> calledMethodSignatures = Collections.synchronizedSet(new HashSet<String>());
+
+    private Set<MethodDescriptor> functionsThatMightBeMistakenForProcedures = Collections.synchronizedSet(new HashSet<MethodDescriptor>());
 
     public void canonicalizeAll() {
         DescriptorFactory descriptorFactory = DescriptorFactory.instance();
@@ -159,6 +165,57 @@ public class XFactory {
         return reflectiveClasses.add(c);
     }
 
+    /**
+     * Write the called methods, empty array fields, reflective classes and
+     * functions which might be mistaken for procedures, for
+     * {@link #readSummary(DataInput)} in another analysis.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        synchronized (calledMethods) {
+            out.writeInt(calledMethods.size());
+            for (XMethod m : calledMethods) {
+                FirstPassSummary.writeMember(out, m);
+            }
+        }
+        synchronized (emptyArrays) {
+            out.writeInt(emptyArrays.size());
+            for (XField f : emptyArrays) {
+                FirstPassSummary.writeMember(out, f);
+            }
+        }
+        synchronized (reflectiveClasses) {
+            out.writeInt(reflectiveClasses.size());
+            for (ClassDescriptor c : reflectiveClasses) {
+                FirstPassSummary.writeClass(out, c);
+            }
+        }
+        synchronized (functionsThatMightBeMistakenForProcedures) {
+            out.writeInt(functionsThatMightBeMistakenForProcedures.size());
+            for (MethodDescriptor m : functionsThatMightBeMistakenForProcedures) {
+                FirstPassSummary.writeMember(out, m);
+            }
+        }
+    }
+
+    /**
+     * Add the members and classes written by
+     * {@link #writeSummary(DataOutput)} in another analysis.
+     */
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            calledMethods.add(FirstPassSummary.readMethod(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            emptyArrays.add(FirstPassSummary.readField(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            reflectiveClasses.add(FirstPassSummary.readClass(in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            functionsThatMightBeMistakenForProcedures.add(FirstPassSummary.readMethodDescriptor(in));
+        }
+    }
+
     public boolean isCalledDirectlyOrIndirectly(XMethod m) {
         if (isCalled(m))
             return true;
@@ -38,6 +38,8 @@ import javax.annotation.CheckForNull;
 import javax.annotation.WillClose;
 
 import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.DatabaseShards;
+import edu.umd.cs.findbugs.ba.ShardedDatabase;
 import edu.umd.cs.findbugs.charsets.UTF8;
 import edu.umd.cs.findbugs.classfile.FieldOrMethodDescriptor;
 import edu.umd.cs.findbugs.util.Util;
@@ -52,9 +54,11 @@ import edu.umd.cs.findbugs.util.Util;
  *            associated key
  * @author David Hovemeyer
  */
-public abstract class PropertyDatabase<KeyType extends FieldOrMethodDescriptor, ValueType> {
+public abstract class PropertyDatabase<KeyType extends FieldOrMethodDescriptor, ValueType> implements ShardedDatabase {
     private Map<KeyType, ValueType> propertyMap;
 
+    private final DatabaseShards<Map<KeyType, ValueType>> shards = new DatabaseShards<Map<KeyType, ValueType>>();
+
     /**
      * Constructor. Creates an empty property database.
      */
@@ -71,7 +75,12 @@ public abstract class PropertyDatabase<KeyType extends FieldOrMethodDescriptor,
      *            the property
      */
     public void setProperty(KeyType key, ValueType property) {
-        propertyMap.put(key, property);
+        Map<KeyType, ValueType> shard = shards.get();
+        if (shard != null) {
+            shard.put(key, property);
+        } else {
+            propertyMap.put(key, property);
+        }
     }
 
     /**
@@ -83,6 +92,10 @@ public abstract class PropertyDatabase<KeyType extends FieldOrMethodDescriptor,
      */
     public @CheckForNull
     ValueType getProperty(KeyType key) {
+        Map<KeyType, ValueType> shard = shards.get();
+        if (shard != null && shard.containsKey(key)) {
+            return shard.get(key);
+        }
         return propertyMap.get(key);
     }
 
@@ -112,9 +125,29 @@ public abstract class PropertyDatabase<KeyType extends FieldOrMethodDescriptor,
      *         this key
      */
     public ValueType removeProperty(KeyType key) {
+        if (shards.get() != null) {
+            throw new IllegalStateException("Can't remove properties while a shard is open");
+        }
         return propertyMap.remove(key);
     }
 
+    @Override
+    public void openShard() {
+        shards.open(new HashMap<KeyType, ValueType>());
+    }
+
+    @Override
+    public void closeShard(int sequence) {
+        shards.close(sequence);
+    }
+
+    @Override
+    public void mergeShards() {
+        for (Map<KeyType, ValueType> shard : shards.drain()) {
+            propertyMap.putAll(shard);
+        }
+    }
+
     /**
      * Read property database from given file.
      *
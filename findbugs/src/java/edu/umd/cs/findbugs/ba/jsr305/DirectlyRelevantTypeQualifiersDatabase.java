@@ -19,13 +19,20 @@
 
 package edu.umd.cs.findbugs.ba.jsr305;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import edu.umd.cs.findbugs.ba.FirstPassSummary;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 
 /**
@@ -71,6 +78,53 @@ public class DirectlyRelevantTypeQualifiersDatabase {
         return Collections.<TypeQualifierValue<?>> unmodifiableSet(allKnownQualifiers);
     }
 
+    /**
+     * Write the type qualifiers, for {@link #readSummary(DataInput)} in
+     * another analysis. Qualifiers with values which can't be written are
+     * left out.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        out.writeInt(methodToDirectlyRelevantQualifiersMap.size());
+        for (Map.Entry<MethodDescriptor, Collection<TypeQualifierValue<?>>> e : methodToDirectlyRelevantQualifiersMap
+                .entrySet()) {
+            FirstPassSummary.writeMember(out, e.getKey());
+            writeQualifiers(out, e.getValue());
+        }
+        writeQualifiers(out, allKnownQualifiers);
+    }
+
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            MethodDescriptor m = FirstPassSummary.readMethodDescriptor(in);
+            setDirectlyRelevantTypeQualifiers(m, readQualifiers(in));
+        }
+        allKnownQualifiers.addAll(readQualifiers(in));
+    }
+
+    private static void writeQualifiers(DataOutput out, Collection<TypeQualifierValue<?>> qualifiers) throws IOException {
+        List<TypeQualifierValue<?>> summarizable = new ArrayList<TypeQualifierValue<?>>(qualifiers.size());
+        for (TypeQualifierValue<?> tqv : qualifiers) {
+            if (FirstPassSummary.isSummarizable(tqv.value)) {
+                summarizable.add(tqv);
+            }
+        }
+        out.writeInt(summarizable.size());
+        for (TypeQualifierValue<?> tqv : summarizable) {
+            FirstPassSummary.writeClass(out, tqv.typeQualifier);
+            FirstPassSummary.writeValue(out, tqv.value);
+        }
+    }
+
+    private static List<TypeQualifierValue<?>> readQualifiers(DataInput in) throws IOException {
+        int size = in.readInt();
+        List<TypeQualifierValue<?>> result = new ArrayList<TypeQualifierValue<?>>(Math.max(size, 0));
+        for (int i = 0; i < size; i++) {
+            ClassDescriptor typeQualifier = FirstPassSummary.readClass(in);
+            result.add(TypeQualifierValue.getValue(typeQualifier, FirstPassSummary.readValue(in)));
+        }
+        return result;
+    }
+
     /**
      * Set the collection of directly-relevant type qualifiers for a given
      * method.
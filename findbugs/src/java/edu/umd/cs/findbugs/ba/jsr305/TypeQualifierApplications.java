@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.CheckReturnValue;
@@ -68,7 +69,15 @@ public class TypeQualifierApplications {
 
     static final boolean CHECK_EXHAUSTIVE = true; // SystemProperties.getBoolean("ctq.applications.checkexhaustive");
 
+    /**
+     * Incremented to discard the Data of every thread, not only that of the
+     * thread clearing it.
+     */
+    private static final AtomicInteger generation = new AtomicInteger();
+
     static class Data {
+        private final int dataGeneration = generation.get();
+
 
         /**
          * Type qualifier annotations applied directly to
@@ -105,23 +114,33 @@ public class TypeQualifierApplications {
     };
 
     public static void clearInstance() {
+        generation.incrementAndGet();
         instance.remove();
     }
 
+    private static Data getData() {
+        Data data = instance.get();
+        if (data.dataGeneration != generation.get()) {
+            data = new Data();
+            instance.set(data);
+        }
+        return data;
+    }
+
     private static Map<TypeQualifierValue<?>, DualKeyHashMap<XMethod, Integer, TypeQualifierAnnotation>> getEffectiveParameterAnnotations() {
-        return instance.get().effectiveParameterAnnotations;
+        return getData().effectiveParameterAnnotations;
     }
 
     private static Map<TypeQualifierValue<?>, Map<AnnotatedObject, TypeQualifierAnnotation>> getEffectiveObjectAnnotations() {
-        return instance.get().effectiveObjectAnnotations;
+        return getData().effectiveObjectAnnotations;
     }
 
     private static HashMap<XMethod, Map<Integer, Collection<AnnotationValue>>> getDirectParameterAnnotations() {
-        return instance.get().directParameterAnnotations;
+        return getData().directParameterAnnotations;
     }
 
     private static Map<AnnotatedObject, Collection<AnnotationValue>> getDirectObjectAnnotations() {
-        return instance.get().directObjectAnnotations;
+        return getData().directObjectAnnotations;
     }
 
     public static void updateAnnotations(AnnotatedObject object) {
@@ -20,8 +20,8 @@
 package edu.umd.cs.findbugs.classfile;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
@@ -46,38 +46,45 @@ import edu.umd.cs.findbugs.util.MapCache;
  * @author David Hovemeyer
  */
 public class DescriptorFactory {
-    private static ThreadLocal<DescriptorFactory> instanceThreadLocal = new ThreadLocal<DescriptorFactory>() {
+    /**
+     * The factory is inherited by threads started from the analysis thread,
+     * so that descriptors stay canonical when classes are analyzed
+     * concurrently. All of its maps are therefore thread safe.
+     */
+    private static InheritableThreadLocal<DescriptorFactory> instanceThreadLocal = new InheritableThreadLocal<DescriptorFactory>() {
         @Override
         protected DescriptorFactory initialValue() {
             return new DescriptorFactory();
         }
     };
 
-    private final Map<String, ClassDescriptor> classDescriptorMap;
+    private final ConcurrentHashMap<String, ClassDescriptor> classDescriptorMap;
 
-    private final Map<String, ClassDescriptor> dottedClassDescriptorMap;
+    private final ConcurrentHashMap<String, ClassDescriptor> dottedClassDescriptorMap;
 
-    private final Map<MethodDescriptor, MethodDescriptor> methodDescriptorMap;
+    private final ConcurrentHashMap<MethodDescriptor, MethodDescriptor> methodDescriptorMap;
 
-    private final Map<FieldDescriptor, FieldDescriptor> fieldDescriptorMap;
+    private final ConcurrentHashMap<FieldDescriptor, FieldDescriptor> fieldDescriptorMap;
 
     private DescriptorFactory() {
-        this.classDescriptorMap = new HashMap<String, ClassDescriptor>();
-        this.dottedClassDescriptorMap = new HashMap<String, ClassDescriptor>();
-        this.methodDescriptorMap = new HashMap<MethodDescriptor, MethodDescriptor>();
-        this.fieldDescriptorMap = new HashMap<FieldDescriptor, FieldDescriptor>();
+        this.classDescriptorMap = new ConcurrentHashMap<String, ClassDescriptor>();
+        this.dottedClassDescriptorMap = new ConcurrentHashMap<String, ClassDescriptor>();
+        this.methodDescriptorMap = new ConcurrentHashMap<MethodDescriptor, MethodDescriptor>();
+        this.fieldDescriptorMap = new ConcurrentHashMap<FieldDescriptor, FieldDescriptor>();
     }
 
-    private MapCache<String, String> stringCache = new MapCache<String, String>(10000);
+    private final MapCache<String, String> stringCache = new MapCache<String, String>(10000);
 
     public static String canonicalizeString(@CheckForNull String s) {
         if (s == null)
             return s;
         DescriptorFactory df =  instanceThreadLocal.get();
-        String cached = df.stringCache.get(s);
-        if (cached != null)
-            return cached;
-        df.stringCache.put(s, s);
+        synchronized (df.stringCache) {
+            String cached = df.stringCache.get(s);
+            if (cached != null)
+                return cached;
+            df.stringCache.put(s, s);
+        }
         return s;
     }
 
@@ -124,7 +131,9 @@ public class DescriptorFactory {
         ClassDescriptor classDescriptor = classDescriptorMap.get(className);
         if (classDescriptor == null) {
             classDescriptor = new ClassDescriptor(className);
-            classDescriptorMap.put(className, classDescriptor);
+            ClassDescriptor existing = classDescriptorMap.putIfAbsent(className, classDescriptor);
+            if (existing != null)
+                classDescriptor = existing;
         }
         return classDescriptor;
     }
@@ -170,9 +179,8 @@ public class DescriptorFactory {
         if (className == null)
             throw new NullPointerException("className must be nonnull");
         MethodDescriptor methodDescriptor = new MethodDescriptor(className, name, signature, isStatic);
-        MethodDescriptor existing = methodDescriptorMap.get(methodDescriptor);
+        MethodDescriptor existing = methodDescriptorMap.putIfAbsent(methodDescriptor, methodDescriptor);
         if (existing == null) {
-            methodDescriptorMap.put(methodDescriptor, methodDescriptor);
             existing = methodDescriptor;
         }
         return existing;
@@ -231,9 +239,8 @@ public class DescriptorFactory {
      */
     public FieldDescriptor getFieldDescriptor(@SlashedClassName String className, String name, String signature, boolean isStatic) {
         FieldDescriptor fieldDescriptor = new FieldDescriptor(className, name, signature, isStatic);
-        FieldDescriptor existing = fieldDescriptorMap.get(fieldDescriptor);
+        FieldDescriptor existing = fieldDescriptorMap.putIfAbsent(fieldDescriptor, fieldDescriptor);
         if (existing == null) {
-            fieldDescriptorMap.put(fieldDescriptor, fieldDescriptor);
             existing = fieldDescriptor;
         }
         return existing;
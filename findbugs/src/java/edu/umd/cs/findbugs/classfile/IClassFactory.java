@@ -19,6 +19,11 @@
 
 package edu.umd.cs.findbugs.classfile;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
 import edu.umd.cs.findbugs.BugReporter;
 
 /**
@@ -34,6 +39,31 @@ public interface IClassFactory {
 
     public ICodeBaseLocator createNestedArchiveCodeBaseLocator(ICodeBase parentCodeBase, String path);
 
+    /**
+     * Create a locator for a codebase whose resources are held in memory.
+     *
+     * @param name
+     *            name of the codebase, the same from one analysis to the next
+     * @param resources
+     *            map of resource names (e.g. "com/example/Foo.class") to
+     *            their data
+     * @param lastModifiedTimes
+     *            map of resource names to the time they were last modified,
+     *            in milliseconds since the epoch, or null if not known
+     * @return the codebase locator
+     */
+    public ICodeBaseLocator createInMemoryCodeBaseLocator(String name, Map<String, byte[]> resources,
+            @CheckForNull Map<String, Long> lastModifiedTimes);
+
+    /**
+     * Create a locator for a codebase whose resources are held in memory, as
+     * the remaining bytes of ByteBuffers.
+     *
+     * @see #createInMemoryCodeBaseLocator(String, Map, Map)
+     */
+    public ICodeBaseLocator createInMemoryBufferCodeBaseLocator(String name, Map<String, ByteBuffer> resources,
+            @CheckForNull Map<String, Long> lastModifiedTimes);
+
     public IAnalysisCache createAnalysisCache(IClassPath classPath, BugReporter errorLogger);
 
     // public IScannableCodeBase createLocalCodeBase(String fileName)
@@ -71,7 +71,7 @@ public interface IClassPathBuilder {
      * Get the list of application classes discovered while scanning the
      * classpath.
      * 
-     * @return list of application classes
+     * @return list of application classes, sorted by name, each listed once
      */
     public List<ClassDescriptor> getAppClassList();
 }
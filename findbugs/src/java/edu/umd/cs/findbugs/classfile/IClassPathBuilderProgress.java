@@ -28,7 +28,9 @@ public interface IClassPathBuilderProgress {
 
     /**
      * Report that FindBugs has started scanning an archive in order to add its
-     * classes to the repository.
+     * classes to the repository. This is also called, without a matching call
+     * to {@link #finishArchive()}, for the archives nested in the archives
+     * being scanned, which may take a while to open.
      */
     public void startArchive(String name);
 
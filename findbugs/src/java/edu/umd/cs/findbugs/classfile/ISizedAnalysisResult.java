@@ -0,0 +1,33 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile;
+
+/**
+ * An analysis result which can estimate how much memory it retains. The
+ * analysis cache uses the estimate to keep the results it caches within the
+ * memory budget of the analysis; results not implementing this interface get
+ * a rough default estimate.
+ */
+public interface ISizedAnalysisResult {
+    /**
+     * @return the estimated number of bytes retained by this result
+     */
+    public long getEstimatedSize();
+}
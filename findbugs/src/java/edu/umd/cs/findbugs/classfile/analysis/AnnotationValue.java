@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.objectweb.asm.AnnotationVisitor;
 
@@ -95,6 +96,13 @@ public class AnnotationValue {
         return typeMap.get(name);
     }
 
+    /**
+     * @return names of the annotation elements that have a value
+     */
+    Set<String> getValueNames() {
+        return valueMap.keySet();
+    }
+
     @Override
     public String toString() {
         return annotationClass + ":" + valueMap.toString();
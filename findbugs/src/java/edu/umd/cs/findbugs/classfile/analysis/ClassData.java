@@ -24,13 +24,14 @@ import java.io.InputStream;
 
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ISizedAnalysisResult;
 
 /**
  * The data (bytes) of a class.
  * 
  * @author David Hovemeyer
  */
-public class ClassData {
+public class ClassData implements ISizedAnalysisResult {
     private final ClassDescriptor classDescriptor;
 
     private final ICodeBaseEntry codeBaseEntry;
@@ -72,6 +73,11 @@ public class ClassData {
         return data;
     }
 
+    @Override
+    public long getEstimatedSize() {
+        return 64 + data.length;
+    }
+
     /**
      * Open an InputStream on the class data.
      * 
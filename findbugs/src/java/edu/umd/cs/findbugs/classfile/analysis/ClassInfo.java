@@ -95,6 +95,8 @@ public class ClassInfo extends ClassNameAndSuperclassInfo implements XClass, Ann
 
         boolean hasStubs;
 
+        MethodInfo[] methodsInCallOrder;
+
         @Override
         public ClassInfo build() {
             AnalysisContext context = AnalysisContext.currentAnalysisContext();
@@ -123,8 +125,8 @@ public class ClassInfo extends ClassNameAndSuperclassInfo implements XClass, Ann
 
             return new ClassInfo(classDescriptor, classSourceSignature, superclassDescriptor, interfaceDescriptorList,
                     codeBaseEntry, accessFlags, source, majorVersion, minorVersion, referencedClassDescriptorList,
-                    calledClassDescriptors, classAnnotations, fields, methods, immediateEnclosingClass, usesConcurrency,
-                    hasStubs);
+                    calledClassDescriptors, classAnnotations, fields, methods, methodsInCallOrder, immediateEnclosingClass,
+                    usesConcurrency, hasStubs);
         }
 
         public void setSource(String source) {
@@ -194,6 +196,17 @@ public class ClassInfo extends ClassNameAndSuperclassInfo implements XClass, Ann
             hasStubs = true;
         }
 
+        /**
+         * Set the methods in call order, if already known, so that the class
+         * doesn't have to be read again to compute it.
+         *
+         * @param methodsInCallOrder
+         *            the methods added to this builder, in call order
+         */
+        void setMethodsInCallOrder(MethodInfo[] methodsInCallOrder) {
+            this.methodsInCallOrder = methodsInCallOrder;
+        }
+
     }
 
     private MethodInfo[] computeMethodsInCallOrder() {
@@ -241,6 +254,8 @@ public class ClassInfo extends ClassNameAndSuperclassInfo implements XClass, Ann
      *            FieldDescriptors of fields defined in the class
      * @param methodInfoList
      *            MethodDescriptors of methods defined in the class
+     * @param methodsInCallOrder
+     *            the methods in call order, or null to compute it
      * @param usesConcurrency
      *            TODO
      * @param hasStubs
@@ -250,8 +265,8 @@ public class ClassInfo extends ClassNameAndSuperclassInfo implements XClass, Ann
             ClassDescriptor[] interfaceDescriptorList, ICodeBaseEntry codeBaseEntry, int accessFlags, String source,
             int majorVersion, int minorVersion, Collection<ClassDescriptor> referencedClassDescriptorList,
             Set<ClassDescriptor> calledClassDescriptors, Map<ClassDescriptor, AnnotationValue> classAnnotations,
-            FieldInfo[] fieldDescriptorList, MethodInfo[] methodInfoList, ClassDescriptor immediateEnclosingClass,
-            boolean usesConcurrency, boolean hasStubs) {
+            FieldInfo[] fieldDescriptorList, MethodInfo[] methodInfoList, @CheckForNull MethodInfo[] methodsInCallOrder,
+            ClassDescriptor immediateEnclosingClass, boolean usesConcurrency, boolean hasStubs) {
         super(classDescriptor, superclassDescriptor, interfaceDescriptorList, codeBaseEntry, accessFlags,
                 referencedClassDescriptorList, calledClassDescriptors, majorVersion, minorVersion);
         this.source = source;
@@ -264,7 +279,7 @@ public class ClassInfo extends ClassNameAndSuperclassInfo implements XClass, Ann
         this.classAnnotations = Util.immutableMap(classAnnotations);
         this.usesConcurrency = usesConcurrency;
         this.hasStubs = hasStubs;
-        this.methodsInCallOrder = computeMethodsInCallOrder();
+        this.methodsInCallOrder = methodsInCallOrder != null ? methodsInCallOrder : computeMethodsInCallOrder();
         if (false) {
             System.out.println("Methods in call order for " + classDescriptor);
             for (MethodInfo m : methodsInCallOrder) {
@@ -0,0 +1,704 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.analysis;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Type;
+
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XField;
+import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.FieldDescriptor;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+
+/**
+ * Writes ClassNameAndSuperclassInfo and ClassInfo objects to a binary stream,
+ * and reads them back.
+ * <p>
+ * Objects are read back through the same builders and constructors the class
+ * parser uses, so that the method database and the bridge methods of the
+ * analysis context are populated just as if the class had been parsed.
+ * Objects must be written right after they are built, before any detector
+ * adds annotations to them.
+ * <p>
+ * Strings are written as their length and UTF-8 bytes rather than with
+ * {@link DataOutput#writeUTF(String)}, which fails for strings over 64K.
+ */
+public class ClassInfoCodec {
+    private static final int CLASS_NAME_AND_SUPERCLASS_INFO = 0;
+
+    private static final int CLASS_INFO = 1;
+
+    private static final int METHOD_UNCONDITIONAL_THROWER = 1;
+
+    private static final int METHOD_USES_CONCURRENCY = 2;
+
+    private static final int METHOD_HAS_BACK_BRANCH = 4;
+
+    private static final int METHOD_IS_STUB = 8;
+
+    private static final int METHOD_IS_IDENTITY = 16;
+
+    private static final int METHOD_USES_INVOKE_DYNAMIC = 32;
+
+    private static final int VALUE_BYTE = 0;
+
+    private static final int VALUE_BOOLEAN = 1;
+
+    private static final int VALUE_CHAR = 2;
+
+    private static final int VALUE_SHORT = 3;
+
+    private static final int VALUE_INT = 4;
+
+    private static final int VALUE_LONG = 5;
+
+    private static final int VALUE_FLOAT = 6;
+
+    private static final int VALUE_DOUBLE = 7;
+
+    private static final int VALUE_STRING = 8;
+
+    private static final int VALUE_TYPE = 9;
+
+    private static final int VALUE_ENUM = 10;
+
+    private static final int VALUE_ANNOTATION = 11;
+
+    private static final int VALUE_ARRAY = 12;
+
+    private static final int VALUE_BYTE_ARRAY = 13;
+
+    private static final int VALUE_BOOLEAN_ARRAY = 14;
+
+    private static final int VALUE_CHAR_ARRAY = 15;
+
+    private static final int VALUE_SHORT_ARRAY = 16;
+
+    private static final int VALUE_INT_ARRAY = 17;
+
+    private static final int VALUE_LONG_ARRAY = 18;
+
+    private static final int VALUE_FLOAT_ARRAY = 19;
+
+    private static final int VALUE_DOUBLE_ARRAY = 20;
+
+    private ClassInfoCodec() {
+    }
+
+    /**
+     * Write a ClassNameAndSuperclassInfo or ClassInfo.
+     *
+     * @param out
+     *            the stream to write to
+     * @param info
+     *            the object to write
+     * @throws IOException
+     *             if the stream can't be written, or the object contains
+     *             something that can't be represented
+     */
+    public static void write(DataOutput out, ClassNameAndSuperclassInfo info) throws IOException {
+        boolean isClassInfo = info instanceof ClassInfo;
+        out.writeByte(isClassInfo ? CLASS_INFO : CLASS_NAME_AND_SUPERCLASS_INFO);
+        writeUTF8(out, info.getClassName());
+        writeClassDescriptor(out, info.getSuperclassDescriptor());
+        ClassDescriptor[] interfaces = info.getInterfaceDescriptorList();
+        out.writeInt(interfaces == null ? -1 : interfaces.length);
+        if (interfaces != null) {
+            for (ClassDescriptor i : interfaces) {
+                writeUTF8(out, i.getClassName());
+            }
+        }
+        out.writeInt(info.getAccessFlags());
+        out.writeInt(info.getMajorVersion());
+        out.writeInt(info.getMinorVersion());
+        writeClassDescriptors(out, info.getCalledClassDescriptors());
+        if (isClassInfo) {
+            writeClassInfo(out, (ClassInfo) info);
+        }
+    }
+
+    /**
+     * Read a ClassNameAndSuperclassInfo or ClassInfo.
+     *
+     * @param in
+     *            the stream to read from
+     * @param codeBaseEntry
+     *            the codebase entry the class was read from
+     * @return the object read
+     * @throws IOException
+     *             if the stream can't be read or is corrupt
+     */
+    public static ClassNameAndSuperclassInfo read(DataInput in, ICodeBaseEntry codeBaseEntry) throws IOException {
+        int kind = in.readByte();
+        ClassNameAndSuperclassInfo.Builder builder;
+        if (kind == CLASS_INFO) {
+            builder = new ClassInfo.Builder();
+        } else if (kind == CLASS_NAME_AND_SUPERCLASS_INFO) {
+            builder = new ClassNameAndSuperclassInfo.Builder();
+        } else {
+            throw new IOException("Unknown class info kind " + kind);
+        }
+        builder.setCodeBaseEntry(codeBaseEntry);
+        builder.setClassDescriptor(DescriptorFactory.createClassDescriptor(readUTF8(in)));
+        builder.setSuperclassDescriptor(readClassDescriptor(in));
+        int numInterfaces = in.readInt();
+        if (numInterfaces >= 0) {
+            String[] interfaces = new String[numInterfaces];
+            for (int i = 0; i < numInterfaces; i++) {
+                interfaces[i] = readUTF8(in);
+            }
+            builder.setInterfaceDescriptorList(DescriptorFactory.createClassDescriptor(interfaces));
+        }
+        builder.setAccessFlags(in.readInt());
+        int majorVersion = in.readInt();
+        builder.setClassfileVersion(majorVersion, in.readInt());
+        builder.setCalledClassDescriptors(readClassDescriptors(in));
+        if (kind == CLASS_INFO) {
+            readClassInfo(in, (ClassInfo.Builder) builder);
+        }
+        return builder.build();
+    }
+
+    private static void writeClassInfo(DataOutput out, ClassInfo info) throws IOException {
+        writeString(out, info.getSourceSignature());
+        writeString(out, info.getSource());
+        writeClassDescriptor(out, info.getImmediateEnclosingClass());
+        out.writeBoolean(info.usesConcurrency());
+        out.writeBoolean(info.hasStubs());
+        writeAnnotations(out, info.classAnnotations);
+
+        List<? extends XField> fields = info.getXFields();
+        out.writeInt(fields.size());
+        for (XField f : fields) {
+            writeField(out, (FieldInfo) f);
+        }
+
+        AnalysisContext context = AnalysisContext.currentAnalysisContext();
+        List<? extends XMethod> methods = info.getXMethods();
+        Map<XMethod, Integer> methodIndex = new IdentityHashMap<XMethod, Integer>();
+        out.writeInt(methods.size());
+        for (XMethod m : methods) {
+            methodIndex.put(m, methodIndex.size());
+            writeMethod(out, (MethodInfo) m);
+            XMethod bridgeTo = context != null ? context.getBridgeTo((MethodInfo) m) : null;
+            writeString(out, bridgeTo != null ? bridgeTo.getSignature() : null);
+        }
+        for (XMethod m : info.getXMethodsInCallOrder()) {
+            out.writeInt(methodIndex.get(m));
+        }
+    }
+
+    private static void readClassInfo(DataInput in, ClassInfo.Builder builder) throws IOException {
+        String sourceSignature = readString(in);
+        if (sourceSignature != null) {
+            builder.setSourceSignature(sourceSignature);
+        }
+        builder.setSource(readString(in));
+        builder.setImmediateEnclosingClass(readClassDescriptor(in));
+        if (in.readBoolean()) {
+            builder.setUsesConcurrency();
+        }
+        if (in.readBoolean()) {
+            builder.setHasStubs();
+        }
+        for (Map.Entry<ClassDescriptor, AnnotationValue> e : readAnnotations(in).entrySet()) {
+            builder.addAnnotation(e.getKey().getSignature(), e.getValue());
+        }
+
+        String className = builder.getClassDescriptor().getClassName();
+        int numFields = in.readInt();
+        for (int i = 0; i < numFields; i++) {
+            builder.addFieldDescriptor(readField(in, className));
+        }
+
+        MethodInfo[] methods = new MethodInfo[in.readInt()];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = readMethod(in, className);
+            builder.addBridgeMethodDescriptor(methods[i], readString(in));
+        }
+        MethodInfo[] methodsInCallOrder = MethodInfo.newArray(methods.length);
+        for (int i = 0; i < methods.length; i++) {
+            int index = in.readInt();
+            if (index < 0 || index >= methods.length) {
+                throw new IOException("Bad method index " + index);
+            }
+            methodsInCallOrder[i] = methods[index];
+        }
+        builder.setMethodsInCallOrder(methodsInCallOrder);
+    }
+
+    private static void writeField(DataOutput out, FieldInfo field) throws IOException {
+        writeUTF8(out, field.getName());
+        writeUTF8(out, field.getSignature());
+        writeString(out, field.fieldSourceSignature);
+        out.writeInt(field.accessFlags);
+        writeAnnotations(out, field.fieldAnnotations);
+    }
+
+    private static FieldInfo readField(DataInput in, String className) throws IOException {
+        String name = readUTF8(in);
+        String signature = readUTF8(in);
+        String sourceSignature = readString(in);
+        FieldInfo.Builder builder = new FieldInfo.Builder(className, name, signature, in.readInt());
+        builder.setSourceSignature(sourceSignature);
+        for (Map.Entry<ClassDescriptor, AnnotationValue> e : readAnnotations(in).entrySet()) {
+            builder.addAnnotation(e.getKey().getSignature(), e.getValue());
+        }
+        return builder.build();
+    }
+
+    private static void writeMethod(DataOutput out, MethodInfo method) throws IOException {
+        writeUTF8(out, method.getName());
+        writeUTF8(out, method.getSignature());
+        writeString(out, method.methodSourceSignature);
+        out.writeInt(method.accessFlags);
+        int flags = 0;
+        if (method.isUnconditionalThrower()) {
+            flags |= METHOD_UNCONDITIONAL_THROWER;
+        }
+        if (method.usesConcurrency) {
+            flags |= METHOD_USES_CONCURRENCY;
+        }
+        if (method.hasBackBranch) {
+            flags |= METHOD_HAS_BACK_BRANCH;
+        }
+        if (method.isStub) {
+            flags |= METHOD_IS_STUB;
+        }
+        if (method.isIdentity()) {
+            flags |= METHOD_IS_IDENTITY;
+        }
+        if (method.usesInvokeDynamic()) {
+            flags |= METHOD_USES_INVOKE_DYNAMIC;
+        }
+        out.writeInt(flags);
+        out.writeInt(method.methodCallCount);
+        out.writeLong(method.variableIsSynthetic);
+        String[] exceptions = method.exceptions;
+        out.writeInt(exceptions == null ? -1 : exceptions.length);
+        if (exceptions != null) {
+            for (String e : exceptions) {
+                writeUTF8(out, e);
+            }
+        }
+        MethodDescriptor accessMethodForMethod = method.getAccessMethodForMethod();
+        out.writeBoolean(accessMethodForMethod != null);
+        if (accessMethodForMethod != null) {
+            writeMember(out, accessMethodForMethod.getSlashedClassName(), accessMethodForMethod.getName(),
+                    accessMethodForMethod.getSignature(), accessMethodForMethod.isStatic());
+        }
+        FieldDescriptor accessMethodForField = method.getAccessMethodForField();
+        out.writeBoolean(accessMethodForField != null);
+        if (accessMethodForField != null) {
+            writeMember(out, accessMethodForField.getSlashedClassName(), accessMethodForField.getName(),
+                    accessMethodForField.getSignature(), accessMethodForField.isStatic());
+        }
+        writeAnnotations(out, method.methodAnnotations);
+        out.writeInt(method.methodParameterAnnotations.size());
+        for (Map.Entry<Integer, Map<ClassDescriptor, AnnotationValue>> e : method.methodParameterAnnotations.entrySet()) {
+            out.writeInt(e.getKey());
+            writeAnnotations(out, e.getValue());
+        }
+    }
+
+    private static MethodInfo readMethod(DataInput in, String className) throws IOException {
+        String name = readUTF8(in);
+        String signature = readUTF8(in);
+        String sourceSignature = readString(in);
+        int accessFlags = in.readInt();
+        int flags = in.readInt();
+        int methodCallCount = in.readInt();
+        long variableIsSynthetic = in.readLong();
+        int numExceptions = in.readInt();
+        String[] exceptions = null;
+        if (numExceptions >= 0) {
+            exceptions = new String[numExceptions];
+            for (int i = 0; i < numExceptions; i++) {
+                exceptions[i] = readUTF8(in);
+            }
+        }
+        MethodDescriptor accessMethodForMethod = null;
+        if (in.readBoolean()) {
+            accessMethodForMethod = new MethodDescriptor(readUTF8(in), readUTF8(in), readUTF8(in), in.readBoolean());
+        }
+        FieldDescriptor accessMethodForField = null;
+        if (in.readBoolean()) {
+            accessMethodForField = new FieldDescriptor(readUTF8(in), readUTF8(in), readUTF8(in), in.readBoolean());
+        }
+        Map<ClassDescriptor, AnnotationValue> methodAnnotations = readAnnotations(in);
+        int numParameterAnnotations = in.readInt();
+        Map<Integer, Map<ClassDescriptor, AnnotationValue>> methodParameterAnnotations = new HashMap<Integer, Map<ClassDescriptor, AnnotationValue>>(
+                4);
+        for (int i = 0; i < numParameterAnnotations; i++) {
+            int parameter = in.readInt();
+            methodParameterAnnotations.put(parameter, readAnnotations(in));
+        }
+        return new MethodInfo(className, name, signature, sourceSignature, accessFlags,
+                (flags & METHOD_UNCONDITIONAL_THROWER) != 0, false, (flags & METHOD_USES_CONCURRENCY) != 0,
+                (flags & METHOD_HAS_BACK_BRANCH) != 0, (flags & METHOD_IS_STUB) != 0, (flags & METHOD_IS_IDENTITY) != 0,
+                (flags & METHOD_USES_INVOKE_DYNAMIC) != 0, methodCallCount, exceptions, accessMethodForMethod,
+                accessMethodForField, methodAnnotations, methodParameterAnnotations, variableIsSynthetic);
+    }
+
+    private static void writeMember(DataOutput out, String className, String name, String signature, boolean isStatic)
+            throws IOException {
+        writeUTF8(out, className);
+        writeUTF8(out, name);
+        writeUTF8(out, signature);
+        out.writeBoolean(isStatic);
+    }
+
+    private static void writeAnnotations(DataOutput out, Map<ClassDescriptor, AnnotationValue> annotations) throws IOException {
+        out.writeInt(annotations.size());
+        for (AnnotationValue value : annotations.values()) {
+            writeUTF8(out, value.getAnnotationClass().getSignature());
+            writeAnnotationElements(out, value);
+        }
+    }
+
+    private static Map<ClassDescriptor, AnnotationValue> readAnnotations(DataInput in) throws IOException {
+        int size = in.readInt();
+        Map<ClassDescriptor, AnnotationValue> result = new HashMap<ClassDescriptor, AnnotationValue>(size);
+        for (int i = 0; i < size; i++) {
+            AnnotationValue value = new AnnotationValue(readUTF8(in));
+            AnnotationVisitor visitor = value.getAnnotationVisitor();
+            readAnnotationElements(in, visitor);
+            visitor.visitEnd();
+            result.put(value.getAnnotationClass(), value);
+        }
+        return result;
+    }
+
+    private static void writeAnnotationElements(DataOutput out, AnnotationValue value) throws IOException {
+        out.writeInt(value.getValueNames().size());
+        for (String name : value.getValueNames()) {
+            writeUTF8(out, name);
+            writeAnnotationElement(out, value.getValue(name));
+        }
+    }
+
+    private static void readAnnotationElements(DataInput in, AnnotationVisitor visitor) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            readAnnotationElement(in, visitor, readUTF8(in));
+        }
+    }
+
+    private static void writeAnnotationElement(DataOutput out, Object value) throws IOException {
+        if (value instanceof Byte) {
+            out.writeByte(VALUE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte(VALUE_CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof Short) {
+            out.writeByte(VALUE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(VALUE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(VALUE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(VALUE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeUTF8(out, (String) value);
+        } else if (value instanceof Type) {
+            out.writeByte(VALUE_TYPE);
+            writeUTF8(out, ((Type) value).getDescriptor());
+        } else if (value instanceof EnumValue) {
+            out.writeByte(VALUE_ENUM);
+            writeUTF8(out, ((EnumValue) value).desc.getSignature());
+            writeUTF8(out, ((EnumValue) value).value);
+        } else if (value instanceof AnnotationValue) {
+            out.writeByte(VALUE_ANNOTATION);
+            writeUTF8(out, ((AnnotationValue) value).getAnnotationClass().getSignature());
+            writeAnnotationElements(out, (AnnotationValue) value);
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            out.writeByte(VALUE_ARRAY);
+            out.writeInt(array.length);
+            for (Object o : array) {
+                writeAnnotationElement(out, o);
+            }
+        } else if (value instanceof byte[]) {
+            byte[] array = (byte[]) value;
+            out.writeByte(VALUE_BYTE_ARRAY);
+            out.writeInt(array.length);
+            out.write(array);
+        } else if (value instanceof boolean[]) {
+            boolean[] array = (boolean[]) value;
+            out.writeByte(VALUE_BOOLEAN_ARRAY);
+            out.writeInt(array.length);
+            for (boolean b : array) {
+                out.writeBoolean(b);
+            }
+        } else if (value instanceof char[]) {
+            char[] array = (char[]) value;
+            out.writeByte(VALUE_CHAR_ARRAY);
+            out.writeInt(array.length);
+            for (char c : array) {
+                out.writeChar(c);
+            }
+        } else if (value instanceof short[]) {
+            short[] array = (short[]) value;
+            out.writeByte(VALUE_SHORT_ARRAY);
+            out.writeInt(array.length);
+            for (short s : array) {
+                out.writeShort(s);
+            }
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            out.writeByte(VALUE_INT_ARRAY);
+            out.writeInt(array.length);
+            for (int i : array) {
+                out.writeInt(i);
+            }
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            out.writeByte(VALUE_LONG_ARRAY);
+            out.writeInt(array.length);
+            for (long l : array) {
+                out.writeLong(l);
+            }
+        } else if (value instanceof float[]) {
+            float[] array = (float[]) value;
+            out.writeByte(VALUE_FLOAT_ARRAY);
+            out.writeInt(array.length);
+            for (float f : array) {
+                out.writeFloat(f);
+            }
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            out.writeByte(VALUE_DOUBLE_ARRAY);
+            out.writeInt(array.length);
+            for (double d : array) {
+                out.writeDouble(d);
+            }
+        } else {
+            throw new IOException("Can't write annotation value " + value);
+        }
+    }
+
+    /**
+     * Read an annotation element value and replay it onto the given visitor,
+     * the way ASM would when reading the class.
+     */
+    private static void readAnnotationElement(DataInput in, AnnotationVisitor visitor, @CheckForNull String name)
+            throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+        case VALUE_BYTE:
+            visitor.visit(name, Byte.valueOf(in.readByte()));
+            break;
+        case VALUE_BOOLEAN:
+            visitor.visit(name, Boolean.valueOf(in.readBoolean()));
+            break;
+        case VALUE_CHAR:
+            visitor.visit(name, Character.valueOf(in.readChar()));
+            break;
+        case VALUE_SHORT:
+            visitor.visit(name, Short.valueOf(in.readShort()));
+            break;
+        case VALUE_INT:
+            visitor.visit(name, Integer.valueOf(in.readInt()));
+            break;
+        case VALUE_LONG:
+            visitor.visit(name, Long.valueOf(in.readLong()));
+            break;
+        case VALUE_FLOAT:
+            visitor.visit(name, Float.valueOf(in.readFloat()));
+            break;
+        case VALUE_DOUBLE:
+            visitor.visit(name, Double.valueOf(in.readDouble()));
+            break;
+        case VALUE_STRING:
+            visitor.visit(name, readUTF8(in));
+            break;
+        case VALUE_TYPE:
+            visitor.visit(name, Type.getType(readUTF8(in)));
+            break;
+        case VALUE_ENUM: {
+            String desc = readUTF8(in);
+            visitor.visitEnum(name, desc, readUTF8(in));
+            break;
+        }
+        case VALUE_ANNOTATION: {
+            AnnotationVisitor nested = visitor.visitAnnotation(name, readUTF8(in));
+            readAnnotationElements(in, nested);
+            nested.visitEnd();
+            break;
+        }
+        case VALUE_ARRAY: {
+            AnnotationVisitor array = visitor.visitArray(name);
+            int length = in.readInt();
+            for (int i = 0; i < length; i++) {
+                readAnnotationElement(in, array, null);
+            }
+            array.visitEnd();
+            break;
+        }
+        case VALUE_BYTE_ARRAY: {
+            byte[] array = new byte[in.readInt()];
+            in.readFully(array);
+            visitor.visit(name, array);
+            break;
+        }
+        case VALUE_BOOLEAN_ARRAY: {
+            boolean[] array = new boolean[in.readInt()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readBoolean();
+            }
+            visitor.visit(name, array);
+            break;
+        }
+        case VALUE_CHAR_ARRAY: {
+            char[] array = new char[in.readInt()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readChar();
+            }
+            visitor.visit(name, array);
+            break;
+        }
+        case VALUE_SHORT_ARRAY: {
+            short[] array = new short[in.readInt()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readShort();
+            }
+            visitor.visit(name, array);
+            break;
+        }
+        case VALUE_INT_ARRAY: {
+            int[] array = new int[in.readInt()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readInt();
+            }
+            visitor.visit(name, array);
+            break;
+        }
+        case VALUE_LONG_ARRAY: {
+            long[] array = new long[in.readInt()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readLong();
+            }
+            visitor.visit(name, array);
+            break;
+        }
+        case VALUE_FLOAT_ARRAY: {
+            float[] array = new float[in.readInt()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readFloat();
+            }
+            visitor.visit(name, array);
+            break;
+        }
+        case VALUE_DOUBLE_ARRAY: {
+            double[] array = new double[in.readInt()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = in.readDouble();
+            }
+            visitor.visit(name, array);
+            break;
+        }
+        default:
+            throw new IOException("Unknown annotation value tag " + tag);
+        }
+    }
+
+    private static void writeClassDescriptor(DataOutput out, @CheckForNull ClassDescriptor descriptor) throws IOException {
+        writeString(out, descriptor != null ? descriptor.getClassName() : null);
+    }
+
+    private static @CheckForNull
+    ClassDescriptor readClassDescriptor(DataInput in) throws IOException {
+        String className = readString(in);
+        return className != null ? DescriptorFactory.createClassDescriptor(className) : null;
+    }
+
+    private static void writeClassDescriptors(DataOutput out, Collection<ClassDescriptor> descriptors) throws IOException {
+        out.writeInt(descriptors.size());
+        for (ClassDescriptor d : descriptors) {
+            writeUTF8(out, d.getClassName());
+        }
+    }
+
+    private static Collection<ClassDescriptor> readClassDescriptors(DataInput in) throws IOException {
+        int size = in.readInt();
+        ClassDescriptor[] result = new ClassDescriptor[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = DescriptorFactory.createClassDescriptor(readUTF8(in));
+        }
+        return Arrays.asList(result);
+    }
+
+    private static void writeString(DataOutput out, @CheckForNull String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            writeUTF8(out, s);
+        }
+    }
+
+    private static @CheckForNull
+    String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? readUTF8(in) : null;
+    }
+
+    private static void writeUTF8(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(UTF8.charset);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readUTF8(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8.charset);
+    }
+}
@@ -31,6 +31,8 @@ import edu.umd.cs.findbugs.classfile.MissingClassException;
 import edu.umd.cs.findbugs.classfile.RecomputableClassAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.ResourceNotFoundException;
 import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.classfile.impl.InMemoryCodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.impl.ZipFileCodeBaseEntry;
 import edu.umd.cs.findbugs.classfile.impl.ZipInputStreamCodeBaseEntry;
 import edu.umd.cs.findbugs.io.IO;
 
@@ -64,6 +66,14 @@ public class ClassDataAnalysisEngine extends RecomputableClassAnalysisEngine<Cla
         byte[] data;
         if (codeBaseEntry instanceof ZipInputStreamCodeBaseEntry) {
             data = ((ZipInputStreamCodeBaseEntry) codeBaseEntry).getBytes();
+        } else if (codeBaseEntry instanceof InMemoryCodeBaseEntry) {
+            data = ((InMemoryCodeBaseEntry) codeBaseEntry).getBytes();
+        } else if (codeBaseEntry instanceof ZipFileCodeBaseEntry) {
+            try {
+                data = ((ZipFileCodeBaseEntry) codeBaseEntry).getBytes();
+            } catch (IOException e) {
+                throw new MissingClassException(descriptor, e);
+            }
         } else {
             try {
                 // Create a ByteArrayOutputStream to capture the class data
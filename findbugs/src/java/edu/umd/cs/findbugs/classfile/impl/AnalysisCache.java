@@ -19,13 +19,20 @@
 
 package edu.umd.cs.findbugs.classfile.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.WillClose;
 
 import org.apache.bcel.classfile.JavaClass;
 import org.apache.bcel.generic.ConstantPoolGen;
@@ -33,6 +40,7 @@ import org.apache.bcel.generic.ConstantPoolGen;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.asm.FBClassReader;
+import edu.umd.cs.findbugs.ba.AnalysisBudget;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.ba.Debug;
@@ -42,17 +50,27 @@ import edu.umd.cs.findbugs.classfile.IAnalysisCache;
 import edu.umd.cs.findbugs.classfile.IAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.IClassAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
 import edu.umd.cs.findbugs.classfile.IDatabaseFactory;
 import edu.umd.cs.findbugs.classfile.IErrorLogger;
 import edu.umd.cs.findbugs.classfile.IMethodAnalysisEngine;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
 import edu.umd.cs.findbugs.classfile.UncheckedAnalysisException;
 import edu.umd.cs.findbugs.log.Profiler;
-import edu.umd.cs.findbugs.util.MapCache;
 
 /**
  * Implementation of IAnalysisCache. This object is responsible for registering
  * class and method analysis engines and caching analysis results.
+ * <p>
+ * Analysis engines must be registered before the analysis starts. After that,
+ * results and databases may be requested from several threads at once. Results
+ * are computed without holding a lock; if two threads race to compute the same
+ * result, the first one stored wins, so every thread sees the same object.
+ * <p>
+ * Results which can be recomputed are kept within a maximum number per
+ * analysis and, optionally, a memory budget shared by all analyses (see
+ * {@link #setMaxCacheSize(long)}). On heap pressure, these caches drop half
+ * of their results.
  *
  * @author David Hovemeyer
  */
@@ -60,7 +78,7 @@ public class AnalysisCache implements IAnalysisCache {
     /**
      *
      */
-    private static final int MAX_JAVACLASS_RESULTS_TO_CACHE = 3000;
+    static final int MAX_JAVACLASS_RESULTS_TO_CACHE = 3000;
     private static final int MAX_FBCLASSREADER_RESULTS_TO_CACHE = 3000;
 
     private static final int MAX_CONSTANT_POOL_GEN_RESULTS_TO_CACHE = 500;
@@ -70,12 +88,17 @@ public class AnalysisCache implements IAnalysisCache {
      */
     private static final int MAX_CLASS_RESULTS_TO_CACHE = 5000;
 
+    /**
+     * Default number of ClassContexts to cache.
+     */
+    private static final int MAX_CLASS_CONTEXTS_TO_CACHE = 10;
+
     private static final boolean ASSERTIONS_ENABLED = SystemProperties.ASSERTIONS_ENABLED;
 
     // Fields
     private final IClassPath classPath;
 
-    private final BugReporter bugReporter;
+    private volatile BugReporter bugReporter;
 
     private final Map<Class<?>, IClassAnalysisEngine<?>> classAnalysisEngineMap;
 
@@ -83,12 +106,32 @@ public class AnalysisCache implements IAnalysisCache {
 
     private final Map<Class<?>, IDatabaseFactory<?>> databaseFactoryMap;
 
-    private final Map<Class<?>, Map<ClassDescriptor, Object>> classAnalysisMap;
+    private final ConcurrentMap<Class<?>, Map<ClassDescriptor, Object>> classAnalysisMap;
+
+    /** The unsynchronized caches in classAnalysisMap, for their counters */
+    private final ConcurrentMap<Class<?>, AnalysisResultCache<?>> resultCacheMap;
+
+    private final AnalysisCacheBudget budget;
 
-    private final Map<Class<?>, Object> databaseMap;
+    private final ConcurrentMap<Class<?>, Object> databaseMap;
 
     private final Map<?, ?> analysisLocals = Collections.synchronizedMap(new HashMap<Object, Object>());
 
+    private int classesInFlight = 1;
+
+    private volatile PersistentClassAnalysisCache persistentCache;
+
+    /**
+     * Nanoseconds spent by the current thread in method analyses requested
+     * by the one being computed
+     */
+    private static final ThreadLocal<long[]> NESTED_ANALYSIS_TIME = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
     @Override
     public final Map<?, ?> getAnalysisLocals() {
         return analysisLocals;
@@ -157,8 +200,23 @@ public class AnalysisCache implements IAnalysisCache {
         this.classAnalysisEngineMap = new HashMap<Class<?>, IClassAnalysisEngine<?>>();
         this.methodAnalysisEngineMap = new HashMap<Class<?>, IMethodAnalysisEngine<?>>();
         this.databaseFactoryMap = new HashMap<Class<?>, IDatabaseFactory<?>>();
-        this.classAnalysisMap = new HashMap<Class<?>, Map<ClassDescriptor, Object>>();
-        this.databaseMap = new HashMap<Class<?>, Object>();
+        this.classAnalysisMap = new ConcurrentHashMap<Class<?>, Map<ClassDescriptor, Object>>();
+        this.resultCacheMap = new ConcurrentHashMap<Class<?>, AnalysisResultCache<?>>();
+        this.budget = new AnalysisCacheBudget();
+        this.databaseMap = new ConcurrentHashMap<Class<?>, Object>();
+        this.persistentCache = PersistentClassAnalysisCache.create();
+    }
+
+    /**
+     * Make the class analysis caches of all analyses in this JVM drop
+     * entries when the heap is nearly full after a garbage collection. This
+     * sets usage thresholds on the heap memory pools of the JVM, so it is
+     * for processes which only run FindBugs, such as the command line and
+     * the analysis daemon; applications embedding FindBugs may call it if
+     * they don't use these thresholds themselves.
+     */
+    public static void shrinkOnHeapPressure() {
+        AnalysisCacheBudget.listenForHeapPressure();
     }
 
     /*
@@ -177,10 +235,12 @@ public class AnalysisCache implements IAnalysisCache {
 
         try {
             Map<ClassDescriptor, ClassContext> map = getAllClassAnalysis(ClassContext.class);
-            Collection<?> allClassContexts = map.values();
-            for (Object c : allClassContexts) {
-                if (c instanceof ClassContext) {
-                    ((ClassContext) c).purgeAllMethodAnalyses();
+            synchronized (map) {
+                Collection<?> allClassContexts = map.values();
+                for (Object c : allClassContexts) {
+                    if (c instanceof ClassContext) {
+                        ((ClassContext) c).purgeAllMethodAnalyses();
+                    }
                 }
             }
         } catch (ClassCastException e) {
@@ -198,14 +258,129 @@ public class AnalysisCache implements IAnalysisCache {
 
     @Override
     public void purgeClassAnalysis(Class<?> analysisClass) {
-        classAnalysisMap.remove(analysisClass);
+        Map<ClassDescriptor, Object> map = classAnalysisMap.remove(analysisClass);
+        resultCacheMap.remove(analysisClass);
+        if (map != null) {
+            // Give back its share of the memory budget
+            map.clear();
+        }
+    }
+
+    /**
+     * Set the BugReporter errors are logged to, e.g. a synchronized one once
+     * several threads analyze classes.
+     *
+     * @param errorLogger
+     *            the BugReporter
+     */
+    public void setErrorLogger(BugReporter errorLogger) {
+        this.bugReporter = errorLogger;
+    }
+
+    /**
+     * Set the number of classes analyzed at the same time. Must be called
+     * before the first ClassContext is requested. The ClassContexts of that
+     * many most recently used classes stay cached even over budget, so that
+     * the method analyses of a class in flight all come from the same
+     * ClassContext.
+     *
+     * @param classesInFlight
+     *            number of classes analyzed at the same time
+     */
+    public void setClassesInFlight(int classesInFlight) {
+        this.classesInFlight = Math.max(1, classesInFlight);
+    }
+
+    /**
+     * Set the memory budget of the class analysis results which can be
+     * recomputed. When the total estimated size of these results exceeds it,
+     * the least recently used ones are discarded.
+     *
+     * @param maxCacheSize
+     *            the budget, in bytes; 0 means none
+     */
+    public void setMaxCacheSize(long maxCacheSize) {
+        budget.setMaxSize(maxCacheSize);
+    }
+
+    /**
+     * @return counters of the cached results of each class analysis used so
+     *         far
+     */
+    public Map<Class<?>, AnalysisCacheStatistics> getStatistics() {
+        Map<Class<?>, AnalysisCacheStatistics> result = new HashMap<Class<?>, AnalysisCacheStatistics>();
+        for (Map.Entry<Class<?>, AnalysisResultCache<?>> e : resultCacheMap.entrySet()) {
+            AnalysisResultCache<?> cache = e.getValue();
+            Map<ClassDescriptor, Object> map = classAnalysisMap.get(e.getKey());
+            if (map == null) {
+                continue;
+            }
+            synchronized (map) {
+                result.put(e.getKey(), new AnalysisCacheStatistics(cache.hits.get(), cache.misses.get(), cache.evictions.get(),
+                        cache.size(), cache.getEstimatedSize()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Print the counters of the cached results of each class analysis.
+     *
+     * @param out
+     *            where to print them
+     */
+    public void reportStatistics(PrintStream out) {
+        Map<String, AnalysisCacheStatistics> sorted = new TreeMap<String, AnalysisCacheStatistics>();
+        for (Map.Entry<Class<?>, AnalysisCacheStatistics> e : getStatistics().entrySet()) {
+            sorted.put(e.getKey().getName(), e.getValue());
+        }
+        out.println("Analysis cache: " + budget.getSize() / 1024 + " KB of "
+                + (budget.getMaxSize() == Long.MAX_VALUE ? "unlimited" : budget.getMaxSize() / 1024 + " KB"));
+        for (Map.Entry<String, AnalysisCacheStatistics> e : sorted.entrySet()) {
+            out.println("  " + e.getKey() + ": " + e.getValue());
+        }
+    }
+
+    /**
+     * Write the class analysis results computed so far to the on-disk cache,
+     * if one is configured.
+     */
+    public void flushPersistentCache() {
+        if (persistentCache != null) {
+            persistentCache.flush(bugReporter);
+        }
+    }
+
+    /**
+     * Add precomputed class analysis results for the classes of a codebase,
+     * e.g. from a {@link LibrarySummary}.
+     *
+     * @param codeBase
+     *            the codebase the results were computed for
+     * @param in
+     *            the results, in the format of the on-disk cache; closed
+     *            by this method
+     * @throws IOException
+     *             if the results can't be read
+     */
+    public void addPersistentClassAnalyses(ICodeBase codeBase, @WillClose InputStream in) throws IOException {
+        synchronized (this) {
+            if (persistentCache == null) {
+                persistentCache = new PersistentClassAnalysisCache(null, false);
+            }
+        }
+        persistentCache.addRecords(codeBase, in);
     }
 
     /**
      * Cleans up all cached data
      */
     public void dispose(){
+        for (Map<ClassDescriptor, Object> map : classAnalysisMap.values()) {
+            map.clear();
+        }
         classAnalysisMap.clear();
+        resultCacheMap.clear();
         classAnalysisEngineMap.clear();
         analysisLocals.clear();
         databaseFactoryMap.clear();
@@ -227,14 +402,8 @@ public class AnalysisCache implements IAnalysisCache {
      * @param map non null, pre-filled map with analysis data for given type
      */
     public <E> void reuseClassAnalysis(Class<E> analysisClass, Map<ClassDescriptor, Object> map) {
-        Map<ClassDescriptor, Object> myMap = classAnalysisMap.get(analysisClass);
-        if (myMap != null) {
-            myMap.putAll(map);
-        } else {
-            myMap = createMap(classAnalysisEngineMap, analysisClass);
-            myMap.putAll(map);
-            classAnalysisMap.put(analysisClass, myMap);
-        }
+        Map<ClassDescriptor, Object> myMap = findOrCreateDescriptorMap(classAnalysisMap, classAnalysisEngineMap, analysisClass);
+        myMap.putAll(map);
     }
 
     /*
@@ -258,8 +427,12 @@ public class AnalysisCache implements IAnalysisCache {
 
         // See if there is a cached result in the descriptor map
         Object analysisResult = descriptorMap.get(classDescriptor);
+        AnalysisResultCache<?> resultCache = resultCacheMap.get(analysisClass);
         if (analysisResult == null) {
             // No cached result - compute (or recompute)
+            if (resultCache != null) {
+                resultCache.misses.incrementAndGet();
+            }
 
             IAnalysisEngine<ClassDescriptor, E> engine = (IAnalysisEngine<ClassDescriptor, E>) classAnalysisEngineMap
                     .get(analysisClass);
@@ -270,7 +443,11 @@ public class AnalysisCache implements IAnalysisCache {
             // Perform the analysis
             try {
                 profiler.start(engine.getClass());
-                analysisResult = engine.analyze(this, classDescriptor);
+                if (persistentCache != null && PersistentClassAnalysisCache.isPersistent(analysisClass)) {
+                    analysisResult = persistentCache.analyze(this, engine, analysisClass, classDescriptor);
+                } else {
+                    analysisResult = engine.analyze(this, classDescriptor);
+                }
 
                 // If engine returned null, we need to construct
                 // an AbnormalAnalysisResult object to record that fact.
@@ -297,8 +474,17 @@ public class AnalysisCache implements IAnalysisCache {
                 profiler.end(engine.getClass());
             }
 
-            // Save the result
-            descriptorMap.put(classDescriptor, analysisResult);
+            // Save the result, unless another thread got there first
+            synchronized (descriptorMap) {
+                Object existing = descriptorMap.get(classDescriptor);
+                if (existing != null) {
+                    analysisResult = existing;
+                } else {
+                    descriptorMap.put(classDescriptor, analysisResult);
+                }
+            }
+        } else if (resultCache != null) {
+            resultCache.hits.incrementAndGet();
         }
 
         // Abnormal analysis result?
@@ -345,6 +531,13 @@ public class AnalysisCache implements IAnalysisCache {
         Object object = classContext.getMethodAnalysis(analysisClass, methodDescriptor);
 
         if (object == null) {
+            // Measure the time spent on this analysis alone, without the
+            // analyses it requests
+            long[] nestedTime = NESTED_ANALYSIS_TIME.get();
+            long outerNestedTime = nestedTime[0];
+            nestedTime[0] = 0;
+            long start = System.nanoTime();
+            long cost;
             try {
                 object = analyzeMethod(classContext, analysisClass, methodDescriptor);
                 if (object == null) {
@@ -354,9 +547,14 @@ public class AnalysisCache implements IAnalysisCache {
                 object = new AbnormalAnalysisResult(e);
             } catch (CheckedAnalysisException e) {
                 object = new AbnormalAnalysisResult(e);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                cost = elapsed - nestedTime[0];
+                nestedTime[0] = outerNestedTime + elapsed;
             }
 
-            classContext.putMethodAnalysis(analysisClass, methodDescriptor, object);
+            // Another thread may have computed it meanwhile
+            object = classContext.putMethodAnalysis(analysisClass, methodDescriptor, object, cost);
 
         }
         if (Debug.VERIFY_INTEGRITY && object == null) {
@@ -370,6 +568,17 @@ public class AnalysisCache implements IAnalysisCache {
         return checkedCast(analysisClass, object);
     }
 
+    /**
+     * Get the engine registered to produce given method analysis.
+     *
+     * @param analysisClass
+     *            class of the method analysis object
+     * @return the engine, or null if there is none
+     */
+    @CheckForNull IMethodAnalysisEngine<?> getMethodAnalysisEngine(Class<?> analysisClass) {
+        return methodAnalysisEngineMap.get(analysisClass);
+    }
+
     /**
      * Analyze a method.
      *
@@ -392,9 +601,11 @@ public class AnalysisCache implements IAnalysisCache {
         }
         Profiler profiler = getProfiler();
         profiler.start(engine.getClass());
+        AnalysisBudget.startMethod(methodDescriptor);
         try {
             return engine.analyze(this, methodDescriptor);
         } finally {
+            AnalysisBudget.endMethod(methodDescriptor);
             profiler.end(engine.getClass());
         }
     }
@@ -455,39 +666,47 @@ public class AnalysisCache implements IAnalysisCache {
      *            the analysis map
      * @return the descriptor to analysis object map
      */
-    private static <DescriptorType> Map<DescriptorType, Object> findOrCreateDescriptorMap(
-            final Map<Class<?>, Map<DescriptorType, Object>> analysisClassToDescriptorMapMap,
+    private <DescriptorType> Map<DescriptorType, Object> findOrCreateDescriptorMap(
+            final ConcurrentMap<Class<?>, Map<DescriptorType, Object>> analysisClassToDescriptorMapMap,
             final Map<Class<?>, ? extends IAnalysisEngine<DescriptorType, ?>> engineMap,
                     final Class<?> analysisClass) {
         Map<DescriptorType, Object> descriptorMap = analysisClassToDescriptorMapMap.get(analysisClass);
         if (descriptorMap == null) {
-            descriptorMap = createMap(engineMap, analysisClass);
-            analysisClassToDescriptorMapMap.put(analysisClass, descriptorMap);
+            AnalysisResultCache<DescriptorType> resultCache = createMap(engineMap, analysisClass);
+            // The cache reorders its entries on every lookup, so even reads
+            // must be synchronized
+            descriptorMap = Collections.synchronizedMap(resultCache);
+            Map<DescriptorType, Object> existing = analysisClassToDescriptorMapMap.putIfAbsent(analysisClass, descriptorMap);
+            if (existing != null) {
+                descriptorMap = existing;
+            } else {
+                resultCacheMap.put(analysisClass, resultCache);
+            }
         }
         return descriptorMap;
     }
 
-    private static <DescriptorType> Map<DescriptorType, Object> createMap(
+    private <DescriptorType> AnalysisResultCache<DescriptorType> createMap(
             final Map<Class<?>, ? extends IAnalysisEngine<DescriptorType, ?>> engineMap,
                     final Class<?> analysisClass) {
-        Map<DescriptorType, Object> descriptorMap;
-        // Create a MapCache that allows the analysis engine to
+        // Create a cache that allows the analysis engine to
         // decide that analysis results should be retained indefinitely.
         IAnalysisEngine<DescriptorType, ?> engine = engineMap.get(analysisClass);
         if (analysisClass.equals(JavaClass.class)) {
-            descriptorMap = new MapCache<DescriptorType, Object>(MAX_JAVACLASS_RESULTS_TO_CACHE);
+            return new AnalysisResultCache<DescriptorType>(MAX_JAVACLASS_RESULTS_TO_CACHE, budget);
         } else if (analysisClass.equals(FBClassReader.class)) {
-            descriptorMap = new MapCache<DescriptorType, Object>(MAX_FBCLASSREADER_RESULTS_TO_CACHE);
+            return new AnalysisResultCache<DescriptorType>(MAX_FBCLASSREADER_RESULTS_TO_CACHE, budget);
         } else if (analysisClass.equals(ConstantPoolGen.class)) {
-            descriptorMap = new MapCache<DescriptorType, Object>(MAX_CONSTANT_POOL_GEN_RESULTS_TO_CACHE);
+            return new AnalysisResultCache<DescriptorType>(MAX_CONSTANT_POOL_GEN_RESULTS_TO_CACHE, budget);
         } else if (analysisClass.equals(ClassContext.class)) {
-            descriptorMap = new MapCache<DescriptorType, Object>(10);
+            // The ClassContexts of the classes in flight must stay cached
+            return new AnalysisResultCache<DescriptorType>(Math.max(MAX_CLASS_CONTEXTS_TO_CACHE, classesInFlight), budget,
+                    classesInFlight);
         } else if (engine instanceof IClassAnalysisEngine && ((IClassAnalysisEngine<?>) engine).canRecompute()) {
-            descriptorMap = new MapCache<DescriptorType, Object>(MAX_CLASS_RESULTS_TO_CACHE);
+            return new AnalysisResultCache<DescriptorType>(MAX_CLASS_RESULTS_TO_CACHE, budget);
         } else {
-            descriptorMap = new HashMap<DescriptorType, Object>();
+            return new AnalysisResultCache<DescriptorType>(Integer.MAX_VALUE, null);
         }
-        return descriptorMap;
     }
 
     /*
@@ -560,7 +779,10 @@ public class AnalysisCache implements IAnalysisCache {
             }
             // FIXME: should catch and re-throw RuntimeExceptions?
 
-            databaseMap.put(databaseClass, database);
+            Object existing = databaseMap.putIfAbsent(databaseClass, database);
+            if (existing != null) {
+                database = existing;
+            }
         }
 
         if (database instanceof AbnormalAnalysisResult) {
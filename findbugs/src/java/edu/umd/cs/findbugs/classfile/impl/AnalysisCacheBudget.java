@@ -0,0 +1,168 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+
+import edu.umd.cs.findbugs.SystemProperties;
+
+/**
+ * The memory budget shared by the class analysis caches of an
+ * {@link AnalysisCache}, and the heap pressure signal which makes them
+ * shrink.
+ * <p>
+ * Heap pressure is signaled when a garbage collection leaves a heap memory
+ * pool fuller than a threshold (by default 85% of its maximum size, see the
+ * findbugs.analysisCache.heapThreshold property). The caches then drop half of
+ * their entries the next time they are updated. Since the thresholds are set
+ * on the memory pools of the whole JVM, this is only done once
+ * {@link #listenForHeapPressure()} is called, by the command line and the
+ * analysis daemon (see {@link AnalysisCache#shrinkOnHeapPressure()}), not by
+ * default when FindBugs is embedded in another application.
+ */
+final class AnalysisCacheBudget {
+    private static final boolean DEBUG = SystemProperties.getBoolean("findbugs.analysisCache.debug");
+
+    /** Percentage of a heap memory pool which, in use after a GC, is heap pressure */
+    private static final int HEAP_THRESHOLD_PERCENT = SystemProperties.getInt("findbugs.analysisCache.heapThreshold", 85);
+
+    private static final AtomicInteger heapPressureCount = new AtomicInteger();
+
+    private static boolean listening;
+
+    private volatile long maxSize = Long.MAX_VALUE;
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final AtomicInteger caches = new AtomicInteger();
+
+    /**
+     * @param maxSize
+     *            maximum total estimated size of the cached results, in
+     *            bytes; 0 means no limit
+     */
+    void setMaxSize(long maxSize) {
+        this.maxSize = maxSize > 0 ? maxSize : Long.MAX_VALUE;
+    }
+
+    long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the total estimated size of the cached results, in bytes
+     */
+    long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Account for results added to (positive delta) or removed from (negative
+     * delta) a cache.
+     */
+    void add(long delta) {
+        size.addAndGet(delta);
+    }
+
+    /**
+     * Called by each cache charged to this budget when it is created.
+     */
+    void addCache() {
+        caches.incrementAndGet();
+    }
+
+    /**
+     * @param cacheSize
+     *            the total estimated size of the results of one cache
+     * @return true if the cached results are over budget, and the cache holds
+     *         more than its share of it, so should discard some results
+     */
+    boolean isExceeded(long cacheSize) {
+        return size.get() > maxSize && cacheSize > maxSize / Math.max(1, caches.get());
+    }
+
+    /**
+     * @return the number of times heap pressure was signaled so far; caches
+     *         should shrink when this changes
+     */
+    static int getHeapPressureCount() {
+        return heapPressureCount.get();
+    }
+
+    /**
+     * Set the collection usage thresholds of the heap memory pools, and
+     * signal heap pressure when they are exceeded. Only the first call does
+     * anything.
+     */
+    static synchronized void listenForHeapPressure() {
+        if (listening) {
+            return;
+        }
+        listening = true;
+        if (HEAP_THRESHOLD_PERCENT <= 0 || HEAP_THRESHOLD_PERCENT >= 100) {
+            return;
+        }
+        try {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() != MemoryType.HEAP || !pool.isCollectionUsageThresholdSupported()) {
+                    continue;
+                }
+                long max = pool.getUsage().getMax();
+                // Leave thresholds set by someone else alone
+                if (max > 0 && pool.getCollectionUsageThreshold() == 0) {
+                    pool.setCollectionUsageThreshold(max / 100 * HEAP_THRESHOLD_PERCENT);
+                }
+            }
+            NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+            emitter.addNotificationListener(new NotificationListener() {
+                @Override
+                public void handleNotification(Notification notification, Object handback) {
+                    heapPressureCount.incrementAndGet();
+                    if (DEBUG) {
+                        System.err.println("Heap pressure, shrinking analysis caches: " + notification.getMessage());
+                    }
+                }
+            }, new NotificationFilter() {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public boolean isNotificationEnabled(Notification notification) {
+                    return MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType());
+                }
+            }, null);
+        } catch (RuntimeException e) {
+            // e.g. SecurityException: cache sizes are then only limited by
+            // the budget
+            if (DEBUG) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+/**
+ * Counters of the cached results of one class analysis, see
+ * {@link AnalysisCache#getStatistics()}.
+ */
+public final class AnalysisCacheStatistics {
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    private final int entries;
+
+    private final long estimatedSize;
+
+    AnalysisCacheStatistics(long hits, long misses, long evictions, int entries, long estimatedSize) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.estimatedSize = estimatedSize;
+    }
+
+    /**
+     * @return number of requests answered from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of requests for which the result was computed
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of results discarded to keep the cache within its
+     *         bounds
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of results currently cached
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return total estimated size of the results currently cached, in bytes,
+     *         or 0 if they are not charged to the memory budget
+     */
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses, %d evictions, %d entries, %d KB", hits, misses, evictions, entries,
+                estimatedSize / 1024);
+    }
+}
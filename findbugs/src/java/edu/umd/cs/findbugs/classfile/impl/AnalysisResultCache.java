@@ -0,0 +1,233 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.objectweb.asm.ClassReader;
+
+import edu.umd.cs.findbugs.classfile.ISizedAnalysisResult;
+
+/**
+ * The results of one class analysis cached by an {@link AnalysisCache}.
+ * Entries are discarded using a LRU policy when there are more than a
+ * maximum number of them, when the results of all the caches sharing an
+ * {@link AnalysisCacheBudget} are over budget and this cache holds more than
+ * its share of it, and, by half, on heap pressure. Caches without a budget
+ * never discard entries because of their size, so they can hold results which
+ * can't be recomputed.
+ * <p>
+ * Only changes made through {@link #put(Object, Object)},
+ * {@link #putAll(Map)}, {@link #remove(Object)} and {@link #clear()} are
+ * accounted for. Results which may grow after being cached, like
+ * ClassContexts, are measured again each time they are looked up with
+ * {@link #get(Object)}. Not thread safe: the analysis cache synchronizes all
+ * accesses.
+ */
+final class AnalysisResultCache<K> extends LinkedHashMap<K, Object> {
+    private static final long serialVersionUID = 0L;
+
+    /** Estimated size of results which don't say better */
+    private static final long DEFAULT_SIZE = 256;
+
+    private final int maxEntries;
+
+    private final int minEntries;
+
+    private final transient AnalysisCacheBudget budget;
+
+    /** the size each entry is charged to the budget with */
+    private final HashMap<Object, Long> charged = new HashMap<Object, Long>();
+
+    private long estimatedSize;
+
+    private int heapPressureCount = AnalysisCacheBudget.getHeapPressureCount();
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries
+     *            maximum number of entries
+     * @param budget
+     *            budget the estimated size of the entries is charged to, or
+     *            null to never discard entries because of their size
+     */
+    AnalysisResultCache(int maxEntries, @CheckForNull AnalysisCacheBudget budget) {
+        this(maxEntries, budget, 1);
+    }
+
+    /**
+     * @param maxEntries
+     *            maximum number of entries
+     * @param budget
+     *            budget the estimated size of the entries is charged to, or
+     *            null to never discard entries because of their size
+     * @param minEntries
+     *            number of most recently used entries kept even over budget
+     *            or on heap pressure
+     */
+    AnalysisResultCache(int maxEntries, @CheckForNull AnalysisCacheBudget budget, int minEntries) {
+        super(16, 0.75f, maxEntries < Integer.MAX_VALUE || budget != null);
+        this.maxEntries = maxEntries;
+        this.minEntries = Math.max(1, minEntries);
+        this.budget = budget;
+        if (budget != null) {
+            budget.addCache();
+        }
+    }
+
+    /**
+     * @return the total estimated size of the values in the map, or 0 if the
+     *         map has no budget
+     */
+    long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = super.get(key);
+        if (value instanceof ISizedAnalysisResult && budget != null && charge(key, value) > 0) {
+            evict();
+        }
+        return value;
+    }
+
+    @Override
+    public Object put(K key, Object value) {
+        Object old = super.put(key, value);
+        if (budget != null) {
+            charge(key, value);
+        }
+        evict();
+        return old;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        Object old = super.remove(key);
+        if (old != null && budget != null) {
+            uncharge(key);
+        }
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        if (budget != null) {
+            budget.add(-estimatedSize);
+            estimatedSize = 0;
+            charged.clear();
+        }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends Object> m) {
+        for (Map.Entry<? extends K, ? extends Object> e : m.entrySet()) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Charge an entry to the budget with its current size.
+     *
+     * @return the change of its charge
+     */
+    private long charge(Object key, Object value) {
+        long size = sizeOf(value);
+        Long old = charged.put(key, size);
+        long delta = size - (old != null ? old.longValue() : 0);
+        estimatedSize += delta;
+        budget.add(delta);
+        return delta;
+    }
+
+    private void uncharge(Object key) {
+        Long size = charged.remove(key);
+        if (size != null) {
+            estimatedSize -= size.longValue();
+            budget.add(-size.longValue());
+        }
+    }
+
+    /**
+     * Discard the least recently used entries, always keeping the most
+     * recently used minEntries ones, including the one just added or looked
+     * up.
+     */
+    private void evict() {
+        int keep = maxEntries;
+        if (budget != null) {
+            int count = AnalysisCacheBudget.getHeapPressureCount();
+            if (count != heapPressureCount) {
+                heapPressureCount = count;
+                keep = Math.min(keep, size() / 2);
+            }
+        }
+        keep = Math.max(keep, minEntries);
+        Iterator<K> i = keySet().iterator();
+        while (size() > minEntries && (size() > keep || budget != null && budget.isExceeded(estimatedSize))) {
+            K key = i.next();
+            i.remove();
+            evictions.incrementAndGet();
+            if (budget != null) {
+                uncharge(key);
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of bytes retained by an analysis result
+     */
+    static long sizeOf(Object value) {
+        if (value instanceof ISizedAnalysisResult) {
+            return ((ISizedAnalysisResult) value).getEstimatedSize();
+        } else if (value instanceof JavaClass) {
+            JavaClass jclass = (JavaClass) value;
+            long size = 256 + 48L * jclass.getConstantPool().getLength() + 64L * jclass.getFields().length;
+            for (Method method : jclass.getMethods()) {
+                Code code = method.getCode();
+                size += 128 + (code != null ? 2L * code.getLength() : 0);
+            }
+            return size;
+        } else if (value instanceof ClassReader) {
+            ClassReader reader = (ClassReader) value;
+            return 128 + reader.b.length + 12L * reader.getItemCount();
+        } else if (value instanceof ConstantPoolGen) {
+            return 128 + 64L * ((ConstantPoolGen) value).getSize();
+        }
+        return DEFAULT_SIZE;
+    }
+}
@@ -22,6 +22,10 @@ package edu.umd.cs.findbugs.classfile.impl;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
 
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.classfile.IAnalysisCache;
@@ -102,6 +106,32 @@ public class ClassFactory implements IClassFactory {
         return new NestedZipFileCodeBaseLocator(parentCodeBase, path);
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * edu.umd.cs.findbugs.classfile.IClassFactory#createInMemoryCodeBaseLocator
+     * (java.lang.String, java.util.Map, java.util.Map)
+     */
+    @Override
+    public ICodeBaseLocator createInMemoryCodeBaseLocator(String name, Map<String, byte[]> resources,
+            @CheckForNull Map<String, Long> lastModifiedTimes) {
+        return new InMemoryCodeBaseLocator(name, resources, lastModifiedTimes);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.IClassFactory#
+     * createInMemoryBufferCodeBaseLocator(java.lang.String, java.util.Map,
+     * java.util.Map)
+     */
+    @Override
+    public ICodeBaseLocator createInMemoryBufferCodeBaseLocator(String name, Map<String, ByteBuffer> resources,
+            @CheckForNull Map<String, Long> lastModifiedTimes) {
+        return new InMemoryCodeBaseLocator(name, resources, lastModifiedTimes);
+    }
+
     static IScannableCodeBase createFilesystemCodeBase(FilesystemCodeBaseLocator codeBaseLocator) throws IOException {
         String fileName = codeBaseLocator.getPathName();
 
@@ -127,6 +157,10 @@ public class ClassFactory implements IClassFactory {
         return new NestedZipFileCodeBase(codeBaseLocator);
     }
 
+    static IScannableCodeBase createInMemoryCodeBase(InMemoryCodeBaseLocator codeBaseLocator) throws IOException {
+        return new InMemoryCodeBase(codeBaseLocator);
+    }
+
     /*
      * (non-Javadoc)
      * 
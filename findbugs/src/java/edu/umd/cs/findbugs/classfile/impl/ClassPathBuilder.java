@@ -25,6 +25,8 @@ import java.io.FileFilter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,6 +36,13 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
@@ -73,6 +82,13 @@ public class ClassPathBuilder implements IClassPathBuilder {
 
     private static final boolean NO_PARSE_CLASS_NAMES = SystemProperties.getBoolean("findbugs2.builder.noparseclassnames");
 
+    /**
+     * Number of threads opening and scanning codebases; 1 to do it on the
+     * calling thread
+     */
+    private static final int THREADS = SystemProperties.getInt("findbugs2.builder.threads", Runtime.getRuntime()
+            .availableProcessors());
+
     /**
      * Worklist item. Represents one codebase to be processed during the
      * classpath construction algorithm.
@@ -155,6 +171,54 @@ public class ClassPathBuilder implements IClassPathBuilder {
         }
     }
 
+    /**
+     * The result of opening and scanning the codebase of a worklist item.
+     * Codebases are opened and scanned concurrently, but their results are
+     * applied to the worklist, and their errors logged, in worklist order, so
+     * the classpath is the same as if they were scanned one at a time.
+     */
+    static class ScannedCodeBase {
+        final DiscoveredCodeBase discoveredCodeBase;
+
+        final List<WorkListItem> nestedArchiveItems = new ArrayList<WorkListItem>();
+
+        final List<WorkListItem> manifestItems = new ArrayList<WorkListItem>();
+
+        final List<String> errorMessages = new ArrayList<String>();
+
+        final List<Throwable> errors = new ArrayList<Throwable>();
+
+        IOException manifestException;
+
+        ScannedCodeBase(DiscoveredCodeBase discoveredCodeBase) {
+            this.discoveredCodeBase = discoveredCodeBase;
+        }
+
+        void logError(String message, Throwable e) {
+            errorMessages.add(message);
+            errors.add(e);
+        }
+    }
+
+    /**
+     * A worklist item whose codebase is being opened and scanned ahead of
+     * time.
+     */
+    static class PendingScan {
+        final WorkListItem item;
+
+        final Future<ScannedCodeBase> future;
+
+        PendingScan(WorkListItem item, Future<ScannedCodeBase> future) {
+            this.item = item;
+            this.future = future;
+        }
+
+        boolean isScanOf(WorkListItem other) {
+            return item.isAppCodeBase() == other.isAppCodeBase() && item.getHowDiscovered() == other.getHowDiscovered();
+        }
+    }
+
     // Fields
     private final IClassFactory classFactory;
 
@@ -166,10 +230,14 @@ public class ClassPathBuilder implements IClassPathBuilder {
 
     private final Map<String, DiscoveredCodeBase> discoveredCodeBaseMap;
 
-    private final LinkedList<ClassDescriptor> appClassList;
+    private final ArrayList<ClassDescriptor> appClassList;
 
     private boolean scanNestedArchives;
 
+    private ExecutorService executor;
+
+    private final Map<String, PendingScan> pendingScanMap;
+
     /**
      * Constructor.
      *
@@ -184,7 +252,8 @@ public class ClassPathBuilder implements IClassPathBuilder {
         this.projectWorkList = new LinkedList<WorkListItem>();
         this.discoveredCodeBaseList = new LinkedList<DiscoveredCodeBase>();
         this.discoveredCodeBaseMap = new HashMap<String, DiscoveredCodeBase>();
-        this.appClassList = new LinkedList<ClassDescriptor>();
+        this.appClassList = new ArrayList<ClassDescriptor>();
+        this.pendingScanMap = new HashMap<String, PendingScan>();
     }
 
     /*
@@ -222,13 +291,36 @@ public class ClassPathBuilder implements IClassPathBuilder {
     @Override
     public void build(IClassPath classPath, IClassPathBuilderProgress progress) throws CheckedAnalysisException, IOException,
             InterruptedException {
-        // Discover all directly and indirectly referenced codebases
-        processWorkList(classPath, projectWorkList, progress);
+        if (THREADS > 1) {
+            // Started from the calling thread, so the workers inherit its
+            // analysis cache and DescriptorFactory
+            executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+                final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "FindBugs classpath builder " + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        try {
+            // Discover all directly and indirectly referenced codebases
+            processWorkList(classPath, projectWorkList, progress);
 
-        // If not already located, try to locate any additional codebases
-        // containing classes required for analysis.
-        if (!discoveredCodeBaseList.isEmpty()) {
-            locateCodebasesRequiredForAnalysis(classPath, progress);
+            // If not already located, try to locate any additional codebases
+            // containing classes required for analysis.
+            if (!discoveredCodeBaseList.isEmpty()) {
+                locateCodebasesRequiredForAnalysis(classPath, progress);
+            }
+        } finally {
+            // Only left over if the build failed
+            discardPendingScans();
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
         }
 
         // Add all discovered codebases to the classpath
@@ -268,6 +360,10 @@ public class ClassPathBuilder implements IClassPathBuilder {
             }
         }
 
+        // Sorted, so that the order in which classes are analyzed doesn't
+        // depend on how they are spread over codebases
+        Collections.sort(appClassList);
+
         if (DEBUG) {
             System.out.println("Classpath:");
             dumpCodeBaseList(classPath.appCodeBaseIterator(), "Application codebases");
@@ -562,20 +658,26 @@ public class ClassPathBuilder implements IClassPathBuilder {
             throws InterruptedException, IOException, ResourceNotFoundException {
         // Build the classpath, scanning codebases for nested archives
         // and referenced codebases.
+        startScans(workList);
         while (!workList.isEmpty()) {
             WorkListItem item = workList.removeFirst();
-            if (item.getHowDiscovered() == ICodeBase.Discovered.SPECIFIED) {
+            if (item.getHowDiscovered() == ICodeBase.Discovered.SPECIFIED
+                    || item.getHowDiscovered() == ICodeBase.Discovered.NESTED) {
                 progress.startArchive(item.toString());
             }
             if (DEBUG) {
                 System.out.println("Working: " + item.getCodeBaseLocator());
             }
 
+            PendingScan pendingScan = pendingScanMap.remove(item.getCodeBaseLocator().toString());
+
             DiscoveredCodeBase discoveredCodeBase;
 
             // See if we have encountered this codebase before
             discoveredCodeBase = discoveredCodeBaseMap.get(item.getCodeBaseLocator().toString());
             if (discoveredCodeBase != null) {
+                discardScan(pendingScan);
+
                 // If the codebase is not an app codebase and
                 // the worklist item says that it is an app codebase,
                 // change it. Otherwise, we have nothing to do.
@@ -586,15 +688,8 @@ public class ClassPathBuilder implements IClassPathBuilder {
                 continue;
             }
 
-            // Detect .java files, which are probably human error
-            if (item.getCodeBaseLocator() instanceof FilesystemCodeBaseLocator) {
-                FilesystemCodeBaseLocator l = (FilesystemCodeBaseLocator) item.getCodeBaseLocator();
-                if (l.getPathName().endsWith(".java")) {
-                    if (DEBUG){
-                        System.err.println("Ignoring .java file \"" + l.getPathName() + "\" specified in classpath or auxclasspath");
-                    }
-                    continue;
-                }
+            if (isIgnored(item)) {
+                continue;
             }
 
             // If we are working on an application codebase,
@@ -603,28 +698,34 @@ public class ClassPathBuilder implements IClassPathBuilder {
             // but continue anyway.
 
             try {
-                // Open the codebase and add it to the classpath
-                discoveredCodeBase = new DiscoveredCodeBase(item.getCodeBaseLocator().openCodeBase());
-                discoveredCodeBase.getCodeBase().setApplicationCodeBase(item.isAppCodeBase());
-                discoveredCodeBase.getCodeBase().setHowDiscovered(item.getHowDiscovered());
+                // Open and scan the codebase, unless it was done ahead of
+                // time for a worklist item with the same locator and role
+                ScannedCodeBase scannedCodeBase;
+                if (pendingScan != null && pendingScan.isScanOf(item)) {
+                    scannedCodeBase = getScan(pendingScan);
+                } else {
+                    discardScan(pendingScan);
+                    scannedCodeBase = scan(item);
+                }
+                discoveredCodeBase = scannedCodeBase.discoveredCodeBase;
 
                 // Note that this codebase has been visited
                 discoveredCodeBaseMap.put(item.getCodeBaseLocator().toString(), discoveredCodeBase);
                 discoveredCodeBaseList.addLast(discoveredCodeBase);
 
-                // If it is a scannable codebase, check it for nested archives.
-                // In addition, if it is an application codebase then
-                // make a list of application classes.
-                if (discoveredCodeBase.getCodeBase() instanceof IScannableCodeBase
-                        && ( discoveredCodeBase.codeBase.isApplicationCodeBase()
-                                || item.getHowDiscovered() == ICodeBase.Discovered.SPECIFIED)
-                        ) {
-                    scanCodebase(classPath, workList, discoveredCodeBase);
+                for (int i = 0; i < scannedCodeBase.errors.size(); i++) {
+                    errorLogger.logError(scannedCodeBase.errorMessages.get(i), scannedCodeBase.errors.get(i));
+                }
+                for (WorkListItem nestedArchiveItem : scannedCodeBase.nestedArchiveItems) {
+                    addToWorkList(workList, nestedArchiveItem);
+                }
+                for (WorkListItem manifestItem : scannedCodeBase.manifestItems) {
+                    addToWorkList(workList, manifestItem);
+                }
+                startScans(workList);
+                if (scannedCodeBase.manifestException != null) {
+                    throw scannedCodeBase.manifestException;
                 }
-
-                // Check for a Jar manifest for additional aux classpath
-                // entries.
-                scanJarManifestForClassPathEntries(workList, discoveredCodeBase.getCodeBase());
             } catch (IOException e) {
                 if (item.isAppCodeBase() || item.getHowDiscovered() == ICodeBase.Discovered.SPECIFIED) {
                     if (e instanceof FileNotFoundException)
@@ -643,6 +744,164 @@ public class ClassPathBuilder implements IClassPathBuilder {
         }
     }
 
+    /**
+     * Detect .java files, which are probably human error
+     */
+    private boolean isIgnored(WorkListItem item) {
+        if (item.getCodeBaseLocator() instanceof FilesystemCodeBaseLocator) {
+            FilesystemCodeBaseLocator l = (FilesystemCodeBaseLocator) item.getCodeBaseLocator();
+            if (l.getPathName().endsWith(".java")) {
+                if (DEBUG){
+                    System.err.println("Ignoring .java file \"" + l.getPathName() + "\" specified in classpath or auxclasspath");
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Start opening and scanning, on the worker threads, the codebases of the
+     * worklist items not discovered or being scanned yet.
+     *
+     * @param workList
+     *            the worklist
+     */
+    private void startScans(LinkedList<WorkListItem> workList) {
+        if (executor == null) {
+            return;
+        }
+        for (final WorkListItem item : workList) {
+            String key = item.getCodeBaseLocator().toString();
+            if (discoveredCodeBaseMap.containsKey(key) || pendingScanMap.containsKey(key) || isIgnored(item)) {
+                continue;
+            }
+            Future<ScannedCodeBase> future = executor.submit(new Callable<ScannedCodeBase>() {
+                @Override
+                public ScannedCodeBase call() throws Exception {
+                    return scan(item);
+                }
+            });
+            pendingScanMap.put(key, new PendingScan(item, future));
+        }
+    }
+
+    /**
+     * Wait for a codebase scanned on a worker thread.
+     */
+    private ScannedCodeBase getScan(PendingScan pendingScan) throws InterruptedException, IOException,
+            ResourceNotFoundException {
+        try {
+            return pendingScan.future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ResourceNotFoundException) {
+                throw (ResourceNotFoundException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Error scanning " + pendingScan.item.getCodeBaseLocator(), cause);
+        }
+    }
+
+    /**
+     * Cancel a scan which turned out not to be needed, or close its codebase
+     * if it has already been started.
+     *
+     * @param pendingScan
+     *            the scan, or null
+     */
+    private void discardScan(PendingScan pendingScan) throws InterruptedException {
+        if (pendingScan == null || pendingScan.future.cancel(false)) {
+            return;
+        }
+        try {
+            pendingScan.future.get().discoveredCodeBase.getCodeBase().close();
+        } catch (ExecutionException e) {
+            // The scan closed the codebase itself, and its error doesn't
+            // matter since the codebase isn't used
+            assert true;
+        }
+    }
+
+    /**
+     * Discard the scans started but not used by a build which failed.
+     */
+    private void discardPendingScans() {
+        // Cancel all the scans not started yet before waiting for any
+        for (PendingScan pendingScan : pendingScanMap.values()) {
+            pendingScan.future.cancel(false);
+        }
+        try {
+            for (PendingScan pendingScan : pendingScanMap.values()) {
+                if (!pendingScan.future.isCancelled()) {
+                    discardScan(pendingScan);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pendingScanMap.clear();
+        }
+    }
+
+    /**
+     * Open the codebase of a worklist item and, if it is a scannable codebase
+     * which is part of the application or specified explicitly, scan it. Also
+     * check for a Jar manifest with additional aux classpath entries. Called
+     * on the worker threads, so only the result is updated.
+     *
+     * @param item
+     *            the worklist item
+     * @return the opened codebase, with the worklist items and errors found
+     *         scanning it
+     */
+    private ScannedCodeBase scan(WorkListItem item) throws InterruptedException, IOException, ResourceNotFoundException {
+        DiscoveredCodeBase discoveredCodeBase = new DiscoveredCodeBase(item.getCodeBaseLocator().openCodeBase());
+        boolean scanned = false;
+        try {
+            ScannedCodeBase scannedCodeBase = scan(item, discoveredCodeBase);
+            scanned = true;
+            return scannedCodeBase;
+        } finally {
+            if (!scanned) {
+                discoveredCodeBase.getCodeBase().close();
+            }
+        }
+    }
+
+    private ScannedCodeBase scan(WorkListItem item, DiscoveredCodeBase discoveredCodeBase) throws InterruptedException {
+        discoveredCodeBase.getCodeBase().setApplicationCodeBase(item.isAppCodeBase());
+        discoveredCodeBase.getCodeBase().setHowDiscovered(item.getHowDiscovered());
+
+        ScannedCodeBase scannedCodeBase = new ScannedCodeBase(discoveredCodeBase);
+
+        // If it is a scannable codebase, check it for nested archives.
+        // In addition, if it is an application codebase then
+        // make a list of application classes.
+        if (discoveredCodeBase.getCodeBase() instanceof IScannableCodeBase
+                && ( discoveredCodeBase.codeBase.isApplicationCodeBase()
+                        || item.getHowDiscovered() == ICodeBase.Discovered.SPECIFIED)
+                ) {
+            scanCodebase(scannedCodeBase);
+        }
+
+        // Check for a Jar manifest for additional aux classpath
+        // entries.
+        try {
+            scanJarManifestForClassPathEntries(scannedCodeBase.manifestItems, discoveredCodeBase.getCodeBase());
+        } catch (IOException e) {
+            scannedCodeBase.manifestException = e;
+        }
+        return scannedCodeBase;
+    }
+
     /**
      * Scan given codebase in order to
      * <ul>
@@ -651,14 +910,13 @@ public class ClassPathBuilder implements IClassPathBuilder {
      * <li>build a list of class resources found in the codebase
      * </ul>
      *
-     * @param workList
-     *            the worklist
-     * @param discoveredCodeBase
-     *            the codebase to scan
+     * @param scannedCodeBase
+     *            the codebase to scan, and where to put the nested archives
+     *            found
      * @throws InterruptedException
      */
-    private void scanCodebase(IClassPath classPath, LinkedList<WorkListItem> workList, DiscoveredCodeBase discoveredCodeBase)
-            throws InterruptedException {
+    private void scanCodebase(ScannedCodeBase scannedCodeBase) throws InterruptedException {
+        DiscoveredCodeBase discoveredCodeBase = scannedCodeBase.discoveredCodeBase;
         if (DEBUG) {
             System.out.println("Scanning " + discoveredCodeBase.getCodeBase().getCodeBaseLocator());
         }
@@ -674,7 +932,7 @@ public class ClassPathBuilder implements IClassPathBuilder {
 
             if (!NO_PARSE_CLASS_NAMES && codeBase.isApplicationCodeBase()
                     && DescriptorFactory.isClassResource(entry.getResourceName()) && !(entry instanceof SingleFileCodeBaseEntry)) {
-                parseClassName(entry);
+                parseClassName(scannedCodeBase, entry);
             }
 
             // Note the resource exists in this codebase
@@ -688,8 +946,8 @@ public class ClassPathBuilder implements IClassPathBuilder {
                 }
                 ICodeBaseLocator nestedArchiveLocator = classFactory.createNestedArchiveCodeBaseLocator(codeBase,
                         entry.getResourceName());
-                addToWorkList(workList,
-                        new WorkListItem(nestedArchiveLocator, codeBase.isApplicationCodeBase(), ICodeBase.Discovered.NESTED));
+                scannedCodeBase.nestedArchiveItems.add(new WorkListItem(nestedArchiveLocator, codeBase.isApplicationCodeBase(),
+                        ICodeBase.Discovered.NESTED));
             }
         }
     }
@@ -698,10 +956,12 @@ public class ClassPathBuilder implements IClassPathBuilder {
      * Attempt to parse data of given resource in order to divine the real name
      * of the class contained in the resource.
      *
+     * @param scannedCodeBase
+     *            the codebase being scanned, where to put errors
      * @param entry
      *            the resource
      */
-    private void parseClassName(ICodeBaseEntry entry) {
+    private void parseClassName(ScannedCodeBase scannedCodeBase, ICodeBaseEntry entry) {
         DataInputStream in = null;
         try {
             InputStream resourceIn = entry.openResource();
@@ -718,9 +978,9 @@ public class ClassPathBuilder implements IClassPathBuilder {
                 entry.overrideResourceName(trueResourceName);
             }
         } catch (IOException e) {
-            errorLogger.logError("Invalid class resource " + entry.getResourceName() + " in " + entry, e);
+            scannedCodeBase.logError("Invalid class resource " + entry.getResourceName() + " in " + entry, e);
         } catch (InvalidClassFileFormatException e) {
-            errorLogger.logError("Invalid class resource " + entry.getResourceName() + " in " + entry, e);
+            scannedCodeBase.logError("Invalid class resource " + entry.getResourceName() + " in " + entry, e);
         } finally {
             IO.close(in);
         }
@@ -729,13 +989,13 @@ public class ClassPathBuilder implements IClassPathBuilder {
     /**
      * Check a codebase for a Jar manifest to examine for Class-Path entries.
      *
-     * @param workList
-     *            the worklist
+     * @param manifestItems
+     *            where to put the worklist items for the Class-Path entries
      * @param codeBase
      *            the codebase for examine for a Jar manifest
      * @throws IOException
      */
-    private void scanJarManifestForClassPathEntries(LinkedList<WorkListItem> workList, ICodeBase codeBase) throws IOException {
+    private void scanJarManifestForClassPathEntries(List<WorkListItem> manifestItems, ICodeBase codeBase) throws IOException {
         // See if this codebase has a jar manifest
         ICodeBaseEntry manifestEntry = codeBase.lookupResource("META-INF/MANIFEST.MF");
         if (manifestEntry == null) {
@@ -762,7 +1022,7 @@ public class ClassPathBuilder implements IClassPathBuilder {
 
                     // Codebases found in Class-Path entries are always
                     // added to the aux classpath, not the application.
-                    addToWorkList(workList, new WorkListItem(relativeCodeBaseLocator, false, ICodeBase.Discovered.IN_JAR_MANIFEST));
+                    manifestItems.add(new WorkListItem(relativeCodeBaseLocator, false, ICodeBase.Discovered.IN_JAR_MANIFEST));
                 }
             }
         } finally {
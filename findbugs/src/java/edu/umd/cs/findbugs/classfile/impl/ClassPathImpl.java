@@ -19,11 +19,14 @@
 
 package edu.umd.cs.findbugs.classfile.impl;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map.Entry;
 
 import edu.umd.cs.findbugs.classfile.IClassPath;
@@ -44,10 +47,13 @@ public class ClassPathImpl implements IClassPath {
 
     private Map<String, ICodeBaseEntry> codeBaseEntryMap;
 
+    /** Built when first needed, after all codebases are added */
+    private volatile PackageIndex packageIndex;
+
     public ClassPathImpl() {
         this.appCodeBaseList = new LinkedList<IScannableCodeBase>();
         this.auxCodeBaseList = new LinkedList<ICodeBase>();
-        this.codeBaseEntryMap = new HashMap<String, ICodeBaseEntry>();
+        this.codeBaseEntryMap = new ConcurrentHashMap<String, ICodeBaseEntry>();
     }
 
     @Override
@@ -82,6 +88,7 @@ public class ClassPathImpl implements IClassPath {
         } else {
             auxCodeBaseList.add(codeBase);
         }
+        packageIndex = null;
     }
 
     /*
@@ -120,6 +127,7 @@ public class ClassPathImpl implements IClassPath {
         appCodeBaseList.clear();
         auxCodeBaseList.clear();
         codeBaseEntryMap.clear();
+        packageIndex = null;
     }
 
     @Override
@@ -149,14 +157,8 @@ public class ClassPathImpl implements IClassPath {
 
         if (result == null) {
             // No previously resolved entry - look up the resources in the
-            // codebases
-
-            // First try application codebases
-            result = search(appCodeBaseList, resourceName);
-            if (result == null) {
-                // Next try aux codebases
-                result = search(auxCodeBaseList, resourceName);
-            }
+            // codebases which may contain it, application codebases first
+            result = getPackageIndex().lookupResource(resourceName);
 
             // If not found in any codebase, then throw
             // ResourceNotFoundException
@@ -171,25 +173,34 @@ public class ClassPathImpl implements IClassPath {
         return result;
     }
 
+    private PackageIndex getPackageIndex() {
+        PackageIndex index = packageIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = packageIndex;
+                if (index == null) {
+                    List<ICodeBase> codeBaseList = new ArrayList<ICodeBase>(appCodeBaseList.size() + auxCodeBaseList.size());
+                    codeBaseList.addAll(appCodeBaseList);
+                    codeBaseList.addAll(auxCodeBaseList);
+                    index = new PackageIndex(codeBaseList);
+                    packageIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
     /**
-     * Search list of codebases for named resource.
+     * Print the size of the index of the packages of the codebases, used to
+     * look up resources not looked up before.
      *
-     * @param codeBaseList
-     *            list of codebases to search
-     * @param resourceName
-     *            name of resourse
-     * @return codebase entry for the named resource, or null if the named
-     *         resource cannot be found
+     * @param out
+     *            where to print it
      */
-    private ICodeBaseEntry search(List<? extends ICodeBase> codeBaseList, String resourceName) {
-        for (ICodeBase codeBase : codeBaseList) {
-            ICodeBaseEntry resource = codeBase.lookupResource(resourceName);
-            if (resource != null) {
-                return resource;
-            }
-            // Ignore, continue trying other codebases
-        }
-        return null;
+    public void reportIndexStatistics(PrintStream out) {
+        PackageIndex index = getPackageIndex();
+        out.println("Classpath index: " + index.getNumPackages() + " packages in " + index.getNumCodeBases() + " codebases ("
+                + index.getNumUnindexedCodeBases() + " not indexed), " + index.getEstimatedSize() / 1024 + " KB");
     }
 
     /*
@@ -0,0 +1,129 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.util.List;
+
+import org.apache.bcel.classfile.JavaClass;
+
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+
+/**
+ * Reads and parses the classes of an analysis pass ahead of the detectors.
+ * <p>
+ * A helper thread loads the JavaClass (and with it the ClassData) of the next
+ * classes into the analysis cache, so that the analysis thread doesn't wait
+ * for the codebase while detectors could be running. The helper stays at most
+ * a fixed number of classes ahead of the analysis, which is kept well below
+ * the number of JavaClass results the cache retains, so that prefetched
+ * classes aren't evicted before they are used.
+ * <p>
+ * Failures are recorded in the analysis cache like any other analysis result,
+ * and reported when the analysis thread requests the class.
+ */
+public class ClassPrefetcher {
+    private final List<ClassDescriptor> classList;
+
+    private final int distance;
+
+    private final Thread thread;
+
+    private int current;
+
+    /**
+     * Start prefetching. Must be called on the analysis thread, since the
+     * helper thread inherits its analysis cache.
+     *
+     * @param classList
+     *            the classes, in the order they will be analyzed
+     * @param distance
+     *            the maximum number of classes to read ahead
+     */
+    public ClassPrefetcher(List<ClassDescriptor> classList, int distance) {
+        this.classList = classList;
+        this.distance = Math.max(1, Math.min(distance, AnalysisCache.MAX_JAVACLASS_RESULTS_TO_CACHE / 2));
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prefetch();
+            }
+        }, "FindBugs class prefetcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Tell the prefetcher which class is being analyzed.
+     *
+     * @param index
+     *            index of the class in the class list
+     */
+    public synchronized void advance(int index) {
+        current = index;
+        notifyAll();
+    }
+
+    /**
+     * Stop prefetching, and wait for the helper thread to finish the class it is
+     * working on, so that it no longer uses the analysis cache when the pass
+     * is over.
+     */
+    public void shutdown() {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void prefetch() {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        try {
+            for (int next = 0; next < classList.size(); next++) {
+                synchronized (this) {
+                    while (next > current + distance) {
+                        wait();
+                    }
+                    // Don't bother with classes that have already been analyzed
+                    next = Math.max(next, current + 1);
+                }
+                if (next >= classList.size()) {
+                    break;
+                }
+                try {
+                    analysisCache.getClassAnalysis(JavaClass.class, classList.get(next));
+                } catch (CheckedAnalysisException e) {
+                    // Recorded in the cache, reported when the class is used
+                    assert true;
+                } catch (RuntimeException e) {
+                    // Recorded in the cache, reported when the class is used
+                    assert true;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shut down
+            return;
+        }
+    }
+}
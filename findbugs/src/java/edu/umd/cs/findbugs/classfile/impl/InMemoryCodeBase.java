@@ -0,0 +1,162 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ICodeBaseIterator;
+
+/**
+ * A scannable codebase whose resources are held in memory, so they are
+ * neither read from nor looked up in the filesystem.
+ * <p>
+ * The resources of the {@link InMemoryCodeBaseLocator} are taken when the
+ * codebase is opened: resources the caller adds or replaces later are not
+ * seen by this codebase. The data itself is not copied, so it must not be
+ * changed while the codebase is in use.
+ */
+public class InMemoryCodeBase extends AbstractScannableCodeBase {
+    /** sorted, so the codebase is always scanned in the same order */
+    private final TreeMap<String, ByteBuffer> resourceMap;
+
+    private final Map<String, Long> lastModifiedTimeMap;
+
+    /**
+     * Constructor.
+     *
+     * @param codeBaseLocator
+     *            the codebase locator for this codebase
+     */
+    public InMemoryCodeBase(InMemoryCodeBaseLocator codeBaseLocator) throws IOException {
+        super(codeBaseLocator);
+        this.resourceMap = new TreeMap<String, ByteBuffer>();
+        this.lastModifiedTimeMap = new TreeMap<String, Long>();
+        Map<String, Long> lastModifiedTimes = codeBaseLocator.getLastModifiedTimes();
+        for (Map.Entry<String, ?> e : codeBaseLocator.getResources().entrySet()) {
+            String resourceName = e.getKey();
+            Object data = e.getValue();
+            ByteBuffer buffer;
+            if (data instanceof byte[]) {
+                buffer = ByteBuffer.wrap((byte[]) data);
+            } else if (data instanceof ByteBuffer) {
+                buffer = ((ByteBuffer) data).slice();
+            } else {
+                throw new IOException("Resource " + resourceName + " of " + codeBaseLocator + " is neither a byte[] nor a ByteBuffer");
+            }
+            resourceMap.put(resourceName, buffer);
+            Long time = lastModifiedTimes != null ? lastModifiedTimes.get(resourceName) : null;
+            if (time != null) {
+                lastModifiedTimeMap.put(resourceName, time);
+                addLastModifiedTime(time);
+            }
+        }
+    }
+
+    /**
+     * @return the names of the resources, sorted
+     */
+    List<String> getResourceNames() {
+        return new ArrayList<String>(resourceMap.keySet());
+    }
+
+    private InMemoryCodeBaseEntry createEntry(String resourceName, ByteBuffer data) {
+        Long time = lastModifiedTimeMap.get(resourceName);
+        return new InMemoryCodeBaseEntry(this, resourceName, data, time != null ? time : -1L);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * edu.umd.cs.findbugs.classfile.ICodeBase#lookupResource(java.lang.String)
+     */
+    @Override
+    public ICodeBaseEntry lookupResource(String resourceName) {
+        // Translate resource name, in case a resource name
+        // has been overridden and the resource is being accessed
+        // using the overridden name.
+        resourceName = translateResourceName(resourceName);
+
+        ByteBuffer data = resourceMap.get(resourceName);
+        if (data == null) {
+            return null;
+        }
+        return createEntry(resourceName, data);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.IScannableCodeBase#iterator()
+     */
+    @Override
+    public ICodeBaseIterator iterator() {
+        final Iterator<Map.Entry<String, ByteBuffer>> i = resourceMap.entrySet().iterator();
+        return new ICodeBaseIterator() {
+            @Override
+            public boolean hasNext() {
+                return i.hasNext();
+            }
+
+            @Override
+            public ICodeBaseEntry next() {
+                Map.Entry<String, ByteBuffer> e = i.next();
+                return createEntry(e.getKey(), e.getValue());
+            }
+        };
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.ICodeBase#getPathName()
+     */
+    @Override
+    public String getPathName() {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.ICodeBase#close()
+     */
+    @Override
+    public void close() {
+        // Nothing to do: the data belongs to the caller
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return getCodeBaseLocator().toString();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+
+/**
+ * Implementation of ICodeBaseEntry for resources in in-memory codebases.
+ */
+public class InMemoryCodeBaseEntry extends AbstractScannableCodeBaseEntry {
+    private final InMemoryCodeBase codeBase;
+
+    private final String resourceName;
+
+    private final ByteBuffer data;
+
+    private final long lastModifiedTime;
+
+    InMemoryCodeBaseEntry(InMemoryCodeBase codeBase, String resourceName, ByteBuffer data, long lastModifiedTime) {
+        this.codeBase = codeBase;
+        this.resourceName = resourceName;
+        this.data = data;
+        this.lastModifiedTime = lastModifiedTime;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.ICodeBaseEntry#getNumBytes()
+     */
+    @Override
+    public int getNumBytes() {
+        return data.remaining();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.ICodeBaseEntry#openResource()
+     */
+    @Override
+    public InputStream openResource() {
+        return new MappedZipFile.ByteBufferInputStream(getData());
+    }
+
+    /**
+     * @return the data of the resource, positioned at its start
+     */
+    ByteBuffer getData() {
+        return data.duplicate();
+    }
+
+    /**
+     * Get the data of the resource without going through a stream. The array
+     * supplied by the caller is returned as is, if it holds just this
+     * resource.
+     *
+     * @return the data of the resource
+     */
+    public byte[] getBytes() {
+        if (data.hasArray() && data.arrayOffset() == 0 && data.position() == 0 && data.remaining() == data.array().length) {
+            return data.array();
+        }
+        byte[] bytes = new byte[data.remaining()];
+        getData().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @return the modification time of the resource supplied by the caller,
+     *         or -1 if not known
+     */
+    public long getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * edu.umd.cs.findbugs.classfile.impl.AbstractScannableCodeBaseEntry#getCodeBase
+     * ()
+     */
+    @Override
+    public AbstractScannableCodeBase getCodeBase() {
+        return codeBase;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.impl.AbstractScannableCodeBaseEntry#
+     * getRealResourceName()
+     */
+    @Override
+    public String getRealResourceName() {
+        return resourceName;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.ICodeBaseEntry#getClassDescriptor()
+     */
+    @Override
+    public ClassDescriptor getClassDescriptor() {
+        return DescriptorFactory.createClassDescriptorFromResourceName(getResourceName());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj.getClass() != this.getClass()) {
+            return false;
+        }
+        InMemoryCodeBaseEntry other = (InMemoryCodeBaseEntry) obj;
+        return this.codeBase.equals(other.codeBase) && this.resourceName.equals(other.resourceName);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 7919 * codeBase.hashCode() + resourceName.hashCode();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return getCodeBase() + ":" + getResourceName();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseLocator;
+
+/**
+ * Codebase locator for a codebase whose resources are held in memory by the
+ * caller, for instance classes just produced by a compiler. Created with
+ * {@link ClassFactory#createInMemoryCodeBaseLocator(String, Map, Map)} or
+ * {@link ClassFactory#createInMemoryBufferCodeBaseLocator(String, Map, Map)}.
+ * <p>
+ * The maps are read each time the codebase is opened, so the caller may
+ * update them between analyses, but not while one is running. The name
+ * identifies the codebase, e.g. in the on-disk analysis cache, so it should
+ * be the same from one analysis to the next, and differ from the names of
+ * other in-memory codebases.
+ */
+public class InMemoryCodeBaseLocator implements ICodeBaseLocator {
+    private final String name;
+
+    private final Map<String, ?> resources;
+
+    private final Map<String, Long> lastModifiedTimes;
+
+    /**
+     * @param name
+     *            name of the codebase
+     * @param resources
+     *            map of resource names (e.g. "com/example/Foo.class") to
+     *            their data, as byte[] or ByteBuffer; null for a codebase
+     *            which can't be opened
+     * @param lastModifiedTimes
+     *            map of resource names to the time they were last modified,
+     *            in milliseconds since the epoch, or null if not known
+     */
+    InMemoryCodeBaseLocator(String name, @CheckForNull Map<String, ?> resources, @CheckForNull Map<String, Long> lastModifiedTimes) {
+        this.name = name;
+        this.resources = resources;
+        this.lastModifiedTimes = lastModifiedTimes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Map<String, ?> getResources() {
+        return resources;
+    }
+
+    @CheckForNull
+    Map<String, Long> getLastModifiedTimes() {
+        return lastModifiedTimes;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * edu.umd.cs.findbugs.classfile.ICodeBaseLocator#createRelativeCodeBaseLocator
+     * (java.lang.String)
+     */
+    @Override
+    public ICodeBaseLocator createRelativeCodeBaseLocator(String relativePath) {
+        // An in-memory codebase has no location for a Class-Path entry to be
+        // relative to
+        return new InMemoryCodeBaseLocator(name + "/" + relativePath, null, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see edu.umd.cs.findbugs.classfile.ICodeBaseLocator#openCodeBase()
+     */
+    @Override
+    public ICodeBase openCodeBase() throws IOException {
+        if (resources == null) {
+            throw new FileNotFoundException("No in-memory codebase " + name);
+        }
+        return ClassFactory.createInMemoryCodeBase(this);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "memory:" + name;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj.getClass() != this.getClass()) {
+            return false;
+        }
+        InMemoryCodeBaseLocator other = (InMemoryCodeBaseLocator) obj;
+        return this.name.equals(other.name) && this.resources == other.resources;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
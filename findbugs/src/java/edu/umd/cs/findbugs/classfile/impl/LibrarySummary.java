@@ -0,0 +1,289 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.CheckForNull;
+
+import edu.umd.cs.findbugs.Version;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.interproc.PropertyDatabase;
+import edu.umd.cs.findbugs.ba.interproc.PropertyDatabaseFormatException;
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.io.IO;
+import edu.umd.cs.findbugs.util.Util;
+
+/**
+ * A precomputed summary of a library jar, for analyses which have the jar on
+ * the aux classpath.
+ * <p>
+ * A summary is a zip file holding
+ * <ul>
+ * <li>the XClass and ClassNameAndSuperclassInfo results of all classes in the
+ * jar, in the format of the {@link PersistentClassAnalysisCache}. These give
+ * the class hierarchy used by Subtypes2 and the annotations of the classes and
+ * their members, such as <code>@CheckReturnValue</code>;</li>
+ * <li>the methods of the jar which unconditionally dereference parameters, and
+ * those which never return null, in the format of the interprocedural
+ * databases.</li>
+ * </ul>
+ * It is built by the <code>summarize</code> command
+ * ({@link edu.umd.cs.findbugs.workflow.SummarizeLibrary}). A summary is used
+ * for an aux codebase, or a jar nested in one, if the name, CRC and size of
+ * each class in the codebase match those of the summarized jar. The classes
+ * of such a codebase are left out of the first pass of the analysis.
+ */
+public class LibrarySummary {
+    private static final String PROPERTIES_ENTRY = "summary.properties";
+
+    private static final String CLASSES_ENTRY = "classes.fbcache";
+
+    private static final String LIBRARY_PROPERTY = "library";
+
+    private static final String VERSION_PROPERTY = "version";
+
+    private static final String FINGERPRINT_PROPERTY = "fingerprint";
+
+    private final File file;
+
+    private final String library;
+
+    private final String fingerprint;
+
+    private LibrarySummary(File file, String library, String fingerprint) {
+        this.file = file;
+        this.library = library;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Open a library summary.
+     *
+     * @param file
+     *            the summary file
+     * @return the summary
+     * @throws IOException
+     *             if the file can't be read, or was written by another
+     *             version of FindBugs
+     */
+    public static LibrarySummary open(File file) throws IOException {
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            ZipEntry entry = zipFile.getEntry(PROPERTIES_ENTRY);
+            if (entry == null) {
+                throw new IOException(file + " is not a library summary");
+            }
+            Properties properties = new Properties();
+            InputStream in = zipFile.getInputStream(entry);
+            try {
+                properties.load(in);
+            } finally {
+                IO.close(in);
+            }
+            String version = properties.getProperty(VERSION_PROPERTY);
+            if (!Version.COMPUTED_RELEASE.equals(version)) {
+                throw new IOException("Library summary " + file + " was written by FindBugs " + version);
+            }
+            String fingerprint = properties.getProperty(FINGERPRINT_PROPERTY);
+            if (fingerprint == null) {
+                throw new IOException(file + " is not a library summary");
+            }
+            return new LibrarySummary(file, properties.getProperty(LIBRARY_PROPERTY, file.getName()), fingerprint);
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    /**
+     * @return the file name of the summarized jar
+     */
+    public String getLibrary() {
+        return library;
+    }
+
+    /**
+     * @return the fingerprint of the summarized jar
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Compute the fingerprint of a codebase, to find its summary.
+     *
+     * @param codeBase
+     *            a codebase
+     * @return the fingerprint, or null if the codebase can't be summarized
+     */
+    public static @CheckForNull
+    String fingerprint(ICodeBase codeBase) {
+        while (codeBase instanceof NestedZipFileCodeBase) {
+            codeBase = ((NestedZipFileCodeBase) codeBase).getDelegateCodeBase();
+        }
+        if (!(codeBase instanceof ZipFileCodeBase)) {
+            return null;
+        }
+        return fingerprint(((ZipFileCodeBase) codeBase).zipFile);
+    }
+
+    private static String fingerprint(MappedZipFile zipFile) {
+        List<String> classEntries = new ArrayList<String>();
+        for (MappedZipFile.Entry entry : zipFile.entries()) {
+            if (entry.getName().endsWith(".class")) {
+                classEntries.add(entry.getName() + " " + entry.getCrc() + " " + entry.getSize() + "\n");
+            }
+        }
+        Collections.sort(classEntries);
+        MessageDigest digest = Util.getMD5Digest();
+        for (String s : classEntries) {
+            digest.update(s.getBytes(UTF8.charset));
+        }
+        return new BigInteger(1, digest.digest()).toString(16);
+    }
+
+    /**
+     * Use the summary for a codebase: the class analysis results are added to
+     * the analysis cache, and the nullness facts to the interprocedural
+     * databases of the analysis context.
+     *
+     * @param codeBase
+     *            the codebase, which must have the fingerprint of the
+     *            summary
+     * @param analysisCache
+     *            the analysis cache
+     * @param analysisContext
+     *            the analysis context
+     * @throws IOException
+     *             if the summary can't be read
+     */
+    public void apply(ICodeBase codeBase, AnalysisCache analysisCache, AnalysisContext analysisContext) throws IOException {
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            ZipEntry classes = zipFile.getEntry(CLASSES_ENTRY);
+            if (classes != null) {
+                analysisCache.addPersistentClassAnalyses(codeBase, zipFile.getInputStream(classes));
+            }
+            readDatabase(zipFile, analysisContext.getUnconditionalDerefParamDatabase(),
+                    AnalysisContext.UNCONDITIONAL_DEREF_DB_FILENAME);
+            readDatabase(zipFile, analysisContext.getReturnValueNullnessPropertyDatabase(),
+                    AnalysisContext.NONNULL_RETURN_DB_FILENAME);
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private void readDatabase(ZipFile zipFile, PropertyDatabase<?, ?> database, String entryName) throws IOException {
+        ZipEntry entry = zipFile.getEntry(entryName);
+        if (entry == null) {
+            return;
+        }
+        try {
+            database.read(zipFile.getInputStream(entry));
+        } catch (PropertyDatabaseFormatException e) {
+            IOException ioe = new IOException("Invalid " + entryName + " in library summary " + file);
+            ioe.initCause(e);
+            throw ioe;
+        }
+    }
+
+    /**
+     * Write the summary of a library, from the results of an analysis in
+     * training mode which used an on-disk analysis cache.
+     *
+     * @param summaryFile
+     *            the summary file to write
+     * @param library
+     *            the library jar, which was analyzed as application
+     * @param analysisCacheDir
+     *            the analysis cache directory of the analysis
+     * @param trainingDir
+     *            the training output directory of the analysis
+     * @throws IOException
+     *             if the results can't be read, or the summary can't be
+     *             written
+     */
+    public static void write(File summaryFile, File library, File analysisCacheDir, File trainingDir) throws IOException {
+        String fingerprint;
+        MappedZipFile zipFile = new MappedZipFile(library);
+        try {
+            fingerprint = fingerprint(zipFile);
+        } finally {
+            zipFile.close();
+        }
+
+        File classes = PersistentClassAnalysisCache.getCacheFile(analysisCacheDir,
+                new FilesystemCodeBaseLocator(library.getPath()));
+        if (!classes.isFile()) {
+            throw new IOException("No class analysis results for " + library + " in " + analysisCacheDir);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(LIBRARY_PROPERTY, library.getName());
+        properties.setProperty(VERSION_PROPERTY, Version.COMPUTED_RELEASE);
+        properties.setProperty(FINGERPRINT_PROPERTY, fingerprint);
+
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(summaryFile));
+        try {
+            out.putNextEntry(new ZipEntry(PROPERTIES_ENTRY));
+            properties.store(out, "FindBugs library summary");
+            out.closeEntry();
+
+            copyEntry(out, CLASSES_ENTRY, classes);
+
+            // The training databases only hold the methods of application
+            // classes, i.e., of the library
+            for (String name : new String[] { AnalysisContext.UNCONDITIONAL_DEREF_DB_FILENAME,
+                    AnalysisContext.NONNULL_RETURN_DB_FILENAME }) {
+                File database = new File(trainingDir, name);
+                if (database.isFile()) {
+                    copyEntry(out, name, database);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void copyEntry(ZipOutputStream out, String name, File file) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        InputStream in = new FileInputStream(file);
+        try {
+            IO.copy(in, out);
+        } finally {
+            IO.close(in);
+        }
+        out.closeEntry();
+    }
+}
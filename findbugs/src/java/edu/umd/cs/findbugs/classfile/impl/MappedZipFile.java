@@ -0,0 +1,764 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import javax.annotation.CheckForNull;
+
+import edu.umd.cs.findbugs.SystemProperties;
+import edu.umd.cs.findbugs.charsets.UTF8;
+
+/**
+ * A zip file read through a memory mapping of the whole file. The central
+ * directory is read once into a hash index, so looking an entry up costs no
+ * system call, and entries are read from the mapping without the buffering
+ * and native state of java.util.zip.ZipFile streams. A zip file nested in
+ * another one can be read in place, from the mapping of its parent, or from
+ * memory.
+ * <p>
+ * Only stored and deflated entries of zip files with less than 65535 entries
+ * and less than 2GB are supported; the constructor throws a ZipException for
+ * other files (zip64, spanned archives), which can still be read by
+ * {@link ZipInputStreamCodeBase}.
+ * <p>
+ * The mapping is released when the zip file is closed and the entries being
+ * read are done. If the file is truncated or rewritten while it is mapped,
+ * reading it may fail with an InternalError, which is reported as a
+ * ZipException, or return the new content. Hosts which keep running while the
+ * files they analyze are rebuilt can set the findbugs.zip.map property to
+ * false, to read zip files into memory instead.
+ */
+final class MappedZipFile {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int END_SIZE = 22;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    /** Extra field holding Unix timestamps */
+    private static final int EXTENDED_TIMESTAMP = 0x5455;
+
+    /** Extra field holding NTFS timestamps */
+    private static final int NTFS = 0x000a;
+
+    /** Offset of the Unix epoch from the Windows one, in milliseconds */
+    private static final long WINDOWS_EPOCH_OFFSET = 11644473600000L;
+
+    private static final boolean MAP = SystemProperties.getBoolean("findbugs.zip.map", true);
+
+    /**
+     * Per thread inflater and input buffer, reused for all the entries read
+     * by the thread
+     */
+    private static final ThreadLocal<Inflater> inflater = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater(true);
+        }
+    };
+
+    private static final ThreadLocal<byte[]> inputBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[8192];
+        }
+    };
+
+    /**
+     * An entry of the central directory.
+     */
+    static final class Entry {
+        final String name;
+
+        final int method;
+
+        final boolean encrypted;
+
+        final long crc;
+
+        final int compressedSize;
+
+        final int size;
+
+        final long time;
+
+        /** offset of the local header of the entry in the file */
+        final int localHeaderOffset;
+
+        Entry(String name, int method, boolean encrypted, long crc, int compressedSize, int size, long time,
+                int localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.encrypted = encrypted;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.time = time;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        /**
+         * @return the CRC-32 of the uncompressed data
+         */
+        long getCrc() {
+            return crc;
+        }
+
+        /**
+         * @return the uncompressed size
+         */
+        int getSize() {
+            return size;
+        }
+
+        /**
+         * @return the modification time, or -1 if not known
+         */
+        long getTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final String name;
+
+    /** the mapping of the file, to be released when closed, or null */
+    @CheckForNull
+    private final MappedByteBuffer mapping;
+
+    /** the zip file whose data contains this one, or null */
+    @CheckForNull
+    private final MappedZipFile parent;
+
+    private final ByteBuffer buffer;
+
+    private volatile boolean closed;
+
+    /** number of reads and streams using the buffer */
+    private int readers;
+
+    /** the entries, in the order of the central directory */
+    private final List<Entry> entries;
+
+    private final Map<String, Entry> entryMap;
+
+    /**
+     * @param file
+     *            the zip file
+     * @throws ZipException
+     *             if the file is not a zip file this class can read
+     */
+    MappedZipFile(File file) throws IOException {
+        this(map(file), file.getPath(), null, true);
+    }
+
+    /**
+     * @param data
+     *            the content of the zip file, from its position to its limit
+     * @param name
+     *            the name of the zip file, for messages
+     * @throws ZipException
+     *             if the data is not a zip file this class can read
+     */
+    MappedZipFile(ByteBuffer data, String name) throws IOException {
+        this(data, name, null, false);
+    }
+
+    /**
+     * @param parent
+     *            the zip file whose data contains this one, which must stay
+     *            open until this one is closed, or null
+     * @param ownMapping
+     *            true if data is a mapping to release when closed
+     */
+    private MappedZipFile(ByteBuffer data, String name, @CheckForNull MappedZipFile parent, boolean ownMapping)
+            throws IOException {
+        this.name = name;
+        this.mapping = ownMapping && data instanceof MappedByteBuffer ? (MappedByteBuffer) data : null;
+        this.parent = parent;
+        this.buffer = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            this.entries = readCentralDirectory(buffer, name);
+        } catch (InternalError e) {
+            close();
+            throw changedWhileReading(e);
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (RuntimeException e) {
+            close();
+            ZipException zipException = new ZipException("Invalid central directory in " + name);
+            zipException.initCause(e);
+            throw zipException;
+        }
+        Map<String, Entry> map = new HashMap<String, Entry>(entries.size() * 4 / 3 + 1);
+        for (Entry entry : entries) {
+            if (!map.containsKey(entry.name)) {
+                map.put(entry.name, entry);
+            }
+        }
+        this.entryMap = map;
+    }
+
+    private static List<Entry> readCentralDirectory(ByteBuffer b, String name) throws IOException {
+        int end = findEndOfCentralDirectory(b);
+        int count = b.getShort(end + 10) & 0xffff;
+        long directorySize = b.getInt(end + 12) & 0xffffffffL;
+        long directoryOffset = b.getInt(end + 16) & 0xffffffffL;
+        if (count == 0xffff || directoryOffset == 0xffffffffL || directorySize > end) {
+            throw new ZipException("Unsupported zip64 file: " + name);
+        }
+        // Offsets are relative to the start of the zip data, which may
+        // follow some other data (e.g. a self-extracting executable)
+        int base = (int) (end - directorySize - directoryOffset);
+        if (base < 0) {
+            throw new ZipException("Invalid central directory offset in " + name);
+        }
+
+        List<Entry> entryList = new ArrayList<Entry>(count);
+        int pos = (int) (end - directorySize);
+        for (int i = 0; i < count; i++) {
+            if (pos + CENTRAL_HEADER_SIZE > end || b.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header in " + name);
+            }
+            int flags = b.getShort(pos + 8) & 0xffff;
+            int method = b.getShort(pos + 10) & 0xffff;
+            long dosTime = b.getInt(pos + 12) & 0xffffffffL;
+            long crc = b.getInt(pos + 16) & 0xffffffffL;
+            long compressedSize = b.getInt(pos + 20) & 0xffffffffL;
+            long size = b.getInt(pos + 24) & 0xffffffffL;
+            int nameLength = b.getShort(pos + 28) & 0xffff;
+            int extraLength = b.getShort(pos + 30) & 0xffff;
+            int commentLength = b.getShort(pos + 32) & 0xffff;
+            long localHeaderOffset = b.getInt(pos + 42) & 0xffffffffL;
+            if (compressedSize == 0xffffffffL || size == 0xffffffffL || localHeaderOffset == 0xffffffffL
+                    || size > Integer.MAX_VALUE) {
+                throw new ZipException("Unsupported zip64 file: " + name);
+            }
+            int next = pos + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            if (next > end) {
+                throw new ZipException("Invalid central directory header in " + name);
+            }
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer d = b.duplicate();
+            d.position(pos + CENTRAL_HEADER_SIZE);
+            d.get(nameBytes);
+            String entryName = new String(nameBytes, UTF8.charset);
+            long time = getExtraTime(b, pos + CENTRAL_HEADER_SIZE + nameLength, extraLength);
+            if (time == -1) {
+                time = dosToJavaTime(dosTime);
+            }
+            Entry entry = new Entry(entryName, method, (flags & 1) != 0, crc, (int) compressedSize, (int) size, time, base
+                    + (int) localHeaderOffset);
+            entryList.add(entry);
+            pos = next;
+        }
+        return Collections.unmodifiableList(entryList);
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long length = raf.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new ZipException("Zip file larger than 2GB: " + file);
+            }
+            if (!MAP) {
+                byte[] data = new byte[(int) length];
+                raf.readFully(data);
+                return ByteBuffer.wrap(data);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private ZipException changedWhileReading(InternalError e) {
+        ZipException zipException = new ZipException("Zip file " + name + " changed while being read");
+        zipException.initCause(e);
+        return zipException;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer b) throws ZipException {
+        int limit = Math.max(0, b.limit() - END_SIZE - 0xffff);
+        for (int pos = b.limit() - END_SIZE; pos >= limit; pos--) {
+            if (b.getInt(pos) == END_SIGNATURE && pos + END_SIZE + (b.getShort(pos + 20) & 0xffff) <= b.limit()) {
+                return pos;
+            }
+        }
+        throw new ZipException("No central directory found, not a zip file");
+    }
+
+    /**
+     * @return the modification time in an extended timestamp or NTFS extra
+     *         field, as java.util.zip.ZipEntry.getTime() reports it, or -1
+     */
+    private static long getExtraTime(ByteBuffer b, int pos, int length) {
+        int end = pos + length;
+        long time = -1;
+        while (pos + 4 <= end) {
+            int tag = b.getShort(pos) & 0xffff;
+            int size = b.getShort(pos + 2) & 0xffff;
+            pos += 4;
+            if (pos + size > end) {
+                break;
+            }
+            if (tag == EXTENDED_TIMESTAMP && size >= 5 && (b.get(pos) & 1) != 0) {
+                time = b.getInt(pos + 1) * 1000L;
+            } else if (tag == NTFS && size >= 32 && (b.getShort(pos + 4) & 0xffff) == 1
+                    && (b.getShort(pos + 6) & 0xffff) == 24) {
+                long windowsTime = b.getLong(pos + 8);
+                if (windowsTime != Long.MIN_VALUE) {
+                    time = windowsTime / 10000 - WINDOWS_EPOCH_OFFSET;
+                }
+            }
+            pos += size;
+        }
+        return time;
+    }
+
+    private static long dosToJavaTime(long dosTime) {
+        Calendar calendar = new GregorianCalendar();
+        calendar.clear();
+        calendar.set((int) ((dosTime >> 25) & 0x7f) + 1980, (int) ((dosTime >> 21) & 0x0f) - 1,
+                (int) ((dosTime >> 16) & 0x1f), (int) ((dosTime >> 11) & 0x1f), (int) ((dosTime >> 5) & 0x3f),
+                (int) ((dosTime << 1) & 0x3e));
+        return calendar.getTimeInMillis();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the entries, in the order of the central directory (which is,
+     *         for archives written by the usual tools, the order of their data
+     *         in the file)
+     */
+    List<Entry> entries() {
+        checkOpen();
+        return entries;
+    }
+
+    /**
+     * @return the entry with the given name, or null
+     * @throws IllegalStateException
+     *             if the zip file has been closed
+     */
+    @CheckForNull
+    Entry getEntry(String entryName) {
+        checkOpen();
+        Entry entry = entryMap.get(entryName);
+        if (entry == null && !entryName.endsWith("/")) {
+            entry = entryMap.get(entryName + "/");
+        }
+        return entry;
+    }
+
+    /**
+     * Read the data of an entry.
+     *
+     * @return the uncompressed data
+     */
+    byte[] getBytes(Entry entry) throws IOException {
+        acquire();
+        try {
+            return getBytes(entry, getData(entry));
+        } catch (InternalError e) {
+            throw changedWhileReading(e);
+        } finally {
+            release();
+        }
+    }
+
+    private byte[] getBytes(Entry entry, ByteBuffer data) throws IOException {
+        byte[] result = new byte[entry.size];
+        if (entry.method == STORED) {
+            if (entry.compressedSize != entry.size) {
+                throw new ZipException("Invalid size of stored entry " + entry.name + " in " + name);
+            }
+            data.get(result);
+            return result;
+        }
+        Inflater inf = inflater.get();
+        byte[] input = inputBuffer.get();
+        inf.reset();
+        try {
+            int n = 0;
+            while (n < result.length) {
+                if (inf.needsInput()) {
+                    int len = Math.min(input.length, data.remaining());
+                    if (len == 0) {
+                        // The inflater may need one byte past the end
+                        // of the deflated data
+                        input[0] = 0;
+                        len = 1;
+                        if (inf.getRemaining() > 0 || inf.getTotalIn() > entry.compressedSize) {
+                            throw new EOFException("Unexpected end of entry " + entry.name + " in " + name);
+                        }
+                    } else {
+                        data.get(input, 0, len);
+                    }
+                    inf.setInput(input, 0, len);
+                }
+                int count = inf.inflate(result, n, result.length - n);
+                if (count == 0 && (inf.finished() || inf.needsDictionary())) {
+                    throw new EOFException("Unexpected end of entry " + entry.name + " in " + name);
+                }
+                n += count;
+            }
+        } catch (DataFormatException e) {
+            ZipException zipException = new ZipException("Invalid data in entry " + entry.name + " of " + name);
+            zipException.initCause(e);
+            throw zipException;
+        }
+        return result;
+    }
+
+    /**
+     * Open a zip file stored (not compressed) in an entry, reading it in
+     * place. This zip file is kept open until the nested one is closed.
+     *
+     * @param nestedName
+     *            the name of the nested zip file, for messages
+     * @return the nested zip file, or null if the entry is compressed
+     * @throws ZipException
+     *             if the entry is not a zip file this class can read
+     */
+    @CheckForNull
+    MappedZipFile openNested(Entry entry, String nestedName) throws IOException {
+        if (entry.method != STORED) {
+            return null;
+        }
+        acquire();
+        ByteBuffer data;
+        try {
+            data = getData(entry);
+        } catch (IOException e) {
+            release();
+            throw e;
+        }
+        // Released when the nested zip file is closed
+        return new MappedZipFile(data, nestedName, this, false);
+    }
+
+    /**
+     * Open a stream reading the data of an entry. The mapping is kept until
+     * the stream is closed.
+     */
+    InputStream getInputStream(Entry entry) throws IOException {
+        acquire();
+        try {
+            ByteBuffer data = getData(entry);
+            if (entry.method == STORED) {
+                return new EntryInputStream(new ByteBufferInputStream(data));
+            }
+            return new EntryInputStream(new EntryInflaterInputStream(new ByteBufferInputStream(data), entry.size));
+        } catch (IOException e) {
+            release();
+            throw e;
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a buffer positioned on the (compressed) data of the entry, whose
+     *         limit is the end of the data
+     */
+    private ByteBuffer getData(Entry entry) throws IOException {
+        if (entry.encrypted) {
+            throw new ZipException("Encrypted entry " + entry.name + " in " + name);
+        }
+        if (entry.method != STORED && entry.method != DEFLATED) {
+            throw new ZipException("Unsupported compression method " + entry.method + " of entry " + entry.name + " in "
+                    + name);
+        }
+        ByteBuffer b = buffer;
+        int pos = entry.localHeaderOffset;
+        if (pos + LOCAL_HEADER_SIZE > b.limit() || b.getInt(pos) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header of entry " + entry.name + " in " + name);
+        }
+        int start = pos + LOCAL_HEADER_SIZE + (b.getShort(pos + 26) & 0xffff) + (b.getShort(pos + 28) & 0xffff);
+        if (start + (long) entry.compressedSize > b.limit()) {
+            throw new ZipException("Truncated entry " + entry.name + " in " + name);
+        }
+        ByteBuffer data = b.duplicate();
+        data.limit(start + entry.compressedSize);
+        data.position(start);
+        return data;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("zip file closed");
+        }
+    }
+
+    private synchronized void acquire() throws IOException {
+        if (closed) {
+            throw new IOException("Zip file closed: " + name);
+        }
+        readers++;
+    }
+
+    private void release() {
+        synchronized (this) {
+            readers--;
+        }
+        releaseIfUnused();
+    }
+
+    private void releaseIfUnused() {
+        synchronized (this) {
+            if (!closed || readers != 0) {
+                return;
+            }
+            // Don't release twice
+            readers = -1;
+        }
+        if (mapping != null) {
+            unmap(mapping);
+        }
+        if (parent != null) {
+            parent.release();
+        }
+    }
+
+    /**
+     * Close the zip file. The mapping is released once the reads and streams
+     * still using it are done.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        releaseIfUnused();
+    }
+
+    /**
+     * Release a mapping now rather than when it is garbage collected, which
+     * may be much later, keeping the file open. There is no API for this
+     * before Java 19, so this uses the cleaner of the buffer if it is
+     * accessible; otherwise the mapping is left to the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer mapping) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                // Java 9 and later
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), mapping);
+            } catch (NoSuchMethodException e) {
+                Method cleanerMethod = mapping.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(mapping);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            // Left to the garbage collector
+            assert true;
+        } catch (LinkageError e) {
+            assert true;
+        }
+    }
+
+    /**
+     * Stream reading an entry, which releases the zip file when closed.
+     */
+    private final class EntryInputStream extends FilterInputStream {
+        private boolean released;
+
+        EntryInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (InternalError e) {
+                throw changedWhileReading(e);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (InternalError e) {
+                throw changedWhileReading(e);
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                return super.skip(n);
+            } catch (InternalError e) {
+                throw changedWhileReading(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            boolean release;
+            synchronized (this) {
+                release = !released;
+                released = true;
+            }
+            try {
+                super.close();
+            } finally {
+                if (release) {
+                    MappedZipFile.this.release();
+                }
+            }
+        }
+    }
+
+    static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer data;
+
+        ByteBufferInputStream(ByteBuffer data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return data.hasRemaining() ? data.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, data.remaining());
+            data.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, data.remaining()));
+            data.position(data.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return data.remaining();
+        }
+    }
+
+    private static final class EntryInflaterInputStream extends InflaterInputStream {
+        private boolean eof;
+
+        private boolean closed;
+
+        EntryInflaterInputStream(InputStream in, int size) {
+            super(in, new Inflater(true), Math.max(512, Math.min(size, 8192)));
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                // The inflater may need one byte past the end of the
+                // deflated data
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                super.close();
+                inf.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.umd.cs.findbugs.ba.AnalysisBudget;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IMethodAnalysisEngine;
+import edu.umd.cs.findbugs.log.Profiler;
+
+/**
+ * Computes method analyses of the classes of an analysis pass ahead of the
+ * detectors.
+ * <p>
+ * A helper thread requests the given method analyses for the methods of the
+ * next classes, so that they are already in the ClassContext when the
+ * detectors ask for them. An analysis is only computed once the profiler shows
+ * that its engine has been used in this run, so analyses no enabled detector
+ * needs are never built.
+ * <p>
+ * The analyses of a class are computed by one thread at a time: the helper
+ * only works on classes after the one being analyzed, and
+ * {@link #advance(int)} waits for it to leave a class the analysis is about to
+ * reach. Only analyses whose result doesn't depend on databases updated during
+ * the pass may be speculated, otherwise the results would depend on timing.
+ */
+public class MethodAnalysisSpeculator {
+    private final List<ClassDescriptor> classList;
+
+    private final int distance;
+
+    private final List<Class<?>> analysisClassList;
+
+    private final Thread thread;
+
+    private int current = -1;
+
+    private int busy = -1;
+
+    /**
+     * Start speculating. Must be called on the analysis thread, since the
+     * helper thread inherits its analysis cache and analysis context.
+     *
+     * @param classList
+     *            the classes, in the order they will be analyzed
+     * @param distance
+     *            the maximum number of classes to work ahead
+     * @param analysisClassList
+     *            the method analyses to compute, in the order they should be
+     *            requested
+     */
+    public MethodAnalysisSpeculator(List<ClassDescriptor> classList, int distance, List<Class<?>> analysisClassList) {
+        this.classList = classList;
+        this.distance = Math.max(1, distance);
+        this.analysisClassList = analysisClassList;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                speculate();
+            }
+        }, "FindBugs method analysis speculator");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Tell the speculator which class is being analyzed. Waits until the
+     * helper thread is no longer computing analyses for that class or one
+     * before it.
+     *
+     * @param index
+     *            index of the class in the class list
+     */
+    public synchronized void advance(int index) throws InterruptedException {
+        current = index;
+        notifyAll();
+        while (busy >= 0 && busy <= index) {
+            wait();
+        }
+    }
+
+    /**
+     * Stop speculating, and wait for the helper thread to finish the method analysis it is
+     * working on, so that it no longer uses the analysis cache when the pass
+     * is over.
+     */
+    public void shutdown() {
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void speculate() {
+        IAnalysisCache analysisCache = Global.getAnalysisCache();
+        AnalysisContext analysisContext = AnalysisContext.currentAnalysisContext();
+        try {
+            for (int next = 0; next < classList.size(); next++) {
+                synchronized (this) {
+                    while (next > current + distance) {
+                        wait();
+                    }
+                    next = Math.max(next, current + 1);
+                    if (next >= classList.size()) {
+                        break;
+                    }
+                    busy = next;
+                }
+                try {
+                    ClassDescriptor classDescriptor = classList.get(next);
+                    if (AnalysisBudget.ENABLED || !analysisContext.isTooBig(classDescriptor)) {
+                        speculate(analysisCache, classDescriptor, next);
+                    }
+                } finally {
+                    synchronized (this) {
+                        busy = -1;
+                        notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shut down
+            return;
+        }
+    }
+
+    private void speculate(IAnalysisCache analysisCache, ClassDescriptor classDescriptor, int index)
+            throws InterruptedException {
+        List<Class<?>> selected = selectAnalyses(analysisCache);
+        if (selected.isEmpty()) {
+            return;
+        }
+        XClass xclass;
+        try {
+            xclass = analysisCache.getClassAnalysis(XClass.class, classDescriptor);
+        } catch (CheckedAnalysisException e) {
+            // Recorded in the cache, reported when the class is used
+            return;
+        }
+        for (XMethod xmethod : xclass.getXMethods()) {
+            if (xmethod.isAbstract() || xmethod.isNative()) {
+                continue;
+            }
+            synchronized (this) {
+                if (current >= index) {
+                    // The analysis caught up with us
+                    return;
+                }
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            for (Class<?> analysisClass : selected) {
+                try {
+                    analysisCache.getMethodAnalysis(analysisClass, xmethod.getMethodDescriptor());
+                } catch (CheckedAnalysisException e) {
+                    // Recorded in the cache, reported when the method is used
+                    break;
+                } catch (RuntimeException e) {
+                    // Recorded in the cache, reported when the method is used
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Select the analyses that detectors have requested so far in this run.
+     */
+    private List<Class<?>> selectAnalyses(IAnalysisCache analysisCache) {
+        List<Class<?>> result = new ArrayList<Class<?>>(analysisClassList.size());
+        if (!(analysisCache instanceof AnalysisCache)) {
+            return result;
+        }
+        Profiler profiler = analysisCache.getProfiler();
+        for (Class<?> analysisClass : analysisClassList) {
+            IMethodAnalysisEngine<?> engine = ((AnalysisCache) analysisCache).getMethodAnalysisEngine(analysisClass);
+            if (engine != null && profiler.getTotalCalls(engine.getClass()) > 0) {
+                result.add(analysisClass);
+            }
+        }
+        return result;
+    }
+}
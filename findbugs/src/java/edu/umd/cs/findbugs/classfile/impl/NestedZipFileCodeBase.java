@@ -20,12 +20,18 @@
 package edu.umd.cs.findbugs.classfile.impl;
 
 import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipException;
 
+import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.classfile.ICodeBase;
 import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
@@ -35,19 +41,33 @@ import edu.umd.cs.findbugs.io.IO;
 
 /**
  * A scannable code base class for a zip (or Jar) file nested inside some other
- * codebase. These are handled by extracting the nested zip/jar file to a
- * temporary file, and delegating to an internal ZipFileCodeBase that reads from
- * the temporary file.
+ * codebase. These are handled by delegating to an internal ZipFileCodeBase
+ * that reads the nested zip/jar file:
+ * <ul>
+ * <li>in place, if it is stored uncompressed in a zip file codebase (as in
+ * Spring Boot jars);
+ * <li>from memory, if it is compressed and the nested archives read so far
+ * take less than findbugs.nestedArchive.memoryMB (128 by default) megabytes;
+ * <li>from a temporary file it is extracted to otherwise.
+ * </ul>
  * 
  * @author David Hovemeyer
  */
 public class NestedZipFileCodeBase extends AbstractScannableCodeBase {
+    private static final long MAX_MEMORY = SystemProperties.getInt("findbugs.nestedArchive.memoryMB", 128) * 1024L * 1024L;
+
+    /** Number of bytes of nested archives currently read into memory */
+    private static final AtomicLong memory = new AtomicLong();
+
     private ICodeBase parentCodeBase;
 
     private String resourceName;
 
     private File tempFile;
 
+    /** Number of bytes read into memory for this codebase */
+    private long memorySize;
+
     private AbstractScannableCodeBase delegateCodeBase;
 
     /**
@@ -61,28 +81,65 @@ public class NestedZipFileCodeBase extends AbstractScannableCodeBase {
         this.parentCodeBase = codeBaseLocator.getParentCodeBase();
         this.resourceName = codeBaseLocator.getResourceName();
 
+        ICodeBaseEntry resource = parentCodeBase.lookupResource(resourceName);
+        if (resource == null) {
+            throw new ResourceNotFoundException(resourceName);
+        }
+        ICodeBaseEntry entry = resource;
+        while (entry instanceof DelegatingCodeBaseEntry) {
+            entry = ((DelegatingCodeBaseEntry) entry).getDelegateCodeBaseEntry();
+        }
+        String name = codeBaseLocator.toString();
+        try {
+            if (entry instanceof ZipFileCodeBaseEntry) {
+                ZipFileCodeBaseEntry zipEntry = (ZipFileCodeBaseEntry) entry;
+                MappedZipFile nested = zipEntry.openNestedZipFile(name);
+                if (nested != null) {
+                    delegateCodeBase = new ZipFileCodeBase(codeBaseLocator, nested, zipEntry.getTime());
+                    return;
+                }
+            } else if (entry instanceof InMemoryCodeBaseEntry) {
+                InMemoryCodeBaseEntry memoryEntry = (InMemoryCodeBaseEntry) entry;
+                delegateCodeBase = new ZipFileCodeBase(codeBaseLocator, new MappedZipFile(memoryEntry.getData(), name),
+                        memoryEntry.getLastModifiedTime());
+                return;
+            }
+            int size = resource.getNumBytes();
+            if (size >= 0 && reserveMemory(size)) {
+                byte[] data = read(resource, size);
+                long time = entry instanceof ZipFileCodeBaseEntry ? ((ZipFileCodeBaseEntry) entry).getTime() : -1L;
+                delegateCodeBase = new ZipFileCodeBase(codeBaseLocator, new MappedZipFile(ByteBuffer.wrap(data), name), time);
+                return;
+            }
+        } catch (ZipException e) {
+            // Not a zip file MappedZipFile can read: ZipCodeBaseFactory knows
+            // what to do with it
+            releaseMemory();
+        }
+
+        // Copy nested zipfile to a temporary file
         InputStream inputStream = null;
         OutputStream outputStream = null;
         try {
-            // Create a temp file
             this.tempFile = File.createTempFile("findbugs", ".zip");
             tempFile.deleteOnExit(); // just in case we crash before the
                                      // codebase is closed
 
-            // Copy nested zipfile to the temporary file
-            // FIXME: potentially long blocking operation - should be
-            // interruptible
-            ICodeBaseEntry resource = parentCodeBase.lookupResource(resourceName);
-            if (resource == null) {
-                throw new ResourceNotFoundException(resourceName);
-            }
             inputStream = resource.openResource();
             outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
-            IO.copy(inputStream, outputStream);
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = inputStream.read(buf)) > 0) {
+                checkInterrupted();
+                outputStream.write(buf, 0, n);
+            }
             outputStream.flush();
 
             // Create the delegate to read from the temporary file
             delegateCodeBase = ZipCodeBaseFactory.makeZipCodeBase(codeBaseLocator, tempFile);
+        } catch (IOException e) {
+            deleteTempFile();
+            throw e;
         } finally {
             if (inputStream != null) {
                 IO.close(inputStream);
@@ -94,6 +151,61 @@ public class NestedZipFileCodeBase extends AbstractScannableCodeBase {
         }
     }
 
+    private boolean reserveMemory(int size) {
+        if (memory.addAndGet(size) > MAX_MEMORY) {
+            memory.addAndGet(-size);
+            return false;
+        }
+        memorySize = size;
+        return true;
+    }
+
+    private void releaseMemory() {
+        memory.addAndGet(-memorySize);
+        memorySize = 0;
+    }
+
+    private byte[] read(ICodeBaseEntry resource, int size) throws IOException {
+        byte[] data = new byte[size];
+        InputStream inputStream = resource.openResource();
+        try {
+            int n = 0;
+            while (n < size) {
+                checkInterrupted();
+                int count = inputStream.read(data, n, Math.min(size - n, 65536));
+                if (count < 0) {
+                    throw new EOFException("Unexpected end of " + resourceName + " in " + parentCodeBase);
+                }
+                n += count;
+            }
+        } catch (IOException e) {
+            releaseMemory();
+            throw e;
+        } finally {
+            IO.close(inputStream);
+        }
+        return data;
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while reading nested archive");
+        }
+    }
+
+    private void deleteTempFile() {
+        if (tempFile != null && !tempFile.delete()) {
+            AnalysisContext.logError("Could not delete " + tempFile);
+        }
+    }
+
+    /**
+     * @return the codebase reading the nested archive
+     */
+    AbstractScannableCodeBase getDelegateCodeBase() {
+        return delegateCodeBase;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -137,8 +249,7 @@ public class NestedZipFileCodeBase extends AbstractScannableCodeBase {
     @Override
     public void close() {
         delegateCodeBase.close();
-        if (!tempFile.delete()) {
-            AnalysisContext.logError("Could not delete " + tempFile);
-        }
+        releaseMemory();
+        deleteTempFile();
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+
+/**
+ * Index of the packages of the resources of the codebases of a classpath, so
+ * that looking up a resource only searches the codebases which have
+ * resources in the same package, rather than all of them. A missing class is
+ * thus found missing without probing every jar of a large aux classpath.
+ * <p>
+ * The package names are kept in a sorted array, each with the (ascending)
+ * positions on the classpath of the codebases which contain the package.
+ * Only zip codebases, whose entries are listed in their central directory,
+ * and in-memory codebases are indexed; other codebases, such as directories,
+ * are always searched.
+ * Codebases are searched in classpath order either way, so the result of a
+ * lookup is the same as when searching all of them. Immutable, so it can be
+ * used by several threads.
+ */
+final class PackageIndex {
+    private static final int[] NO_CODEBASES = new int[0];
+
+    private final ICodeBase[] codeBases;
+
+    /** sorted */
+    private final String[] packageNames;
+
+    /** the codebases containing each package */
+    private final int[][] packageCodeBases;
+
+    /** the codebases which are not indexed, so may contain any package */
+    private final int[] unindexedCodeBases;
+
+    /**
+     * @param codeBaseList
+     *            the codebases of the classpath, in the order in which they
+     *            are searched
+     */
+    PackageIndex(List<? extends ICodeBase> codeBaseList) {
+        codeBases = codeBaseList.toArray(new ICodeBase[codeBaseList.size()]);
+        Map<String, int[]> packageMap = new HashMap<String, int[]>();
+        // most packages are in one codebase: share the array naming it
+        int[][] single = new int[codeBases.length][];
+        List<Integer> unindexed = new ArrayList<Integer>();
+        for (int i = 0; i < codeBases.length; i++) {
+            List<String> resourceNames = getResourceNames(codeBases[i]);
+            if (resourceNames == null) {
+                unindexed.add(i);
+                continue;
+            }
+            single[i] = new int[] { i };
+            for (String resourceName : resourceNames) {
+                String packageName = getPackageName(resourceName);
+                int[] indices = packageMap.get(packageName);
+                if (indices == null) {
+                    packageMap.put(packageName, single[i]);
+                } else if (indices[indices.length - 1] != i) {
+                    indices = Arrays.copyOf(indices, indices.length + 1);
+                    indices[indices.length - 1] = i;
+                    packageMap.put(packageName, indices);
+                }
+            }
+        }
+
+        packageNames = packageMap.keySet().toArray(new String[packageMap.size()]);
+        Arrays.sort(packageNames);
+        packageCodeBases = new int[packageNames.length][];
+        for (int i = 0; i < packageNames.length; i++) {
+            packageCodeBases[i] = packageMap.get(packageNames[i]);
+        }
+        unindexedCodeBases = new int[unindexed.size()];
+        for (int i = 0; i < unindexedCodeBases.length; i++) {
+            unindexedCodeBases[i] = unindexed.get(i);
+        }
+    }
+
+    /**
+     * @return the names of the entries of a codebase, or null if they can't
+     *         be listed cheaply
+     */
+    private static List<String> getResourceNames(ICodeBase codeBase) {
+        if (codeBase instanceof NestedZipFileCodeBase) {
+            codeBase = ((NestedZipFileCodeBase) codeBase).getDelegateCodeBase();
+        }
+        if (codeBase instanceof InMemoryCodeBase) {
+            return ((InMemoryCodeBase) codeBase).getResourceNames();
+        }
+        if (!(codeBase instanceof ZipFileCodeBase)) {
+            return null;
+        }
+        List<MappedZipFile.Entry> entries;
+        try {
+            entries = ((ZipFileCodeBase) codeBase).zipFile.entries();
+        } catch (IllegalStateException e) {
+            // closed
+            return null;
+        }
+        List<String> result = new ArrayList<String>(entries.size());
+        for (MappedZipFile.Entry entry : entries) {
+            result.add(entry.getName());
+        }
+        return result;
+    }
+
+    /**
+     * @return the name of the directory of a resource, or of the parent
+     *         directory of a directory resource, without the trailing slash
+     */
+    static String getPackageName(String resourceName) {
+        int end = resourceName.length();
+        if (end > 0 && resourceName.charAt(end - 1) == '/') {
+            end--;
+        }
+        int slash = resourceName.lastIndexOf('/', end - 1);
+        return slash < 0 ? "" : resourceName.substring(0, slash);
+    }
+
+    /**
+     * Search the codebases which may contain a resource, in classpath order.
+     *
+     * @param resourceName
+     *            name of the resource
+     * @return entry of the resource in the first codebase containing it, or
+     *         null if no codebase contains it
+     */
+    ICodeBaseEntry lookupResource(String resourceName) {
+        int k = Arrays.binarySearch(packageNames, getPackageName(resourceName));
+        int[] indexed = k >= 0 ? packageCodeBases[k] : NO_CODEBASES;
+        int i = 0;
+        int j = 0;
+        while (i < indexed.length || j < unindexedCodeBases.length) {
+            int next;
+            if (j >= unindexedCodeBases.length || (i < indexed.length && indexed[i] < unindexedCodeBases[j])) {
+                next = indexed[i++];
+            } else {
+                next = unindexedCodeBases[j++];
+            }
+            ICodeBaseEntry resource = codeBases[next].lookupResource(resourceName);
+            if (resource != null) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    int getNumPackages() {
+        return packageNames.length;
+    }
+
+    int getNumCodeBases() {
+        return codeBases.length;
+    }
+
+    int getNumUnindexedCodeBases() {
+        return unindexedCodeBases.length;
+    }
+
+    /**
+     * @return the estimated number of bytes used by the index
+     */
+    long getEstimatedSize() {
+        long size = 64 + 16 + 4L * codeBases.length + 2 * (16 + 4L * packageNames.length) + 16 + 4L
+                * unindexedCodeBases.length;
+        for (int i = 0; i < packageNames.length; i++) {
+            // String and its array
+            size += 24 + 16 + 2L * packageNames[i].length();
+            if (packageCodeBases[i].length > 1) {
+                size += 16 + 4L * packageCodeBases[i].length;
+            }
+        }
+        // the shared arrays of the packages in one codebase
+        size += 24L * (codeBases.length - unindexedCodeBases.length);
+        return size;
+    }
+}
@@ -0,0 +1,657 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+
+import edu.umd.cs.findbugs.SystemProperties;
+import edu.umd.cs.findbugs.Version;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IAnalysisEngine;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ICodeBaseLocator;
+import edu.umd.cs.findbugs.classfile.IErrorLogger;
+import edu.umd.cs.findbugs.classfile.analysis.ClassData;
+import edu.umd.cs.findbugs.classfile.analysis.ClassInfoCodec;
+import edu.umd.cs.findbugs.classfile.analysis.ClassNameAndSuperclassInfo;
+import edu.umd.cs.findbugs.io.IO;
+import edu.umd.cs.findbugs.log.Profiler;
+import edu.umd.cs.findbugs.util.Util;
+
+/**
+ * On-disk second tier for the XClass and ClassNameAndSuperclassInfo analyses.
+ * <p>
+ * Results are kept in one file per codebase in the directory named by the
+ * <code>findbugs.analysisCache.dir</code> system property, keyed by the name
+ * of the class entry and a hash of its content: the CRC and size recorded in
+ * the archive for zip file entries, or the MD5 hash of the class data
+ * otherwise. So a class that hasn't changed since an earlier run is read back
+ * instead of being parsed again, which saves most of the first pass over
+ * large, stable libraries. A file is read the first time a class of its
+ * codebase is requested, and the results computed in this run are written
+ * back by {@link #flush()}.
+ * <p>
+ * A process running many analyses, such as the analysis daemon, can keep one
+ * instance for all of them ({@link #shareBetweenAnalyses()}); it then also
+ * keeps the results in memory, with or without a cache directory. Their
+ * estimated size is limited by the <code>findbugs.analysisCache.maxMemory</code>
+ * system property (in megabytes, default 128); when an analysis is done, the
+ * results of the codebases used least recently are dropped until they fit.
+ * <p>
+ * The files are pruned when they are written: results not used for
+ * <code>findbugs.analysisCache.maxAge</code> days (default 30), such as those
+ * of classes removed from their codebase, are dropped. Then, while the files
+ * in the cache directory take more than
+ * <code>findbugs.analysisCache.maxDiskSize</code> megabytes (default 512),
+ * those of the codebases used least recently are deleted.
+ * <p>
+ * Reads and misses are recorded by the profiler as calls of
+ * {@link PersistentCacheHit} and {@link PersistentCacheMiss}.
+ */
+public class PersistentClassAnalysisCache {
+    /**
+     * System property naming the cache directory; the on-disk tier is only
+     * used if it is set.
+     */
+    public static final String DIRECTORY_PROPERTY = "findbugs.analysisCache.dir";
+
+    private static final String MAGIC = "FindBugs analysis cache";
+
+    private static final int FORMAT_VERSION = 2;
+
+    /** Largest number of records, or record length, accepted when reading */
+    private static final int MAX_READ_LENGTH = 64 * 1024 * 1024;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final int MAX_AGE_DAYS = SystemProperties.getInt("findbugs.analysisCache.maxAge", 30);
+
+    private static final long MAX_DISK_SIZE = SystemProperties.getInt("findbugs.analysisCache.maxDiskSize", 512) * 1024L * 1024L;
+
+    /**
+     * Profiler marker for results read from disk.
+     */
+    public static class PersistentCacheHit {
+    }
+
+    /**
+     * Profiler marker for results computed (and stored) because they weren't
+     * found on disk.
+     */
+    public static class PersistentCacheMiss {
+    }
+
+    private static class Record {
+        final byte[] hash;
+
+        final byte[] data;
+
+        /** day the record was last read or written, see {@link #today()} */
+        int lastUsed;
+
+        Record(byte[] hash, byte[] data, int lastUsed) {
+            this.hash = hash;
+            this.data = data;
+            this.lastUsed = lastUsed;
+        }
+
+        long getEstimatedSize(String key) {
+            return 64 + 2 * key.length() + hash.length + data.length;
+        }
+    }
+
+    private static class CodeBaseFile {
+        final String locator;
+
+        final @CheckForNull
+        File file;
+
+        final Map<String, Record> recordMap = new HashMap<String, Record>();
+
+        boolean dirty;
+
+        /** whether records were read since the file was last written */
+        boolean used;
+
+        long size;
+
+        CodeBaseFile(String locator, @CheckForNull File file) {
+            this.locator = locator;
+            this.file = file;
+        }
+
+        long put(String key, Record record) {
+            Record old = recordMap.put(key, record);
+            long delta = record.getEstimatedSize(key) - (old != null ? old.getEstimatedSize(key) : 0);
+            size += delta;
+            return delta;
+        }
+    }
+
+    private final @CheckForNull
+    File directory;
+
+    private final boolean keepAll;
+
+    private final long maxMemorySize;
+
+    private long memorySize;
+
+    /**
+     * Files by codebase locator, least recently used first
+     */
+    private final Map<String, CodeBaseFile> codeBaseFileMap = new LinkedHashMap<String, CodeBaseFile>(16, 0.75f, true);
+
+    private static @CheckForNull
+    PersistentClassAnalysisCache shared;
+
+    /**
+     * @param directory
+     *            the cache directory, or null to keep the results in memory
+     *            only
+     * @param keepAll
+     *            if true, results are kept for all codebases; if false and
+     *            there is no directory, only results added by
+     *            {@link #addRecords(ICodeBase, InputStream)} are used
+     */
+    PersistentClassAnalysisCache(@CheckForNull File directory, boolean keepAll) {
+        this(directory, keepAll, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param directory
+     *            the cache directory, or null to keep the results in memory
+     *            only
+     * @param keepAll
+     *            if true, results are kept for all codebases; if false and
+     *            there is no directory, only results added by
+     *            {@link #addRecords(ICodeBase, InputStream)} are used
+     * @param maxMemorySize
+     *            estimated size in bytes of the results kept in memory after
+     *            {@link #flush(IErrorLogger)}
+     */
+    PersistentClassAnalysisCache(@CheckForNull File directory, boolean keepAll, long maxMemorySize) {
+        this.directory = directory;
+        this.keepAll = keepAll;
+        this.maxMemorySize = maxMemorySize;
+    }
+
+    private static @CheckForNull
+    File getDirectory() {
+        String directory = SystemProperties.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.length() == 0) {
+            return null;
+        }
+        return new File(directory);
+    }
+
+    /**
+     * Create the on-disk tier, if it is enabled.
+     *
+     * @return the shared instance, if any; otherwise the on-disk tier, or
+     *         null if no cache directory is set
+     */
+    static synchronized @CheckForNull
+    PersistentClassAnalysisCache create() {
+        if (shared != null) {
+            return shared;
+        }
+        File directory = getDirectory();
+        if (directory == null) {
+            return null;
+        }
+        return new PersistentClassAnalysisCache(directory, true);
+    }
+
+    /**
+     * Use one instance for all following analyses in this JVM, which keeps
+     * the results of each analysis for the next ones.
+     */
+    public static synchronized void shareBetweenAnalyses() {
+        if (shared == null) {
+            long maxMemorySize = SystemProperties.getInt("findbugs.analysisCache.maxMemory", 128) * 1024L * 1024L;
+            shared = new PersistentClassAnalysisCache(getDirectory(), true, maxMemorySize);
+        }
+    }
+
+    /**
+     * @param analysisClass
+     *            a class analysis
+     * @return true if results of the analysis can be stored on disk
+     */
+    static boolean isPersistent(Class<?> analysisClass) {
+        return analysisClass == XClass.class || analysisClass == ClassNameAndSuperclassInfo.class;
+    }
+
+    /**
+     * Get a result from disk, or compute it with the analysis engine and
+     * remember it for the next run.
+     *
+     * @param analysisCache
+     *            the analysis cache
+     * @param engine
+     *            the engine producing the analysis
+     * @param analysisClass
+     *            the analysis, for which isPersistent() is true
+     * @param descriptor
+     *            the class to analyze
+     * @return the analysis result
+     * @throws CheckedAnalysisException
+     *             if the engine fails
+     */
+    <E> E analyze(IAnalysisCache analysisCache, IAnalysisEngine<ClassDescriptor, E> engine, Class<E> analysisClass,
+            ClassDescriptor descriptor) throws CheckedAnalysisException {
+        String resourceName = descriptor.toResourceName();
+        ICodeBaseEntry entry;
+        byte[] hash;
+        try {
+            entry = analysisCache.getClassPath().lookupResource(resourceName);
+            if (!keepAll && !hasRecords(entry.getCodeBase())) {
+                // Only results added by addRecords are used
+                return engine.analyze(analysisCache, descriptor);
+            }
+            hash = contentHash(analysisCache, descriptor, entry);
+        } catch (CheckedAnalysisException e) {
+            // Let the engine report the missing class
+            return engine.analyze(analysisCache, descriptor);
+        }
+
+        CodeBaseFile codeBaseFile = getCodeBaseFile(entry.getCodeBase());
+        String key = (analysisClass == XClass.class ? "X" : "N") + resourceName;
+        Record record;
+        synchronized (this) {
+            record = codeBaseFile.recordMap.get(key);
+        }
+
+        Profiler profiler = analysisCache.getProfiler();
+        if (record != null && Arrays.equals(record.hash, hash)) {
+            profiler.start(PersistentCacheHit.class);
+            try {
+                ClassNameAndSuperclassInfo result = ClassInfoCodec.read(new DataInputStream(new ByteArrayInputStream(
+                        record.data)), entry);
+                if (analysisClass.isInstance(result) && result.getClassDescriptor().equals(descriptor)) {
+                    synchronized (this) {
+                        int today = today();
+                        if (record.lastUsed != today) {
+                            record.lastUsed = today;
+                            codeBaseFile.dirty = true;
+                        }
+                        codeBaseFile.used = true;
+                    }
+                    return analysisClass.cast(result);
+                }
+            } catch (IOException e) {
+                analysisCache.getErrorLogger().logError("Error reading cached analysis of " + descriptor, e);
+            } finally {
+                profiler.end(PersistentCacheHit.class);
+            }
+        }
+
+        profiler.start(PersistentCacheMiss.class);
+        try {
+            E result = engine.analyze(analysisCache, descriptor);
+            if (result instanceof ClassNameAndSuperclassInfo) {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                try {
+                    DataOutputStream out = new DataOutputStream(data);
+                    ClassInfoCodec.write(out, (ClassNameAndSuperclassInfo) result);
+                    out.flush();
+                    synchronized (this) {
+                        memorySize += codeBaseFile.put(key, new Record(hash, data.toByteArray(), today()));
+                        codeBaseFile.dirty = true;
+                    }
+                } catch (IOException e) {
+                    // Can't be represented; compute it again next time
+                    assert true;
+                }
+            }
+            return result;
+        } finally {
+            profiler.end(PersistentCacheMiss.class);
+        }
+    }
+
+    /**
+     * Add results to those of a codebase, e.g. from a library summary. The
+     * stream has the format of a cache file, which may have been written for
+     * the same library at another location. Results already known for the
+     * codebase are kept.
+     *
+     * @param codeBase
+     *            the codebase
+     * @param in
+     *            the cache file contents
+     * @throws IOException
+     *             if the stream can't be read, or was written by another
+     *             version of FindBugs
+     */
+    synchronized void addRecords(ICodeBase codeBase, InputStream in) throws IOException {
+        CodeBaseFile codeBaseFile = getCodeBaseFile(codeBase);
+        Map<String, Record> recordMap = new HashMap<String, Record>();
+        if (!read(new DataInputStream(new BufferedInputStream(in)), null, recordMap)) {
+            throw new IOException("Analysis cache was written by another version of FindBugs");
+        }
+        int today = today();
+        for (Map.Entry<String, Record> e : recordMap.entrySet()) {
+            if (!codeBaseFile.recordMap.containsKey(e.getKey())) {
+                e.getValue().lastUsed = today;
+                memorySize += codeBaseFile.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * Write the files of codebases for which new results were computed. The
+     * records written to a file by other processes since it was read, such
+     * as the other workers of a sharded analysis, are kept, and those not
+     * used for the maximum age are dropped. Then the files of the codebases
+     * used least recently are deleted while the cache directory is over its
+     * size limit, and the results of the codebases used least recently are
+     * dropped from memory while there are more than the memory limit.
+     *
+     * @param errorLogger
+     *            logger for errors writing the files
+     */
+    public synchronized void flush(IErrorLogger errorLogger) {
+        for (CodeBaseFile codeBaseFile : codeBaseFileMap.values()) {
+            File file = codeBaseFile.file;
+            if (file == null) {
+                // Kept in memory only: nothing to write, so the results can
+                // be dropped like written ones
+                codeBaseFile.dirty = false;
+                codeBaseFile.used = false;
+                continue;
+            }
+            if (!codeBaseFile.dirty) {
+                if (codeBaseFile.used && file.isFile()) {
+                    // Keep it from being deleted as unused
+                    file.setLastModified(System.currentTimeMillis());
+                }
+                codeBaseFile.used = false;
+                continue;
+            }
+            try {
+                if (file.exists()) {
+                    Map<String, Record> recordMap = new HashMap<String, Record>();
+                    try {
+                        read(new DataInputStream(new BufferedInputStream(new FileInputStream(file))),
+                                codeBaseFile.locator, recordMap);
+                    } catch (IOException e) {
+                        // Corrupt or unreadable; overwritten
+                        assert true;
+                    }
+                    for (Map.Entry<String, Record> e : recordMap.entrySet()) {
+                        if (!codeBaseFile.recordMap.containsKey(e.getKey())) {
+                            memorySize += codeBaseFile.put(e.getKey(), e.getValue());
+                        }
+                    }
+                }
+                int oldest = today() - MAX_AGE_DAYS;
+                for (Iterator<Map.Entry<String, Record>> i = codeBaseFile.recordMap.entrySet().iterator(); i.hasNext();) {
+                    Map.Entry<String, Record> e = i.next();
+                    if (e.getValue().lastUsed < oldest) {
+                        memorySize -= e.getValue().getEstimatedSize(e.getKey());
+                        codeBaseFile.size -= e.getValue().getEstimatedSize(e.getKey());
+                        i.remove();
+                    }
+                }
+                write(codeBaseFile, file);
+                codeBaseFile.dirty = false;
+                codeBaseFile.used = false;
+            } catch (IOException e) {
+                errorLogger.logError("Error writing analysis cache file " + file, e);
+            }
+        }
+        if (directory != null) {
+            limitDiskSize(directory, MAX_DISK_SIZE);
+        }
+
+        // Results which couldn't be written are kept
+        for (Iterator<CodeBaseFile> i = codeBaseFileMap.values().iterator(); i.hasNext() && memorySize > maxMemorySize;) {
+            CodeBaseFile codeBaseFile = i.next();
+            if (!codeBaseFile.dirty) {
+                memorySize -= codeBaseFile.size;
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Delete the cache files modified least recently while the files in a
+     * directory take more than a maximum size.
+     */
+    static void limitDiskSize(File directory, long maxSize) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> cacheFiles = new ArrayList<File>();
+        long size = 0;
+        for (File f : files) {
+            if (f.getName().endsWith(".fbcache") && f.isFile()) {
+                cacheFiles.add(f);
+                size += f.length();
+            }
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        final Map<File, Long> lastModified = new HashMap<File, Long>();
+        for (File f : cacheFiles) {
+            lastModified.put(f, f.lastModified());
+        }
+        Collections.sort(cacheFiles, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                return lastModified.get(f1).compareTo(lastModified.get(f2));
+            }
+        });
+        for (Iterator<File> i = cacheFiles.iterator(); i.hasNext() && size > maxSize;) {
+            File f = i.next();
+            long length = f.length();
+            if (f.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    /**
+     * @return the current day, counted from the epoch
+     */
+    private static int today() {
+        return (int) (System.currentTimeMillis() / DAY_MILLIS);
+    }
+
+    /**
+     * @return the estimated size in bytes of the results kept in memory
+     */
+    synchronized long getMemorySize() {
+        return memorySize;
+    }
+
+    private static byte[] contentHash(IAnalysisCache analysisCache, ClassDescriptor descriptor, ICodeBaseEntry entry)
+            throws CheckedAnalysisException {
+        while (entry instanceof DelegatingCodeBaseEntry) {
+            entry = ((DelegatingCodeBaseEntry) entry).getDelegateCodeBaseEntry();
+        }
+        if (entry instanceof ZipFileCodeBaseEntry) {
+            long crc = ((ZipFileCodeBaseEntry) entry).getCrc();
+            if (crc != -1) {
+                return ByteBuffer.allocate(12).putLong(crc).putInt(entry.getNumBytes()).array();
+            }
+        }
+        ClassData classData = analysisCache.getClassAnalysis(ClassData.class, descriptor);
+        return Util.getMD5Digest().digest(classData.getData());
+    }
+
+    /**
+     * Get the file in which the results for a codebase are kept.
+     *
+     * @param directory
+     *            the cache directory
+     * @param locator
+     *            the codebase locator
+     * @return the cache file, which may not exist
+     */
+    static File getCacheFile(File directory, ICodeBaseLocator locator) {
+        byte[] digest = Util.getMD5Digest().digest(locator.toString().getBytes(UTF8.charset));
+        return new File(directory, new BigInteger(1, digest).toString(16) + ".fbcache");
+    }
+
+    private synchronized boolean hasRecords(ICodeBase codeBase) {
+        return codeBaseFileMap.containsKey(codeBase.getCodeBaseLocator().toString());
+    }
+
+    private synchronized CodeBaseFile getCodeBaseFile(ICodeBase codeBase) {
+        String locator = codeBase.getCodeBaseLocator().toString();
+        CodeBaseFile codeBaseFile = codeBaseFileMap.get(locator);
+        if (codeBaseFile == null) {
+            File file = directory != null ? getCacheFile(directory, codeBase.getCodeBaseLocator()) : null;
+            codeBaseFile = new CodeBaseFile(locator, file);
+            if (file != null && file.exists()) {
+                Map<String, Record> recordMap = new HashMap<String, Record>();
+                try {
+                    read(new DataInputStream(new BufferedInputStream(new FileInputStream(file))), locator, recordMap);
+                    for (Map.Entry<String, Record> e : recordMap.entrySet()) {
+                        memorySize += codeBaseFile.put(e.getKey(), e.getValue());
+                    }
+                } catch (IOException e) {
+                    // Corrupt or unreadable; rewritten on flush
+                    assert true;
+                }
+            }
+            codeBaseFileMap.put(locator, codeBaseFile);
+        }
+        return codeBaseFile;
+    }
+
+    /**
+     * Read the records of a cache file.
+     *
+     * @param in
+     *            the cache file contents; closed when done
+     * @param locator
+     *            the locator the file must have been written for, or null
+     *            to accept any
+     * @param recordMap
+     *            map to add the records to
+     * @return false if the file was written by another version of FindBugs,
+     *         or for another codebase
+     * @throws IOException
+     *             if the file can't be read, or is corrupt
+     */
+    private static boolean read(DataInputStream in, @CheckForNull String locator, Map<String, Record> recordMap)
+            throws IOException {
+        try {
+            if (!MAGIC.equals(in.readUTF()) || in.readInt() != FORMAT_VERSION
+                    || !Version.COMPUTED_RELEASE.equals(in.readUTF())) {
+                return false;
+            }
+            String fileLocator = in.readUTF();
+            if (locator != null && !locator.equals(fileLocator)) {
+                // A hash collision
+                return false;
+            }
+            int numRecords = readLength(in);
+            for (int i = 0; i < numRecords; i++) {
+                String key = in.readUTF();
+                int lastUsed = in.readInt();
+                byte[] hash = new byte[readLength(in)];
+                in.readFully(hash);
+                byte[] data = new byte[readLength(in)];
+                in.readFully(data);
+                recordMap.put(key, new Record(hash, data, lastUsed));
+            }
+            return true;
+        } finally {
+            IO.close(in);
+        }
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_READ_LENGTH) {
+            throw new IOException("Corrupt analysis cache: length " + length);
+        }
+        return length;
+    }
+
+    private static void write(CodeBaseFile codeBaseFile, File file) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        File temp = File.createTempFile("findbugs", ".tmp", directory);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeUTF(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(Version.COMPUTED_RELEASE);
+            out.writeUTF(codeBaseFile.locator);
+            out.writeInt(codeBaseFile.recordMap.size());
+            for (Map.Entry<String, Record> e : codeBaseFile.recordMap.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().lastUsed);
+                out.writeInt(e.getValue().hash.length);
+                out.write(e.getValue().hash);
+                out.writeInt(e.getValue().data.length);
+                out.write(e.getValue().data);
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            // Windows won't rename over an existing file
+            file.delete();
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Can't rename " + temp + " to " + file);
+            }
+        }
+    }
+}
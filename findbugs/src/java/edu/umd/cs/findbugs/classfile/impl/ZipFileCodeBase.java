@@ -23,23 +23,22 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
 import edu.umd.cs.findbugs.classfile.ICodeBaseIterator;
 import edu.umd.cs.findbugs.classfile.ICodeBaseLocator;
 
 /**
- * Implementation of ICodeBase to read from a zip file or jar file.
+ * Implementation of ICodeBase to read from a zip file or jar file. The file is
+ * memory mapped, see {@link MappedZipFile}.
  *
  * @author David Hovemeyer
  */
 public class ZipFileCodeBase extends AbstractScannableCodeBase {
-    ZipFile zipFile;
+    MappedZipFile zipFile;
 
     /**
      * Constructor.
@@ -53,7 +52,7 @@ public class ZipFileCodeBase extends AbstractScannableCodeBase {
     public ZipFileCodeBase(ICodeBaseLocator codeBaseLocator, File file) throws IOException {
         super(codeBaseLocator);
         try {
-            this.zipFile = new ZipFile(file);
+            this.zipFile = new MappedZipFile(file);
             setLastModifiedTime(file.lastModified());
         } catch (IOException e) {
             if (!file.exists()) {
@@ -90,6 +89,23 @@ public class ZipFileCodeBase extends AbstractScannableCodeBase {
         }
     }
 
+    /**
+     * Constructor for a zip file which is not a file of its own, e.g. one
+     * nested in another zip file.
+     *
+     * @param codeBaseLocator
+     *            the codebase locator for this codebase
+     * @param zipFile
+     *            the zip file
+     * @param lastModifiedTime
+     *            the modification time of the zip file
+     */
+    ZipFileCodeBase(ICodeBaseLocator codeBaseLocator, MappedZipFile zipFile, long lastModifiedTime) {
+        super(codeBaseLocator);
+        this.zipFile = zipFile;
+        setLastModifiedTime(lastModifiedTime);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -104,7 +120,7 @@ public class ZipFileCodeBase extends AbstractScannableCodeBase {
         resourceName = translateResourceName(resourceName);
 
         try {
-            ZipEntry entry = zipFile.getEntry(resourceName);
+            MappedZipFile.Entry entry = zipFile.getEntry(resourceName);
             if (entry == null) {
                 return null;
             }
@@ -118,7 +134,7 @@ public class ZipFileCodeBase extends AbstractScannableCodeBase {
 
     @Override
     public ICodeBaseIterator iterator() {
-        final Enumeration<? extends ZipEntry> zipEntryEnumerator = zipFile.entries();
+        final Iterator<MappedZipFile.Entry> zipEntryIterator = zipFile.entries().iterator();
 
         return new ICodeBaseIterator() {
             ZipFileCodeBaseEntry nextEntry;
@@ -147,11 +163,11 @@ public class ZipFileCodeBase extends AbstractScannableCodeBase {
 
             private void scanForNextEntry() {
                 while (nextEntry == null) {
-                    if (!zipEntryEnumerator.hasMoreElements()) {
+                    if (!zipEntryIterator.hasNext()) {
                         return;
                     }
 
-                    ZipEntry zipEntry = zipEntryEnumerator.nextElement();
+                    MappedZipFile.Entry zipEntry = zipEntryIterator.next();
 
                     if (!zipEntry.isDirectory()) {
                         addLastModifiedTime(zipEntry.getTime());
@@ -181,11 +197,7 @@ public class ZipFileCodeBase extends AbstractScannableCodeBase {
      */
     @Override
     public void close() {
-        try {
-            zipFile.close();
-        } catch (IOException e) {
-            // Ignore
-        }
+        zipFile.close();
     }
 
     /*
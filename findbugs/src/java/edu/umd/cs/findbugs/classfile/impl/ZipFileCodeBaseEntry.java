@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.ZipEntry;
 
+import javax.annotation.CheckForNull;
+
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 
@@ -34,13 +36,32 @@ import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 public class ZipFileCodeBaseEntry extends AbstractScannableCodeBaseEntry {
     private final ZipFileCodeBase codeBase;
 
-    private final ZipEntry zipEntry;
+    private final MappedZipFile.Entry zipEntry;
 
-    public ZipFileCodeBaseEntry(ZipFileCodeBase codeBase, ZipEntry zipEntry) {
+    ZipFileCodeBaseEntry(ZipFileCodeBase codeBase, MappedZipFile.Entry zipEntry) {
         this.codeBase = codeBase;
         this.zipEntry = zipEntry;
     }
 
+    /**
+     * @deprecated the entries of a codebase are read from its mapped zip file;
+     *             use {@link ZipFileCodeBase#lookupResource(String)}
+     * @throws IllegalArgumentException
+     *             if the zip file of the codebase has no such entry
+     */
+    @Deprecated
+    public ZipFileCodeBaseEntry(ZipFileCodeBase codeBase, ZipEntry zipEntry) {
+        this(codeBase, getMappedEntry(codeBase, zipEntry));
+    }
+
+    private static MappedZipFile.Entry getMappedEntry(ZipFileCodeBase codeBase, ZipEntry zipEntry) {
+        MappedZipFile.Entry entry = codeBase.zipFile.getEntry(zipEntry.getName());
+        if (entry == null) {
+            throw new IllegalArgumentException("No entry " + zipEntry.getName() + " in " + codeBase);
+        }
+        return entry;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -48,7 +69,15 @@ public class ZipFileCodeBaseEntry extends AbstractScannableCodeBaseEntry {
      */
     @Override
     public int getNumBytes() {
-        return (int) zipEntry.getSize();
+        return zipEntry.getSize();
+    }
+
+    /**
+     * @return the CRC-32 of the entry data recorded in the archive, or -1 if
+     *         not known
+     */
+    long getCrc() {
+        return zipEntry.getCrc();
     }
 
     /*
@@ -61,6 +90,37 @@ public class ZipFileCodeBaseEntry extends AbstractScannableCodeBaseEntry {
         return codeBase.zipFile.getInputStream(zipEntry);
     }
 
+    /**
+     * Read the data of the entry directly from the mapped zip file, without
+     * going through a stream.
+     *
+     * @return the uncompressed data
+     */
+    public byte[] getBytes() throws IOException {
+        return codeBase.zipFile.getBytes(zipEntry);
+    }
+
+    /**
+     * Open the zip file stored in the entry, reading it in place.
+     *
+     * @param name
+     *            the name of the nested zip file, for messages
+     * @return the nested zip file, or null if the entry is compressed
+     * @throws java.util.zip.ZipException
+     *             if the entry is not a zip file MappedZipFile can read
+     */
+    @CheckForNull
+    MappedZipFile openNestedZipFile(String name) throws IOException {
+        return codeBase.zipFile.openNested(zipEntry, name);
+    }
+
+    /**
+     * @return the modification time of the entry, or -1 if not known
+     */
+    long getTime() {
+        return zipEntry.getTime();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -115,7 +175,7 @@ public class ZipFileCodeBaseEntry extends AbstractScannableCodeBaseEntry {
      */
     @Override
     public int hashCode() {
-        return 7919 * codeBase.hashCode() + zipEntry.hashCode();
+        return 7919 * codeBase.hashCode() + zipEntry.getName().hashCode();
     }
 
     /*
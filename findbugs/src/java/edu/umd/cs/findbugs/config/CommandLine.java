@@ -143,6 +143,17 @@ public abstract class CommandLine {
             maxWidth = width;
     }
 
+    /**
+     * @param option
+     *            an option, including the leading "-"
+     * @return true if the option was added by
+     *         {@link #addOption(String, String, String)}, i.e., it takes an
+     *         argument
+     */
+    public boolean requiresArgument(String option) {
+        return requiresArgumentSet.contains(option);
+    }
+
     /**
      * Don't list this option when printing Usage information
      *
@@ -25,8 +25,10 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 
+@ReportsPerClass
 public class AppendingToAnObjectOutputStream extends OpcodeStackDetector {
 
     BugReporter bugReporter;
@@ -24,6 +24,7 @@ import org.apache.bcel.classfile.Code;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.ba.XClass;
 import edu.umd.cs.findbugs.ba.XMethod;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
@@ -35,6 +36,7 @@ import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
  * 
  * @author Michael Midgley-Biggs
  */
+@ReportsPerClass
 public class AtomicityProblem extends OpcodeStackDetector {
 
     int priority = IGNORE_PRIORITY;
@@ -28,8 +28,10 @@ import org.apache.bcel.classfile.Method;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.ba.ClassContext;
 
+@ReportsPerClass
 public class BadAppletConstructor extends BytecodeScanningDetector {
     private BugReporter bugReporter;
 
@@ -26,9 +26,11 @@ import java.util.regex.PatternSyntaxException;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.StringAnnotation;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 
+@ReportsPerClass
 public class BadSyntaxForRegularExpression extends OpcodeStackDetector {
 
     BugReporter bugReporter;
@@ -25,7 +25,9 @@ import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 
+@ReportsPerClass
 public class BadUseOfReturnValue extends BytecodeScanningDetector {
 
     BugAccumulator bugAccumulator;
@@ -29,7 +29,9 @@ import org.apache.bcel.classfile.Method;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 
+@ReportsPerClass
 public class BadlyOverriddenAdapter extends BytecodeScanningDetector {
     private BugReporter bugReporter;
 
@@ -24,6 +24,7 @@ import org.apache.bcel.classfile.Code;
 import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.INullnessAnnotationDatabase;
 import edu.umd.cs.findbugs.ba.NullnessAnnotation;
@@ -34,6 +35,7 @@ import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 /**
  * @author alison
  */
+@ReportsPerClass
 public class BooleanReturnNull extends OpcodeStackDetector {
 
     BugAccumulator bugAccumulator;
@@ -45,6 +45,7 @@ import org.objectweb.asm.tree.MethodNode;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.LocalVariableAnnotation;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.asm.ClassNodeDetector;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
 import edu.umd.cs.findbugs.ba.Hierarchy;
@@ -73,6 +74,7 @@ import edu.umd.cs.findbugs.util.ClassName;
  * @author alienisty (Alessandro Nistico)
  * @author Andrey Loskutov
  */
+@ReportsPerClass
 public class CheckRelaxingNullnessAnnotation extends ClassNodeDetector {
 
     XClass xclass;
@@ -40,6 +40,7 @@ import edu.umd.cs.findbugs.ClassAnnotation;
 import edu.umd.cs.findbugs.IntAnnotation;
 import edu.umd.cs.findbugs.LocalVariableAnnotation;
 import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.StringAnnotation;
 import edu.umd.cs.findbugs.SystemProperties;
@@ -87,6 +88,7 @@ import edu.umd.cs.findbugs.util.Util;
  *
  * @author David Hovemeyer
  */
+@ReportsPerClass
 public class CheckTypeQualifiers extends CFGDetector {
     private static final boolean DEBUG = SystemProperties.getBoolean("ctq.debug");
 
@@ -10,6 +10,7 @@ import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.MethodAnnotation;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.ba.AnnotationDatabase;
 import edu.umd.cs.findbugs.ba.AnnotationEnumeration;
 import edu.umd.cs.findbugs.ba.XFactory;
@@ -38,6 +39,7 @@ import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
  *
  * @author Robin Fernandes
  */
+@ReportsPerClass
 public class DefaultEncodingDetector extends OpcodeStackDetector {
 
     private final BugAccumulator bugAccumulator;
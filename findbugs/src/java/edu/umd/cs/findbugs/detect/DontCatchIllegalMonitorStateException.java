@@ -28,10 +28,12 @@ import org.apache.bcel.classfile.ExceptionTable;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
+@ReportsPerClass
 public class DontCatchIllegalMonitorStateException extends PreorderVisitor implements Detector {
 
     private static final boolean DEBUG = SystemProperties.getBoolean("dcimse.debug");
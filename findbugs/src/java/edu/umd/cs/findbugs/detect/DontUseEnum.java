@@ -27,9 +27,11 @@ import org.apache.bcel.classfile.Method;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.LocalVariableAnnotation;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.bcel.PreorderDetector;
 
+@ReportsPerClass
 public class DontUseEnum extends PreorderDetector {
 
     BugReporter bugReporter;
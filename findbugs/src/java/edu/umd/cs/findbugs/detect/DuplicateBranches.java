@@ -40,6 +40,7 @@ import org.apache.bcel.util.ByteSequence;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.BasicBlock;
 import edu.umd.cs.findbugs.ba.CFG;
@@ -53,6 +54,7 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
  * @author Dave Brousius 4/2005 original author
  * @author Brian Cole 7/2006 serious reworking
  */
+@ReportsPerClass
 public class DuplicateBranches extends PreorderVisitor implements Detector {
     private ClassContext classContext;
 
@@ -26,6 +26,7 @@ import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.JavaClass;
 
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ConcurrentFirstPassDetector;
 import edu.umd.cs.findbugs.NonReportingDetector;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.ProgramPoint;
@@ -39,13 +40,13 @@ import edu.umd.cs.findbugs.ba.ch.Subtypes2;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
-public class FieldItemSummary extends OpcodeStackDetector implements NonReportingDetector {
+public class FieldItemSummary extends OpcodeStackDetector implements NonReportingDetector, ConcurrentFirstPassDetector {
 
-    FieldSummary fieldSummary = new FieldSummary();
+    final FieldSummary fieldSummary;
 
     public FieldItemSummary(BugReporter bugReporter) {
         AnalysisContext context = AnalysisContext.currentAnalysisContext();
-        context.setFieldSummary(fieldSummary);
+        fieldSummary = context.findOrCreateFieldSummary();
     }
 
     Set<XField> touched = new HashSet<XField>();
@@ -145,7 +146,8 @@ public class FieldItemSummary extends OpcodeStackDetector implements NonReportin
 
     @Override
     public void report() {
-        fieldSummary.setComplete(true);
+        if (!fieldSummary.isComplete())
+            fieldSummary.setComplete(true);
     }
 
 }
@@ -31,7 +31,9 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
 import edu.umd.cs.findbugs.FieldAnnotation;
+import edu.umd.cs.findbugs.ReportsPerClass;
 
+@ReportsPerClass
 public class FindDoubleCheck extends BytecodeScanningDetector {
     static final boolean DEBUG = false;
 
@@ -22,7 +22,9 @@ package edu.umd.cs.findbugs.detect;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 
+@ReportsPerClass
 public class FindEmptySynchronizedBlock extends BytecodeScanningDetector {
 
     BugReporter bugReporter;
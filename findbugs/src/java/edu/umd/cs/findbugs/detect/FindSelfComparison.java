@@ -30,6 +30,7 @@ import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.FieldAnnotation;
 import edu.umd.cs.findbugs.LocalVariableAnnotation;
 import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.SignatureParser;
@@ -39,6 +40,7 @@ import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 import edu.umd.cs.findbugs.util.EditDistance;
 import edu.umd.cs.findbugs.util.Util;
 
+@ReportsPerClass
 public class FindSelfComparison extends OpcodeStackDetector {
 
     final BugAccumulator bugAccumulator;
@@ -32,6 +32,7 @@ import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.ba.CFG;
 import edu.umd.cs.findbugs.ba.CFGBuilderException;
 import edu.umd.cs.findbugs.ba.ClassContext;
@@ -45,6 +46,7 @@ import edu.umd.cs.findbugs.ba.LockSet;
  * 
  * @author David Hovemeyer
  */
+@ReportsPerClass
 public class FindSleepWithLockHeld implements Detector {
 
     private final BugReporter bugReporter;
@@ -44,6 +44,7 @@ import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.Detector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.ba.BasicBlock;
 import edu.umd.cs.findbugs.ba.CFG;
@@ -67,6 +68,7 @@ import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
  * @author Bill Pugh
  * @author Matt Hargett
  */
+@ReportsPerClass
 public class FindSqlInjection implements Detector {
     private static class StringAppendState {
         // remember the smallest position at which we saw something that
@@ -56,6 +56,7 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.Detector;
 import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.ba.AnalysisContext;
@@ -103,6 +104,7 @@ import edu.umd.cs.findbugs.util.MultiMap;
  * @author Nat Ayewah
  * @author William Pugh
  */
+@ReportsPerClass
 public class FindUnrelatedTypesInGenericContainer implements Detector {
 
     private final BugReporter bugReporter;
@@ -7,10 +7,12 @@ import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.util.ClassName;
 
+@ReportsPerClass
 public class IDivResultCastToDouble extends BytecodeScanningDetector {
     private static final boolean DEBUG = SystemProperties.getBoolean("idcd.debug");
 
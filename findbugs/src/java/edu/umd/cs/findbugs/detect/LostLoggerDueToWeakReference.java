@@ -27,6 +27,7 @@ import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
 
@@ -39,6 +40,7 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
  * logger reference. That means that the garbage collector is free to reclaim
  * that memory, which means that the logger configuration is lost.
  */
+@ReportsPerClass
 public class LostLoggerDueToWeakReference extends OpcodeStackDetector {
 
     final BugReporter bugReporter;
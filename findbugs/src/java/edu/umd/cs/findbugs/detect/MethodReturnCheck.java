@@ -29,6 +29,7 @@ import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.MethodAnnotation;
 import edu.umd.cs.findbugs.OpcodeStack;
 import edu.umd.cs.findbugs.OpcodeStack.Item;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.UseAnnotationDatabase;
@@ -48,6 +49,7 @@ import edu.umd.cs.findbugs.visitclass.PreorderVisitor;
  *
  * @author David Hovemeyer
  */
+@ReportsPerClass
 public class MethodReturnCheck extends OpcodeStackDetector implements UseAnnotationDatabase {
     private static final boolean DEBUG = SystemProperties.getBoolean("mrc.debug");
 
@@ -22,6 +22,7 @@ package edu.umd.cs.findbugs.detect;
 import org.apache.bcel.classfile.JavaClass;
 
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ConcurrentFirstPassDetector;
 import edu.umd.cs.findbugs.Detector;
 import edu.umd.cs.findbugs.NonReportingDetector;
 import edu.umd.cs.findbugs.ba.ClassContext;
@@ -30,7 +31,8 @@ import edu.umd.cs.findbugs.bcel.BCELUtil;
 /**
  * Scan classes for @CheckReturnValue annotations
  */
-public class NoteCheckReturnValueAnnotations extends BuildCheckReturnAnnotationDatabase implements Detector, NonReportingDetector {
+public class NoteCheckReturnValueAnnotations extends BuildCheckReturnAnnotationDatabase implements Detector, NonReportingDetector,
+        ConcurrentFirstPassDetector {
 
     public NoteCheckReturnValueAnnotations(BugReporter bugReporter) {
     }
@@ -20,6 +20,7 @@
 package edu.umd.cs.findbugs.detect;
 
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ConcurrentFirstPassDetector;
 import edu.umd.cs.findbugs.Detector;
 import edu.umd.cs.findbugs.InterproceduralFirstPassDetector;
 import edu.umd.cs.findbugs.NonReportingDetector;
@@ -32,7 +33,7 @@ import edu.umd.cs.findbugs.SystemProperties;
  * @author David Hovemeyer
  */
 public class NoteNonnullReturnValues extends BuildNonnullReturnDatabase implements Detector, NonReportingDetector,
-        InterproceduralFirstPassDetector {
+        InterproceduralFirstPassDetector, ConcurrentFirstPassDetector {
 
     public NoteNonnullReturnValues(BugReporter bugReporter) {
     }
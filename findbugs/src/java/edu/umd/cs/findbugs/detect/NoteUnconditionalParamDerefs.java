@@ -21,6 +21,7 @@ package edu.umd.cs.findbugs.detect;
 
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ConcurrentFirstPassDetector;
 import edu.umd.cs.findbugs.InterproceduralFirstPassDetector;
 import edu.umd.cs.findbugs.NonReportingDetector;
 
@@ -31,7 +32,7 @@ import edu.umd.cs.findbugs.NonReportingDetector;
  * @author David Hovemeyer
  */
 public class NoteUnconditionalParamDerefs extends BuildUnconditionalParamDerefDatabase implements NonReportingDetector,
-        InterproceduralFirstPassDetector {
+        InterproceduralFirstPassDetector, ConcurrentFirstPassDetector {
 
     final BugReporter reporter;
 
@@ -29,6 +29,7 @@ import org.apache.bcel.classfile.Code;
 import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.ba.XFactory;
 import edu.umd.cs.findbugs.ba.XMethod;
@@ -53,6 +54,7 @@ import edu.umd.cs.findbugs.util.ClassName;
  *
  * @author Mikko Tiihonen
  */
+@ReportsPerClass
 public class NumberConstructor extends OpcodeStackDetector {
 
     static class Pair {
@@ -45,8 +45,10 @@ import edu.umd.cs.findbugs.ba.ch.Subtypes2;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 import edu.umd.cs.findbugs.classfile.CheckedAnalysisException;
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
 import edu.umd.cs.findbugs.classfile.Global;
 import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import edu.umd.cs.findbugs.util.ClassName;
 
 public class OverridingEqualsNotSymmetrical extends OpcodeStackDetector implements FirstPassDetector {
 
@@ -467,10 +469,18 @@ public class OverridingEqualsNotSymmetrical extends OpcodeStackDetector implemen
             EqualsKindSummary.KindOfEquals parentKind = equalsKindSummary.get(parentClass);
 
             if (childKind == EqualsKindSummary.KindOfEquals.INSTANCE_OF_EQUALS
-                    && parentKind == EqualsKindSummary.KindOfEquals.INSTANCE_OF_EQUALS)
+                    && parentKind == EqualsKindSummary.KindOfEquals.INSTANCE_OF_EQUALS) {
+                MethodDescriptor parentEquals = equalsMethod.get(parentClass);
+                if (parentEquals == null) {
+                    // The parent class was visited by another worker of a
+                    // sharded analysis, which summarized its kind of equals
+                    parentEquals = DescriptorFactory.instance().getMethodDescriptor(
+                            ClassName.toSlashedClassName(parentClass.getClassName()), EQUALS_NAME, EQUALS_SIGNATURE, false);
+                }
                 bugReporter.reportBug(new BugInstance(this, "EQ_OVERRIDING_EQUALS_NOT_SYMMETRIC", NORMAL_PRIORITY)
-                        .add(childClass).addMethod(equalsMethod.get(childClass)).addMethod(equalsMethod.get(parentClass))
+                        .add(childClass).addMethod(equalsMethod.get(childClass)).addMethod(parentEquals)
                         .describe(MethodAnnotation.METHOD_OVERRIDDEN));
+            }
 
         }
 
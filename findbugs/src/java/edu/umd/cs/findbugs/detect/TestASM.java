@@ -30,6 +30,7 @@ import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.MethodAnnotation;
 import edu.umd.cs.findbugs.Priorities;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.asm.AbstractFBMethodVisitor;
 import edu.umd.cs.findbugs.asm.ClassNodeDetector;
 
@@ -38,6 +39,7 @@ import edu.umd.cs.findbugs.asm.ClassNodeDetector;
  * 
  * @author David Hovemeyer
  */
+@ReportsPerClass
 public class TestASM extends ClassNodeDetector {
 
     public TestASM(BugReporter bugReporter) {
@@ -23,8 +23,10 @@ import org.apache.bcel.classfile.Code;
 
 import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugReporter;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 
+@ReportsPerClass
 public class TestingGround extends OpcodeStackDetector {
 
     final BugReporter bugReporter;
@@ -27,12 +27,14 @@ import edu.umd.cs.findbugs.BugAccumulator;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.bcel.OpcodeStackDetector;
 
 /**
  * equals and hashCode are blocking methods on URL's. Warn about invoking equals
  * or hashCode on them, or defining Set or Maps with them as keys.
  */
+@ReportsPerClass
 public class URLProblems extends OpcodeStackDetector {
 
     final static String[] BAD_SIGNATURES = { "Hashtable<Ljava/net/URL", "Map<Ljava/net/URL", "Set<Ljava/net/URL" };
@@ -19,6 +19,9 @@
 
 package edu.umd.cs.findbugs.detect;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -28,6 +31,7 @@ import java.util.TreeSet;
 
 import edu.umd.cs.findbugs.ProgramPoint;
 import edu.umd.cs.findbugs.SourceLineAnnotation;
+import edu.umd.cs.findbugs.ba.FirstPassSummary;
 import edu.umd.cs.findbugs.ba.XField;
 import edu.umd.cs.findbugs.classfile.ClassDescriptor;
 import edu.umd.cs.findbugs.util.MultiMap;
@@ -101,6 +105,24 @@ public class UnreadFieldsData {
         return toldStrongEvidenceForIntendedSerialization.contains(c);
     }
 
+    /**
+     * Write the classes with strong evidence for intended serialization,
+     * which the first pass adds, for {@link #readSummary(DataInput)} in
+     * another analysis.
+     */
+    public void writeSummary(DataOutput out) throws IOException {
+        out.writeInt(toldStrongEvidenceForIntendedSerialization.size());
+        for (ClassDescriptor c : toldStrongEvidenceForIntendedSerialization) {
+            FirstPassSummary.writeClass(out, c);
+        }
+    }
+
+    public void readSummary(DataInput in) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            strongEvidenceForIntendedSerialization(FirstPassSummary.readClass(in));
+        }
+    }
+
     public boolean isWrittenOutsideOfInitialization(XField f) {
         return writtenOutsideOfInitializationFields.contains(f);
     }
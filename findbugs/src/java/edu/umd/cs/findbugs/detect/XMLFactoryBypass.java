@@ -28,9 +28,11 @@ import org.apache.bcel.classfile.JavaClass;
 import edu.umd.cs.findbugs.BugInstance;
 import edu.umd.cs.findbugs.BugReporter;
 import edu.umd.cs.findbugs.BytecodeScanningDetector;
+import edu.umd.cs.findbugs.ReportsPerClass;
 import edu.umd.cs.findbugs.ba.ClassContext;
 import edu.umd.cs.findbugs.internalAnnotations.StaticConstant;
 
+@ReportsPerClass
 public class XMLFactoryBypass extends BytecodeScanningDetector {
     private final BugReporter bugReporter;
 
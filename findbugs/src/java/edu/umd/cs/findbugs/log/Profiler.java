@@ -46,7 +46,6 @@ public class Profiler implements XMLWriteable {
     final static boolean MAX_CONTEXT = SystemProperties.getBoolean("findbugs.profiler.maxcontext");
 
     public Profiler() {
-        startTimes = new Stack<Clock>();
         profile = new ConcurrentHashMap<Class<?>, Profile>();
         if (REPORT)
             System.err.println("Profiling activated");
@@ -204,22 +203,38 @@ public class Profiler implements XMLWriteable {
 
     }
 
-    final Stack<Clock> startTimes;
+    /**
+     * Timing and context stacks are kept per thread, so that analysis threads
+     * working concurrently (see {@link FindBugs2#setThreads(int)}) can share
+     * one profiler. Only the accumulated profiles are shared.
+     */
+    final ThreadLocal<Stack<Clock>> startTimes = new ThreadLocal<Stack<Clock>>() {
+        @Override
+        protected Stack<Clock> initialValue() {
+            return new Stack<Clock>();
+        }
+    };
 
     final ConcurrentHashMap<Class<?>, Profile> profile;
-    
-    final Stack<Object> context = new Stack<Object>();
-    
+
+    final ThreadLocal<Stack<Object>> contextStack = new ThreadLocal<Stack<Object>>() {
+        @Override
+        protected Stack<Object> initialValue() {
+            return new Stack<Object>();
+        }
+    };
+
     public void startContext(Object context) {
-        this.context.push(context);
+        contextStack.get().push(context);
     }
-    
+
     public void endContext(Object context) {
-        Object o = this.context.pop();
+        Object o = contextStack.get().pop();
         assert o == context;
     }
 
     private Object getContext() {
+        Stack<Object> context = contextStack.get();
         if (context.size() == 0)
             return "";
         try {
@@ -231,7 +246,7 @@ public class Profiler implements XMLWriteable {
     public void start(Class<?> c) {
         long currentNanoTime = System.nanoTime();
 
-        Stack<Clock> stack = startTimes;
+        Stack<Clock> stack = startTimes.get();
         if (!stack.isEmpty()) {
             stack.peek().accumulateTime(currentNanoTime);
         }
@@ -244,7 +259,7 @@ public class Profiler implements XMLWriteable {
         // System.err.println("pop " + c.getSimpleName());
         long currentNanoTime = System.nanoTime();
 
-        Stack<Clock> stack = startTimes;
+        Stack<Clock> stack = startTimes.get();
         Clock ending = stack.pop();
         if (ending.clazz != c) {
             throw new AssertionError("Asked to end timing for " + c + " but top of stack is " + ending.clazz
@@ -410,7 +425,32 @@ public class Profiler implements XMLWriteable {
      */
     public void clear() {
         profile.clear();
-        startTimes.clear();
+        startTimes.get().clear();
+    }
+
+    /**
+     * Get the number of calls recorded for given class so far.
+     *
+     * @param c
+     *            the profiled class
+     * @return number of calls, or 0 if the class has not been profiled
+     */
+    public int getTotalCalls(Class<?> c) {
+        Profile result = profile.get(c);
+        return result == null ? 0 : result.totalCalls.get();
+    }
+
+    /**
+     * Get the time recorded for given class so far.
+     *
+     * @param c
+     *            the profiled class
+     * @return total time in nanoseconds, or 0 if the class has not been
+     *         profiled
+     */
+    public long getTotalTime(Class<?> c) {
+        Profile result = profile.get(c);
+        return result == null ? 0 : result.getTotalTime();
     }
 
     public Profile getProfile(Class<?> c) {
@@ -26,17 +26,21 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import edu.umd.cs.findbugs.Detector;
 import edu.umd.cs.findbugs.DetectorFactory;
 import edu.umd.cs.findbugs.DetectorFactoryChooser;
 import edu.umd.cs.findbugs.DetectorFactoryCollection;
+import edu.umd.cs.findbugs.FindBugs;
 import edu.umd.cs.findbugs.FindBugs2;
 import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginException;
 import edu.umd.cs.findbugs.SystemProperties;
 import edu.umd.cs.findbugs.graph.DepthFirstSearch;
 import edu.umd.cs.findbugs.internalAnnotations.DottedClassName;
@@ -52,6 +56,35 @@ public class ExecutionPlan {
 
     public static final boolean DEBUG = SystemProperties.getBoolean("findbugs.execplan.debug");
 
+    /** Maximum number of built plans remembered, 0 to always build plans */
+    private static final int PLAN_CACHE_SIZE = SystemProperties.getInt("findbugs.execplan.cacheSize", 16);
+
+    /**
+     * The passes of a built plan, by detector class name, so that plans with
+     * the same plugins and enabled detectors (e.g. the repeated runs of an
+     * analysis daemon) don't have to be built again.
+     */
+    private static final class CachedPlan {
+        final String[][] passes;
+
+        /** detectors enabled only because an enabled detector requires them */
+        final String[] forcedEnabled;
+
+        CachedPlan(String[][] passes, String[] forcedEnabled) {
+            this.passes = passes;
+            this.forcedEnabled = forcedEnabled;
+        }
+    }
+
+    private static final Map<String, CachedPlan> planCache = new LinkedHashMap<String, CachedPlan>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPlan> eldest) {
+            return size() > PLAN_CACHE_SIZE;
+        }
+    };
+
     private List<Plugin> pluginList;
 
     private DetectorFactoryChooser factoryChooser;
@@ -66,6 +99,12 @@ public class ExecutionPlan {
 
     private Set<DetectorFactory> assignedToPassSet;
 
+    private Set<DetectorFactory> unloadableSet;
+
+    private long buildTime;
+
+    private boolean fromCache;
+
     /**
      * Constructor. Creates an empty plan.
      */
@@ -87,6 +126,7 @@ public class ExecutionPlan {
         this.interPassConstraintList = new LinkedList<DetectorOrderingConstraint>();
         this.intraPassConstraintList = new LinkedList<DetectorOrderingConstraint>();
         this.assignedToPassSet = new HashSet<DetectorFactory>();
+        this.unloadableSet = new HashSet<DetectorFactory>();
     }
 
     public void dispose() {
@@ -97,6 +137,7 @@ public class ExecutionPlan {
         interPassConstraintList.clear();
         intraPassConstraintList.clear();
         assignedToPassSet.clear();
+        unloadableSet.clear();
     }
 
     /**
@@ -144,14 +185,132 @@ public class ExecutionPlan {
     /**
      * Build the execution plan. Using the ordering constraints specified in the
      * plugin descriptor(s), assigns Detectors to passes and orders the
-     * Detectors within those passes.
+     * Detectors within those passes. The passes of the last few plans built
+     * are remembered (see the findbugs.execplan.cacheSize property), and
+     * copied when the same plugins and detectors are chosen again.
+     * <p>
+     * The classes of the detectors to be run are loaded here. Detectors whose
+     * class can't be loaded, or is not a detector, are reported as plugin
+     * errors and left out of the plan.
      */
     public void build() throws OrderingConstraintException {
+        long start = System.nanoTime();
+        try {
+            for (DetectorFactory detectorFactory : factoryMap.values()) {
+                detectorFactory.setEnabledButNonReporting(false);
+            }
+
+            for (Iterator<DetectorFactory> i = factoryMap.values().iterator(); i.hasNext();) {
+                DetectorFactory detectorFactory = i.next();
+                if (factoryChooser.choose(detectorFactory) && !isLoadable(detectorFactory)) {
+                    i.remove();
+                }
+            }
+
+            Set<String> chosenSet = new TreeSet<String>();
+            for (DetectorFactory detectorFactory : factoryMap.values()) {
+                if (factoryChooser.choose(detectorFactory)) {
+                    chosenSet.add(detectorFactory.getFullName());
+                }
+            }
+            StringBuilder buf = new StringBuilder();
+            for (Plugin plugin : pluginList) {
+                buf.append(plugin.getPluginId()).append('/').append(plugin.getVersion()).append(';');
+            }
+            buf.append(chosenSet);
+            String key = buf.toString();
 
-        for (DetectorFactory detectorFactory : factoryMap.values()) {
-            detectorFactory.setEnabledButNonReporting(false);
+            CachedPlan cachedPlan;
+            synchronized (planCache) {
+                cachedPlan = planCache.get(key);
+            }
+            fromCache = cachedPlan != null;
+            if (fromCache) {
+                restore(cachedPlan);
+            } else {
+                buildPlan();
+                cachedPlan = save(chosenSet);
+                synchronized (planCache) {
+                    planCache.put(key, cachedPlan);
+                }
+            }
+            if (DEBUG)
+                print();
+        } finally {
+            buildTime = System.nanoTime() - start;
         }
+    }
+
+    /**
+     * Load the class of a detector to be run, reporting it as a plugin error
+     * if it can't be.
+     */
+    private boolean isLoadable(DetectorFactory factory) {
+        if (FindBugs.isNoAnalysis()) {
+            return true;
+        }
+        if (unloadableSet.contains(factory)) {
+            return false;
+        }
+        try {
+            factory.loadDetectorClass();
+            return true;
+        } catch (PluginException e) {
+            // Logged by the factory
+            unloadableSet.add(factory);
+            return false;
+        }
+    }
+
+    /**
+     * @return the time spent building the plan, in nanoseconds
+     */
+    public long getBuildTime() {
+        return buildTime;
+    }
+
+    /**
+     * @return true if the plan was not built, but copied from a previously
+     *         built plan with the same plugins and enabled detectors
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    private CachedPlan save(Set<String> chosenSet) {
+        String[][] passes = new String[passList.size()][];
+        int passCount = 0;
+        for (AnalysisPass pass : passList) {
+            List<String> names = new ArrayList<String>();
+            for (Iterator<DetectorFactory> i = pass.iterator(); i.hasNext();) {
+                names.add(i.next().getFullName());
+            }
+            passes[passCount++] = names.toArray(new String[names.size()]);
+        }
+        Set<String> forcedEnabled = new TreeSet<String>(factoryMap.keySet());
+        forcedEnabled.removeAll(chosenSet);
+        return new CachedPlan(passes, forcedEnabled.toArray(new String[forcedEnabled.size()]));
+    }
+
+    private void restore(CachedPlan cachedPlan) {
+        for (String name : cachedPlan.forcedEnabled) {
+            factoryChooser.enable(factoryMap.get(name));
+        }
+        Set<String> plannedSet = new HashSet<String>();
+        for (String[] names : cachedPlan.passes) {
+            AnalysisPass pass = new AnalysisPass();
+            addPass(pass);
+            for (String name : names) {
+                DetectorFactory factory = factoryMap.get(name);
+                assignToPass(factory, pass);
+                appendToPass(factory, pass);
+                plannedSet.add(name);
+            }
+        }
+        factoryMap.keySet().retainAll(plannedSet);
+    }
 
+    private void buildPlan() throws OrderingConstraintException {
         ArrayList<DetectorOrderingConstraint> allConstraints = new ArrayList<DetectorOrderingConstraint>(
                 interPassConstraintList.size() + intraPassConstraintList.size());
         allConstraints.addAll(interPassConstraintList);
@@ -176,7 +335,7 @@ public class ExecutionPlan {
                         // if it was the earlier detector in a single-source
                         // constraint.
                         //
-                        if (!factoryChooser.choose(startFactory) && edge.isSingleSource()) {
+                        if (!factoryChooser.choose(startFactory) && edge.isSingleSource() && isLoadable(startFactory)) {
                             factoryChooser.enable(startFactory);
                             change = true;
                             if (DEBUG || FindBugs2.DEBUG) {
@@ -234,8 +393,6 @@ public class ExecutionPlan {
             }
             appendDetectorsToPass(unassignedSet, lastPass);
         }
-        if (DEBUG)
-            print();
     }
 
     /**
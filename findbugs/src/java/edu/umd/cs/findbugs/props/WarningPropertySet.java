@@ -18,7 +18,7 @@
  */
 package edu.umd.cs.findbugs.props;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.annotation.CheckReturnValue;
@@ -60,7 +60,9 @@ public class WarningPropertySet<T extends WarningProperty> implements Cloneable
      * Constructor Creates empty object.
      */
     public WarningPropertySet() {
-        this.map = new HashMap<T, Object>();
+        // WarningProperty objects use identity hash codes; keep insertion
+        // order so that the properties are reported deterministically
+        this.map = new LinkedHashMap<T, Object>();
     }
 
     @Override
@@ -20,8 +20,10 @@
 package edu.umd.cs.findbugs.util;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
@@ -82,6 +84,33 @@ public class TopologicalSort {
         }
     }
 
+    /**
+     * Group elements by their level in the graph of strongly connected
+     * components. The elements of a component are put on consecutive levels, in
+     * list order, so that each of them comes after the elements of its
+     * component that precede it in the list. The first element of a component
+     * without out edges to other components is on level 0; the first element
+     * of any other component is one level above the highest element of the
+     * components it has edges to. So, once all lower levels are done, the
+     * elements of a level can be processed in any order, or at the same time.
+     *
+     * @param elements
+     *            the elements, in the order preferred within a level
+     * @param outEdges
+     *            the out edges; edges to elements not in the list are ignored
+     * @return the levels, lowest first, each with its elements in the order of
+     *         the given list
+     */
+    public static <E> List<List<E>> sortByDependencyLevel(List<E> elements, OutEdges<E> outEdges) {
+        Profiler profile = Global.getAnalysisCache().getProfiler();
+        profile.start(TopologicalSort.class);
+        try {
+            return new LevelWorker<E>(elements, outEdges).compute();
+        } finally {
+            profile.end(TopologicalSort.class);
+        }
+    }
+
     public static <E> void countBadEdges(List<E> elements, OutEdges<E> outEdges) {
         if (!DEBUG)
             return;
@@ -280,4 +309,148 @@ public class TopologicalSort {
         }
 
     }
+
+    /**
+     * Computes the strongly connected components with Tarjan's algorithm, which
+     * finds every component after all components it has edges to, and assigns
+     * the levels as the components are found.
+     */
+    static class LevelWorker<E> {
+        final List<E> elements;
+
+        final int[][] successors;
+
+        final int[] index;
+
+        final int[] lowLink;
+
+        final int[] level;
+
+        final int[] component;
+
+        /** Highest level of the elements of each component */
+        final int[] componentTop;
+
+        int components;
+
+        final boolean[] onStack;
+
+        final int[] stack;
+
+        int stackSize;
+
+        int nextIndex;
+
+        int maxLevel = -1;
+
+        LevelWorker(List<E> elements, OutEdges<E> outEdges) {
+            this.elements = elements;
+            int n = elements.size();
+            Map<E, Integer> position = new HashMap<E, Integer>();
+            for (int i = 0; i < n; i++) {
+                position.put(elements.get(i), i);
+            }
+            successors = new int[n][];
+            for (int i = 0; i < n; i++) {
+                Collection<E> out = outEdges.getOutEdges(elements.get(i));
+                int[] s = new int[out.size()];
+                int count = 0;
+                for (E e2 : out) {
+                    Integer j = position.get(e2);
+                    if (j != null && j != i) {
+                        s[count++] = j;
+                    }
+                }
+                successors[i] = Arrays.copyOf(s, count);
+            }
+            index = new int[n];
+            Arrays.fill(index, -1);
+            lowLink = new int[n];
+            level = new int[n];
+            component = new int[n];
+            componentTop = new int[n];
+            onStack = new boolean[n];
+            stack = new int[n];
+        }
+
+        List<List<E>> compute() {
+            int n = elements.size();
+            int[] callStack = new int[n];
+            int[] nextSuccessor = new int[n];
+            for (int root = 0; root < n; root++) {
+                if (index[root] >= 0) {
+                    continue;
+                }
+                int depth = 0;
+                callStack[0] = root;
+                start(root);
+                while (depth >= 0) {
+                    int v = callStack[depth];
+                    if (nextSuccessor[v] < successors[v].length) {
+                        int w = successors[v][nextSuccessor[v]++];
+                        if (index[w] < 0) {
+                            start(w);
+                            callStack[++depth] = w;
+                        } else if (onStack[w]) {
+                            lowLink[v] = Math.min(lowLink[v], index[w]);
+                        }
+                    } else {
+                        if (lowLink[v] == index[v]) {
+                            popComponent(v);
+                        }
+                        depth--;
+                        if (depth >= 0) {
+                            int u = callStack[depth];
+                            lowLink[u] = Math.min(lowLink[u], lowLink[v]);
+                        }
+                    }
+                }
+            }
+
+            List<List<E>> result = new ArrayList<List<E>>(maxLevel + 1);
+            for (int i = 0; i <= maxLevel; i++) {
+                result.add(new ArrayList<E>());
+            }
+            for (int i = 0; i < n; i++) {
+                result.get(level[i]).add(elements.get(i));
+            }
+            return result;
+        }
+
+        private void start(int v) {
+            index[v] = lowLink[v] = nextIndex++;
+            stack[stackSize++] = v;
+            onStack[v] = true;
+        }
+
+        private void popComponent(int root) {
+            int first = stackSize;
+            do {
+                first--;
+            } while (stack[first] != root);
+
+            int id = components++;
+            for (int k = first; k < stackSize; k++) {
+                onStack[stack[k]] = false;
+                component[stack[k]] = id;
+            }
+            // All components this one has edges to are already complete
+            int componentLevel = 0;
+            for (int k = first; k < stackSize; k++) {
+                for (int w : successors[stack[k]]) {
+                    if (component[w] != id) {
+                        componentLevel = Math.max(componentLevel, componentTop[component[w]] + 1);
+                    }
+                }
+            }
+            int[] members = Arrays.copyOfRange(stack, first, stackSize);
+            Arrays.sort(members);
+            for (int k = 0; k < members.length; k++) {
+                level[members[k]] = componentLevel + k;
+            }
+            componentTop[id] = componentLevel + members.length - 1;
+            maxLevel = Math.max(maxLevel, componentTop[id]);
+            stackSize = first;
+        }
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.workflow;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.umd.cs.findbugs.CheckBcel;
+import edu.umd.cs.findbugs.FindBugs;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.SystemProperties;
+import edu.umd.cs.findbugs.TextUICommandLine;
+import edu.umd.cs.findbugs.classfile.impl.LibrarySummary;
+import edu.umd.cs.findbugs.classfile.impl.PersistentClassAnalysisCache;
+import edu.umd.cs.findbugs.config.CommandLine;
+
+/**
+ * Write the summary of a library jar, for analyses which have the library on
+ * the aux classpath (see the -librarySummaries option). The library is
+ * analyzed once, in training mode, as application code; the summary holds
+ * its class information and the nullness facts of its methods.
+ *
+ * @see LibrarySummary
+ */
+public class SummarizeLibrary {
+
+    static class SummarizeLibraryCommandLine extends CommandLine {
+        String auxClasspath;
+
+        SummarizeLibraryCommandLine() {
+            addOption("-auxclasspath", "classpath", "classpath of the libraries used by the library");
+        }
+
+        @Override
+        protected void handleOption(String option, String optionExtraPart) throws IOException {
+            throw new IllegalArgumentException("Unknown option : " + option);
+        }
+
+        @Override
+        protected void handleOptionWithArgument(String option, String argument) throws IOException {
+            if (option.equals("-auxclasspath")) {
+                auxClasspath = argument;
+            } else {
+                throw new IllegalArgumentException("Unknown option : " + option);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!CheckBcel.check()) {
+            System.exit(1);
+        }
+        SummarizeLibraryCommandLine commandLine = new SummarizeLibraryCommandLine();
+        int argCount = commandLine.parse(args, 2, 2, "Usage: " + SummarizeLibrary.class.getName()
+                + " [options] <library jar> <summary file>");
+        File library = new File(args[argCount]).getAbsoluteFile();
+        File summaryFile = new File(args[argCount + 1]);
+
+        File workDir = File.createTempFile("findbugs", ".summary");
+        if (!workDir.delete() || !workDir.mkdir()) {
+            throw new IOException("Could not create directory " + workDir);
+        }
+        try {
+            File cacheDir = new File(workDir, "cache");
+            File trainingDir = new File(workDir, "training");
+            if (!trainingDir.mkdir()) {
+                throw new IOException("Could not create directory " + trainingDir);
+            }
+            SystemProperties.setProperty(PersistentClassAnalysisCache.DIRECTORY_PROPERTY, cacheDir.getPath());
+
+            List<String> analysisArgs = new ArrayList<String>();
+            analysisArgs.add("-quiet");
+            analysisArgs.add("-xml");
+            analysisArgs.add("-output");
+            analysisArgs.add(new File(workDir, "results.xml").getPath());
+            analysisArgs.add("-train:" + trainingDir.getPath());
+            analysisArgs.add("-chooseVisitors");
+            analysisArgs.add("+NoteNonnullReturnValues");
+            if (commandLine.auxClasspath != null) {
+                analysisArgs.add("-auxclasspath");
+                analysisArgs.add(commandLine.auxClasspath);
+            }
+            analysisArgs.add(library.getPath());
+
+            FindBugs2 findBugs = new FindBugs2();
+            FindBugs.processCommandLine(new TextUICommandLine(), analysisArgs.toArray(new String[analysisArgs.size()]),
+                    findBugs);
+            findBugs.execute();
+
+            LibrarySummary.write(summaryFile, library, cacheDir, trainingDir);
+        } finally {
+            delete(workDir);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] contents = file.listFiles();
+        if (contents != null) {
+            for (File f : contents) {
+                delete(f);
+            }
+        }
+        if (!file.delete()) {
+            System.err.println("Could not delete " + file);
+        }
+    }
+}
@@ -21,6 +21,7 @@ package edu.umd.cs.findbugs.workflow;
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Iterator;
 
 import org.dom4j.DocumentException;
 
@@ -91,14 +92,36 @@ public class UnionResults {
         return result;
     }
     static public void merge(HashSet<String> hashes, SortedBugCollection into, SortedBugCollection from) {
+        merge(hashes, into, from, true);
+    }
+
+    /**
+     * Merge the results of an analysis into other results.
+     *
+     * @param hashes
+     *            instance hashes of the warnings already merged, or null to
+     *            merge all warnings
+     * @param into
+     *            the results to merge into
+     * @param from
+     *            the results to merge
+     * @param addStats
+     *            true to add the class statistics of the results; false if
+     *            both were computed for the same classes, e.g., by the
+     *            workers of a sharded analysis. The bug counts are updated in
+     *            any case.
+     */
+    static public void merge(HashSet<String> hashes, SortedBugCollection into, SortedBugCollection from, boolean addStats) {
 
         for (BugInstance bugInstance : from.getCollection()) {
             if (hashes == null || hashes.add(bugInstance.getInstanceHash()))
                 into.add(bugInstance);
         }
-        ProjectStats stats = into.getProjectStats();
-        ProjectStats stats2 = from.getProjectStats();
-        stats.addStats(stats2);
+        if (addStats) {
+            ProjectStats stats = into.getProjectStats();
+            ProjectStats stats2 = from.getProjectStats();
+            stats.addStats(stats2);
+        }
 
         Project project = into.getProject();
         Project project2 = from.getProject();
@@ -107,6 +130,9 @@ public class UnionResults {
         for(AnalysisError error : from.getErrors())
             into.addError(error);
 
+        for (Iterator<String> i = from.missingClassIterator(); i.hasNext();)
+            into.addMissingClass(i.next());
+
         return;
     }
 
@@ -0,0 +1,47 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import junit.framework.TestCase;
+
+public class AnalysisCheckpointTest extends TestCase {
+    private static DetectorFactory getFactory(String className) {
+        DetectorFactory factory = DetectorFactoryCollection.instance().getFactoryByClassName(className);
+        assertNotNull(className, factory);
+        return factory;
+    }
+
+    public void testMarkedDetectorReportsPerClass() {
+        assertTrue(AnalysisCheckpoint.reportsPerClass(getFactory("edu.umd.cs.findbugs.detect.FindNullDeref")));
+    }
+
+    public void testStatelessDetectorReportsPerClass() {
+        assertTrue(AnalysisCheckpoint.reportsPerClass(getFactory("edu.umd.cs.findbugs.detect.CloneIdiom")));
+    }
+
+    public void testUnmarkedDetectorSeesEveryClass() {
+        assertFalse(AnalysisCheckpoint.reportsPerClass(getFactory("edu.umd.cs.findbugs.detect.UnreadFields")));
+        assertFalse(AnalysisCheckpoint.reportsPerClass(getFactory("edu.umd.cs.findbugs.detect.FindInconsistentSync2")));
+    }
+
+    public void testNonReportingDetectorSeesEveryClass() {
+        assertFalse(AnalysisCheckpoint.reportsPerClass(getFactory("edu.umd.cs.findbugs.detect.NoteSuppressedWarnings")));
+    }
+}
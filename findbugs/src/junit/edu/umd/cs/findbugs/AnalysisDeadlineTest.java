@@ -0,0 +1,157 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.log.Profiler;
+
+public class AnalysisDeadlineTest extends TestCase {
+
+    private static final ClassDescriptor FOO = DescriptorFactory.createClassDescriptor("test/Foo");
+
+    private static final String NULL_DEREF = "edu.umd.cs.findbugs.detect.FindNullDeref";
+
+    private static final String DEAD_STORES = "edu.umd.cs.findbugs.detect.FindDeadLocalStores";
+
+    private static final String CALLED_METHODS = "edu.umd.cs.findbugs.detect.CalledMethods";
+
+    private final List<String> errors = new ArrayList<String>();
+
+    private BugReporter bugReporter;
+
+    private DetectorFactory[] factories;
+
+    @Override
+    @SuppressWarnings("deprecation")
+    protected void setUp() throws Exception {
+        bugReporter = new PrintingBugReporter() {
+            @Override
+            public void logError(String message) {
+                errors.add(message);
+            }
+        };
+        PluginLoader pluginLoader = new PluginLoader(true, new URL("file:/plugins/analysisDeadlineTest.jar"));
+        Plugin plugin = new Plugin("edu.umd.cs.findbugs.deadline.test", "1.0", null, pluginLoader, true, false);
+        factories = new DetectorFactory[] { new DetectorFactory(plugin, DEAD_STORES, null, true, "fast", "", null),
+                new DetectorFactory(plugin, NULL_DEREF, null, true, "slow", "", null),
+                new DetectorFactory(plugin, CALLED_METHODS, null, true, "slow", "", null) };
+    }
+
+    private static Detector2 detector(final String className) {
+        return new Detector2() {
+            @Override
+            public void visitClass(ClassDescriptor classDescriptor) {
+            }
+
+            @Override
+            public void finishPass() {
+            }
+
+            @Override
+            public String getDetectorClassName() {
+                return className;
+            }
+        };
+    }
+
+    /**
+     * Pretend that enough classes were analyzed, slowly enough, for the rest
+     * of the pass not to be done in time.
+     */
+    private void analyzeSlowly(AnalysisDeadline deadline) throws InterruptedException {
+        Thread.sleep(10);
+        deadline.classesAnalyzed(8, 100000000, factories);
+    }
+
+    public void testOnTime() throws Exception {
+        AnalysisDeadline deadline = new AnalysisDeadline(System.currentTimeMillis() + 3600000, new Profiler());
+        deadline.startPass();
+        assertFalse(deadline.isPassed());
+        assertTrue(deadline.startClass(FOO));
+        deadline.classesAnalyzed(8, 10, factories);
+        assertFalse(deadline.isDropped(factories[0]));
+        assertFalse(deadline.isDropped(factories[1]));
+        assertTrue(deadline.isComplete());
+        assertTrue(deadline.shouldFinishPass(detector(NULL_DEREF), factories));
+        deadline.reportSkipped(bugReporter);
+        assertTrue(errors.isEmpty());
+    }
+
+    public void testNoEstimateFromFewClasses() throws Exception {
+        AnalysisDeadline deadline = new AnalysisDeadline(System.currentTimeMillis() + 60000, new Profiler());
+        deadline.startPass();
+        Thread.sleep(10);
+        deadline.classesAnalyzed(7, 100000000, factories);
+        assertTrue(deadline.isComplete());
+    }
+
+    public void testDropOrder() throws Exception {
+        AnalysisDeadline deadline = new AnalysisDeadline(System.currentTimeMillis() + 60000, new Profiler());
+        deadline.startPass();
+
+        // Slow detectors go first
+        analyzeSlowly(deadline);
+        assertFalse(deadline.isComplete());
+        assertTrue(deadline.isDropped(factories[1]));
+        assertFalse(deadline.isDropped(factories[0]));
+
+        analyzeSlowly(deadline);
+        assertTrue(deadline.isDropped(factories[0]));
+
+        // Detectors which don't report are never dropped
+        analyzeSlowly(deadline);
+        assertFalse(deadline.isDropped(factories[2]));
+
+        assertFalse(deadline.shouldFinishPass(detector(NULL_DEREF), factories));
+        assertFalse(deadline.shouldFinishPass(detector(DEAD_STORES), factories));
+        assertTrue(deadline.shouldFinishPass(detector(CALLED_METHODS), factories));
+
+        deadline.reportSkipped(bugReporter);
+        assertEquals(2, errors.size());
+        assertEquals("Analysis deadline: detector FindNullDeref skipped for 1 classes", errors.get(0));
+        assertEquals("Analysis deadline: detector FindDeadLocalStores skipped for 1 classes", errors.get(1));
+    }
+
+    public void testPassed() throws Exception {
+        AnalysisDeadline deadline = new AnalysisDeadline(System.currentTimeMillis() - 1, new Profiler());
+        deadline.startPass();
+        assertTrue(deadline.isPassed());
+        assertFalse(deadline.startClass(FOO));
+        assertFalse(deadline.isComplete());
+
+        // Reporting detectors missed a class
+        assertFalse(deadline.shouldFinishPass(detector(DEAD_STORES), factories));
+        assertTrue(deadline.shouldFinishPass(detector(CALLED_METHODS), factories));
+
+        deadline.reportSkipped(bugReporter);
+        assertEquals(1, errors.size());
+        assertEquals("Analysis deadline: 1 classes not analyzed: test.Foo", errors.get(0));
+
+        // Only classes skipped in the pass count for the next one
+        deadline.startPass();
+        assertTrue(deadline.shouldFinishPass(detector(DEAD_STORES), factories));
+    }
+}
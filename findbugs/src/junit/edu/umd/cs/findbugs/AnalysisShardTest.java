@@ -0,0 +1,101 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+
+public class AnalysisShardTest extends TestCase {
+    private static final AnalysisShard.Barrier NO_BARRIER = new AnalysisShard.Barrier() {
+        @Override
+        public void await() {
+        }
+    };
+
+    private static AnalysisShard[] createShards(int count) {
+        AnalysisShard[] shards = new AnalysisShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new AnalysisShard(i, count, new File("."), NO_BARRIER);
+        }
+        return shards;
+    }
+
+    private static int countShardsContaining(AnalysisShard[] shards, String className) {
+        int count = 0;
+        for (AnalysisShard shard : shards) {
+            if (shard.contains(className)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void testEveryClassInOneShard() {
+        AnalysisShard[] shards = createShards(3);
+        for (String className : new String[] { "A", "p/B", "p/q/C", "java/lang/String", "Foo$Bar" }) {
+            assertEquals(className, 1, countShardsContaining(shards, className));
+        }
+    }
+
+    public void testInnerClassInShardOfOuterClass() {
+        for (AnalysisShard shard : createShards(4)) {
+            boolean outer = shard.contains("p/Outer");
+            assertEquals(outer, shard.contains("p/Outer$Inner"));
+            assertEquals(outer, shard.contains("p/Outer$Inner$1"));
+            assertEquals(outer, shard.contains(DescriptorFactory.createClassDescriptor("p/Outer$2")));
+        }
+    }
+
+    public void testDottedAndSlashedNames() {
+        for (AnalysisShard shard : createShards(5)) {
+            assertEquals(shard.contains("p/q/C"), shard.contains("p.q.C"));
+        }
+    }
+
+    public void testOneShard() {
+        AnalysisShard shard = createShards(1)[0];
+        assertTrue(shard.contains("A"));
+        assertTrue(shard.contains("p/B$1"));
+    }
+
+    public void testBadShard() {
+        try {
+            new AnalysisShard(2, 2, new File("."), NO_BARRIER);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assert true;
+        }
+        try {
+            new AnalysisShard(-1, 2, new File("."), NO_BARRIER);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assert true;
+        }
+    }
+
+    public void testSummaryDirectories() {
+        File exchangeDir = new File("exchange");
+        assertFalse(AnalysisShard.getSummaryDirectory(exchangeDir, 0).equals(
+                AnalysisShard.getSummaryDirectory(exchangeDir, 1)));
+        assertEquals(exchangeDir, AnalysisShard.getSummaryDirectory(exchangeDir, 1).getParentFile());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.charsets.UTF8;
+import edu.umd.cs.findbugs.config.UserPreferences;
+
+public class IncrementalAnalysisTest extends TestCase {
+    private static final String JAR = "lib/jdepend-2.9.jar";
+
+    private File stateFile;
+
+    private File filterFile;
+
+    @Override
+    protected void setUp() throws IOException {
+        stateFile = File.createTempFile("incremental", ".state");
+        assertTrue(stateFile.delete());
+        filterFile = File.createTempFile("exclude", ".xml");
+        PrintWriter out = UTF8.printWriter(filterFile.getPath());
+        out.println("<FindBugsFilter><Match><Bug pattern=\"DLS_DEAD_LOCAL_STORE\"/></Match></FindBugsFilter>");
+        out.close();
+    }
+
+    @Override
+    protected void tearDown() {
+        stateFile.delete();
+        new File(stateFile.getPath() + ".xml").delete();
+        filterFile.delete();
+    }
+
+    private BugCollection analyze(boolean exclude) throws Exception {
+        FindBugs2 engine = new FindBugs2();
+        Project project = new Project();
+        project.addFile(JAR);
+        engine.setProject(project);
+        engine.setDetectorFactoryCollection(DetectorFactoryCollection.instance());
+        BugCollectionBugReporter bugReporter = new BugCollectionBugReporter(project);
+        bugReporter.setPriorityThreshold(Priorities.NORMAL_PRIORITY);
+        bugReporter.setErrorVerbosity(BugReporter.SILENT);
+        engine.setBugReporter(bugReporter);
+        engine.setUserPreferences(UserPreferences.createDefaultUserPreferences());
+        if (exclude) {
+            engine.addFilter(filterFile.getPath(), false);
+        }
+        engine.setIncrementalStateFile(stateFile.getPath());
+        engine.execute();
+        return bugReporter.getBugCollection();
+    }
+
+    private static Set<String> getWarnings(BugCollection bugs) {
+        Set<String> result = new HashSet<String>();
+        for (BugInstance bug : bugs) {
+            result.add(bug.getInstanceHash());
+        }
+        return result;
+    }
+
+    private static int count(BugCollection bugs, String type) {
+        int count = 0;
+        for (BugInstance bug : bugs) {
+            if (bug.getType().equals(type)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void testUnchangedClassesKeepTheirWarnings() throws Exception {
+        BugCollection first = analyze(false);
+        assertTrue(stateFile.isFile());
+        assertFalse(first.getCollection().isEmpty());
+
+        BugCollection second = analyze(false);
+        assertEquals(getWarnings(first), getWarnings(second));
+        for (BugInstance bug : second) {
+            assertEquals(0, bug.getFirstVersion());
+        }
+    }
+
+    public void testChangedFilterAnalyzesAgain() throws Exception {
+        BugCollection first = analyze(false);
+        int deadStores = count(first, "DLS_DEAD_LOCAL_STORE");
+        assertTrue(deadStores > 0);
+
+        assertEquals(0, count(analyze(true), "DLS_DEAD_LOCAL_STORE"));
+
+        // Not taken from the filtered results
+        assertEquals(deadStores, count(analyze(false), "DLS_DEAD_LOCAL_STORE"));
+    }
+}
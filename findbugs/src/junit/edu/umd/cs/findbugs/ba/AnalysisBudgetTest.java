@@ -0,0 +1,203 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.classfile.MethodDescriptor;
+import edu.umd.cs.findbugs.classfile.impl.ClassFactory;
+
+public class AnalysisBudgetTest extends TestCase {
+
+    private static final ClassDescriptor FOO = DescriptorFactory.createClassDescriptor("test/Foo");
+
+    private static final MethodDescriptor A = DescriptorFactory.instance().getMethodDescriptor("test/Foo", "a", "()V", false);
+
+    private static final MethodDescriptor B = DescriptorFactory.instance().getMethodDescriptor("test/Foo", "b", "()V", false);
+
+    private final List<MethodDescriptor> skipped = new ArrayList<MethodDescriptor>();
+
+    private final List<String> errors = new ArrayList<String>();
+
+    /**
+     * Budget with a CPU clock set by the test.
+     */
+    static class TestBudget extends AnalysisBudget {
+        long now;
+
+        TestBudget(long methodBudgetNanos, long classBudgetNanos) {
+            super(methodBudgetNanos, classBudgetNanos);
+        }
+
+        @Override
+        long cpuTime() {
+            return now;
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        IClassFactory factory = ClassFactory.instance();
+        PrintingBugReporter bugReporter = new PrintingBugReporter() {
+            @Override
+            public void reportSkippedAnalysis(MethodDescriptor method) {
+                skipped.add(method);
+            }
+
+            @Override
+            public void logError(String message) {
+                errors.add(message);
+            }
+        };
+        Global.setAnalysisCacheForCurrentThread(factory.createAnalysisCache(factory.createClassPath(), bugReporter));
+        AnalysisContext.setCurrentAnalysisContext(new AnalysisContext());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        AnalysisContext.removeCurrentAnalysisContext();
+        Global.removeAnalysisCacheForCurrentThread();
+    }
+
+    private static void assertExceeded(AnalysisBudget budget) {
+        try {
+            budget.checkBudget();
+            fail();
+        } catch (AnalysisBudgetExceededException e) {
+            assert true;
+        }
+    }
+
+    public void testNoBudget() throws Exception {
+        TestBudget budget = new TestBudget(0, 0);
+        budget.startClassAnalysis(FOO);
+        budget.startMethodAnalysis(A);
+        budget.now = Long.MAX_VALUE / 2;
+        budget.checkBudget();
+        budget.endMethodAnalysis(A);
+        assertFalse(budget.endClassAnalysis());
+        assertTrue(errors.isEmpty());
+    }
+
+    public void testMethodBudget() throws Exception {
+        TestBudget budget = new TestBudget(100, 0);
+        budget.startClassAnalysis(FOO);
+        budget.startMethodAnalysis(A);
+        budget.now = 50;
+        budget.checkBudget();
+        budget.now = 150;
+        try {
+            budget.checkBudget();
+            fail();
+        } catch (AnalysisBudgetExceededException e) {
+            assertEquals(150, e.getCostNanos());
+        }
+        budget.endMethodAnalysis(A);
+        assertEquals(1, skipped.size());
+        assertEquals(A, skipped.get(0));
+        assertEquals(1, errors.size());
+
+        // Later analyses of the method are abandoned without reporting it again
+        budget.startMethodAnalysis(A);
+        assertExceeded(budget);
+        budget.endMethodAnalysis(A);
+        assertEquals(1, skipped.size());
+
+        // Other methods have a budget of their own
+        budget.startMethodAnalysis(B);
+        budget.now = 200;
+        budget.checkBudget();
+        budget.endMethodAnalysis(B);
+
+        assertFalse(budget.endClassAnalysis());
+        assertEquals(1, errors.size());
+    }
+
+    public void testMethodCostAccumulates() throws Exception {
+        TestBudget budget = new TestBudget(100, 0);
+        budget.startClassAnalysis(FOO);
+        budget.startMethodAnalysis(A);
+        budget.now = 60;
+        budget.endMethodAnalysis(A);
+
+        // A nested analysis of the same method is charged once
+        budget.startMethodAnalysis(A);
+        budget.now = 70;
+        budget.startMethodAnalysis(A);
+        budget.now = 90;
+        budget.checkBudget();
+        budget.endMethodAnalysis(A);
+        budget.now = 110;
+        assertExceeded(budget);
+        budget.endMethodAnalysis(A);
+        assertEquals(1, skipped.size());
+
+        // Costs are per class
+        budget.endClassAnalysis();
+        budget.startClassAnalysis(FOO);
+        budget.startMethodAnalysis(A);
+        budget.checkBudget();
+        budget.endMethodAnalysis(A);
+        budget.endClassAnalysis();
+    }
+
+    public void testClassBudget() throws Exception {
+        TestBudget budget = new TestBudget(100, 100);
+        budget.startClassAnalysis(FOO);
+        budget.startMethodAnalysis(A);
+        budget.now = 90;
+        budget.checkBudget();
+        budget.endMethodAnalysis(A);
+        budget.startMethodAnalysis(B);
+        budget.now = 150;
+        try {
+            budget.checkBudget();
+            fail();
+        } catch (AnalysisBudgetExceededException e) {
+            assertEquals(150, e.getCostNanos());
+        }
+        budget.endMethodAnalysis(B);
+
+        // The class failed, not the method being analyzed
+        assertTrue(skipped.isEmpty());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0), errors.get(0).contains(FOO.toDottedClassName()));
+
+        // The rest of the class is skipped
+        budget.startMethodAnalysis(A);
+        assertExceeded(budget);
+        budget.endMethodAnalysis(A);
+        assertEquals(1, errors.size());
+        assertTrue(budget.endClassAnalysis());
+
+        budget.startClassAnalysis(FOO);
+        budget.startMethodAnalysis(A);
+        budget.checkBudget();
+        budget.endMethodAnalysis(A);
+        assertFalse(budget.endClassAnalysis());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class AnnotationDatabaseTest extends TestCase {
+    private AnnotationDatabase<NullnessAnnotation> database;
+
+    @Override
+    protected void setUp() {
+        database = new AnnotationDatabase<NullnessAnnotation>();
+    }
+
+    public void testShardSeesItsOwnAnnotations() {
+        database.openShard();
+        database.addDirectAnnotation("a", NullnessAnnotation.NONNULL);
+        assertEquals(NullnessAnnotation.NONNULL, database.getDirectAnnotation("a"));
+        assertTrue(database.anyAnnotations(NullnessAnnotation.NONNULL));
+        database.closeShard(0);
+
+        // Not before the merge
+        assertNull(database.getDirectAnnotation("a"));
+        assertFalse(database.anyAnnotations(NullnessAnnotation.NONNULL));
+
+        database.mergeShards();
+        assertEquals(NullnessAnnotation.NONNULL, database.getDirectAnnotation("a"));
+        assertTrue(database.anyAnnotations(NullnessAnnotation.NONNULL));
+    }
+
+    public void testShardsOfOtherThreadsAreInvisible() throws InterruptedException {
+        database.openShard();
+        database.addDirectAnnotation("a", NullnessAnnotation.NONNULL);
+
+        final AtomicReference<NullnessAnnotation> seen = new AtomicReference<NullnessAnnotation>(NullnessAnnotation.NULLABLE);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                database.openShard();
+                database.addDirectAnnotation("b", NullnessAnnotation.CHECK_FOR_NULL);
+                seen.set(database.getDirectAnnotation("a"));
+                database.closeShard(1);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNull(seen.get());
+        assertNull(database.getDirectAnnotation("b"));
+        database.closeShard(0);
+
+        database.mergeShards();
+        assertEquals(NullnessAnnotation.NONNULL, database.getDirectAnnotation("a"));
+        assertEquals(NullnessAnnotation.CHECK_FOR_NULL, database.getDirectAnnotation("b"));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.ba;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.OpcodeStack;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.analysis.EnumValue;
+
+public class FirstPassSummaryTest extends TestCase {
+    private ByteArrayOutputStream bytes;
+
+    private DataOutputStream out;
+
+    @Override
+    protected void setUp() {
+        bytes = new ByteArrayOutputStream();
+        out = new DataOutputStream(bytes);
+    }
+
+    private DataInputStream input() {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    public void testStrings() throws IOException {
+        StringBuilder longString = new StringBuilder();
+        while (longString.length() < 100000) {
+            longString.append("\u00e9t\u00e9 \u4e2d ");
+        }
+        FirstPassSummary.writeString(out, "");
+        FirstPassSummary.writeString(out, "p/C");
+        FirstPassSummary.writeString(out, longString.toString());
+        out.writeInt(42);
+
+        DataInputStream in = input();
+        assertEquals("", FirstPassSummary.readString(in));
+        assertEquals("p/C", FirstPassSummary.readString(in));
+        assertEquals(longString.toString(), FirstPassSummary.readString(in));
+        assertEquals(42, in.readInt());
+    }
+
+    public void testValues() throws IOException {
+        Object[] values = { null, "s", 1, 2L, 3.0f, 4.0, true, 'c', (short) 5, (byte) 6,
+                DescriptorFactory.createClassDescriptor("p/C") };
+        for (Object value : values) {
+            FirstPassSummary.writeValue(out, value);
+        }
+        FirstPassSummary.writeValue(out, new EnumValue("Lp/E;", "A"));
+
+        DataInputStream in = input();
+        for (Object value : values) {
+            assertTrue(FirstPassSummary.isSummarizable(value));
+            assertEquals(value, FirstPassSummary.readValue(in));
+        }
+        EnumValue enumValue = (EnumValue) FirstPassSummary.readValue(in);
+        assertEquals("Lp/E;", enumValue.desc.getSignature());
+        assertEquals("A", enumValue.value);
+    }
+
+    public void testOtherValuesAreUnknown() throws IOException {
+        Object value = new ArrayList<Object>();
+        assertFalse(FirstPassSummary.isSummarizable(value));
+        FirstPassSummary.writeValue(out, value);
+        assertNull(FirstPassSummary.readValue(input()));
+    }
+
+    public void testStackItem() throws IOException {
+        OpcodeStack.Item item = new OpcodeStack.Item("I", 7);
+        item.setPC(12);
+        item.setSpecialKind(OpcodeStack.Item.HASHCODE_INT);
+        item.writeSummary(out);
+
+        OpcodeStack.Item read = OpcodeStack.Item.readSummary(input());
+        assertEquals(item, read);
+        assertEquals(7, read.getConstant());
+        assertEquals(12, read.getPC());
+        assertEquals(OpcodeStack.Item.HASHCODE_INT, read.getSpecialKind());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.analysis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import edu.umd.cs.findbugs.NoOpFindBugsProgress;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.ba.XField;
+import edu.umd.cs.findbugs.ba.XMethod;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.IClassPathBuilder;
+import edu.umd.cs.findbugs.classfile.impl.ClassFactory;
+import edu.umd.cs.findbugs.io.IO;
+
+public class ClassInfoCodecTest extends TestCase {
+
+    private static final ClassDescriptor CODEC = DescriptorFactory.createClassDescriptor(ClassInfoCodec.class);
+
+    @Override
+    protected void setUp() throws Exception {
+        IClassFactory factory = ClassFactory.instance();
+        PrintingBugReporter bugReporter = new PrintingBugReporter();
+        byte[] data = IO.readAll(ClassInfoCodec.class.getResourceAsStream("ClassInfoCodec.class"));
+        IClassPath classPath = factory.createClassPath();
+        IAnalysisCache analysisCache = factory.createAnalysisCache(classPath, bugReporter);
+        new edu.umd.cs.findbugs.classfile.engine.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        new edu.umd.cs.findbugs.classfile.engine.asm.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        new edu.umd.cs.findbugs.classfile.engine.bcel.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        Global.setAnalysisCacheForCurrentThread(analysisCache);
+        AnalysisContext.setCurrentAnalysisContext(new AnalysisContext());
+
+        IClassPathBuilder builder = factory.createClassPathBuilder(bugReporter);
+        builder.addCodeBase(factory.createInMemoryCodeBaseLocator("test",
+                Collections.singletonMap(CODEC.toResourceName(), data), null), true);
+        builder.build(classPath, new NoOpFindBugsProgress());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        AnalysisContext.removeCurrentAnalysisContext();
+        Global.removeAnalysisCacheForCurrentThread();
+    }
+
+    private static ClassNameAndSuperclassInfo roundTrip(ClassNameAndSuperclassInfo info) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ClassInfoCodec.write(out, info);
+        out.close();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        ClassNameAndSuperclassInfo result = ClassInfoCodec.read(in, null);
+        assertEquals(-1, in.read());
+        return result;
+    }
+
+    public void testClassInfo() throws Exception {
+        ClassInfo info = (ClassInfo) Global.getAnalysisCache().getClassAnalysis(XClass.class, CODEC);
+        ClassInfo read = (ClassInfo) roundTrip(info);
+
+        assertEquals(info.getClassDescriptor(), read.getClassDescriptor());
+        assertEquals(info.getSuperclassDescriptor(), read.getSuperclassDescriptor());
+        assertTrue(Arrays.equals(info.getInterfaceDescriptorList(), read.getInterfaceDescriptorList()));
+        assertEquals(info.getAccessFlags(), read.getAccessFlags());
+        assertEquals(info.getMajorVersion(), read.getMajorVersion());
+        assertEquals(info.getSource(), read.getSource());
+        assertEquals(info.getCalledClassDescriptors(), read.getCalledClassDescriptors());
+
+        List<? extends XField> fields = info.getXFields();
+        assertFalse(fields.isEmpty());
+        assertEquals(fields.size(), read.getXFields().size());
+        for (int i = 0; i < fields.size(); i++) {
+            assertEquals(fields.get(i).getFieldDescriptor(), read.getXFields().get(i).getFieldDescriptor());
+            assertEquals(fields.get(i).getAccessFlags(), read.getXFields().get(i).getAccessFlags());
+        }
+
+        List<? extends XMethod> methods = info.getXMethodsInCallOrder();
+        assertFalse(methods.isEmpty());
+        assertEquals(methods.size(), read.getXMethodsInCallOrder().size());
+        for (int i = 0; i < methods.size(); i++) {
+            XMethod m = methods.get(i);
+            XMethod r = read.getXMethodsInCallOrder().get(i);
+            assertEquals(m.getMethodDescriptor(), r.getMethodDescriptor());
+            assertEquals(m.getAccessFlags(), r.getAccessFlags());
+            assertTrue(Arrays.equals(m.getThrownExceptions(), r.getThrownExceptions()));
+        }
+    }
+
+    public void testClassNameAndSuperclassInfo() throws Exception {
+        ClassNameAndSuperclassInfo.Builder builder = new ClassNameAndSuperclassInfo.Builder();
+        builder.setClassDescriptor(DescriptorFactory.createClassDescriptor("p/A"));
+        builder.setSuperclassDescriptor(DescriptorFactory.createClassDescriptor("java/lang/Object"));
+        builder.setInterfaceDescriptorList(DescriptorFactory.createClassDescriptor(new String[] { "java/io/Serializable" }));
+        builder.setAccessFlags(1);
+        builder.setClassfileVersion(51, 0);
+        ClassNameAndSuperclassInfo read = roundTrip(builder.build());
+
+        assertFalse(read instanceof ClassInfo);
+        assertEquals("p/A", read.getClassDescriptor().getClassName());
+        assertEquals("java/lang/Object", read.getSuperclassDescriptor().getClassName());
+        assertEquals(1, read.getInterfaceDescriptorList().length);
+        assertEquals(51, read.getMajorVersion());
+    }
+
+    public void testLongStrings() throws Exception {
+        StringBuilder buf = new StringBuilder();
+        while (buf.length() < 70000) {
+            buf.append("caf\u00e9 \u20ac ");
+        }
+        String value = buf.toString();
+
+        ClassInfo.Builder builder = new ClassInfo.Builder();
+        builder.setClassDescriptor(DescriptorFactory.createClassDescriptor("p/Long"));
+        builder.setSuperclassDescriptor(DescriptorFactory.createClassDescriptor("java/lang/Object"));
+        builder.setSourceSignature(value);
+        builder.setMethodsInCallOrder(MethodInfo.EMPTY_ARRAY);
+        AnnotationValue annotation = new AnnotationValue("Lp/Note;");
+        annotation.getAnnotationVisitor().visit("value", value);
+        builder.addAnnotation("Lp/Note;", annotation);
+        ClassInfo read = (ClassInfo) roundTrip(builder.build());
+
+        assertEquals(value, read.getSourceSignature());
+        ClassDescriptor note = DescriptorFactory.createClassDescriptorFromSignature("Lp/Note;");
+        assertEquals(value, read.getAnnotation(note).getValue("value"));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.bcel.classfile.Method;
+
+import edu.umd.cs.findbugs.NoOpFindBugsProgress;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.ClassContext;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.IClassPathBuilder;
+import edu.umd.cs.findbugs.io.IO;
+
+public class AnalysisResultCacheTest extends TestCase {
+
+    private static final ClassDescriptor RESULT_CACHE = DescriptorFactory.createClassDescriptor(AnalysisResultCache.class);
+
+    private static final ClassDescriptor BUDGET = DescriptorFactory.createClassDescriptor(AnalysisCacheBudget.class);
+
+    @Override
+    protected void tearDown() throws Exception {
+        AnalysisContext.removeCurrentAnalysisContext();
+        Global.removeAnalysisCacheForCurrentThread();
+    }
+
+    /**
+     * Set up an analysis of a classpath with only the two classes above in it.
+     */
+    private AnalysisCache createAnalysisCache() throws Exception {
+        IClassFactory factory = ClassFactory.instance();
+        PrintingBugReporter bugReporter = new PrintingBugReporter();
+        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+        for (ClassDescriptor c : new ClassDescriptor[] { RESULT_CACHE, BUDGET }) {
+            classes.put(c.toResourceName(), IO.readAll(getClass().getResourceAsStream("/" + c.toResourceName())));
+        }
+        IClassPath classPath = factory.createClassPath();
+        AnalysisCache analysisCache = (AnalysisCache) factory.createAnalysisCache(classPath, bugReporter);
+        new edu.umd.cs.findbugs.classfile.engine.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        new edu.umd.cs.findbugs.classfile.engine.asm.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        new edu.umd.cs.findbugs.classfile.engine.bcel.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        Global.setAnalysisCacheForCurrentThread(analysisCache);
+        AnalysisContext.setCurrentAnalysisContext(new AnalysisContext());
+
+        IClassPathBuilder builder = factory.createClassPathBuilder(bugReporter);
+        builder.addCodeBase(factory.createInMemoryCodeBaseLocator("test", classes, null), true);
+        builder.build(classPath, new NoOpFindBugsProgress());
+        return analysisCache;
+    }
+
+    public void testChargesGrowingResults() throws Exception {
+        AnalysisCache analysisCache = createAnalysisCache();
+        AnalysisCacheBudget budget = new AnalysisCacheBudget();
+        AnalysisResultCache<ClassDescriptor> cache = new AnalysisResultCache<ClassDescriptor>(10, budget);
+        ClassContext classContext = analysisCache.getClassAnalysis(ClassContext.class, RESULT_CACHE);
+        cache.put(RESULT_CACHE, classContext);
+        long size = cache.getEstimatedSize();
+        assertEquals(classContext.getEstimatedSize(), size);
+
+        for (Method method : classContext.getJavaClass().getMethods()) {
+            classContext.getCFG(method);
+        }
+        assertTrue(classContext.getEstimatedSize() > size);
+        // Charged again when looked up
+        assertSame(classContext, cache.get(RESULT_CACHE));
+        assertEquals(classContext.getEstimatedSize(), cache.getEstimatedSize());
+        assertEquals(cache.getEstimatedSize(), budget.getSize());
+
+        cache.remove(RESULT_CACHE);
+        assertEquals(0, cache.getEstimatedSize());
+        assertEquals(0, budget.getSize());
+    }
+
+    public void testBudgetEvictsClassContexts() throws Exception {
+        AnalysisCache analysisCache = createAnalysisCache();
+        analysisCache.setMaxCacheSize(1);
+        ClassContext first = analysisCache.getClassAnalysis(ClassContext.class, RESULT_CACHE);
+        assertSame(first, analysisCache.probeClassAnalysis(ClassContext.class, RESULT_CACHE));
+
+        analysisCache.getClassAnalysis(ClassContext.class, BUDGET);
+        assertNull(analysisCache.probeClassAnalysis(ClassContext.class, RESULT_CACHE));
+        assertNotNull(analysisCache.probeClassAnalysis(ClassContext.class, BUDGET));
+    }
+
+    public void testKeepsClassContextsInFlight() throws Exception {
+        AnalysisCache analysisCache = createAnalysisCache();
+        analysisCache.setMaxCacheSize(1);
+        analysisCache.setClassesInFlight(2);
+        ClassContext first = analysisCache.getClassAnalysis(ClassContext.class, RESULT_CACHE);
+        analysisCache.getClassAnalysis(ClassContext.class, BUDGET);
+        assertSame(first, analysisCache.probeClassAnalysis(ClassContext.class, RESULT_CACHE));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.ICodeBaseIterator;
+import edu.umd.cs.findbugs.classfile.ICodeBaseLocator;
+import edu.umd.cs.findbugs.classfile.IScannableCodeBase;
+import edu.umd.cs.findbugs.io.IO;
+
+public class InMemoryCodeBaseTest extends TestCase {
+
+    private static final long TIME = 1400000000000L;
+
+    private static byte[] bytes(String s) {
+        return s.getBytes();
+    }
+
+    private static String read(ICodeBaseEntry entry) throws IOException {
+        return new String(IO.readAll(entry.openResource()));
+    }
+
+    public void testLooksUpAndScansResources() throws Exception {
+        Map<String, byte[]> resources = new HashMap<String, byte[]>();
+        resources.put("b/B.class", bytes("bbb"));
+        resources.put("a/A.class", bytes("a"));
+        Map<String, Long> times = new HashMap<String, Long>();
+        times.put("a/A.class", TIME);
+        ICodeBaseLocator locator = ClassFactory.instance().createInMemoryCodeBaseLocator("test", resources, times);
+        assertEquals("memory:test", locator.toString());
+
+        IScannableCodeBase codeBase = (IScannableCodeBase) locator.openCodeBase();
+        assertEquals(TIME, codeBase.getLastModifiedTime());
+        assertNull(codeBase.lookupResource("c/C.class"));
+        ICodeBaseEntry entry = codeBase.lookupResource("b/B.class");
+        assertEquals(3, entry.getNumBytes());
+        assertEquals("bbb", read(entry));
+        assertEquals("bbb", read(entry));
+        assertSame(resources.get("b/B.class"), ((InMemoryCodeBaseEntry) entry).getBytes());
+        assertEquals(-1L, ((InMemoryCodeBaseEntry) entry).getLastModifiedTime());
+
+        List<String> names = new ArrayList<String>();
+        for (ICodeBaseIterator i = codeBase.iterator(); i.hasNext();) {
+            names.add(i.next().getResourceName());
+        }
+        assertEquals("[a/A.class, b/B.class]", names.toString());
+
+        // Changes made after the codebase is opened are only seen by the
+        // next one
+        resources.put("c/C.class", bytes("c"));
+        assertNull(codeBase.lookupResource("c/C.class"));
+        assertNotNull(locator.openCodeBase().lookupResource("c/C.class"));
+    }
+
+    public void testReadsRemainingBytesOfBuffers() throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes("xxdatayy"), 2, 4);
+        Map<String, ByteBuffer> resources = new HashMap<String, ByteBuffer>();
+        resources.put("data.txt", buffer);
+        ICodeBase codeBase = ClassFactory.instance().createInMemoryBufferCodeBaseLocator("test", resources, null)
+                .openCodeBase();
+        InMemoryCodeBaseEntry entry = (InMemoryCodeBaseEntry) codeBase.lookupResource("data.txt");
+        assertEquals("data", read(entry));
+        assertEquals("data", new String(entry.getBytes()));
+        assertEquals(2, buffer.position());
+        assertEquals(-1L, codeBase.getLastModifiedTime());
+    }
+
+    public void testOpensNestedArchivesInPlace() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(zip);
+        out.putNextEntry(new ZipEntry("nested/N.class"));
+        out.write(bytes("nested"));
+        out.close();
+        Map<String, byte[]> resources = new HashMap<String, byte[]>();
+        resources.put("lib/nested.jar", zip.toByteArray());
+        ICodeBase codeBase = ClassFactory.instance().createInMemoryCodeBaseLocator("test", resources, null).openCodeBase();
+
+        ICodeBase nested = ClassFactory.instance().createNestedArchiveCodeBaseLocator(codeBase, "lib/nested.jar")
+                .openCodeBase();
+        assertEquals("nested", read(nested.lookupResource("nested/N.class")));
+        nested.close();
+    }
+
+    public void testRelativeCodeBasesCantBeOpened() throws Exception {
+        ICodeBaseLocator locator = ClassFactory.instance().createInMemoryCodeBaseLocator("test",
+                new HashMap<String, byte[]>(), null);
+        try {
+            locator.createRelativeCodeBaseLocator("lib/other.jar").openCodeBase();
+            fail();
+        } catch (FileNotFoundException e) {
+            assert true;
+        }
+    }
+}
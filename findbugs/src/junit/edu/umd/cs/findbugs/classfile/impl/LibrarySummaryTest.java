@@ -0,0 +1,162 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.Version;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+
+public class LibrarySummaryTest extends TestCase {
+
+    private File tempDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = File.createTempFile("findbugs", ".test");
+        assertTrue(tempDir.delete());
+        assertTrue(tempDir.mkdir());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : tempDir.listFiles()) {
+            f.delete();
+        }
+        tempDir.delete();
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            out.putNextEntry(new ZipEntry(namesAndContents[i]));
+            out.write(namesAndContents[i + 1].getBytes("UTF-8"));
+            out.closeEntry();
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = new File(tempDir, name);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static ICodeBase open(File file) throws Exception {
+        return new ZipFileCodeBase(new FilesystemCodeBaseLocator(file.getPath()), file);
+    }
+
+    private String fingerprint(String name, byte[] data) throws Exception {
+        ICodeBase codeBase = open(write(name, data));
+        try {
+            return LibrarySummary.fingerprint(codeBase);
+        } finally {
+            codeBase.close();
+        }
+    }
+
+    public void testFingerprintDependsOnClassesOnly() throws Exception {
+        String fingerprint = fingerprint("a.jar", zip("p/A.class", "a", "p/B.class", "b"));
+        assertNotNull(fingerprint);
+        assertEquals(fingerprint, fingerprint("b.jar", zip("p/B.class", "b", "README", "x", "p/A.class", "a")));
+        assertFalse(fingerprint.equals(fingerprint("c.jar", zip("p/A.class", "a", "p/B.class", "B"))));
+        assertFalse(fingerprint.equals(fingerprint("d.jar", zip("p/A.class", "a", "q/B.class", "b"))));
+    }
+
+    public void testFingerprintOfNestedJar() throws Exception {
+        byte[] library = zip("p/A.class", "a", "p/B.class", "b");
+        String fingerprint = fingerprint("library.jar", library);
+
+        Map<String, byte[]> resources = new HashMap<String, byte[]>();
+        resources.put("lib/library.jar", library);
+        ICodeBase parent = ClassFactory.instance().createInMemoryCodeBaseLocator("test", resources, null).openCodeBase();
+        ICodeBase nested = ClassFactory.instance().createNestedArchiveCodeBaseLocator(parent, "lib/library.jar")
+                .openCodeBase();
+        try {
+            assertEquals(fingerprint, LibrarySummary.fingerprint(nested));
+        } finally {
+            nested.close();
+        }
+
+        // Only jars are summarized
+        assertNull(LibrarySummary.fingerprint(parent));
+    }
+
+    public void testFingerprintOfDirectoryIsNull() throws Exception {
+        ICodeBase codeBase = new DirectoryCodeBase(new FilesystemCodeBaseLocator(tempDir.getPath()), tempDir);
+        try {
+            assertNull(LibrarySummary.fingerprint(codeBase));
+        } finally {
+            codeBase.close();
+        }
+    }
+
+    private byte[] summary(String version, String fingerprint) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("library", "library.jar");
+        properties.setProperty("version", version);
+        if (fingerprint != null) {
+            properties.setProperty("fingerprint", fingerprint);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        out.putNextEntry(new ZipEntry("summary.properties"));
+        properties.store(out, null);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    public void testOpen() throws Exception {
+        LibrarySummary summary = LibrarySummary.open(write("ok.zip", summary(Version.COMPUTED_RELEASE, "1234")));
+        assertEquals("library.jar", summary.getLibrary());
+        assertEquals("1234", summary.getFingerprint());
+    }
+
+    public void testOpenRejectsOtherFiles() throws Exception {
+        File[] files = { write("version.zip", summary("0.0.1", "1234")),
+                write("fingerprint.zip", summary(Version.COMPUTED_RELEASE, null)),
+                write("other.jar", zip("p/A.class", "a")) };
+        for (File file : files) {
+            try {
+                LibrarySummary.open(file);
+                fail(file.getName());
+            } catch (IOException e) {
+                assert true;
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.ICodeBaseIterator;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.io.IO;
+
+public class MappedZipFileTest extends TestCase {
+    private File tempDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = File.createTempFile("findbugs", ".test");
+        assertTrue(tempDir.delete());
+        assertTrue(tempDir.mkdir());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File f : tempDir.listFiles()) {
+            f.delete();
+        }
+        tempDir.delete();
+    }
+
+    private static byte[] bytes(String s) throws IOException {
+        return s.getBytes("UTF-8");
+    }
+
+    private static void putStored(ZipOutputStream out, String name, byte[] data) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+    }
+
+    private static void putDeflated(ZipOutputStream out, String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+    }
+
+    /**
+     * A zip file with a directory, a stored and a deflated entry.
+     */
+    private static byte[] jar() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        putDeflated(out, "p/", new byte[0]);
+        putStored(out, "p/Stored.class", bytes("stored"));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append(i).append(' ');
+        }
+        putDeflated(out, "p/Deflated.class", bytes(text.toString()));
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File file = new File(tempDir, name);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * @return the offset of the central directory of a zip file without
+     *         comment
+     */
+    private static int centralDirectoryOffset(byte[] zip) {
+        return ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN).getInt(zip.length - 22 + 16);
+    }
+
+    /**
+     * @return the offset of the central directory header of an entry
+     */
+    private static int centralHeader(byte[] zip, int index) {
+        ByteBuffer b = ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = centralDirectoryOffset(zip);
+        for (int i = 0; i < index; i++) {
+            pos += 46 + b.getShort(pos + 28) + b.getShort(pos + 30) + b.getShort(pos + 32);
+        }
+        return pos;
+    }
+
+    private static void assertNotReadable(byte[] zip) throws IOException {
+        try {
+            new MappedZipFile(ByteBuffer.wrap(zip), "test.jar");
+            fail();
+        } catch (ZipException e) {
+            assert true;
+        }
+    }
+
+    public void testRead() throws IOException {
+        byte[] jar = jar();
+        MappedZipFile zipFile = new MappedZipFile(write("test.jar", jar));
+        try {
+            List<MappedZipFile.Entry> entries = zipFile.entries();
+            assertEquals(3, entries.size());
+            assertEquals("p/", entries.get(0).getName());
+            assertEquals("p/Stored.class", entries.get(1).getName());
+            assertEquals("p/Deflated.class", entries.get(2).getName());
+
+            MappedZipFile.Entry stored = zipFile.getEntry("p/Stored.class");
+            assertEquals("stored", new String(zipFile.getBytes(stored), "UTF-8"));
+            MappedZipFile.Entry deflated = zipFile.getEntry("p/Deflated.class");
+            byte[] data = zipFile.getBytes(deflated);
+            assertEquals(deflated.getSize(), data.length);
+            assertTrue(new String(data, "UTF-8").startsWith("0 1 2 3 "));
+            InputStream in = zipFile.getInputStream(deflated);
+            try {
+                assertTrue(Arrays.equals(data, IO.readAll(in)));
+            } finally {
+                in.close();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            assertEquals(crc.getValue(), deflated.getCrc());
+
+            assertNull(zipFile.getEntry("p/Missing.class"));
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    public void testDirectoryEntries() throws IOException {
+        MappedZipFile zipFile = new MappedZipFile(ByteBuffer.wrap(jar()), "test.jar");
+        MappedZipFile.Entry directory = zipFile.getEntry("p/");
+        assertNotNull(directory);
+        assertTrue(directory.isDirectory());
+        // Found without the trailing slash too
+        assertSame(directory, zipFile.getEntry("p"));
+        assertFalse(zipFile.getEntry("p/Stored.class").isDirectory());
+        assertEquals(0, zipFile.getBytes(directory).length);
+        zipFile.close();
+    }
+
+    public void testClose() throws IOException {
+        MappedZipFile zipFile = new MappedZipFile(write("test.jar", jar()));
+        MappedZipFile.Entry entry = zipFile.getEntry("p/Deflated.class");
+        InputStream in = zipFile.getInputStream(entry);
+        zipFile.close();
+        try {
+            zipFile.getEntry("p/Stored.class");
+            fail();
+        } catch (IllegalStateException e) {
+            assert true;
+        }
+        try {
+            zipFile.getBytes(entry);
+            fail();
+        } catch (IOException e) {
+            assert true;
+        }
+        // The mapping is kept for streams opened before
+        assertEquals(entry.getSize(), IO.readAll(in).length);
+        in.close();
+        zipFile.close();
+    }
+
+    public void testNested() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        putStored(out, "lib/inner.jar", jar());
+        putDeflated(out, "lib/deflated.jar", jar());
+        out.close();
+        MappedZipFile outer = new MappedZipFile(write("outer.jar", bytes.toByteArray()));
+        assertNull(outer.openNested(outer.getEntry("lib/deflated.jar"), "deflated.jar"));
+        MappedZipFile inner = outer.openNested(outer.getEntry("lib/inner.jar"), "inner.jar");
+        assertNotNull(inner);
+        outer.close();
+        // Read in place, from the mapping of the outer zip file
+        assertEquals("stored", new String(inner.getBytes(inner.getEntry("p/Stored.class")), "UTF-8"));
+        inner.close();
+    }
+
+    public void testTruncated() throws IOException {
+        byte[] jar = jar();
+        assertNotReadable(Arrays.copyOf(jar, jar.length - 10));
+        assertNotReadable(Arrays.copyOf(jar, centralDirectoryOffset(jar) + 10));
+        assertNotReadable(new byte[0]);
+    }
+
+    public void testCorruptCentralDirectory() throws IOException {
+        byte[] jar = jar();
+        int directory = centralDirectoryOffset(jar);
+
+        byte[] badSignature = jar.clone();
+        badSignature[directory] = 0;
+        assertNotReadable(badSignature);
+
+        byte[] badOffset = jar.clone();
+        ByteBuffer.wrap(badOffset).order(ByteOrder.LITTLE_ENDIAN).putInt(jar.length - 22 + 16, jar.length);
+        assertNotReadable(badOffset);
+
+        // Name length past the end of the central directory
+        byte[] badNameLength = jar.clone();
+        ByteBuffer.wrap(badNameLength).order(ByteOrder.LITTLE_ENDIAN).putShort(directory + 28, (short) 0xfff0);
+        assertNotReadable(badNameLength);
+
+        // Compressed size of the last entry past the end of the file
+        byte[] badSize = jar.clone();
+        ByteBuffer b = ByteBuffer.wrap(badSize).order(ByteOrder.LITTLE_ENDIAN);
+        b.putInt(centralHeader(jar, 2) + 20, jar.length);
+        MappedZipFile zipFile = new MappedZipFile(b, "test.jar");
+        try {
+            zipFile.getBytes(zipFile.getEntry("p/Deflated.class"));
+            fail();
+        } catch (ZipException e) {
+            assert true;
+        }
+        zipFile.close();
+
+        // Local header offset of the first entry pointing at the second one
+        byte[] badLocalHeader = jar.clone();
+        ByteBuffer.wrap(badLocalHeader).order(ByteOrder.LITTLE_ENDIAN).putInt(directory + 42, 1);
+        zipFile = new MappedZipFile(ByteBuffer.wrap(badLocalHeader), "test.jar");
+        try {
+            zipFile.getBytes(zipFile.getEntry("p/"));
+            fail();
+        } catch (ZipException e) {
+            assert true;
+        }
+        zipFile.close();
+    }
+
+    public void testZip64() throws IOException {
+        byte[] jar = jar();
+        byte[] zip64 = jar.clone();
+        // Local header offset in a zip64 extra field
+        ByteBuffer.wrap(zip64).order(ByteOrder.LITTLE_ENDIAN).putInt(centralDirectoryOffset(jar) + 42, 0xffffffff);
+        assertNotReadable(zip64);
+    }
+
+    public void testManyEntries() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        out.setLevel(0);
+        int count = 0xffff;
+        for (int i = 0; i < count; i++) {
+            putDeflated(out, "p/C" + i + ".class", new byte[0]);
+        }
+        out.close();
+        File file = write("many.jar", bytes.toByteArray());
+        try {
+            new MappedZipFile(file);
+            fail();
+        } catch (ZipException e) {
+            assert true;
+        }
+
+        // Read with a ZipInputStream instead
+        IClassFactory factory = ClassFactory.instance();
+        Global.setAnalysisCacheForCurrentThread(factory.createAnalysisCache(factory.createClassPath(),
+                new PrintingBugReporter()));
+        try {
+            AbstractScannableCodeBase codeBase = ZipCodeBaseFactory.makeZipCodeBase(
+                    new FilesystemCodeBaseLocator(file.getPath()), file);
+            try {
+                assertTrue(codeBase instanceof ZipInputStreamCodeBase);
+                int n = 0;
+                for (ICodeBaseIterator i = codeBase.iterator(); i.hasNext(); i.next()) {
+                    n++;
+                }
+                assertEquals(count, n);
+            } finally {
+                codeBase.close();
+            }
+        } finally {
+            Global.removeAnalysisCacheForCurrentThread();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.ICodeBaseEntry;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+
+public class PackageIndexTest extends TestCase {
+    private File tempDir;
+
+    private final List<ICodeBase> codeBases = new ArrayList<ICodeBase>();
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = File.createTempFile("findbugs", ".test");
+        assertTrue(tempDir.delete());
+        assertTrue(tempDir.mkdir());
+        IClassFactory factory = ClassFactory.instance();
+        Global.setAnalysisCacheForCurrentThread(factory.createAnalysisCache(factory.createClassPath(),
+                new PrintingBugReporter()));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (ICodeBase codeBase : codeBases) {
+            codeBase.close();
+        }
+        delete(tempDir);
+        Global.removeAnalysisCacheForCurrentThread();
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private ICodeBase open(String pathName) throws Exception {
+        ICodeBase codeBase = ClassFactory.instance().createFilesystemCodeBaseLocator(pathName).openCodeBase();
+        codeBases.add(codeBase);
+        return codeBase;
+    }
+
+    private ICodeBase inMemory(String name, String... resourceNames) throws Exception {
+        Map<String, byte[]> resources = new HashMap<String, byte[]>();
+        for (String resourceName : resourceNames) {
+            resources.put(resourceName, new byte[0]);
+        }
+        ICodeBase codeBase = ClassFactory.instance().createInMemoryCodeBaseLocator(name, resources, null).openCodeBase();
+        codeBases.add(codeBase);
+        return codeBase;
+    }
+
+    private ICodeBase zip(String name, String... entryNames) throws Exception {
+        File file = new File(tempDir, name);
+        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (String entryName : entryNames) {
+                out.putNextEntry(new ZipEntry(entryName));
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        ICodeBase codeBase = open(file.getPath());
+        assertTrue(codeBase instanceof ZipFileCodeBase);
+        return codeBase;
+    }
+
+    private ICodeBase directory(String name, String... resourceNames) throws Exception {
+        File dir = new File(tempDir, name);
+        for (String resourceName : resourceNames) {
+            File file = new File(dir, resourceName);
+            file.getParentFile().mkdirs();
+            if (!file.createNewFile()) {
+                throw new IOException("Can't create " + file);
+            }
+        }
+        ICodeBase codeBase = open(dir.getPath());
+        assertTrue(codeBase instanceof DirectoryCodeBase);
+        return codeBase;
+    }
+
+    private static void assertFoundIn(ICodeBase expected, PackageIndex index, String resourceName) {
+        ICodeBaseEntry entry = index.lookupResource(resourceName);
+        assertNotNull(resourceName, entry);
+        assertSame(resourceName, expected, entry.getCodeBase());
+    }
+
+    public void testGetPackageName() {
+        assertEquals("a/b", PackageIndex.getPackageName("a/b/C.class"));
+        assertEquals("", PackageIndex.getPackageName("C.class"));
+        assertEquals("a", PackageIndex.getPackageName("a/b/"));
+        assertEquals("", PackageIndex.getPackageName("a/"));
+        assertEquals("", PackageIndex.getPackageName(""));
+    }
+
+    public void testDefaultPackage() throws Exception {
+        ICodeBase first = inMemory("first", "Foo.class", "a/A.class");
+        ICodeBase second = zip("second.jar", "Bar.class", "Foo.class");
+        PackageIndex index = new PackageIndex(Arrays.asList(first, second));
+        assertEquals(2, index.getNumPackages());
+        assertEquals(0, index.getNumUnindexedCodeBases());
+
+        assertFoundIn(first, index, "Foo.class");
+        assertFoundIn(second, index, "Bar.class");
+        assertFoundIn(first, index, "a/A.class");
+        assertNull(index.lookupResource("Baz.class"));
+        assertNull(index.lookupResource("a/Foo.class"));
+    }
+
+    public void testDirectoryEntries() throws Exception {
+        // Only the directories are listed for package a
+        ICodeBase dirs = zip("dirs.jar", "a/", "a/b/", "a/b/C.class");
+        ICodeBase other = inMemory("other", "a/b/C.class", "a/D.class");
+        PackageIndex index = new PackageIndex(Arrays.asList(dirs, other));
+
+        assertFoundIn(dirs, index, "a/b/");
+        assertFoundIn(dirs, index, "a/b/C.class");
+        assertFoundIn(other, index, "a/D.class");
+        assertNull(index.lookupResource("a/c/"));
+    }
+
+    public void testDirectoryCodeBasesInClasspathOrder() throws Exception {
+        ICodeBase first = inMemory("first", "p/X.class");
+        ICodeBase dir = directory("classes", "p/X.class", "p/Y.class", "q/Q.class");
+        ICodeBase last = zip("last.jar", "p/Y.class", "p/Z.class", "q/Q.class");
+        PackageIndex index = new PackageIndex(Arrays.asList(first, dir, last));
+        assertEquals(3, index.getNumCodeBases());
+        assertEquals(1, index.getNumUnindexedCodeBases());
+
+        // Directories aren't listed, but are searched in their place
+        assertFoundIn(first, index, "p/X.class");
+        assertFoundIn(dir, index, "p/Y.class");
+        assertFoundIn(dir, index, "q/Q.class");
+        assertFoundIn(last, index, "p/Z.class");
+        assertNull(index.lookupResource("p/W.class"));
+        assertNull(index.lookupResource("r/R.class"));
+    }
+}
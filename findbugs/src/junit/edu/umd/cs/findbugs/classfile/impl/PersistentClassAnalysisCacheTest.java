@@ -0,0 +1,186 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.classfile.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.NoOpFindBugsProgress;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.ba.XClass;
+import edu.umd.cs.findbugs.classfile.ClassDescriptor;
+import edu.umd.cs.findbugs.classfile.DescriptorFactory;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IAnalysisCache;
+import edu.umd.cs.findbugs.classfile.ICodeBase;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.classfile.IClassPath;
+import edu.umd.cs.findbugs.classfile.IClassPathBuilder;
+import edu.umd.cs.findbugs.classfile.engine.ClassInfoAnalysisEngine;
+import edu.umd.cs.findbugs.io.IO;
+
+public class PersistentClassAnalysisCacheTest extends TestCase {
+
+    private static final ClassDescriptor CACHE = DescriptorFactory.createClassDescriptor(PersistentClassAnalysisCache.class);
+
+    private File tempDir;
+
+    private final PrintingBugReporter bugReporter = new PrintingBugReporter();
+
+    @Override
+    protected void setUp() throws Exception {
+        tempDir = File.createTempFile("findbugs", ".test");
+        assertTrue(tempDir.delete());
+        assertTrue(tempDir.mkdir());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        AnalysisContext.removeCurrentAnalysisContext();
+        Global.removeAnalysisCacheForCurrentThread();
+        for (File f : tempDir.listFiles()) {
+            f.delete();
+        }
+        tempDir.delete();
+    }
+
+    /**
+     * Set up an analysis of a classpath with only this class in it.
+     */
+    private IAnalysisCache createAnalysisCache() throws Exception {
+        IClassFactory factory = ClassFactory.instance();
+        byte[] data = IO.readAll(PersistentClassAnalysisCache.class.getResourceAsStream("PersistentClassAnalysisCache.class"));
+        IClassPath classPath = factory.createClassPath();
+        IAnalysisCache analysisCache = factory.createAnalysisCache(classPath, bugReporter);
+        new edu.umd.cs.findbugs.classfile.engine.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        new edu.umd.cs.findbugs.classfile.engine.asm.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        new edu.umd.cs.findbugs.classfile.engine.bcel.EngineRegistrar().registerAnalysisEngines(analysisCache);
+        Global.setAnalysisCacheForCurrentThread(analysisCache);
+        AnalysisContext.setCurrentAnalysisContext(new AnalysisContext());
+
+        IClassPathBuilder builder = factory.createClassPathBuilder(bugReporter);
+        builder.addCodeBase(factory.createInMemoryCodeBaseLocator("test",
+                Collections.singletonMap(CACHE.toResourceName(), data), null), true);
+        builder.build(classPath, new NoOpFindBugsProgress());
+        return analysisCache;
+    }
+
+    private File write(String name, int size, long lastModified) throws IOException {
+        File file = new File(tempDir, name);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[size]);
+        } finally {
+            out.close();
+        }
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    public void testLimitDiskSize() throws Exception {
+        long now = System.currentTimeMillis();
+        File oldest = write("a.fbcache", 100, now - 3000000);
+        File older = write("b.fbcache", 100, now - 2000000);
+        File recent = write("c.fbcache", 100, now - 1000000);
+        File other = write("d.txt", 1000, now - 4000000);
+
+        PersistentClassAnalysisCache.limitDiskSize(tempDir, 300);
+        assertTrue(oldest.exists());
+
+        PersistentClassAnalysisCache.limitDiskSize(tempDir, 250);
+        assertFalse(oldest.exists());
+        assertTrue(older.exists());
+        assertTrue(recent.exists());
+        assertTrue(other.exists());
+
+        PersistentClassAnalysisCache.limitDiskSize(tempDir, 0);
+        assertFalse(older.exists());
+        assertFalse(recent.exists());
+        assertTrue(other.exists());
+    }
+
+    public void testEvictsInMemoryResults() throws Exception {
+        IAnalysisCache analysisCache = createAnalysisCache();
+        PersistentClassAnalysisCache cache = new PersistentClassAnalysisCache(null, true, 1);
+        XClass xclass = cache.analyze(analysisCache, new ClassInfoAnalysisEngine(), XClass.class, CACHE);
+        assertEquals(CACHE, xclass.getClassDescriptor());
+        assertTrue(cache.getMemorySize() > 1);
+
+        // There is no file to write them to, so they are dropped right away
+        cache.flush(bugReporter);
+        assertEquals(0, cache.getMemorySize());
+    }
+
+    public void testRejectsCorruptFile() throws Exception {
+        IAnalysisCache analysisCache = createAnalysisCache();
+        PersistentClassAnalysisCache cache = new PersistentClassAnalysisCache(tempDir, true);
+        cache.analyze(analysisCache, new ClassInfoAnalysisEngine(), XClass.class, CACHE);
+        cache.flush(bugReporter);
+        File[] files = tempDir.listFiles();
+        assertEquals(1, files.length);
+        byte[] contents = IO.readAll(new FileInputStream(files[0]));
+
+        // Find the number of records, and the hash length of the first one
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(contents));
+        in.readUTF();
+        in.readInt();
+        in.readUTF();
+        in.readUTF();
+        int numRecordsOffset = contents.length - in.available();
+        assertEquals(1, in.readInt());
+        in.readUTF();
+        in.readInt();
+        int hashLengthOffset = contents.length - in.available();
+
+        ICodeBase codeBase = analysisCache.getClassPath().lookupResource(CACHE.toResourceName()).getCodeBase();
+        for (int[] corruption : new int[][] { { numRecordsOffset, -1 }, { hashLengthOffset, -1 },
+                { hashLengthOffset, Integer.MAX_VALUE } }) {
+            byte[] corrupt = contents.clone();
+            ByteBuffer.wrap(corrupt).putInt(corruption[0], corruption[1]);
+            try {
+                new PersistentClassAnalysisCache(null, true).addRecords(codeBase, new ByteArrayInputStream(corrupt));
+                fail("corrupt cache file accepted");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("Corrupt"));
+            }
+        }
+
+        // A corrupt file in the cache directory is recomputed
+        OutputStream out = new FileOutputStream(files[0]);
+        try {
+            ByteBuffer.wrap(contents).putInt(hashLengthOffset, Integer.MAX_VALUE);
+            out.write(contents);
+        } finally {
+            out.close();
+        }
+        cache = new PersistentClassAnalysisCache(tempDir, true);
+        XClass xclass = cache.analyze(analysisCache, new ClassInfoAnalysisEngine(), XClass.class, CACHE);
+        assertEquals(CACHE, xclass.getClassDescriptor());
+    }
+}
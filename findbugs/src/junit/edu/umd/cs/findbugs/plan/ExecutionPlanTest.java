@@ -0,0 +1,82 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.plan;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.DetectorFactory;
+import edu.umd.cs.findbugs.Plugin;
+import edu.umd.cs.findbugs.PluginLoader;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.ba.AnalysisContext;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.classfile.impl.ClassFactory;
+
+public class ExecutionPlanTest extends TestCase {
+    private final List<String> errors = new ArrayList<String>();
+
+    private Plugin plugin;
+
+    @Override
+    @SuppressWarnings("deprecation")
+    protected void setUp() throws Exception {
+        IClassFactory factory = ClassFactory.instance();
+        PrintingBugReporter bugReporter = new PrintingBugReporter() {
+            @Override
+            public void logError(String message, Throwable e) {
+                errors.add(message);
+            }
+        };
+        Global.setAnalysisCacheForCurrentThread(factory.createAnalysisCache(factory.createClassPath(), bugReporter));
+        AnalysisContext.setCurrentAnalysisContext(new AnalysisContext());
+        PluginLoader pluginLoader = new PluginLoader(true, new URL("file:/plugins/executionPlanTest.jar"));
+        plugin = new Plugin("edu.umd.cs.findbugs.plan.test", "1.0", null, pluginLoader, true, false);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        AnalysisContext.removeCurrentAnalysisContext();
+        Global.removeAnalysisCacheForCurrentThread();
+    }
+
+    private void addDetector(String className) {
+        plugin.addDetectorFactory(new DetectorFactory(plugin, className, null, true, "fast", "", null));
+    }
+
+    public void testUnloadableDetectors() throws Exception {
+        addDetector("edu.umd.cs.findbugs.detect.FindDeadLocalStores");
+        addDetector("java.lang.String");
+        addDetector("edu.umd.cs.findbugs.detect.NoSuchDetector");
+
+        ExecutionPlan plan = new ExecutionPlan();
+        plan.addPlugin(plugin);
+        plan.build();
+
+        assertEquals(1, plan.getNumPasses());
+        assertTrue(plan.isActive("edu.umd.cs.findbugs.detect.FindDeadLocalStores"));
+        assertFalse(plan.isActive("java.lang.String"));
+        assertFalse(plan.isActive("edu.umd.cs.findbugs.detect.NoSuchDetector"));
+        assertEquals(2, errors.size());
+    }
+}
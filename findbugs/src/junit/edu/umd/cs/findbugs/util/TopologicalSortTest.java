@@ -0,0 +1,115 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import edu.umd.cs.findbugs.PrintingBugReporter;
+import edu.umd.cs.findbugs.classfile.Global;
+import edu.umd.cs.findbugs.classfile.IClassFactory;
+import edu.umd.cs.findbugs.classfile.impl.ClassFactory;
+import edu.umd.cs.findbugs.util.TopologicalSort.OutEdges;
+
+public class TopologicalSortTest extends TestCase {
+    private final Map<String, List<String>> edges = new HashMap<String, List<String>>();
+
+    private final OutEdges<String> outEdges = new OutEdges<String>() {
+        @Override
+        public Collection<String> getOutEdges(String e) {
+            List<String> result = edges.get(e);
+            return result != null ? result : new ArrayList<String>();
+        }
+    };
+
+    @Override
+    protected void setUp() {
+        // For the profiler
+        IClassFactory factory = ClassFactory.instance();
+        Global.setAnalysisCacheForCurrentThread(factory.createAnalysisCache(factory.createClassPath(),
+                new PrintingBugReporter()));
+    }
+
+    @Override
+    protected void tearDown() {
+        Global.removeAnalysisCacheForCurrentThread();
+    }
+
+    private void edge(String from, String... to) {
+        edges.put(from, Arrays.asList(to));
+    }
+
+    private List<List<String>> sort(String... elements) {
+        return TopologicalSort.sortByDependencyLevel(Arrays.asList(elements), outEdges);
+    }
+
+    private static List<List<String>> levels(String[]... levels) {
+        List<List<String>> result = new ArrayList<List<String>>();
+        for (String[] level : levels) {
+            result.add(Arrays.asList(level));
+        }
+        return result;
+    }
+
+    public void testEmpty() {
+        assertEquals(levels(), sort());
+    }
+
+    public void testLevels() {
+        edge("a", "b", "c");
+        edge("b", "c");
+        edge("d", "c");
+        assertEquals(levels(new String[] { "c", "e" }, new String[] { "b", "d" }, new String[] { "a" }),
+                sort("a", "b", "c", "d", "e"));
+    }
+
+    public void testIgnoredEdges() {
+        // Edges to elements not in the list, and to the element itself
+        edge("a", "a", "x");
+        edge("b", "a", "y");
+        assertEquals(levels(new String[] { "a" }, new String[] { "b" }), sort("a", "b"));
+    }
+
+    public void testCycleMembersOnConsecutiveLevels() {
+        edge("a", "b");
+        edge("b", "c");
+        edge("c", "a", "d");
+        edge("e", "d");
+        assertEquals(levels(new String[] { "d" }, new String[] { "a", "e" }, new String[] { "b" }, new String[] { "c" }),
+                sort("a", "b", "c", "d", "e"));
+        // In list order
+        assertEquals(levels(new String[] { "d" }, new String[] { "c", "e" }, new String[] { "a" }, new String[] { "b" }),
+                sort("c", "a", "b", "d", "e"));
+    }
+
+    public void testAboveWholeCycle() {
+        edge("a", "b");
+        edge("b", "a");
+        edge("c", "a");
+        edge("d", "c");
+        assertEquals(levels(new String[] { "a" }, new String[] { "b" }, new String[] { "c" }, new String[] { "d" }),
+                sort("d", "c", "a", "b"));
+    }
+}
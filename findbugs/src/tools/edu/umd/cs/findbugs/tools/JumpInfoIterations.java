@@ -0,0 +1,65 @@
+/*
+ * FindBugs - Find bugs in Java programs
+ * Copyright (C) 2014 University of Maryland
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package edu.umd.cs.findbugs.tools;
+
+import java.io.File;
+
+import edu.umd.cs.findbugs.FindBugs;
+import edu.umd.cs.findbugs.FindBugs2;
+import edu.umd.cs.findbugs.OpcodeStack.JumpInfoFactory;
+import edu.umd.cs.findbugs.TextUICommandLine;
+
+/**
+ * Compare the number of passes over the bytecode needed to compute the
+ * OpcodeStack jump info, with and without seeding loop heads from the
+ * StackMapTable. Takes the same arguments as the FindBugs command line; the
+ * analysis is run once in each mode and the warnings are discarded.
+ */
+public class JumpInfoIterations {
+
+    public static void main(String[] args) throws Exception {
+        File output = File.createTempFile("jumpinfo", ".xml");
+        output.deleteOnExit();
+        String[] argv = new String[args.length + 4];
+        argv[0] = "-quiet";
+        argv[1] = "-xml";
+        argv[2] = "-output";
+        argv[3] = output.getPath();
+        System.arraycopy(args, 0, argv, 4, args.length);
+
+        for (boolean seed : new boolean[] { false, true }) {
+            System.setProperty(JumpInfoFactory.SEED_FROM_STACK_MAP_PROPERTY, Boolean.toString(seed));
+            JumpInfoFactory.resetStatistics();
+
+            FindBugs2 findBugs = new FindBugs2();
+            TextUICommandLine commandLine = new TextUICommandLine();
+            FindBugs.processCommandLine(commandLine, argv, findBugs);
+            long start = System.currentTimeMillis();
+            findBugs.execute();
+            long elapsed = System.currentTimeMillis() - start;
+
+            long methods = JumpInfoFactory.getMethodsComputed();
+            long iterations = JumpInfoFactory.getIterationsComputed();
+            System.out.printf("%-22s %7d methods %8d iterations %6.2f per method %7d ms%n",
+                    seed ? "seeded from StackMap" : "iterative", methods, iterations,
+                    methods == 0 ? 0.0 : (double) iterations / methods, elapsed);
+        }
+    }
+}